@@ -0,0 +1,120 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Perft;
+
+/**
+ * Mesure JMH des moteurs de recherche, à profondeur fixe, depuis chaque position de référence de
+ * {@link Perft.Position}.
+ * <p>
+ * Chaque recherche part d'un moteur neuf (sans table de transpositions ni historique hérités d'une
+ * recherche précédente), avec la bibliothèque d'ouvertures désactivée.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark
+{
+  /** Nom du moteur mesuré (voir {@link EngineFactory#getNames()}). */
+  @Param( { "jChecs.AlphaBeta", "jChecs.MiniMax", "jChecs.MiniMax++", "jChecs.NegaScout" })
+  public String engine;
+
+  /** Profondeur de recherche, ramenée dans les limites acceptées par le moteur. */
+  @Param( { "3" })
+  public int depth;
+
+  /** Position de référence mesurée. */
+  @Param( { "STARTING", "KIWIPETE", "ENDGAME", "PROMOTIONS" })
+  public String position;
+
+  /** Etat de la partie correspondant à la position. */
+  private MoveGenerator _etat;
+
+  /** Instance du moteur pour la prochaine recherche. */
+  private Engine _moteur;
+
+  /**
+   * Pour que JMH puisse instancier la mesure.
+   */
+  public EngineBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare un moteur neuf avant chaque recherche.
+   */
+  @Setup(Level.Invocation)
+  public void newEngine()
+  {
+    _moteur = EngineFactory.newInstance(engine);
+    _moteur.setOpeningsEnabled(false);
+    _moteur.setSearchDepthLimit(Math.max(_moteur.getMinimalSearchDepth(), Math.min(depth,
+        _moteur.getMaximalSearchDepth())));
+  }
+
+  /**
+   * Mesure une recherche du meilleur mouvement.
+   * 
+   * @return Mouvement retenu.
+   */
+  @Benchmark
+  public Move search()
+  {
+    return _moteur.getMoveFor(_etat);
+  }
+
+  /**
+   * Prépare l'état de la position.
+   * 
+   * @throws FENException en cas d'erreur dans la position de référence.
+   */
+  @Setup
+  public void setUp() throws FENException
+  {
+    _etat =
+        Perft.valueOf(BoardFactory.Type.FASTEST, Perft.Position.valueOf(position).getFEN());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Perft;
+
+/**
+ * Mesure JMH des fonctions d'évaluation, sur chaque position de référence de
+ * {@link Perft.Position}.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeuristicBenchmark
+{
+  /** Fonction d'évaluation mesurée. */
+  @Param( { "BoardControl", "Minimal", "Mobility", "PawnStructure" })
+  public String heuristic;
+
+  /** Position de référence mesurée. */
+  @Param( { "STARTING", "KIWIPETE", "ENDGAME", "PROMOTIONS" })
+  public String position;
+
+  /** Etat de la partie correspondant à la position. */
+  private MoveGenerator _etat;
+
+  /** Instance de la fonction d'évaluation. */
+  private Heuristic _heuristique;
+
+  /**
+   * Pour que JMH puisse instancier la mesure.
+   */
+  public HeuristicBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Mesure l'évaluation de la position, du point de vue des blancs.
+   * 
+   * @return Valeur de la position.
+   */
+  @Benchmark
+  public int evaluate()
+  {
+    return _heuristique.evaluate(_etat, true);
+  }
+
+  /**
+   * Prépare l'état et la fonction d'évaluation mesurés.
+   * 
+   * @throws FENException en cas d'erreur dans la position de référence.
+   */
+  @Setup
+  public void setUp() throws FENException
+  {
+    _etat =
+        Perft.valueOf(BoardFactory.Type.FASTEST, Perft.Position.valueOf(position).getFEN());
+    if ("BoardControl".equals(heuristic))
+    {
+      _heuristique = new BoardControlHeuristic();
+    }
+    else if ("Minimal".equals(heuristic))
+    {
+      _heuristique = new MinimalHeuristic();
+    }
+    else if ("Mobility".equals(heuristic))
+    {
+      _heuristique = new MobilityHeuristic();
+    }
+    else
+    {
+      assert "PawnStructure".equals(heuristic);
+      _heuristique = new PawnStructureHeuristic(new MobilityHeuristic());
+    }
+  }
+}
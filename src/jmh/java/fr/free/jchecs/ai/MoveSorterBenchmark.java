@@ -0,0 +1,161 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Perft;
+
+/**
+ * Mesure JMH des méthodes de tri des mouvements, sur les mouvements valides de chaque position de
+ * référence de {@link Perft.Position}.
+ * <p>
+ * Les deux voies d'accès sont mesurées : le tri d'instances de {@link Move} par comparateur, et le
+ * tri des identifiants entiers utilisé par les moteurs.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveSorterBenchmark
+{
+  /** Méthode de tri mesurée. */
+  @Param( { "Static", "Killer", "History" })
+  public String sorter;
+
+  /** Position de référence mesurée. */
+  @Param( { "STARTING", "KIWIPETE", "ENDGAME", "PROMOTIONS" })
+  public String position;
+
+  /** Identifiants des mouvements valides. */
+  private int [] _ids;
+
+  /** Mouvements valides depuis la position. */
+  private Move [] _mouvements;
+
+  /** Tampon des priorités pour le tri des identifiants. */
+  private int [] _priorites;
+
+  /** Instance de la méthode de tri. */
+  private PackedMoveSorter _tri;
+
+  /** Tampon de travail pour le tri des identifiants. */
+  private int [] _tampon;
+
+  /**
+   * Pour que JMH puisse instancier la mesure.
+   */
+  public MoveSorterBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare les mouvements et la méthode de tri mesurés.
+   * 
+   * @throws FENException en cas d'erreur dans la position de référence.
+   */
+  @Setup
+  public void setUp() throws FENException
+  {
+    final MoveGenerator etat =
+        Perft.valueOf(BoardFactory.Type.FASTEST, Perft.Position.valueOf(position).getFEN());
+    _mouvements = etat.getValidMoves(etat.isWhiteActive());
+    final int nb = _mouvements.length;
+    _ids = new int [ nb ];
+    for (int i = 0; i < nb; i++)
+    {
+      _ids[i] = _mouvements[i].toId();
+    }
+    _priorites = new int [ nb ];
+    _tampon = new int [ nb ];
+    if ("Static".equals(sorter))
+    {
+      _tri = new StaticMoveSorter();
+    }
+    else
+    {
+      final ContextSorter ctx;
+      if ("Killer".equals(sorter))
+      {
+        ctx = new KillerMoveSorter();
+      }
+      else
+      {
+        assert "History".equals(sorter);
+        ctx = new HistorySorter();
+      }
+      // Alimente le contexte avec un mouvement sur trois, pour que les priorités diffèrent...
+      for (int i = 0; i < nb; i += 3)
+      {
+        ctx.put(_ids[i]);
+      }
+      _tri = ctx;
+    }
+  }
+
+  /**
+   * Mesure le tri des identifiants de mouvements, tel que réalisé par les moteurs.
+   * 
+   * @return Liste triée.
+   */
+  @Benchmark
+  public int [] sortIds()
+  {
+    final int nb = _ids.length;
+    System.arraycopy(_ids, 0, _tampon, 0, nb);
+    AbstractEngine.sortMoves(_tri, _tampon, nb, _priorites);
+    return _tampon;
+  }
+
+  /**
+   * Mesure le tri d'instances de mouvements par comparateur.
+   * 
+   * @return Liste triée.
+   */
+  @Benchmark
+  public Move [] sortMoves()
+  {
+    final Move [] res = _mouvements.clone();
+    Arrays.sort(res, _tri);
+    return res;
+  }
+}
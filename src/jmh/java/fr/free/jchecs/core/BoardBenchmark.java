@@ -0,0 +1,135 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mesure JMH des opérations élémentaires des descriptions d'état de partie, pour chaque type de
+ * représentation et chaque position de référence de {@link Perft.Position}.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark
+{
+  /** Type de représentation mesuré. */
+  @Param( { "ARRAY", "MAILBOX", "X88", "BITMAPS" })
+  public String type;
+
+  /** Position de référence mesurée. */
+  @Param( { "STARTING", "KIWIPETE", "ENDGAME", "PROMOTIONS" })
+  public String position;
+
+  /** Etat de la partie correspondant à la position. */
+  private MoveGenerator _etat;
+
+  /** Mouvements valides depuis la position. */
+  private Move [] _mouvements;
+
+  /** Trait de la position. */
+  private boolean _trait;
+
+  /**
+   * Pour que JMH puisse instancier la mesure.
+   */
+  public BoardBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Mesure la dérivation de l'état par chacun des mouvements valides.
+   * 
+   * @param pTrou Puits de JMH évitant l'élimination du code mesuré.
+   */
+  @Benchmark
+  public void derive(final Blackhole pTrou)
+  {
+    for (final Move mvt : _mouvements)
+    {
+      pTrou.consume(_etat.derive(mvt, true));
+    }
+  }
+
+  /**
+   * Mesure la recherche des mouvements valides.
+   * 
+   * @return Liste des mouvements valides.
+   */
+  @Benchmark
+  public Move [] getValidMoves()
+  {
+    return _etat.getValidMoves(_trait);
+  }
+
+  /**
+   * Mesure le calcul de la clé de hachage.
+   * 
+   * @return Clé de hachage de l'état.
+   */
+  @Benchmark
+  public int hashCodeOf()
+  {
+    return _etat.hashCode();
+  }
+
+  /**
+   * Mesure le test d'échec.
+   * 
+   * @return Vrai si le roi du joueur ayant le trait est en échec.
+   */
+  @Benchmark
+  public boolean isInCheck()
+  {
+    return _etat.isInCheck(_trait);
+  }
+
+  /**
+   * Prépare l'état mesuré.
+   * 
+   * @throws FENException en cas d'erreur dans la position de référence.
+   */
+  @Setup
+  public void setUp() throws FENException
+  {
+    _etat =
+        Perft.valueOf(BoardFactory.Type.valueOf(type), Perft.Position.valueOf(position).getFEN());
+    _trait = _etat.isWhiteActive();
+    _mouvements = _etat.getValidMoves(_trait);
+  }
+}
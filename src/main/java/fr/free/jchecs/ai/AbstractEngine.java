@@ -18,23 +18,24 @@
  */
 package fr.free.jchecs.ai;
 
-import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
-import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.MAX_MOVES;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceType.PAWN;
 
-import java.io.DataInputStream;
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Random;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
-import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.Board;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MutableMoveGenerator;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.SANUtils;
 
 /**
  * Implémentation de base des moteurs d'IA pour les échecs.
@@ -49,11 +50,28 @@ abstract class AbstractEngine implements Engine
   /** Valeur d'un Mat. */
   protected static final int MATE_VALUE = Integer.MIN_VALUE / 2;
 
+  /**
+   * Valeur d'une position gagnée d'après les tables de finales, diminuée de la distance au mat (en
+   * demi-coups depuis la racine) : les mats effectivement trouvés par la recherche restent
+   * préférés.
+   */
+  protected static final int TABLEBASE_WIN_VALUE = -(MATE_VALUE / 2);
+
+  /** Facteur de croissance minimal de la durée d'une itération à la suivante. */
+  private static final long MIN_GROWTH_FACTOR = 3;
+
+  /** Nombre de demi-coups de la recherche de quiescence pendant lesquels les échecs sont parés. */
+  private static final int QUIESCENCE_CHECK_PLIES = 2;
+
+  /** Fonction de tri des prises examinées par la recherche de quiescence. */
+  private static final PackedMoveSorter CAPTURE_SORTER = new StaticMoveSorter();
+
+  /** Taille par défaut des tables de transposition (en Mo). */
+  static final int DEFAULT_HASH_SIZE = 16;
+
   /** Modèle de découpage des enregistrements des ouvertures suivant les ';'. */
   static final Pattern SPLITTER = Pattern.compile(";");
 
-  /** Buffer des ouvertures. */
-  private static Map<Integer, int []> S_openings;
   static
   {
     final Thread preload = new Thread(new Runnable()
@@ -63,7 +81,8 @@ abstract class AbstractEngine implements Engine
        */
       public void run()
       {
-        getFromOpenings(BoardFactory.valueOf(FASTEST, EMPTY));
+        OpeningBook.getDefault();
+        Tablebase.getDefault();
       }
     });
     preload.setPriority(Thread.MIN_PRIORITY);
@@ -76,27 +95,63 @@ abstract class AbstractEngine implements Engine
   /** Limite haute de la profondeur de recherche. */
   private final int _maximalSearchDepth;
 
+  /** Drapeau demandant l'effacement de la mémoire des recherches avant la prochaine recherche. */
+  private volatile boolean _clearRequested;
+
+  /** Profondeur de la dernière itération complète de la recherche en cours. */
+  private int _depthReached;
+
   /** Temps total passé en traitement par le moteur. */
   private long _elapsedTime;
 
   /** Nombre total de demi-coups évalué par le moteur. */
   private int _halfmoveCount;
 
+  /** Taille de la table de transposition (en Mo). */
+  private int _hashSize = DEFAULT_HASH_SIZE;
+
+  /** Contexte (décompte des noeuds, conditions d'arrêt) de la recherche en cours. */
+  private final SearchContext _context = new SearchContext();
+
   /** Fonction d'évalutation utilisée par le moteur. */
   private Heuristic _heuristic;
 
   /** Fonction de tri des mouvements. */
   private Comparator<Move> _moveSorter;
 
+  /** Nombre maximal de noeuds visités par recherche (0 si pas de limite). */
+  private long _nodeLimit;
+
   /** Drapeau signalant l'activation de la bibliothèque d'ouvertures. */
   private boolean _openingsEnabled;
 
   /** Score du dernier mouvement. */
   private int _score;
 
+  /** Résultat détaillé de la dernière recherche (ou null). */
+  private volatile SearchResult _searchResult;
+
+  /** Drapeau signalant l'activation des tables de finales. */
+  private boolean _tablebasesEnabled;
+
+  /** Tables de finales utilisées par la recherche en cours (ou null). */
+  private Tablebase _tablebase;
+
   /** Limite de la profondeur de recherche (en demi-coups). */
   private int _searchDepthLimit;
 
+  /** Profondeur de l'itération de recherche en cours (en demi-coups). */
+  private int _searchDepth;
+
+  /** Nombre de threads pouvant être utilisés par une recherche. */
+  private int _threadCount = 1;
+
+  /** Durée allouée à la recherche d'un mouvement (en ms, 0 si pas de limite). */
+  private long _timeLimit;
+
+  /** Table de transposition propre au moteur (allouée à la première utilisation). */
+  private TranspositionTable _transpositions;
+
   /**
    * Instancie un nouveau moteur IA.
    * 
@@ -114,9 +169,10 @@ abstract class AbstractEngine implements Engine
 
     setSearchDepthLimit(pProfDef);
 
-    setHeuristic(new MobilityHeuristic());
+    setHeuristic(new PawnStructureHeuristic(new MobilityHeuristic()));
     setMoveSorter(new StaticMoveSorter());
     setOpeningsEnabled(true);
+    setTablebasesEnabled(true);
   }
 
   /**
@@ -143,6 +199,19 @@ abstract class AbstractEngine implements Engine
     _halfmoveCount += pNombre;
   }
 
+  /**
+   * Oublie ce que le moteur a appris lors des recherches précédentes : table de transposition et
+   * contexte de tri des mouvements.
+   * <p>
+   * L'effacement n'a lieu qu'au début de la recherche suivante, une recherche en cours n'est donc
+   * ni perturbée, ni attendue.
+   * </p>
+   */
+  public final void clearSearchState()
+  {
+    _clearRequested = true;
+  }
+
   /**
    * Renvoi le temps total passé en traitement par le moteur.
    * 
@@ -160,84 +229,16 @@ abstract class AbstractEngine implements Engine
    * @param pEtat Etat du jeu.
    * @return Mouvement correspondant (ou null)
    */
-  static final synchronized Move getFromOpenings(final MoveGenerator pEtat)
+  static final Move getFromOpenings(final MoveGenerator pEtat)
   {
     assert pEtat != null;
 
     Move res = null;
 
-    if (S_openings == null)
+    final OpeningBook bibliotheque = OpeningBook.getDefault();
+    if (bibliotheque != null)
     {
-      final InputStream is = Engine.class.getResourceAsStream("jchecs.opn");
-      if (is != null)
-      {
-        S_openings = new HashMap<Integer, int []>();
-        DataInputStream in = null;
-        try
-        {
-          in = new DataInputStream(new GZIPInputStream(is));
-          while (in.available() > 0)
-          {
-            final int nb = in.readByte();
-            assert (nb > 0) && (nb <= 5);
-            final int [] mvtsId = new int [ nb ];
-            final int cle = in.readInt();
-            for (int i = 0; i < nb; i++)
-            {
-              mvtsId[i] = (in.readUnsignedShort() << 8) + in.readUnsignedByte();
-              assert (mvtsId[i] & 0xFF000000) == 0;
-            }
-            S_openings.put(Integer.valueOf(cle), mvtsId);
-          }
-        }
-        catch (final EOFException e)
-        {
-          // Pas grave, le coup sera calculé...
-        }
-        catch (final IOException e)
-        {
-          // Pas grave, le coup sera calculé...
-          assert false;
-        }
-        finally
-        {
-          if (in != null)
-          {
-            try
-            {
-              in.close();
-            }
-            catch (final IOException e1)
-            {
-              // On aura essayé :-)
-            }
-          }
-        }
-      }
-    }
-
-    int [] ids = null;
-    if (S_openings != null)
-    {
-      ids = S_openings.get(Integer.valueOf(pEtat.hashCode()));
-    }
-    if (ids != null)
-    {
-      res = Move.valueOf(ids[RANDOMIZER.nextInt(ids.length)]);
-      // Les hashcodes n'étant pas infaïbles, il vaut mieux valider le mouvement obtenu...
-      boolean erreurHashcode = true;
-      for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
-      {
-        if (mvt.equals(res))
-        {
-          erreurHashcode = false;
-          break;
-        }
-      }
-      if (erreurHashcode)
-      {
-        res = null;
-      }
+      res = bibliotheque.getMove(pEtat, RANDOMIZER);
     }
 
     return res;
@@ -254,6 +255,42 @@ abstract class AbstractEngine implements Engine
     return _halfmoveCount;
   }
 
+  /**
+   * Renvoi la taille de la table de transposition du moteur.
+   * 
+   * @return Taille de la table de transposition (en Mo).
+   */
+  public final synchronized int getHashSize()
+  {
+    assert _hashSize > 0;
+    return _hashSize;
+  }
+
+  /**
+   * Renvoi une description de l'utilisation de la table de transposition lors de la dernière
+   * recherche (consultations fructueuses / infructueuses, entrées écrasées).
+   * 
+   * @return Description de l'utilisation de la table, ou null si le moteur n'en utilise pas.
+   */
+  public final synchronized String getHashStatistics()
+  {
+    if (_transpositions == null)
+    {
+      return null;
+    }
+
+    final long succes = _transpositions.getHits();
+    final long total = succes + _transpositions.getMisses();
+    long taux = 0;
+    if (total > 0)
+    {
+      taux = (100 * succes) / total;
+    }
+    return "hash " + _transpositions.getSize() + "MB: " + succes + " hits, "
+        + _transpositions.getMisses() + " misses (" + taux + "% hits), "
+        + _transpositions.getOverwrites() + " overwrites";
+  }
+
   /**
    * Renvoi la fonction d'évaluation utilisée par le moteur.
    * 
@@ -267,12 +304,16 @@ abstract class AbstractEngine implements Engine
 
   /**
    * Renvoi la limite haute de la profondeur de recherche supportées par le moteur.
+   * <p>
+   * Il ne s'agit que de la profondeur raisonnable d'une recherche à profondeur fixe : une recherche
+   * limitée en temps peut aller au delà, si la limite de profondeur le permet.
+   * </p>
    * 
    * @return Limite haute de la profondeur de recherche (>= getMinimalSearchDepth()).
    */
   public final int getMaximalSearchDepth()
   {
-    assert _maximalSearchDepth >= _searchDepthLimit;
+    assert _maximalSearchDepth >= _minimalSearchDepth;
     return _maximalSearchDepth;
   }
 
@@ -293,34 +334,137 @@ abstract class AbstractEngine implements Engine
    * @param pEtat Etat de l'échiquier.
    * @return Mouvement trouvé.
    */
-  public final synchronized Move getMoveFor(final MoveGenerator pEtat)
+  public final Move getMoveFor(final MoveGenerator pEtat)
+  {
+    return getMoveFor(pEtat, newSearch());
+  }
+
+  /**
+   * Recherche un mouvement répondant à un état de l'échiquier, pour une recherche numérotée à
+   * l'avance par {@link #newSearch()}, avec ses propres limites (fixées sous le verrou du moteur).
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pRecherche Numéro de la recherche.
+   * @param pDuree Durée allouée (en ms), ou 0 pour une recherche à profondeur fixe.
+   * @param pProfondeur Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
+   * @param pThreads Nombre de threads (>= 1).
+   * @return Mouvement trouvé.
+   */
+  public final synchronized Move getMoveFor(final MoveGenerator pEtat, final long pRecherche,
+      final long pDuree, final int pProfondeur, final int pThreads)
+  {
+    setTimeLimit(pDuree);
+    setSearchDepthLimit(pProfondeur);
+    setThreadCount(pThreads);
+    return getMoveFor(pEtat, pRecherche);
+  }
+
+  /**
+   * Recherche un mouvement répondant à un état de l'échiquier, pour une recherche numérotée à
+   * l'avance par {@link #newSearch()}.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pRecherche Numéro de la recherche.
+   * @return Mouvement trouvé.
+   */
+  public final synchronized Move getMoveFor(final MoveGenerator pEtat, final long pRecherche)
   {
     assert pEtat != null;
 
     final long debut = System.currentTimeMillis();
+    long echeance = 0;
+    if (_timeLimit > 0)
+    {
+      echeance = debut + _timeLimit;
+    }
+    // Une demande d'arrêt déjà reçue pour cette recherche n'est pas perdue...
+    _context.start(echeance, _nodeLimit, pRecherche);
 
     Move res = null;
 
     setScore(0);
+    _depthReached = 0;
+    // Ce qu'ont appris les recherches précédentes de la partie reste utile, mais vieillit...
+    final boolean effacer = _clearRequested;
+    _clearRequested = false;
+    if (_transpositions != null)
+    {
+      if (effacer)
+      {
+        _transpositions.clear();
+      }
+      _transpositions.newSearch();
+    }
+    if (_moveSorter instanceof ContextSorter)
+    {
+      if (effacer)
+      {
+        ((ContextSorter) _moveSorter).clear();
+      }
+      else
+      {
+        ((ContextSorter) _moveSorter).age();
+      }
+    }
 
     if (_openingsEnabled && (pEtat.getFullmoveNumber() < 20))
     {
       res = getFromOpenings(pEtat);
     }
 
+    _tablebase = null;
+    if (_tablebasesEnabled)
+    {
+      _tablebase = Tablebase.getDefault();
+    }
+    if ((res == null) && (_tablebase != null))
+    {
+      res = _tablebase.getBestMove(pEtat);
+      if (res != null)
+      {
+        setScore(probeTablebase(pEtat, 0));
+      }
+    }
+
     if (res == null)
     {
       // Calcul du meilleur coup...
       final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
       assert coups.length > 0;
 
-      res = searchMoveFor(pEtat, coups);
+      searchStarted(pEtat, coups);
+      try
+      {
+        if ((_timeLimit > 0) || isFixedDepthIterative())
+        {
+          res = searchIteratively(pEtat, coups, debut);
+        }
+        else
+        {
+          _searchDepth = _searchDepthLimit;
+          res = searchMoveFor(pEtat, coups);
+          if (!_context.isAborted())
+          {
+            _depthReached = _searchDepth;
+          }
+        }
+      }
+      finally
+      {
+        searchFinished();
+      }
+      if (_score < MATE_VALUE)
+      {
+        // Recherche interrompue avant qu'un seul mouvement n'ait pu être évalué...
+        setScore(0);
+      }
     }
 
     final long duree = System.currentTimeMillis() - debut;
     addElapsedTime(duree);
 
     assert res != null;
+    _searchResult = newSearchResult(pEtat, res, duree);
     return res;
   }
 
@@ -335,6 +479,17 @@ abstract class AbstractEngine implements Engine
     return _moveSorter;
   }
 
+  /**
+   * Renvoi le nombre maximal de noeuds visités lors de la recherche d'un mouvement.
+   * 
+   * @return Nombre maximal de noeuds, ou 0 si la recherche n'est pas limitée en noeuds.
+   */
+  public final synchronized long getNodeLimit()
+  {
+    assert _nodeLimit >= 0;
+    return _nodeLimit;
+  }
+
   /**
    * Renvoi le score obtenu par le dernier mouvement calculé.
    * 
@@ -345,11 +500,35 @@ abstract class AbstractEngine implements Engine
     return _score;
   }
 
+  /**
+   * Renvoi le contexte (décompte des noeuds, conditions d'arrêt) de la recherche en cours.
+   * 
+   * @return Contexte de la recherche menée par {@link #getMoveFor(MoveGenerator)}.
+   */
+  protected final SearchContext getSearchContext()
+  {
+    return _context;
+  }
+
+  /**
+   * Renvoi la profondeur de l'itération de recherche en cours (en demi-coups).
+   * <p>
+   * Lors d'une recherche à profondeur fixe, elle est égale à {@link #getSearchDepthLimit()}.
+   * </p>
+   * 
+   * @return Profondeur de la recherche en cours ([getMinimalSearchDepth(),
+   *         getSearchDepthLimit()]).
+   */
+  protected final int getSearchDepth()
+  {
+    assert _searchDepth >= _minimalSearchDepth;
+    return _searchDepth;
+  }
+
   /**
    * Renvoi la valeur limite de la profondeur de recherche (en demi-coups).
    * 
-   * @return Limite de la profondeur de recherche ([getMinimalSearchDepth(),
-   *         getMaximalSearchDepth()]).
+   * @return Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
    */
   public final int getSearchDepthLimit()
   {
@@ -357,6 +536,168 @@ abstract class AbstractEngine implements Engine
     return _searchDepthLimit;
   }
 
+  /**
+   * Renvoi le résultat détaillé de la dernière recherche : variation principale, profondeur
+   * atteinte et statistiques.
+   * 
+   * @return Résultat de la dernière recherche, ou null si aucun mouvement n'a encore été cherché.
+   */
+  public final SearchResult getSearchResult()
+  {
+    return _searchResult;
+  }
+
+  /**
+   * Renvoi la table de transposition propre au moteur, en l'allouant si nécessaire.
+   * <p>
+   * Seuls les moteurs qui l'utilisent en supportent le coût mémoire. A n'appeler qu'au cours d'une
+   * recherche (donc sous le verrou pris par {@link #getMoveFor(MoveGenerator)}).
+   * </p>
+   * 
+   * @return Table de transposition du moteur.
+   */
+  protected final TranspositionTable getTranspositionTable()
+  {
+    if (_transpositions == null)
+    {
+      _transpositions = new TranspositionTable(_hashSize);
+    }
+
+    return _transpositions;
+  }
+
+  /**
+   * Renvoi le nombre de threads pouvant être utilisés par une recherche.
+   * 
+   * @return Nombre de threads (>= 1).
+   */
+  public final synchronized int getThreadCount()
+  {
+    assert _threadCount >= 1;
+    return _threadCount;
+  }
+
+  /**
+   * Renvoi la durée allouée à la recherche d'un mouvement.
+   * 
+   * @return Durée allouée (en ms), ou 0 si la recherche n'est limitée que par la profondeur.
+   */
+  public final synchronized long getTimeLimit()
+  {
+    assert _timeLimit >= 0;
+    return _timeLimit;
+  }
+
+  /**
+   * Construit le résultat détaillé d'une recherche qui vient de se terminer.
+   * <p>
+   * La variation principale est reconstituée en suivant, à partir du mouvement retenu, les
+   * meilleurs mouvements mémorisés par la table de transposition (si le moteur en utilise une),
+   * sans dépasser la profondeur atteinte.
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier à la racine de la recherche.
+   * @param pMouvement Mouvement retenu.
+   * @param pDuree Durée de la recherche (en ms).
+   * @return Résultat de la recherche.
+   */
+  private SearchResult newSearchResult(final MoveGenerator pEtat, final Move pMouvement,
+      final long pDuree)
+  {
+    assert pEtat != null;
+    assert pMouvement != null;
+
+    long succes = 0;
+    long consultations = 0;
+    if (_transpositions != null)
+    {
+      succes = _transpositions.getHits();
+      consultations = succes + _transpositions.getMisses();
+    }
+
+    final List<Move> variation = new ArrayList<Move>();
+    final StringBuilder san = new StringBuilder();
+    final int [] coups = new int [ MAX_MOVES ];
+    MoveGenerator etat = pEtat;
+    Move mvt = pMouvement;
+    while (mvt != null)
+    {
+      if (san.length() > 0)
+      {
+        san.append(' ');
+      }
+      san.append(SANUtils.toSAN(etat, mvt));
+      variation.add(mvt);
+      etat = etat.derive(mvt, true);
+      mvt = null;
+      if ((_transpositions != null) && (variation.size() < _depthReached))
+      {
+        final int connu = _transpositions.getMove(etat);
+        if (connu != 0)
+        {
+          // La table peut confondre deux positions : le mouvement doit être valide...
+          final int l = etat.generateMoves(etat.isWhiteActive(), coups);
+          for (int i = 0; i < l; i++)
+          {
+            if (coups[i] == connu)
+            {
+              mvt = Move.valueOf(connu);
+              break;
+            }
+          }
+        }
+      }
+    }
+
+    return new SearchResult(variation.toArray(new Move [ variation.size() ]), san.toString(),
+        _score, _depthReached, _context.getNodes(), pDuree, succes, consultations, _context
+            .getCutoffs(), _context.getFirstMoveCutoffs());
+  }
+
+  /**
+   * Indique si un mouvement est une promotion.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à tester.
+   * @return "true" si le mouvement amène un pion sur la dernière ligne.
+   */
+  protected static final boolean isPromotion(final int pMouvement)
+  {
+    if (Move.pieceOf(pMouvement).getType() != PAWN)
+    {
+      return false;
+    }
+
+    final int ligne = Move.toOf(pMouvement) / FILE_COUNT;
+    return (ligne == 0) || (ligne == RANK_COUNT - 1);
+  }
+
+  /**
+   * Indique si les recherches à profondeur fixe doivent, elles aussi, être menées par
+   * approfondissements successifs : c'est le cas des moteurs dont chaque itération prépare la
+   * suivante (table de transposition, fenêtre d'aspiration). Par défaut, elles ne le sont pas.
+   * 
+   * @return "true" si les recherches à profondeur fixe sont itératives.
+   */
+  protected boolean isFixedDepthIterative()
+  {
+    return false;
+  }
+
+  /**
+   * Indique si la recherche en cours a été interrompue (demande d'arrêt, limite de noeuds ou de
+   * temps atteinte).
+   * <p>
+   * Une fois interrompue, les évaluations remontées par la recherche ne sont plus significatives :
+   * elles ne doivent être ni conservées, ni comparées.
+   * </p>
+   * 
+   * @return "true" si la recherche doit être abandonnée.
+   */
+  protected final boolean isSearchAborted()
+  {
+    return _context.isAborted();
+  }
+
   /**
    * Indique si l'utilisation de la bibliothèque d'ouvertures est activée.
    * 
@@ -367,8 +708,254 @@ abstract class AbstractEngine implements Engine
     return _openingsEnabled;
   }
 
+  /**
+   * Indique si l'utilisation des tables de finales est activée.
+   * 
+   * @return "true" si les tables de finales sont utilisées, "false" sinon.
+   */
+  public final boolean isTablebasesEnabled()
+  {
+    return _tablebasesEnabled;
+  }
+
+  /**
+   * Attribue un numéro à une nouvelle recherche, avant même qu'elle ne commence : une demande
+   * d'arrêt reçue entre temps n'est ainsi pas perdue.
+   * 
+   * @return Numéro de la recherche, à transmettre à {@link #getMoveFor(MoveGenerator, long)}.
+   */
+  public final long newSearch()
+  {
+    return _context.newSearch();
+  }
+
+  /**
+   * Recherche la valeur d'une position dans les tables de finales, si elle comporte suffisamment
+   * peu de pièces.
+   * <p>
+   * A n'appeler qu'au cours d'une recherche (donc sous le verrou pris par
+   * {@link #getMoveFor(MoveGenerator)}, ou depuis une recherche auxiliaire qu'elle a lancée).
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pPly Distance (en demi-coups) à la racine de la recherche.
+   * @return Evaluation de la position pour le camp qui a le trait, ou {@link Tablebase#NO_VALUE} si
+   *         elle n'est pas couverte par les tables.
+   */
+  protected final int probeTablebase(final Board pEtat, final int pPly)
+  {
+    assert pEtat != null;
+    assert pPly >= 0;
+
+    final Tablebase tables = _tablebase;
+    if ((tables == null) || (pEtat.getPieceCount() > tables.getMaxPieceCount()))
+    {
+      return Tablebase.NO_VALUE;
+    }
+
+    final int res = tables.probe(pEtat);
+    if (res > 0)
+    {
+      return TABLEBASE_WIN_VALUE - (pPly + res);
+    }
+    if ((res < 0) && (res != Tablebase.NO_VALUE))
+    {
+      return (pPly - res - 1) - TABLEBASE_WIN_VALUE;
+    }
+
+    return res;
+  }
+
+  /**
+   * Recherche de quiescence : prolonge la recherche au delà de l'horizon, en ne considérant que les
+   * prises (et promotions) jusqu'à obtenir une position calme.
+   * <p>
+   * Le camp qui joue peut toujours s'en tenir à l'évaluation de la position ("stand pat"), sauf s'il
+   * est en échec au cours des premiers demi-coups, auquel cas tous les mouvements sont examinés.
+   * Les prises perdantes d'après l'évaluation statique des échanges sont ignorées (hors échec).
+   * </p>
+   * 
+   * @param pContexte Contexte de la recherche (conditions d'arrêt).
+   * @param pEtat Etat de l'échiquier.
+   * @param pAlpha Seuil alpha.
+   * @param pBeta Seuil beta.
+   * @param pPly Distance (en demi-coups) à la racine de la recherche.
+   * @param pProfondeur Profondeur atteinte dans la recherche de quiescence (0, -1, -2...).
+   * @return Meilleure évaluation obtenue à ce niveau.
+   */
+  protected final int quiesce(final SearchContext pContexte, final MutableMoveGenerator pEtat,
+      final int pAlpha, final int pBeta, final int pPly, final int pProfondeur)
+  {
+    assert pContexte != null;
+    assert pEtat != null;
+    assert pAlpha <= pBeta;
+    assert pProfondeur <= 0;
+
+    if (pContexte.visit())
+    {
+      return 0;
+    }
+
+    final boolean trait = pEtat.isWhiteActive();
+    final boolean echec = (pProfondeur > -QUIESCENCE_CHECK_PLIES) && pEtat.isInCheck(trait);
+
+    int res;
+    int alpha = pAlpha;
+    if (echec)
+    {
+      res = MATE_VALUE - 1;
+    }
+    else
+    {
+      res = getHeuristic().evaluate(pEtat, trait);
+      if (res >= pBeta)
+      {
+        return res;
+      }
+      if (res > alpha)
+      {
+        alpha = res;
+      }
+    }
+
+    final int [] coups = pContexte.getMoves(pPly);
+    int l = pEtat.generateMoves(trait, coups);
+    if (l == 0)
+    {
+      return getHeuristic().evaluate(pEtat, trait);
+    }
+
+    if (!echec)
+    {
+      final int nb = l;
+      l = 0;
+      for (int i = 0; i < nb; i++)
+      {
+        final int mvt = coups[i];
+        if ((Move.capturedOf(mvt) != null) || isPromotion(mvt))
+        {
+          coups[l++] = mvt;
+        }
+      }
+    }
+    sortMoves(CAPTURE_SORTER, coups, l, pContexte.getPriorities(pPly));
+    if (pContexte == _context)
+    {
+      addHalfmove(l);
+    }
+
+    for (int i = 0; i < l; i++)
+    {
+      final int mvt = coups[i];
+      final Piece prise = Move.capturedOf(mvt);
+      if ((!echec) && (prise != null)
+          && (Move.pieceOf(mvt).getType().getValue() > prise.getType().getValue())
+          && (StaticExchange.evaluate(pEtat, mvt) < 0))
+      {
+        // Prise perdante : inutile de l'examiner...
+        continue;
+      }
+      pEtat.makeMove(mvt);
+      final int note = -quiesce(pContexte, pEtat, -pBeta, -alpha, pPly + 1, pProfondeur - 1);
+      pEtat.unmakeMove();
+      if (pContexte.isAborted())
+      {
+        return res;
+      }
+      if (note > res)
+      {
+        res = note;
+        if (res > alpha)
+        {
+          alpha = res;
+          if (alpha >= pBeta)
+          {
+            break;
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Recherche le "meilleur" demi-coup par approfondissements successifs, dans la limite du temps
+   * alloué et de la limite de profondeur (qui peut dépasser {@link #getMaximalSearchDepth()}).
+   * <p>
+   * Si la recherche est limitée en temps, l'itération suivante n'est lancée que si sa durée,
+   * estimée à partir du facteur de croissance observé entre les deux itérations précédentes, tient
+   * dans le temps restant. Une itération interrompue est abandonnée au profit de la précédente,
+   * sauf s'il s'agit de la première.
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pCoups Liste des mouvement initiaux valides.
+   * @param pDebut Heure de début de la recherche (en ms).
+   * @return Mouvement trouvé par la dernière itération terminée.
+   */
+  private Move searchIteratively(final MoveGenerator pEtat, final Move [] pCoups,
+      final long pDebut)
+  {
+    assert pEtat != null;
+    assert pCoups != null;
+
+    Move res = null;
+    long dureePrec = 0;
+    final int limite = Math.max(_minimalSearchDepth, _searchDepthLimit);
+    for (int prof = _minimalSearchDepth; prof <= limite; prof++)
+    {
+      _searchDepth = prof;
+      final long debutIteration = System.currentTimeMillis();
+      final int score = _score;
+      final int profondeur = _depthReached;
+      final Move mvt = searchMoveFor(pEtat, pCoups);
+      if (_context.isAborted() && (res != null))
+      {
+        setScore(score);
+        _depthReached = profondeur;
+        break;
+      }
+      res = mvt;
+      if (_context.isAborted())
+      {
+        break;
+      }
+      _depthReached = prof;
+      final long fin = System.currentTimeMillis();
+      final long duree = Math.max(1, fin - debutIteration);
+      long facteur = MIN_GROWTH_FACTOR;
+      if (dureePrec > 0)
+      {
+        facteur = Math.max(facteur, duree / dureePrec);
+      }
+      if ((_timeLimit > 0) && ((fin - pDebut) + duree * facteur > _timeLimit))
+      {
+        break;
+      }
+      dureePrec = duree;
+    }
+
+    assert res != null;
+    return res;
+  }
+
+  /**
+   * Signale la fin de la recherche d'un mouvement, qu'elle soit terminée ou interrompue. Les
+   * moteurs qui ont lancé des traitements dans {@link #searchStarted(MoveGenerator, Move[])}
+   * doivent les arrêter ici. Par défaut, ne fait rien.
+   */
+  protected void searchFinished()
+  {
+    // Rien de spécifique...
+  }
+
   /**
    * Corps de la recherche du "meilleur" demi-coup pour un état de l'échiquier.
+   * <p>
+   * La profondeur à atteindre est donnée par {@link #getSearchDepth()}. Lors d'une recherche par
+   * approfondissements successifs, cette méthode est appelée une fois par itération.
+   * </p>
    * 
    * @param pEtat Etat de l'échiquier.
    * @param pCoups Liste des mouvement initiaux valides.
@@ -376,6 +963,94 @@ abstract class AbstractEngine implements Engine
    */
   protected abstract Move searchMoveFor(final MoveGenerator pEtat, final Move [] pCoups);
 
+  /**
+   * Trie une liste de mouvements identifiés par des entiers, dans l'ordre défini par une fonction de
+   * tri.
+   * <p>
+   * Si la fonction sait classer directement les entiers (voir {@link PackedMoveSorter}), le tri se
+   * fait sans aucune allocation, par insertion (les listes étant courtes) et de manière stable.
+   * </p>
+   * 
+   * @param pTri Fonction de tri des mouvements.
+   * @param pCoups Liste des mouvements à trier.
+   * @param pNombre Nombre de mouvements de la liste.
+   * @param pPriorites Tableau de travail (d'au moins pNombre cases).
+   */
+  protected static final void sortMoves(final Comparator<Move> pTri, final int [] pCoups,
+      final int pNombre, final int [] pPriorites)
+  {
+    assert pTri != null;
+    assert pCoups != null;
+    assert pPriorites != null;
+
+    if (pTri instanceof PackedMoveSorter)
+    {
+      final PackedMoveSorter tri = (PackedMoveSorter) pTri;
+      for (int i = 0; i < pNombre; i++)
+      {
+        final int mvt = pCoups[i];
+        final int prio = tri.getPriority(mvt);
+        int j = i;
+        while ((j > 0) && (pPriorites[j - 1] < prio))
+        {
+          pCoups[j] = pCoups[j - 1];
+          pPriorites[j] = pPriorites[j - 1];
+          j--;
+        }
+        pCoups[j] = mvt;
+        pPriorites[j] = prio;
+      }
+    }
+    else
+    {
+      final Move [] mvts = new Move [ pNombre ];
+      for (int i = 0; i < pNombre; i++)
+      {
+        mvts[i] = Move.valueOf(pCoups[i]);
+      }
+      Arrays.sort(mvts, pTri);
+      for (int i = 0; i < pNombre; i++)
+      {
+        pCoups[i] = mvts[i].toId();
+      }
+    }
+  }
+
+  /**
+   * Signale le début de la recherche d'un mouvement, avant sa première itération (la bibliothèque
+   * d'ouvertures et les tables de finales n'ont pas fourni de mouvement). Par défaut, ne fait
+   * rien.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pCoups Liste des mouvement initiaux valides.
+   */
+  protected void searchStarted(final MoveGenerator pEtat, final Move [] pCoups)
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Modifie la taille de la table de transposition du moteur.
+   * <p>
+   * Une éventuelle table déjà allouée avec une autre taille est abandonnée.
+   * </p>
+   * 
+   * @param pTaille Taille de la table de transposition (en Mo, > 0).
+   */
+  public final synchronized void setHashSize(final int pTaille)
+  {
+    if (pTaille <= 0)
+    {
+      throw new IllegalArgumentException("Illegal hash size [" + pTaille + ']');
+    }
+
+    if (pTaille != _hashSize)
+    {
+      _hashSize = pTaille;
+      _transpositions = null;
+    }
+  }
+
   /**
    * Modifie la fonction d'évaluation utilisée par le moteur.
    * 
@@ -410,6 +1085,21 @@ abstract class AbstractEngine implements Engine
     _openingsEnabled = pActif;
   }
 
+  /**
+   * Modifie le nombre maximal de noeuds visités lors de la recherche d'un mouvement.
+   * 
+   * @param pNoeuds Nombre maximal de noeuds, ou 0 pour ne pas limiter la recherche en noeuds.
+   */
+  public final synchronized void setNodeLimit(final long pNoeuds)
+  {
+    if (pNoeuds < 0)
+    {
+      throw new IllegalArgumentException("Illegal node limit [" + pNoeuds + ']');
+    }
+
+    _nodeLimit = pNoeuds;
+  }
+
   /**
    * Alimente le score obtenu par le dernier mouvement calculé.
    * 
@@ -420,11 +1110,54 @@ abstract class AbstractEngine implements Engine
     _score = pScore;
   }
 
+  /**
+   * Active / désactive l'utilisation des tables de finales.
+   * 
+   * @param pActif A "true" pour activer l'utilisation des tables de finales, à "false" sinon.
+   */
+  public final void setTablebasesEnabled(final boolean pActif)
+  {
+    _tablebasesEnabled = pActif;
+  }
+
+  /**
+   * Modifie le nombre de threads pouvant être utilisés par une recherche.
+   * <p>
+   * Seuls les moteurs sachant mener une recherche parallèle en tiennent compte, et jamais au delà
+   * du nombre de processeurs disponibles.
+   * </p>
+   * 
+   * @param pNombre Nombre de threads (>= 1).
+   */
+  public final synchronized void setThreadCount(final int pNombre)
+  {
+    if (pNombre < 1)
+    {
+      throw new IllegalArgumentException("Illegal thread count [" + pNombre + ']');
+    }
+
+    _threadCount = pNombre;
+  }
+
+  /**
+   * Modifie la durée allouée à la recherche d'un mouvement.
+   * 
+   * @param pDuree Durée allouée (en ms), ou 0 pour une recherche à profondeur fixe.
+   */
+  public final synchronized void setTimeLimit(final long pDuree)
+  {
+    if (pDuree < 0)
+    {
+      throw new IllegalArgumentException("Illegal time limit [" + pDuree + ']');
+    }
+
+    _timeLimit = pDuree;
+  }
+
   /**
    * Aliment la valeur de la limite de la profondeur de recherche (en demi-coups).
    * 
-   * @param pLimite Limite de la profondeur de recherche ([getMinimalSearchDepth(),
-   *          getMaximalSearchDepth()]).
+   * @param pLimite Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
    */
   public final void setSearchDepthLimit(final int pLimite)
   {
@@ -432,4 +1165,39 @@ abstract class AbstractEngine implements Engine
 
     _searchDepthLimit = pLimite;
   }
+
+  /**
+   * Demande l'arrêt de la recherche en cours, et des recherches déjà numérotées par
+   * {@link #newSearch()} mais pas encore commencées.
+   * <p>
+   * Cette méthode n'attend pas le verrou du moteur : elle peut être appelée depuis un autre thread
+   * pendant que {@link #getMoveFor(MoveGenerator)} s'exécute, qui renvoie alors au plus vite le
+   * meilleur mouvement trouvé jusque là.
+   * </p>
+   */
+  public final void stopSearch()
+  {
+    _context.stop();
+  }
+
+  /**
+   * Demande l'arrêt d'une recherche numérotée par {@link #newSearch()}, qu'elle soit en cours ou
+   * pas encore commencée, ainsi que des recherches numérotées avant elle.
+   * 
+   * @param pRecherche Numéro de la recherche à arrêter.
+   */
+  public final void stopSearch(final long pRecherche)
+  {
+    _context.stop(pRecherche);
+  }
+
+  /**
+   * Comptabilise la visite d'un noeud de l'arbre de recherche et vérifie les conditions d'arrêt.
+   * 
+   * @return "true" si la recherche doit être abandonnée.
+   */
+  protected final boolean visitNode()
+  {
+    return _context.visit();
+  }
 }
@@ -21,11 +21,14 @@ package fr.free.jchecs.ai;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MutableMoveGenerator;
 
 /**
- * Moteur d'IA basé sur un alpha/beta (façon NegaMax) sur 5 demi-coups.
+ * Moteur d'IA basé sur un alpha/beta (façon NegaMax) sur 5 demi-coups, prolongé par une recherche
+ * de quiescence.
  * 
  * @author David Cotton
  */
@@ -50,22 +53,35 @@ final class AlphaBetaEngine extends AbstractEngine
    * @param pBeta Seuil beta.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int alphabeta(final MoveGenerator pEtat, final int pProfondeur, final int pAlpha,
+  private int alphabeta(final MutableMoveGenerator pEtat, final int pProfondeur, final int pAlpha,
       final int pBeta)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
     assert pAlpha <= pBeta;
 
-    final boolean trait = pEtat.isWhiteActive();
-
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, trait);
+      return quiesce(getSearchContext(), pEtat, pAlpha, pBeta, getSearchDepth(), 0);
+    }
+
+    if (visitNode())
+    {
+      return 0;
     }
 
-    final Move [] coups = pEtat.getValidMoves(trait);
-    final int l = coups.length;
+    final int ply = getSearchDepth() - pProfondeur;
+    final int finale = probeTablebase(pEtat, ply);
+    if (finale != Tablebase.NO_VALUE)
+    {
+      return finale;
+    }
+
+    final boolean trait = pEtat.isWhiteActive();
+
+    final SearchContext ctx = getSearchContext();
+    final int [] coups = ctx.getMoves(ply);
+    final int l = pEtat.generateMoves(trait, coups);
     if (l == 0)
     {
       return getHeuristic().evaluate(pEtat, trait);
@@ -83,12 +99,19 @@ final class AlphaBetaEngine extends AbstractEngine
     {
       killer = null;
     }
-    Arrays.sort(coups, tri);
+    sortMoves(tri, coups, l, ctx.getPriorities(ply));
     addHalfmove(l);
     int alpha = pAlpha;
-    for (final Move mvt : coups)
+    for (int i = 0; i < l; i++)
     {
-      final int note = -alphabeta(pEtat.derive(mvt, true), pProfondeur - 1, -pBeta, -alpha);
+      final int mvt = coups[i];
+      pEtat.makeMove(mvt);
+      final int note = -alphabeta(pEtat, pProfondeur - 1, -pBeta, -alpha);
+      pEtat.unmakeMove();
+      if (isSearchAborted())
+      {
+        return res;
+      }
       if (note > res)
       {
         res = note;
@@ -97,6 +120,7 @@ final class AlphaBetaEngine extends AbstractEngine
           alpha = res;
           if (alpha > pBeta)
           {
+            ctx.cutoff(i);
             if (killer != null)
             {
               killer.put(mvt);
@@ -130,10 +154,17 @@ final class AlphaBetaEngine extends AbstractEngine
     Arrays.sort(pCoups, tri);
     Move res = pCoups[0];
     int alpha = MATE_VALUE - 1;
+    final MutableMoveGenerator etat = BoardFactory.toMutable(pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = -alphabeta(etat, getSearchDepthLimit() - 1, MATE_VALUE, -alpha);
+      etat.makeMove(mvt);
+      final int note = -alphabeta(etat, getSearchDepth() - 1, MATE_VALUE, -alpha);
+      etat.unmakeMove();
+      if (isSearchAborted())
+      {
+        // Seuls les mouvements complètement évalués sont retenus...
+        break;
+      }
       if ((note > alpha) || ((note == alpha) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
@@ -144,11 +175,6 @@ final class AlphaBetaEngine extends AbstractEngine
 
     setScore(alpha);
 
-    if (tri instanceof KillerMoveSorter)
-    {
-      ((KillerMoveSorter) tri).clear();
-    }
-
     assert res != null;
     return res;
   }
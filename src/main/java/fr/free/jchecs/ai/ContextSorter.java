@@ -19,7 +19,6 @@
 package fr.free.jchecs.ai;
 
 import java.io.Serializable;
-import java.util.Comparator;
 
 import fr.free.jchecs.core.Move;
 
@@ -29,8 +28,14 @@ import fr.free.jchecs.core.Move;
  * 
  * @author David Cotton
  */
-interface ContextSorter extends Comparator<Move>, Serializable
+interface ContextSorter extends PackedMoveSorter, Serializable
 {
+  /**
+   * Fait vieillir le contexte mémorisé, au début d'une nouvelle recherche : il reste exploitable,
+   * mais pèse moins que celui que la nouvelle recherche va produire.
+   */
+  void age();
+
   /**
    * Efface le contexte mémorisé.
    */
@@ -50,4 +55,11 @@ interface ContextSorter extends Comparator<Move>, Serializable
    * @param pMouvement Mouvement à mémoriser.
    */
   void put(final Move pMouvement);
+
+  /**
+   * Mémorise un mouvement important, identifié par un entier.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à mémoriser.
+   */
+  void put(final int pMouvement);
 }
@@ -0,0 +1,336 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.PieceType;
+
+/**
+ * Table de finale : distance au mat de toutes les positions d'une combinaison de pièces.
+ * <p>
+ * Une table est identifiée par son nom, composé de la lettre du roi blanc suivie des lettres des
+ * autres pièces blanches (dans l'ordre {@link #TYPE_ORDER}), puis de la même chose pour les noirs :
+ * "KQK", "KRK", "KPK", "KQKR", ... Les pièces de la table sont rangées dans cet ordre, rois en
+ * tête.
+ * </p>
+ * <p>
+ * Chaque position (cases des pièces et trait) est associée à un octet signé :
+ * <ul>
+ * <li>0 : nulle (ou position illégale),</li>
+ * <li>v &gt; 0 : le camp qui a le trait mate en v demi-coups,</li>
+ * <li>v &lt; 0 : le camp qui a le trait est maté en (-v - 1) demi-coups (-1 : il est mat).</li>
+ * </ul>
+ * Sur disque, le tableau des valeurs suit un en-tête (identifiant {@link #MAGIC} et version du
+ * format {@link #VERSION}), le tout compressé par GZIP. Les tables sont produites hors ligne par
+ * {@link TablebaseGenerator}.
+ * </p>
+ * <p>
+ * Classe sûre vis-à-vis des threads, les tables étant immuables une fois construites.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class EndgameTable
+{
+  /** Identifiant des fichiers de tables de finales ("JCTB"). */
+  static final int MAGIC = 0x4A435442;
+
+  /** Version du format des fichiers. */
+  static final int VERSION = 1;
+
+  /** Extension des fichiers de tables de finales. */
+  static final String EXTENSION = ".tbz";
+
+  /** Ordre des types de pièces (hors rois) dans les noms des tables. */
+  static final PieceType [] TYPE_ORDER = {
+      PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN,
+  };
+
+  /** Nom de la table. */
+  private final String _name;
+
+  /** Pièces de la table, rois en tête. */
+  private final Piece [] _pieces;
+
+  /** Valeurs des positions. */
+  private final byte [] _values;
+
+  /**
+   * Instancie une nouvelle table.
+   * 
+   * @param pNom Nom de la table.
+   * @param pValeurs Valeurs des positions (le tableau n'est pas copié).
+   */
+  EndgameTable(final String pNom, final byte [] pValeurs)
+  {
+    assert pValeurs != null;
+
+    _name = pNom;
+    _pieces = piecesOf(pNom);
+    if (pValeurs.length != sizeOf(_pieces.length))
+    {
+      throw new IllegalArgumentException("Illegal endgame table size [" + pNom + ']');
+    }
+    _values = pValeurs;
+  }
+
+  /**
+   * Isole les pièces d'une liste, hors rois.
+   * 
+   * @param pPieces Pièces de la table, rois en tête.
+   * @return Pièces hors rois.
+   */
+  private static Piece [] extras(final Piece [] pPieces)
+  {
+    final Piece [] res = new Piece [ pPieces.length - 2 ];
+    System.arraycopy(pPieces, 2, res, 0, res.length);
+
+    return res;
+  }
+  /**
+   * Renvoi le nom de la table.
+   * 
+   * @return Nom de la table.
+   */
+  String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Renvoi une des pièces de la table.
+   * 
+   * @param pIndice Indice de la pièce (0 : roi blanc, 1 : roi noir, ...).
+   * @return Pièce correspondante.
+   */
+  Piece getPiece(final int pIndice)
+  {
+    return _pieces[pIndice];
+  }
+
+  /**
+   * Renvoi le nombre de pièces (rois compris) de la table.
+   * 
+   * @return Nombre de pièces.
+   */
+  int getPieceCount()
+  {
+    return _pieces.length;
+  }
+
+  /**
+   * Renvoi la valeur d'une position.
+   * 
+   * @param pIndice Indice de la position (voir {@link #indexOf(int[], boolean)}).
+   * @return Valeur de la position.
+   */
+  int getValue(final int pIndice)
+  {
+    return _values[pIndice];
+  }
+
+  /**
+   * Renvoi l'indice d'une position dans la table.
+   * 
+   * @param pCases Indices des cases des pièces, dans l'ordre des pièces de la table.
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @return Indice de la position.
+   */
+  static int indexOf(final int [] pCases, final boolean pTraitBlanc)
+  {
+    assert pCases != null;
+
+    int res = 0;
+    for (int i = pCases.length; --i >= 0; /* Pré-décrémenté */)
+    {
+      assert (pCases[i] >= 0) && (pCases[i] < 64);
+      res = (res << 6) | pCases[i];
+    }
+    res <<= 1;
+    if (!pTraitBlanc)
+    {
+      res |= 1;
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi le nom normalisé de la table correspondant à une liste de pièces (hors rois).
+   * 
+   * @param pPieces Pièces (hors rois).
+   * @param pNombre Nombre de pièces de la liste à prendre en compte.
+   * @return Nom de la table.
+   */
+  static String nameOf(final Piece [] pPieces, final int pNombre)
+  {
+    assert pPieces != null;
+
+    final StringBuilder sb = new StringBuilder(pNombre + 2);
+    for (int c = 0; c < 2; c++)
+    {
+      final boolean blanc = c == 0;
+      sb.append('K');
+      for (final PieceType t : TYPE_ORDER)
+      {
+        for (int i = 0; i < pNombre; i++)
+        {
+          final Piece p = pPieces[i];
+          if ((p.getType() == t) && (p.isWhite() == blanc))
+          {
+            sb.append(Character.toUpperCase(p.getFENLetter()));
+          }
+        }
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Décode la liste des pièces d'une table à partir de son nom.
+   * 
+   * @param pNom Nom de la table.
+   * @return Pièces de la table, rois en tête.
+   * @throws IllegalArgumentException si le nom n'est pas un nom normalisé de table.
+   */
+  static Piece [] piecesOf(final String pNom)
+  {
+    if ((pNom == null) || (!pNom.startsWith("K")) || (pNom.indexOf('K', 1) < 0))
+    {
+      throw new IllegalArgumentException("Illegal endgame table name [" + pNom + ']');
+    }
+
+    final int roiNoir = pNom.indexOf('K', 1);
+    final Piece [] res = new Piece [ pNom.length() ];
+    res[0] = Piece.WHITE_KING;
+    res[1] = Piece.BLACK_KING;
+    int n = 2;
+    for (int i = 1; i < pNom.length(); i++)
+    {
+      if (i != roiNoir)
+      {
+        final char c = pNom.charAt(i);
+        final Piece p;
+        if (i < roiNoir)
+        {
+          p = Piece.valueOf(c);
+        }
+        else
+        {
+          p = Piece.valueOf(Character.toLowerCase(c));
+        }
+        if ((p == null) || (p.getType() == PieceType.KING))
+        {
+          throw new IllegalArgumentException("Illegal endgame table name [" + pNom + ']');
+        }
+        res[n++] = p;
+      }
+    }
+    if (!pNom.equals(nameOf(extras(res), res.length - 2)))
+    {
+      throw new IllegalArgumentException("Illegal endgame table name [" + pNom + ']');
+    }
+
+    return res;
+  }
+
+  /**
+   * Lit une table depuis un flux.
+   * 
+   * @param pNom Nom de la table.
+   * @param pFlux Flux contenant la table compressée.
+   * @return Table lue.
+   * @throws IOException en cas d'erreur de lecture, ou si le contenu n'est pas une table valide.
+   */
+  static EndgameTable read(final String pNom, final InputStream pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    final DataInputStream in = new DataInputStream(new GZIPInputStream(pFlux));
+    try
+    {
+      if (in.readInt() != MAGIC)
+      {
+        throw new IOException("Not an endgame table [" + pNom + ']');
+      }
+      final int version = in.readInt();
+      if (version != VERSION)
+      {
+        throw new IOException("Unsupported endgame table version " + version);
+      }
+      final byte [] valeurs = new byte [ sizeOf(piecesOf(pNom).length) ];
+      in.readFully(valeurs);
+      if (in.read() >= 0)
+      {
+        throw new IOException("Illegal endgame table size [" + pNom + ']');
+      }
+
+      return new EndgameTable(pNom, valeurs);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Renvoi le nombre de positions d'une table.
+   * 
+   * @param pNombre Nombre de pièces (rois compris) de la table.
+   * @return Nombre de positions.
+   */
+  static int sizeOf(final int pNombre)
+  {
+    assert (pNombre >= 2) && (pNombre <= 4);
+
+    return 2 << (6 * pNombre);
+  }
+
+  /**
+   * Ecrit la table dans un flux.
+   * 
+   * @param pFlux Flux de destination (fermé en fin d'écriture).
+   * @throws IOException en cas d'erreur d'écriture.
+   */
+  void write(final OutputStream pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(pFlux));
+    try
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.write(_values);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+}
@@ -30,6 +30,16 @@ import fr.free.jchecs.core.MoveGenerator;
  */
 public interface Engine
 {
+  /**
+   * Oublie ce que le moteur a appris lors des recherches précédentes (table de transposition,
+   * contexte de tri des mouvements), par exemple après l'annulation d'un coup. Sinon, ces
+   * informations sont conservées d'une recherche à l'autre et accélèrent les suivantes.
+   * <p>
+   * L'effacement n'a lieu qu'au début de la recherche suivante.
+   * </p>
+   */
+  void clearSearchState();
+
   /**
    * Renvoi le temps total passé en traitement par le moteur.
    * 
@@ -44,6 +54,21 @@ public interface Engine
    */
   int getHalfmoveCount();
 
+  /**
+   * Renvoi la taille de la table de transposition du moteur.
+   * 
+   * @return Taille de la table de transposition (en Mo).
+   */
+  int getHashSize();
+
+  /**
+   * Renvoi une description de l'utilisation de la table de transposition lors de la dernière
+   * recherche (consultations fructueuses / infructueuses, entrées écrasées).
+   * 
+   * @return Description de l'utilisation de la table, ou null si le moteur n'en utilise pas.
+   */
+  String getHashStatistics();
+
   /**
    * Renvoi la fonction d'évaluation utilisée par le moteur.
    * 
@@ -73,6 +98,35 @@ public interface Engine
    */
   Move getMoveFor(final MoveGenerator pEtat);
 
+  /**
+   * Recherche un mouvement répondant à un état de l'échiquier, pour une recherche numérotée à
+   * l'avance par {@link #newSearch()} : une demande d'arrêt reçue avant qu'elle ne commence
+   * l'interrompt dès son début.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pRecherche Numéro de la recherche.
+   * @return Mouvement trouvé.
+   */
+  Move getMoveFor(final MoveGenerator pEtat, final long pRecherche);
+
+  /**
+   * Recherche un mouvement répondant à un état de l'échiquier, pour une recherche numérotée à
+   * l'avance par {@link #newSearch()}, avec ses propres limites.
+   * <p>
+   * Les limites sont fixées sous le verrou de la recherche : un autre thread préparant sa propre
+   * recherche ne peut pas les modifier entre-temps.
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pRecherche Numéro de la recherche.
+   * @param pDuree Durée allouée (en ms), ou 0 pour une recherche à profondeur fixe.
+   * @param pProfondeur Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
+   * @param pThreads Nombre de threads (>= 1).
+   * @return Mouvement trouvé.
+   */
+  Move getMoveFor(final MoveGenerator pEtat, final long pRecherche, final long pDuree,
+      final int pProfondeur, final int pThreads);
+
   /**
    * Renvoi la fonction de tri des mouvements.
    * 
@@ -80,6 +134,13 @@ public interface Engine
    */
   Comparator<Move> getMoveSorter();
 
+  /**
+   * Renvoi le nombre maximal de noeuds visités lors de la recherche d'un mouvement.
+   * 
+   * @return Nombre maximal de noeuds, ou 0 si la recherche n'est pas limitée en noeuds.
+   */
+  long getNodeLimit();
+
   /**
    * Renvoi le score obtenu par le dernier mouvement calculé.
    * 
@@ -90,11 +151,32 @@ public interface Engine
   /**
    * Renvoi la valeur limite de la profondeur de recherche (en demi-coups).
    * 
-   * @return Limite de la profondeur de recherche ([getMinimalSearchDepth(),
-   *         getMaximalSearchDepth()]).
+   * @return Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
    */
   int getSearchDepthLimit();
 
+  /**
+   * Renvoi le résultat détaillé de la dernière recherche : variation principale, profondeur
+   * atteinte et statistiques.
+   * 
+   * @return Résultat de la dernière recherche, ou null si aucun mouvement n'a encore été cherché.
+   */
+  SearchResult getSearchResult();
+
+  /**
+   * Renvoi le nombre de threads pouvant être utilisés par une recherche.
+   * 
+   * @return Nombre de threads (>= 1).
+   */
+  int getThreadCount();
+
+  /**
+   * Renvoi la durée allouée à la recherche d'un mouvement.
+   * 
+   * @return Durée allouée (en ms), ou 0 si la recherche n'est limitée que par la profondeur.
+   */
+  long getTimeLimit();
+
   /**
    * Indique si l'utilisation de la bibliothèque d'ouvertures est activée.
    * 
@@ -102,6 +184,28 @@ public interface Engine
    */
   boolean isOpeningsEnabled();
 
+  /**
+   * Indique si l'utilisation des tables de finales est activée.
+   * 
+   * @return "true" si les tables de finales sont utilisées, "false" sinon.
+   */
+  boolean isTablebasesEnabled();
+
+  /**
+   * Attribue un numéro à une nouvelle recherche, avant même qu'elle ne commence. A appeler par
+   * celui qui décide de la recherche (et peut vouloir l'arrêter), depuis n'importe quel thread.
+   * 
+   * @return Numéro de la recherche, à transmettre à {@link #getMoveFor(MoveGenerator, long)}.
+   */
+  long newSearch();
+
+  /**
+   * Modifie la taille de la table de transposition du moteur.
+   * 
+   * @param pTaille Taille de la table de transposition (en Mo, > 0).
+   */
+  void setHashSize(final int pTaille);
+
   /**
    * Modifie la fonction d'évaluation utilisée par le moteur.
    * 
@@ -116,6 +220,17 @@ public interface Engine
    */
   void setMoveSorter(final Comparator<Move> pComparateur);
 
+  /**
+   * Modifie le nombre maximal de noeuds visités lors de la recherche d'un mouvement.
+   * <p>
+   * Une fois la limite atteinte, la recherche est interrompue et le meilleur mouvement trouvé
+   * jusque là est renvoyé.
+   * </p>
+   * 
+   * @param pNoeuds Nombre maximal de noeuds, ou 0 pour ne pas limiter la recherche en noeuds.
+   */
+  void setNodeLimit(final long pNoeuds);
+
   /**
    * Active / désactive l'utilisation de la bibliothèque d'ouvertures.
    * 
@@ -123,11 +238,67 @@ public interface Engine
    */
   void setOpeningsEnabled(final boolean pActif);
 
+  /**
+   * Active / désactive l'utilisation des tables de finales.
+   * 
+   * @param pActif A "true" pour activer l'utilisation des tables de finales, à "false" sinon.
+   */
+  void setTablebasesEnabled(final boolean pActif);
+
+  /**
+   * Modifie le nombre de threads pouvant être utilisés par une recherche.
+   * <p>
+   * Seuls les moteurs sachant mener une recherche parallèle en tiennent compte, et jamais au delà
+   * du nombre de processeurs disponibles.
+   * </p>
+   * 
+   * @param pNombre Nombre de threads (>= 1).
+   */
+  void setThreadCount(final int pNombre);
+
+  /**
+   * Modifie la durée allouée à la recherche d'un mouvement.
+   * <p>
+   * Si une durée est fixée, la recherche est menée par approfondissements successifs, jusqu'à la
+   * limite de profondeur (voir {@link #setSearchDepthLimit(int)}), tant que le temps écoulé laisse
+   * espérer terminer l'itération suivante. Le mouvement retenu est celui de la dernière itération
+   * terminée. Une itération qui dépasse malgré tout la durée allouée est interrompue.
+   * </p>
+   * 
+   * @param pDuree Durée allouée (en ms), ou 0 pour une recherche à profondeur fixe.
+   */
+  void setTimeLimit(final long pDuree);
+
   /**
    * Aliment la valeur de la limite de la profondeur de recherche (en demi-coups).
+   * <p>
+   * Une recherche à profondeur fixe est menée à cette profondeur, une recherche limitée en temps
+   * ne va jamais au delà. Dans ce dernier cas, la limite peut dépasser
+   * {@link #getMaximalSearchDepth()} : la recherche s'approfondit alors tant que le temps le
+   * permet.
+   * </p>
    * 
-   * @param pLimite Limite de la profondeur de recherche ([getMinimalSearchDepth(),
-   *          getMaximalSearchDepth()]).
+   * @param pLimite Limite de la profondeur de recherche (>= getMinimalSearchDepth()).
    */
   void setSearchDepthLimit(final int pLimite);
+
+  /**
+   * Demande l'arrêt de la recherche en cours, et des recherches déjà numérotées par
+   * {@link #newSearch()} mais pas encore commencées. Les recherches numérotées ensuite ne sont pas
+   * concernées.
+   * <p>
+   * Peut être appelé depuis un autre thread que celui qui mène la recherche :
+   * {@link #getMoveFor(MoveGenerator)} renvoie alors au plus vite le meilleur mouvement trouvé
+   * jusque là.
+   * </p>
+   */
+  void stopSearch();
+
+  /**
+   * Demande l'arrêt d'une recherche numérotée par {@link #newSearch()}, qu'elle soit en cours ou
+   * pas encore commencée, ainsi que des recherches numérotées avant elle.
+   * 
+   * @param pRecherche Numéro de la recherche à arrêter.
+   */
+  void stopSearch(final long pRecherche);
 }
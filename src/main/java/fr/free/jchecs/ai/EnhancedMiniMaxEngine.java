@@ -20,8 +20,10 @@ package fr.free.jchecs.ai;
 
 import java.util.Arrays;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MutableMoveGenerator;
 
 /**
  * Moteur d'IA basé sur un mini/max ammélioré par un élagae simple, sur 4 demi-coups.
@@ -52,13 +54,18 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
    * @param pMax Valeur du max du noeud père (petite optimisation, en attendant un vrai Alpha/Béta).
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMin(final MoveGenerator pEtat, final int pProfondeur, final int pMax)
+  private int findMin(final MutableMoveGenerator pEtat, final int pProfondeur, final int pMax)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
 
     assert pEtat.isWhiteActive() != _trait;
 
+    if (visitNode())
+    {
+      return 0;
+    }
+
     if (pProfondeur == 0)
     {
       return getHeuristic().evaluate(pEtat, _trait);
@@ -66,13 +73,21 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
 
     int res = -MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    Arrays.sort(coups, getMoveSorter());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final SearchContext ctx = getSearchContext();
+    final int ply = getSearchDepth() - pProfondeur;
+    final int [] coups = ctx.getMoves(ply);
+    final int l = pEtat.generateMoves(pEtat.isWhiteActive(), coups);
+    sortMoves(getMoveSorter(), coups, l, ctx.getPriorities(ply));
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMax(etat, pProfondeur - 1, res);
+      pEtat.makeMove(coups[i]);
+      final int note = findMax(pEtat, pProfondeur - 1, res);
+      pEtat.unmakeMove();
+      if (isSearchAborted())
+      {
+        return res;
+      }
       if (note < pMax)
       {
         // Début d'élagage, ajouté par rapport à un mini/max pur...
@@ -95,13 +110,18 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
    * @param pMin Valeur du min du noeud père (petite optimisation, en attendant un vrai Alpha/Béta).
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMax(final MoveGenerator pEtat, final int pProfondeur, final int pMin)
+  private int findMax(final MutableMoveGenerator pEtat, final int pProfondeur, final int pMin)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
 
     assert pEtat.isWhiteActive() == _trait;
 
+    if (visitNode())
+    {
+      return 0;
+    }
+
     if (pProfondeur == 0)
     {
       return getHeuristic().evaluate(pEtat, _trait);
@@ -109,13 +129,21 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
 
     int res = MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    Arrays.sort(coups, getMoveSorter());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final SearchContext ctx = getSearchContext();
+    final int ply = getSearchDepth() - pProfondeur;
+    final int [] coups = ctx.getMoves(ply);
+    final int l = pEtat.generateMoves(pEtat.isWhiteActive(), coups);
+    sortMoves(getMoveSorter(), coups, l, ctx.getPriorities(ply));
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, pProfondeur - 1, res);
+      pEtat.makeMove(coups[i]);
+      final int note = findMin(pEtat, pProfondeur - 1, res);
+      pEtat.unmakeMove();
+      if (isSearchAborted())
+      {
+        return res;
+      }
       if (note > pMin)
       {
         // Début d'élagage, ajouté par rapport à un mini/max pur...
@@ -151,10 +179,17 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
     Arrays.sort(pCoups, getMoveSorter());
     Move res = pCoups[0];
     int meilleur = MATE_VALUE - 1;
+    final MutableMoveGenerator etat = BoardFactory.toMutable(pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, getSearchDepthLimit() - 1, meilleur);
+      etat.makeMove(mvt);
+      final int note = findMin(etat, getSearchDepth() - 1, meilleur);
+      etat.unmakeMove();
+      if (isSearchAborted())
+      {
+        // Seuls les mouvements complètement évalués sont retenus...
+        break;
+      }
       if ((note > meilleur) || ((note == meilleur) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
@@ -50,6 +50,17 @@ final class HistorySorter implements ContextSorter
     // Rien de spécifique...
   }
 
+  /**
+   * Fait vieillir l'historique, en divisant par deux chacun de ses compteurs.
+   */
+  public void age()
+  {
+    for (int i = _history.length; --i >= 0; /* Pré-décrémenté */)
+    {
+      _history[i] >>= 1;
+    }
+  }
+
   /**
    * Efface l'historique.
    */
@@ -67,32 +78,8 @@ final class HistorySorter implements ContextSorter
    */
   public int compare(final Move pMvt1, final Move pMvt2)
   {
-    int v1 = get(pMvt1);
-    int v2 = get(pMvt2);
-
-    final Piece prise1 = pMvt1.getCaptured();
-    final int vPiece1 = pMvt1.getPiece().getType().getValue();
-    if (prise1 == null)
-    {
-      v1 += vPiece1;
-    }
-    else
-    {
-      v1 += 1000 * prise1.getType().getValue();
-      v1 -= vPiece1;
-    }
-
-    final Piece prise2 = pMvt2.getCaptured();
-    final int vPiece2 = pMvt2.getPiece().getType().getValue();
-    if (prise2 == null)
-    {
-      v2 += vPiece2;
-    }
-    else
-    {
-      v2 += 1000 * prise2.getType().getValue();
-      v2 -= vPiece2;
-    }
+    final int v1 = getPriority(pMvt1.toId());
+    final int v2 = getPriority(pMvt2.toId());
 
     if (v1 > v2)
     {
@@ -116,10 +103,47 @@ final class HistorySorter implements ContextSorter
   {
     assert pMouvement != null;
 
-    return _history[pMouvement.getFrom().getIndex() + 64 * pMouvement.getTo().getIndex()]
+    return get(pMouvement.toId());
+  }
+
+  /**
+   * Renvoie l'évaluation d'un mouvement identifié par un entier.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à rechercher.
+   * @return Valeur liée au mouvement.
+   */
+  private int get(final int pMouvement)
+  {
+    return _history[Move.fromOf(pMouvement) + 64 * Move.toOf(pMouvement)]
         + HISTORY_MOVE_PRIORITY;
   }
 
+  /**
+   * Renvoi la priorité d'un mouvement identifié par un entier : historique, puis valeur des prises
+   * et valeur des pièces.
+   * 
+   * @param pMouvement Entier identifiant le mouvement.
+   * @return Priorité du mouvement.
+   */
+  public int getPriority(final int pMouvement)
+  {
+    int res = get(pMouvement);
+
+    final Piece prise = Move.capturedOf(pMouvement);
+    final int vPiece = Move.pieceOf(pMouvement).getType().getValue();
+    if (prise == null)
+    {
+      res += vPiece;
+    }
+    else
+    {
+      res += 1000 * prise.getType().getValue();
+      res -= vPiece;
+    }
+
+    return res;
+  }
+
   /**
    * Ajoute un mouvement à l'historique.
    * 
@@ -129,6 +153,16 @@ final class HistorySorter implements ContextSorter
   {
     assert pMouvement != null;
 
-    _history[pMouvement.getFrom().getIndex() + 64 * pMouvement.getTo().getIndex()]++;
+    put(pMouvement.toId());
+  }
+
+  /**
+   * Ajoute un mouvement identifié par un entier à l'historique.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à mémoriser.
+   */
+  public void put(final int pMouvement)
+  {
+    _history[Move.fromOf(pMouvement) + 64 * Move.toOf(pMouvement)]++;
   }
 }
@@ -39,8 +39,8 @@ final class KillerMoveSorter implements ContextSorter
   /** Priorité donnée à un "killer move". */
   private static final int KILLER_MOVE_PRIORITY = 1000000 * QUEEN.getValue();
 
-  /** Buffer des "killer moves". */
-  private final Move [] _killerMoves = new Move [ 5 ];
+  /** Buffer des "killer moves" (entiers identifiant les mouvements, 0 si vide). */
+  private final int [] _killerMoves = new int [ 5 ];
 
   /** Indice du prochain emplacement pouvant accueillir un "killer move". */
   private int _nextIndex;
@@ -53,12 +53,22 @@ final class KillerMoveSorter implements ContextSorter
     // Rien de spécifique...
   }
 
+  /**
+   * Fait vieillir le buffer des "killer moves". Ceux de la recherche précédente sont conservés :
+   * le buffer étant circulaire, les nouveaux "killer moves" remplacent d'eux-mêmes les plus
+   * anciens.
+   */
+  public void age()
+  {
+    // Rien de spécifique...
+  }
+
   /**
    * Efface le buffer des "killer moves".
    */
   public void clear()
   {
-    Arrays.fill(_killerMoves, null);
+    Arrays.fill(_killerMoves, 0);
     _nextIndex = 0;
   }
 
@@ -71,32 +81,8 @@ final class KillerMoveSorter implements ContextSorter
    */
   public int compare(final Move pMvt1, final Move pMvt2)
   {
-    int v1 = get(pMvt1);
-    int v2 = get(pMvt2);
-
-    final Piece prise1 = pMvt1.getCaptured();
-    final int vPiece1 = pMvt1.getPiece().getType().getValue();
-    if (prise1 == null)
-    {
-      v1 += vPiece1;
-    }
-    else
-    {
-      v1 += 1000 * prise1.getType().getValue();
-      v1 -= vPiece1;
-    }
-
-    final Piece prise2 = pMvt2.getCaptured();
-    final int vPiece2 = pMvt2.getPiece().getType().getValue();
-    if (prise2 == null)
-    {
-      v2 += vPiece2;
-    }
-    else
-    {
-      v2 += 1000 * prise2.getType().getValue();
-      v2 -= vPiece2;
-    }
+    final int v1 = getPriority(pMvt1.toId());
+    final int v2 = getPriority(pMvt2.toId());
 
     if (v1 > v2)
     {
@@ -120,9 +106,20 @@ final class KillerMoveSorter implements ContextSorter
   {
     assert pMouvement != null;
 
-    if (pMouvement.equals(_killerMoves[0]) || pMouvement.equals(_killerMoves[1])
-        || pMouvement.equals(_killerMoves[2]) || pMouvement.equals(_killerMoves[3])
-        || pMouvement.equals(_killerMoves[4]))
+    return get(pMouvement.toId());
+  }
+
+  /**
+   * Renvoie l'évaluation d'un mouvement identifié par un entier.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à rechercher.
+   * @return Valeur liée au mouvement (ou 0 si le mouvement n'est pas dans la liste).
+   */
+  private int get(final int pMouvement)
+  {
+    if ((pMouvement == _killerMoves[0]) || (pMouvement == _killerMoves[1])
+        || (pMouvement == _killerMoves[2]) || (pMouvement == _killerMoves[3])
+        || (pMouvement == _killerMoves[4]))
     {
       return KILLER_MOVE_PRIORITY;
     }
@@ -130,6 +127,32 @@ final class KillerMoveSorter implements ContextSorter
     return 0;
   }
 
+  /**
+   * Renvoi la priorité d'un mouvement identifié par un entier : "killer moves", puis valeur des
+   * prises et valeur des pièces.
+   * 
+   * @param pMouvement Entier identifiant le mouvement.
+   * @return Priorité du mouvement.
+   */
+  public int getPriority(final int pMouvement)
+  {
+    int res = get(pMouvement);
+
+    final Piece prise = Move.capturedOf(pMouvement);
+    final int vPiece = Move.pieceOf(pMouvement).getType().getValue();
+    if (prise == null)
+    {
+      res += vPiece;
+    }
+    else
+    {
+      res += 1000 * prise.getType().getValue();
+      res -= vPiece;
+    }
+
+    return res;
+  }
+
   /**
    * Mémorise un "killer move".
    * 
@@ -139,6 +162,18 @@ final class KillerMoveSorter implements ContextSorter
   {
     assert pMouvement != null;
 
+    put(pMouvement.toId());
+  }
+
+  /**
+   * Mémorise un "killer move" identifié par un entier.
+   * 
+   * @param pMouvement Entier identifiant le mouvement à mémoriser.
+   */
+  public void put(final int pMouvement)
+  {
+    assert pMouvement != 0;
+
     _killerMoves[_nextIndex++] = pMouvement;
     if (_nextIndex >= 5)
     {
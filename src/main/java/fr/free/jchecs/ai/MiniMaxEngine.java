@@ -18,8 +18,10 @@
  */
 package fr.free.jchecs.ai;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MutableMoveGenerator;
 
 /**
  * Moteur d'IA basé sur un mini/max sur 3 demi-coups.
@@ -46,13 +48,18 @@ final class MiniMaxEngine extends AbstractEngine
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMin(final MoveGenerator pEtat, final int pProfondeur)
+  private int findMin(final MutableMoveGenerator pEtat, final int pProfondeur)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
 
     assert pEtat.isWhiteActive() != _trait;
 
+    if (visitNode())
+    {
+      return 0;
+    }
+
     if (pProfondeur == 0)
     {
       return getHeuristic().evaluate(pEtat, _trait);
@@ -60,12 +67,20 @@ final class MiniMaxEngine extends AbstractEngine
 
     int res = -MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final SearchContext ctx = getSearchContext();
+    final int ply = getSearchDepth() - pProfondeur;
+    final int [] coups = ctx.getMoves(ply);
+    final int l = pEtat.generateMoves(pEtat.isWhiteActive(), coups);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMax(etat, pProfondeur - 1);
+      pEtat.makeMove(coups[i]);
+      final int note = findMax(pEtat, pProfondeur - 1);
+      pEtat.unmakeMove();
+      if (isSearchAborted())
+      {
+        return res;
+      }
       if (note < res)
       {
         res = note;
@@ -82,13 +97,18 @@ final class MiniMaxEngine extends AbstractEngine
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMax(final MoveGenerator pEtat, final int pProfondeur)
+  private int findMax(final MutableMoveGenerator pEtat, final int pProfondeur)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
 
     assert pEtat.isWhiteActive() == _trait;
 
+    if (visitNode())
+    {
+      return 0;
+    }
+
     if (pProfondeur == 0)
     {
       return getHeuristic().evaluate(pEtat, _trait);
@@ -96,12 +116,20 @@ final class MiniMaxEngine extends AbstractEngine
 
     int res = MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final SearchContext ctx = getSearchContext();
+    final int ply = getSearchDepth() - pProfondeur;
+    final int [] coups = ctx.getMoves(ply);
+    final int l = pEtat.generateMoves(pEtat.isWhiteActive(), coups);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, pProfondeur - 1);
+      pEtat.makeMove(coups[i]);
+      final int note = findMin(pEtat, pProfondeur - 1);
+      pEtat.unmakeMove();
+      if (isSearchAborted())
+      {
+        return res;
+      }
       if (note > res)
       {
         res = note;
@@ -131,10 +159,17 @@ final class MiniMaxEngine extends AbstractEngine
     addHalfmove(l);
     Move res = pCoups[0];
     int meilleur = MATE_VALUE - 1;
+    final MutableMoveGenerator etat = BoardFactory.toMutable(pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, getSearchDepthLimit() - 1);
+      etat.makeMove(mvt);
+      final int note = findMin(etat, getSearchDepth() - 1);
+      etat.unmakeMove();
+      if (isSearchAborted())
+      {
+        // Seuls les mouvements complètement évalués sont retenus...
+        break;
+      }
       if ((note > meilleur) || ((note == meilleur) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
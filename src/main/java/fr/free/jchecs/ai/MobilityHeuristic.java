@@ -21,6 +21,8 @@ package fr.free.jchecs.ai;
 import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceSquareTable.MOBILITY;
+import static fr.free.jchecs.core.PieceSquareTable.MOBILITY_OPENING;
 import static fr.free.jchecs.core.PieceType.KING;
 import static fr.free.jchecs.core.PieceType.PAWN;
 
@@ -49,23 +51,6 @@ final class MobilityHeuristic implements Heuristic
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = 8752973612245818678L;
 
-  /**
-   * Bonus/Malus d'un fou (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] BISHOP_POSITIONS = { -5, -5, -5, -5, -5, -5, -5, -5, // a1 ... h1
-    -5, 10, 5, 10, 10, 5, 10, -5, // a2 ... h2
-    -5, 5, 3, 12, 12, 3, 5, -5, // a3 ... h3
-    -5, 3, 12, 3, 3, 12, 3, -5, // a4 ... h4
-    -5, 3, 12, 3, 3, 12, 3, -5, // a5 ... h5
-    -5, 5, 3, 12, 12, 3, 5, -5, // a6 ... h6
-    -5, 10, 5, 10, 10, 5, 10, -5, // a7 ... h7
-    -5, -5, -5, -5, -5, -5, -5, -5, // a8 ... h8
-  };
-  static
-  {
-    assert BISHOP_POSITIONS.length == 64;
-  }
-
   /**
    * Bonus/Malus d'un roi (blanc par défaut) en fonction de sa position.
    */
@@ -100,74 +85,6 @@ final class MobilityHeuristic implements Heuristic
     assert KING_END_POSITIONS.length == 64;
   }
 
-  /**
-   * Bonus/Malus d'un cavalier (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] KNIGHT_POSITIONS = { -10, -5, -3, -1, -1, -3, -5, -10, // a1 ... h1
-    -5, 0, 0, 3, 3, 0, 0, -5, // a2 ... h2
-    -3, 0, 5, 5, 5, 5, 0, -3, // a3 ... h3
-    -1, 1, 5, 10, 10, 5, 1, -1, // a4 ... h4
-    -1, 1, 7, 12, 12, 7, 1, -1, // a5 ... h5
-    -3, 0, 5, 7, 7, 5, 0, -3, // a6 ... h6
-    -5, 0, 0, 3, 3, 0, 0, -5, // a7 ... h7
-    -10, -5, -3, -1, -1, -3, -5, -10, // a8 ... h8
-  };
-  static
-  {
-    assert KNIGHT_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'un pion (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] PAWN_POSITIONS = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
-    0, 0, 0, -5, -5, 0, 0, 0, // a2 ... h2
-    1, 2, 4, 4, 4, 3, 2, 1, // a3 ... h3
-    2, 4, 7, 8, 8, 6, 4, 2, // a4 ... h4
-    3, 6, 11, 12, 12, 9, 6, 3, // a5 ... h5
-    4, 8, 12, 16, 16, 12, 8, 4, // a6 ... h6
-    5, 10, 15, 20, 20, 15, 10, 5, // a7 ... h7
-    100, 100, 100, 100, 100, 100, 100, 100, // a8 ... h9
-  };
-  static
-  {
-    assert PAWN_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'une reine (blanche par défaut) en fonction de sa position.
-   */
-  private static final int [] QUEEN_POSITIONS = { -5, -5, -5, 0, 0, -5, -5, -5, // a1 ... h1
-    0, 0, 3, 3, 3, 0, 0, 0, // a2 ... h2
-    0, 3, 3, 3, 3, 0, 0, 0, // a3 ... h3
-    0, 0, 0, 5, 5, 0, 0, 0, // a4 ... h4
-    0, 0, 0, 5, 5, 0, 0, 0, // a5 ... h5
-    -5, -5, 0, 0, 0, 0, 0, 0, // a6 ... h6
-    -5, -5, 0, 0, 0, 0, 0, 0, // a7 ... h7
-    -5, -5, 0, 0, 0, 0, 0, 0, // a8 ... h8
-  };
-  static
-  {
-    assert QUEEN_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'une tour (blanche par défaut) en fonction de sa position.
-   */
-  private static final int [] ROOK_POSITIONS = { 0, 0, 0, 5, 5, 0, 0, 0, // a1 ... h1
-    -2, 0, 0, 0, 0, 0, 0, -2, // a2 ... h2
-    -2, 0, 0, 0, 0, 0, 0, -2, // a3 ... h3
-    -2, 0, 0, 0, 0, 0, 0, -2, // a4 ... h4
-    -2, 0, 0, 0, 0, 0, 0, -2, // a5 ... h5
-    -2, 0, 0, 0, 0, 0, 0, -2, // a6 ... h6
-    10, 10, 10, 10, 10, 10, 10, 10, // a7 ... h7
-    0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
-  };
-  static
-  {
-    assert ROOK_POSITIONS.length == 64;
-  }
-
   /**
    * Crée une nouvelle instance.
    */
@@ -223,6 +140,24 @@ final class MobilityHeuristic implements Heuristic
       }
     }
 
+    final int materiel;
+    if (pEtat.getFullmoveNumber() < 12)
+    {
+      materiel = pEtat.getPieceSquareScore(MOBILITY_OPENING);
+    }
+    else
+    {
+      materiel = pEtat.getPieceSquareScore(MOBILITY);
+    }
+    if (pTrait)
+    {
+      res += materiel;
+    }
+    else
+    {
+      res -= materiel;
+    }
+
     for (final Square s : Square.values())
     {
       final Piece piece = pEtat.getPieceAt(s);
@@ -231,19 +166,12 @@ final class MobilityHeuristic implements Heuristic
         final boolean traitPiece = piece.isWhite();
         final PieceType typePiece = piece.getType();
         final int mat = typePiece.getValue();
-        final int pos;
+        // Le matériel et la position des pièces, hors roi, sont déjà comptés...
+        int pos = 0;
         final int mob;
         switch (typePiece)
         {
           case BISHOP :
-            if (traitPiece)
-            {
-              pos = BISHOP_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = BISHOP_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= MIDDLE_GAME)
             {
               mob = pEtat.getBishopTargets(s, traitPiece).length * 4;
@@ -256,7 +184,6 @@ final class MobilityHeuristic implements Heuristic
           case KING :
             if ((pEtat.getFullmoveNumber() > 5) && pEtat.isInCheck(traitPiece))
             {
-              pos = 0;
               if (pEtat.getValidMoves(traitPiece).length == 0)
               {
                 // Mat : inutile d'aller plus loin...
@@ -302,14 +229,6 @@ final class MobilityHeuristic implements Heuristic
             }
             break;
           case KNIGHT :
-            if (traitPiece)
-            {
-              pos = KNIGHT_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = KNIGHT_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= MIDDLE_GAME)
             {
               mob = pEtat.getKnightTargets(s, traitPiece).length * 4;
@@ -320,43 +239,16 @@ final class MobilityHeuristic implements Heuristic
             }
             break;
           case PAWN :
-            if (traitPiece)
-            {
-              pos = PAWN_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = PAWN_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces > END_GAME)
             {
               mob = 0;
             }
             else
             {
-              mob = pos;
+              mob = MOBILITY.getValue(piece, s) - mat;
             }
             break;
           case QUEEN :
-            int posReine = 0;
-            if (traitPiece)
-            {
-              posReine = QUEEN_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              posReine =
-                  QUEEN_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
-            if (pEtat.getFullmoveNumber() < 12)
-            {
-              // Essayer d'éviter de déplacer la reine trop tôt...
-              if ((traitPiece && (s.getIndex() != 3)) || ((!traitPiece) && (s.getIndex() != 59)))
-              {
-                posReine -= 30;
-              }
-            }
-            pos = posReine;
             if ((nbPieces >= END_GAME) && (nbPieces <= MIDDLE_GAME))
             {
               mob = pEtat.getQueenTargets(s, traitPiece).length;
@@ -367,14 +259,6 @@ final class MobilityHeuristic implements Heuristic
             }
             break;
           case ROOK :
-            if (traitPiece)
-            {
-              pos = ROOK_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = ROOK_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= END_GAME)
             {
               final int nbPions;
@@ -402,7 +286,6 @@ final class MobilityHeuristic implements Heuristic
             break;
           default :
             assert false;
-            pos = 0;
             mob = 0;
         }
         int att = 0;
@@ -417,7 +300,7 @@ final class MobilityHeuristic implements Heuristic
             att -= mat / 10;
           }
         }
-        final int score = mat + pos + mob + att;
+        final int score = pos + mob + att;
         if (traitPiece == pTrait)
         {
           res += score;
@@ -18,22 +18,88 @@
  */
 package fr.free.jchecs.ai;
 
+import static fr.free.jchecs.core.PieceType.KING;
+import static fr.free.jchecs.core.PieceType.PAWN;
+
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MutableMoveGenerator;
+import fr.free.jchecs.core.PieceType;
 
 /**
  * Moteur d'IA basé sur l'algorithme NegaScout (aussi appelé Principal Variation Search), avec table
- * de transposition, sur 5 demi-coups.
+ * de transposition, sur 5 demi-coups, prolongé par une recherche de quiescence.
+ * <p>
+ * La profondeur est atteinte par approfondissement itératif, chaque itération étant d'abord menée
+ * dans une fenêtre d'aspiration centrée sur le score de la précédente. L'arbre est élagué par le
+ * "coup nul" (sauf en cas d'échec ou si le camp qui joue n'a plus que des coups de roi et de pion,
+ * pour éviter les erreurs de zugzwang) et les mouvements tardifs, dans l'ordre donné par la
+ * fonction de tri, sont d'abord explorés à profondeur réduite.
+ * </p>
+ * <p>
+ * Si plusieurs threads sont alloués au moteur, la recherche est menée suivant le principe du
+ * "Lazy SMP" : des recherches auxiliaires explorent le même arbre en parallèle, en alternant la
+ * profondeur, et ne communiquent avec la recherche principale qu'au travers de la table de
+ * transposition partagée. Seul le résultat de la recherche principale est retenu.
+ * </p>
  * 
  * @author David Cotton
  */
 final class NegaScoutEngine extends AbstractEngine
 {
-  /** Table de transposition. */
-  private static final TranspositionTable TRANSPOSITIONS = new TranspositionTable(1000000);
+  /** Demi-largeur de la fenêtre d'aspiration (en centièmes de pion). */
+  private static final int ASPIRATION_WINDOW = 50;
+
+  /** Seuil au-delà duquel un score traduit un gain forcé (mat ou tables de finales). */
+  private static final int DECISIVE_SCORE = TABLEBASE_WIN_VALUE / 2;
+
+  /** Rang (dans l'ordre de tri) du premier mouvement pouvant être exploré à profondeur réduite. */
+  private static final int LATE_MOVE_INDEX = 3;
+
+  /** Rang à partir duquel la réduction des mouvements tardifs est doublée. */
+  private static final int VERY_LATE_MOVE_INDEX = 12;
+
+  /** Profondeur restante minimale pour tenter un coup nul ou réduire un mouvement tardif. */
+  private static final int PRUNING_DEPTH = 3;
+
+  /** Nombre de processeurs disponibles, qui borne le nombre de threads utilisés. */
+  private static final int PROCESSOR_COUNT = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Pool des threads menant les recherches auxiliaires (partagé par tous les moteurs). Sa taille
+   * n'est bornée que par le nombre de threads accordé à chaque recherche : c'est à l'appelant de
+   * répartir les threads entre les moteurs (voir setThreadCount).
+   */
+  private static final ExecutorService HELPERS = Executors.newCachedThreadPool(new ThreadFactory()
+  {
+    /**
+     * Les threads auxiliaires ne doivent pas empêcher l'arrêt de la JVM...
+     */
+    public Thread newThread(final Runnable pTache)
+    {
+      final Thread res = new Thread(pTache, "jChecs helper");
+      res.setDaemon(true);
+      return res;
+    }
+  });
+
+  /** Recherche principale de la recherche de mouvement en cours (ou null). */
+  private Searcher _main;
+
+  /** Recherches auxiliaires de la recherche de mouvement en cours. */
+  private Searcher [] _helpers = new Searcher [ 0 ];
+
+  /** Tâches menant les recherches auxiliaires en cours. */
+  private Future<?> [] _tasks = new Future<?> [ 0 ];
 
   /**
    * Instancie un nouveau moteur IA Negascout.
@@ -46,152 +112,505 @@ final class NegaScoutEngine extends AbstractEngine
   }
 
   /**
-   * Recherche le meilleur coup évalué à partir d'une position.
+   * Les itérations successives se préparent l'une l'autre (table de transposition, ordre des
+   * mouvements initiaux, fenêtre d'aspiration) : même à profondeur fixe, la recherche est itérative.
+   * 
+   * @return "true".
+   */
+  @Override
+  protected boolean isFixedDepthIterative()
+  {
+    return true;
+  }
+
+  /**
+   * Arrête les recherches auxiliaires et attend qu'elles se terminent.
+   */
+  @Override
+  protected void searchFinished()
+  {
+    for (final Searcher aide : _helpers)
+    {
+      aide.stop();
+    }
+    for (final Future<?> tache : _tasks)
+    {
+      try
+      {
+        tache.get();
+      }
+      catch (final InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch (final ExecutionException e)
+      {
+        // Sans conséquence sur le mouvement retenu...
+        assert false : e.getCause();
+      }
+    }
+    _main = null;
+    _helpers = new Searcher [ 0 ];
+    _tasks = new Future<?> [ 0 ];
+  }
+
+  /**
+   * Mène une itération de la recherche principale, à la profondeur donnée par
+   * {@link #getSearchDepth()}.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pCoups Liste des mouvement initiaux valides.
+   * @return Mouvement trouvé.
+   */
+  @Override
+  protected Move searchMoveFor(final MoveGenerator pEtat, final Move [] pCoups)
+  {
+    assert pEtat != null;
+    assert pCoups != null;
+    assert _main != null;
+
+    final Move res = _main.iterate(getSearchDepth());
+    setScore(_main.getScore());
+
+    assert res != null;
+    return res;
+  }
+
+  /**
+   * Prépare la recherche principale, et lance les recherches auxiliaires qui l'accompagnent
+   * jusqu'à la fin de la recherche du mouvement.
    * 
    * @param pEtat Etat de l'échiquier.
-   * @param pProfondeur Profondeur d'évaluation actuelle.
-   * @param pAlpha Seuil alpha.
-   * @param pBeta Seuil beta.
-   * @param pLimite Profondeur limite.
-   * @return Meilleure évaluation obtenue à ce niveau.
+   * @param pCoups Liste des mouvement initiaux valides.
    */
-  private int negascout(final MoveGenerator pEtat, final int pProfondeur, final int pAlpha,
-      final int pBeta, final int pLimite)
+  @Override
+  protected void searchStarted(final MoveGenerator pEtat, final Move [] pCoups)
   {
     assert pEtat != null;
-    assert pAlpha <= pBeta;
+    assert pCoups != null;
 
-    final Integer resultat = TRANSPOSITIONS.get(pEtat, pProfondeur, pAlpha, pBeta);
-    if (resultat != null)
+    // La table partagée doit être allouée avant le lancement des recherches auxiliaires...
+    getTranspositionTable();
+    final Comparator<Move> tri = getMoveSorter();
+    _main = new Searcher(getSearchContext(), BoardFactory.toMutable(pEtat), pCoups, tri);
+
+    final int nbAides = Math.min(getThreadCount(), PROCESSOR_COUNT) - 1;
+    _helpers = new Searcher [ Math.max(0, nbAides) ];
+    _tasks = new Future<?> [ _helpers.length ];
+    for (int i = 0; i < _helpers.length; i++)
     {
-      return resultat.intValue();
+      final Comparator<Move> triAide;
+      if (tri instanceof ContextSorter)
+      {
+        // Le contexte de tri ne peut être partagé entre threads...
+        triAide = new KillerMoveSorter();
+      }
+      else
+      {
+        triAide = tri;
+      }
+      final SearchContext ctx = new SearchContext();
+      ctx.start(0, 0, ctx.newSearch());
+      // Une recherche auxiliaire sur deux va un demi-coup plus loin, pour varier les arbres...
+      _helpers[i] = new Searcher(ctx, BoardFactory.toMutable(pEtat), pCoups.clone(), triAide);
+      _helpers[i].setDepthLimit(Math.max(getMinimalSearchDepth(), getSearchDepthLimit())
+          + ((i + 1) & 1));
+      _tasks[i] = HELPERS.submit(_helpers[i]);
     }
+  }
+
+  /**
+   * Recherche NegaScout menée par un thread : la recherche principale, ou une recherche auxiliaire
+   * lancée en parallèle.
+   */
+  private final class Searcher implements Runnable
+  {
+    /** Contexte (décompte des noeuds, conditions d'arrêt) de la recherche. */
+    private final SearchContext _context;
 
-    final boolean trait = pEtat.isWhiteActive();
+    /** Etat de l'échiquier propre à la recherche. */
+    private final MutableMoveGenerator _board;
 
-    if (pProfondeur <= pLimite)
-    {
-      final int valeur = getHeuristic().evaluate(pEtat, trait);
-      TRANSPOSITIONS.put(pEtat, pProfondeur, pAlpha, pBeta, valeur);
+    /** Liste des mouvements initiaux (propre à la recherche). */
+    private final Move [] _moves;
 
-      return valeur;
-    }
+    /** Profondeur maximale d'une recherche auxiliaire. */
+    private int _depthLimit;
+
+    /** Fonction de tri des mouvements propre à la recherche. */
+    private final Comparator<Move> _moveSorter;
+
+    /** Drapeau indiquant s'il s'agit de la recherche principale. */
+    private final boolean _main;
+
+    /** Score du meilleur mouvement trouvé par la dernière itération complète. */
+    private int _score = MATE_VALUE - 1;
 
-    final Move [] coups = pEtat.getValidMoves(trait);
-    final int l = coups.length;
-    if (l == 0)
+    /** Nombre d'itérations complètes. */
+    private int _iterations;
+
+    /** Meilleur mouvement trouvé par la dernière passe sur les mouvements initiaux (ou null). */
+    private Move _best;
+
+    /**
+     * Instancie une nouvelle recherche.
+     * 
+     * @param pContexte Contexte de la recherche (déjà initialisé).
+     * @param pEtat Etat de l'échiquier (réservé à la recherche).
+     * @param pCoups Liste des mouvement initiaux valides (réservée à la recherche).
+     * @param pTri Fonction de tri des mouvements (réservée à la recherche si elle a un contexte).
+     */
+    Searcher(final SearchContext pContexte, final MutableMoveGenerator pEtat,
+        final Move [] pCoups, final Comparator<Move> pTri)
     {
-      final int valeur = getHeuristic().evaluate(pEtat, trait);
-      TRANSPOSITIONS.put(pEtat, pProfondeur, pAlpha, pBeta, valeur);
+      assert pContexte != null;
+      assert pEtat != null;
+      assert pCoups != null;
+      assert pTri != null;
 
-      return valeur;
+      _context = pContexte;
+      _board = pEtat;
+      _moves = pCoups;
+      _moveSorter = pTri;
+      _main = pContexte == getSearchContext();
     }
 
-    int res = MATE_VALUE - 1;
-
-    final Comparator<Move> tri = getMoveSorter();
-    final ContextSorter ctx;
-    if (tri instanceof ContextSorter)
+    /**
+     * Renvoi le score du meilleur mouvement trouvé par la recherche.
+     * 
+     * @return Score du meilleur mouvement.
+     */
+    int getScore()
     {
-      ctx = (ContextSorter) tri;
+      return _score;
     }
-    else
+
+    /**
+     * Indique si le camp qui a le trait peut jouer autre chose que des coups de roi et de pion :
+     * dans le cas contraire, les risques de zugzwang interdisent le coup nul.
+     * 
+     * @param pCoups Liste des mouvements valides.
+     * @param pNombre Nombre de mouvements de la liste.
+     * @return "true" si une pièce autre que le roi ou un pion peut être jouée.
+     */
+    private boolean hasPieceMoves(final int [] pCoups, final int pNombre)
     {
-      ctx = null;
+      for (int i = 0; i < pNombre; i++)
+      {
+        final PieceType type = Move.pieceOf(pCoups[i]).getType();
+        if ((type != PAWN) && (type != KING))
+        {
+          return true;
+        }
+      }
+
+      return false;
     }
-    Arrays.sort(coups, tri);
-    addHalfmove(l);
-    int alpha = pAlpha;
-    for (int i = 0; i < l; i++)
+
+    /**
+     * Recherche le meilleur coup évalué à partir d'une position.
+     * 
+     * @param pProfondeur Profondeur restant à explorer.
+     * @param pPly Distance (en demi-coups) à la racine de la recherche.
+     * @param pAlpha Seuil alpha.
+     * @param pBeta Seuil beta.
+     * @param pCoupNul A "true" si le coup nul peut être tenté (il ne l'est pas deux fois de suite).
+     * @return Meilleure évaluation obtenue à ce niveau.
+     */
+    private int negascout(final int pProfondeur, final int pPly, final int pAlpha,
+        final int pBeta, final boolean pCoupNul)
     {
-      final Move mvt = coups[i];
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int limite;
-      if (((pProfondeur == 1) && ((l <= 3) || (mvt.getCaptured() != null)))
-          || etat.isInCheck(etat.isWhiteActive()))
+      assert pAlpha <= pBeta;
+
+      final MutableMoveGenerator etat = _board;
+      if (pProfondeur <= 0)
       {
-        limite = -1;
+        return quiesce(_context, etat, pAlpha, pBeta, pPly, 0);
       }
-      else
+
+      if (_context.visit())
+      {
+        return 0;
+      }
+
+      final int finale = probeTablebase(etat, pPly);
+      if (finale != Tablebase.NO_VALUE)
       {
-        limite = 0;
+        return finale;
       }
-      int note;
-      if (i == 0)
+
+      final TranspositionTable transpositions = getTranspositionTable();
+      final Integer resultat = transpositions.get(etat, pProfondeur, pAlpha, pBeta);
+      if (resultat != null)
+      {
+        return resultat.intValue();
+      }
+
+      final boolean trait = etat.isWhiteActive();
+      final int [] coups = _context.getMoves(pPly);
+      final int l = etat.generateMoves(trait, coups);
+      if (l == 0)
+      {
+        final int valeur = getHeuristic().evaluate(etat, trait);
+        transpositions.put(etat, pProfondeur, pAlpha, pBeta, valeur, 0);
+
+        return valeur;
+      }
+
+      final boolean echec = etat.isInCheck(trait);
+      if (pCoupNul && !echec && (pProfondeur >= PRUNING_DEPTH) && (Math.abs(pBeta) < DECISIVE_SCORE)
+          && hasPieceMoves(coups, l))
       {
-        note = -negascout(etat, pProfondeur - 1, -pBeta, -alpha, limite);
+        // Si passer son tour suffit à dépasser beta, un vrai coup le ferait aussi...
+        final int reduction = (pProfondeur > 6) ? 3 : 2;
+        etat.makeNullMove();
+        final int note =
+            -negascout(pProfondeur - 1 - reduction, pPly + 1, -pBeta - 1, -pBeta, false);
+        etat.unmakeMove();
+        if (_context.isAborted() || (note > pBeta))
+        {
+          return note;
+        }
+      }
+
+      int res = MATE_VALUE - 1;
+
+      final ContextSorter ctx;
+      if (_moveSorter instanceof ContextSorter)
+      {
+        ctx = (ContextSorter) _moveSorter;
       }
       else
       {
-        note = -negascout(etat, pProfondeur - 1, -alpha - 1, -alpha, limite);
+        ctx = null;
+      }
+      sortMoves(_moveSorter, coups, l, _context.getPriorities(pPly));
+      // Le meilleur mouvement d'une recherche précédente est examiné en premier...
+      final int connu = transpositions.getMove(etat);
+      if ((connu != 0) && (connu != coups[0]))
+      {
+        for (int i = 1; i < l; i++)
+        {
+          final int mvt = coups[i];
+          if (connu == mvt)
+          {
+            System.arraycopy(coups, 0, coups, 1, i);
+            coups[0] = mvt;
+            break;
+          }
+        }
+      }
+      if (_main)
+      {
+        addHalfmove(l);
       }
-      if (note > res)
+      int alpha = pAlpha;
+      int meilleurCoup = 0;
+      for (int i = 0; i < l; i++)
       {
-        if ((i > 0) && (alpha < note) && (note < pBeta) && (pProfondeur > limite + 2))
+        final int mvt = coups[i];
+        etat.makeMove(mvt);
+        int note;
+        if (i == 0)
         {
-          note = -negascout(etat, pProfondeur - 1, -pBeta, -note, limite);
+          note = -negascout(pProfondeur - 1, pPly + 1, -pBeta, -alpha, true);
         }
-        res = note;
-        if (res > alpha)
+        else
         {
-          alpha = res;
-          if (alpha > pBeta)
+          int reduction = 0;
+          if (!echec && (i >= LATE_MOVE_INDEX) && (pProfondeur >= PRUNING_DEPTH)
+              && (Move.capturedOf(mvt) == null) && !isPromotion(mvt) && (mvt != connu)
+              && !etat.isInCheck(!trait))
           {
-            if (ctx != null)
+            // Mouvement tardif et tranquille : d'abord exploré moins profondément...
+            reduction = 1;
+            if ((i >= VERY_LATE_MOVE_INDEX) && (pProfondeur > PRUNING_DEPTH))
             {
-              ctx.put(mvt);
+              reduction = 2;
+            }
+          }
+          note = -negascout(pProfondeur - 1 - reduction, pPly + 1, -alpha - 1, -alpha, true);
+          if ((reduction > 0) && (note > alpha))
+          {
+            note = -negascout(pProfondeur - 1, pPly + 1, -alpha - 1, -alpha, true);
+          }
+        }
+        final boolean meilleur = note > res;
+        if (meilleur && (i > 0) && (alpha < note) && (note < pBeta) && (pProfondeur > 2))
+        {
+          note = -negascout(pProfondeur - 1, pPly + 1, -pBeta, -note, true);
+        }
+        etat.unmakeMove();
+        if (_context.isAborted())
+        {
+          // Evaluation incomplète : à ne pas mémoriser dans la table.
+          return res;
+        }
+        if (meilleur)
+        {
+          res = note;
+          meilleurCoup = mvt;
+          if (res > alpha)
+          {
+            alpha = res;
+            if (alpha > pBeta)
+            {
+              _context.cutoff(i);
+              if (ctx != null)
+              {
+                ctx.put(mvt);
+              }
+              break;
             }
-            break;
           }
         }
       }
-    }
 
-    TRANSPOSITIONS.put(pEtat, pProfondeur, alpha, pBeta, res);
-    return res;
-  }
+      transpositions.put(etat, pProfondeur, alpha, pBeta, res, meilleurCoup);
+      return res;
+    }
 
-  /**
-   * Corps de la recherche du "meilleur" demi-coup pour un état de l'échiquier.
-   * 
-   * @param pEtat Etat de l'échiquier.
-   * @param pCoups Liste des mouvement initiaux valides.
-   * @return Mouvement trouvé.
-   */
-  @Override
-  protected Move searchMoveFor(final MoveGenerator pEtat, final Move [] pCoups)
-  {
-    assert pEtat != null;
-    assert pCoups != null;
+    /**
+     * Mène une recherche auxiliaire, par itérations successives jusqu'à sa profondeur maximale ou
+     * à la demande d'arrêt.
+     */
+    public void run()
+    {
+      for (int prof = 1; (prof <= _depthLimit) && !_context.isAborted(); prof++)
+      {
+        iterate(prof);
+      }
+    }
 
-    final int l = pCoups.length;
-    assert l > 0;
-    addHalfmove(l);
-    final Comparator<Move> tri = getMoveSorter();
-    Arrays.sort(pCoups, tri);
-    Move res = pCoups[0];
-    int alpha = MATE_VALUE - 1;
-    for (final Move mvt : pCoups)
+    /**
+     * Evalue chacun des demi-coups initiaux pour retenir le meilleur, à une profondeur donnée.
+     * <p>
+     * Chaque itération est d'abord menée dans une fenêtre d'aspiration centrée sur le score de la
+     * précédente : si le score obtenu en sort, elle est reprise avec une fenêtre ouverte du côté de
+     * l'échec. Le meilleur mouvement d'une itération complète est examiné en premier par la
+     * suivante.
+     * </p>
+     * 
+     * @param pProfondeur Profondeur de l'itération.
+     * @return Meilleur mouvement trouvé (celui de la première passe si l'itération est interrompue
+     *         avant d'en avoir trouvé un).
+     */
+    Move iterate(final int pProfondeur)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = -negascout(etat, getSearchDepthLimit() - 1, MATE_VALUE, -alpha, 0);
-      if ((note > alpha) || ((note == alpha) && RANDOMIZER.nextBoolean()))
+      final int l = _moves.length;
+      assert l > 0;
+      assert pProfondeur >= 1;
+
+      if (_main)
+      {
+        addHalfmove(l);
+      }
+      if (_iterations == 0)
+      {
+        Arrays.sort(_moves, _moveSorter);
+      }
+      int bas = MATE_VALUE - 1;
+      int haut = -bas;
+      if ((_iterations > 0) && (Math.abs(_score) < DECISIVE_SCORE))
+      {
+        bas = _score - ASPIRATION_WINDOW;
+        haut = _score + ASPIRATION_WINDOW;
+      }
+      int note = searchRoot(pProfondeur, bas, haut);
+      while (!_context.isAborted() && ((note <= bas) || (note >= haut))
+          && ((bas > MATE_VALUE - 1) || (haut < -(MATE_VALUE - 1))))
+      {
+        if (note <= bas)
+        {
+          bas = MATE_VALUE - 1;
+        }
+        else
+        {
+          haut = -(MATE_VALUE - 1);
+        }
+        note = searchRoot(pProfondeur, bas, haut);
+      }
+      if (_best == null)
       {
-        // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
-        alpha = note;
-        res = mvt;
+        return _moves[0];
       }
+      final Move res = _best;
+      if (!_context.isAborted() || (_iterations == 0))
+      {
+        // Seules les itérations complètes (ou la première) fixent le score...
+        _score = note;
+      }
+      if (!_context.isAborted())
+      {
+        _iterations++;
+        // Le meilleur mouvement est examiné en premier à l'itération suivante...
+        int i = 0;
+        while (_moves[i] != res)
+        {
+          i++;
+        }
+        System.arraycopy(_moves, 0, _moves, 1, i);
+        _moves[0] = res;
+      }
+
+      return res;
     }
 
-    setScore(alpha);
+    /**
+     * Evalue chacun des demi-coups initiaux dans une fenêtre donnée, à la profondeur de
+     * l'itération. Le meilleur mouvement est mémorisé dans {@link #_best}, qui reste à null si aucun
+     * mouvement ne dépasse la borne basse de la fenêtre.
+     * 
+     * @param pProfondeur Profondeur de l'itération.
+     * @param pBas Borne basse de la fenêtre.
+     * @param pHaut Borne haute de la fenêtre.
+     * @return Score du meilleur mouvement, ou une borne de la fenêtre si le score en sort.
+     */
+    private int searchRoot(final int pProfondeur, final int pBas, final int pHaut)
+    {
+      _best = null;
+      int alpha = pBas;
+      for (final Move mvt : _moves)
+      {
+        _board.makeMove(mvt);
+        final int note = -negascout(pProfondeur - 1, 1, -pHaut, -alpha, true);
+        _board.unmakeMove();
+        if (_context.isAborted())
+        {
+          // Seuls les mouvements complètement évalués sont retenus...
+          break;
+        }
+        if ((note > alpha) || ((note == alpha) && (_best != null) && RANDOMIZER.nextBoolean()))
+        {
+          // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
+          alpha = note;
+          _best = mvt;
+          if (alpha >= pHaut)
+          {
+            break;
+          }
+        }
+      }
 
-    TRANSPOSITIONS.clear();
-    if (tri instanceof ContextSorter)
+      return alpha;
+    }
+
+    /**
+     * Fixe la profondeur maximale d'une recherche auxiliaire.
+     * 
+     * @param pLimite Profondeur maximale.
+     */
+    void setDepthLimit(final int pLimite)
     {
-      ((ContextSorter) tri).clear();
+      _depthLimit = pLimite;
     }
 
-    assert res != null;
-    return res;
+    /**
+     * Demande l'arrêt de la recherche.
+     */
+    void stop()
+    {
+      _context.stop();
+    }
   }
 }
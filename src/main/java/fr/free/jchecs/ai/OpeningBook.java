@@ -0,0 +1,379 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Bibliothèque d'ouvertures projetée en mémoire.
+ * <p>
+ * Le fichier est composé d'un en-tête de 16 octets (identifiant {@link #MAGIC}, version du format
+ * {@link #VERSION} et nombre d'enregistrements sur 8 octets), suivi d'enregistrements de taille
+ * fixe ({@link #RECORD_SIZE} octets) triés par clé : clé "Zobrist" sur 64 bits de la position,
+ * identifiant du mouvement (voir {@link Move#toId()}) et poids du mouvement. Une position
+ * disposant de plusieurs mouvements occupe plusieurs enregistrements consécutifs.
+ * </p>
+ * <p>
+ * Les recherches se font par dichotomie directement dans le fichier projeté en mémoire : aucune
+ * structure n'est chargée dans le tas, et la taille de la bibliothèque n'a pas d'influence sur le
+ * temps de démarrage. Les fichiers sont produits par {@link OpeningBookBuilder}.
+ * </p>
+ * <p>
+ * Classe sûre vis-à-vis des threads.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class OpeningBook
+{
+  /** Identifiant des fichiers de bibliothèque d'ouvertures ("JCBK"). */
+  static final int MAGIC = 0x4A43424B;
+
+  /** Version du format des fichiers. */
+  static final int VERSION = 1;
+
+  /** Taille de l'en-tête, en octets. */
+  static final int HEADER_SIZE = 16;
+
+  /** Taille d'un enregistrement, en octets. */
+  static final int RECORD_SIZE = 16;
+
+  /** Nom de la ressource contenant la bibliothèque par défaut. */
+  static final String RESOURCE = "jchecs.bk";
+
+  /** Propriété système permettant de désigner un autre fichier de bibliothèque par défaut. */
+  static final String FILE_PROPERTY = "jchecs.book";
+
+  /** Log de la classe. */
+  private static final Logger LOGGER = Logger.getLogger(OpeningBook.class.getName());
+
+  /** Bibliothèque par défaut (chargée à la demande). */
+  private static OpeningBook S_default;
+
+  /** Drapeau indiquant si le chargement de la bibliothèque par défaut a été tenté. */
+  private static boolean S_defaultLoaded;
+
+  /** Contenu du fichier projeté en mémoire. */
+  private final ByteBuffer _buffer;
+
+  /** Nombre d'enregistrements. */
+  private final int _count;
+
+  /**
+   * Instancie une bibliothèque à partir du contenu d'un fichier.
+   * 
+   * @param pContenu Contenu du fichier (la position du tampon n'est pas modifiée).
+   * @throws IOException si le contenu n'est pas une bibliothèque d'ouvertures valide.
+   */
+  OpeningBook(final ByteBuffer pContenu) throws IOException
+  {
+    assert pContenu != null;
+
+    if ((pContenu.limit() < HEADER_SIZE) || (pContenu.getInt(0) != MAGIC))
+    {
+      throw new IOException("Not an opening book");
+    }
+    if (pContenu.getInt(4) != VERSION)
+    {
+      throw new IOException("Unsupported opening book version " + pContenu.getInt(4));
+    }
+    final long nb = pContenu.getLong(8);
+    if ((nb < 0) || (HEADER_SIZE + nb * RECORD_SIZE != pContenu.limit()))
+    {
+      throw new IOException("Truncated opening book");
+    }
+    _buffer = pContenu;
+    _count = (int) nb;
+  }
+
+  /**
+   * Instancie une bibliothèque en projetant un fichier en mémoire.
+   * 
+   * @param pFichier Fichier de la bibliothèque.
+   * @throws IOException en cas d'erreur d'accès au fichier, ou si son contenu n'est pas valide.
+   */
+  OpeningBook(final File pFichier) throws IOException
+  {
+    this(map(pFichier));
+  }
+
+  /**
+   * Renvoi le nombre d'enregistrements (couples position / mouvement) de la bibliothèque.
+   * 
+   * @return Nombre d'enregistrements.
+   */
+  int getCount()
+  {
+    return _count;
+  }
+
+  /**
+   * Renvoi la bibliothèque par défaut : le fichier désigné par la propriété système
+   * {@link #FILE_PROPERTY}, sinon la ressource {@link #RESOURCE}.
+   * 
+   * @return Bibliothèque par défaut (ou null si elle n'est pas disponible).
+   */
+  static synchronized OpeningBook getDefault()
+  {
+    if (!S_defaultLoaded)
+    {
+      S_defaultLoaded = true;
+      try
+      {
+        final String nom = System.getProperty(FILE_PROPERTY);
+        if (nom != null)
+        {
+          S_default = new OpeningBook(new File(nom));
+        }
+        else
+        {
+          final File fichier = getResourceFile();
+          if (fichier != null)
+          {
+            S_default = new OpeningBook(fichier);
+          }
+        }
+      }
+      catch (final IOException e)
+      {
+        // Pas grave, les coups seront calculés...
+        LOGGER.log(Level.WARNING, "Opening book not available", e);
+      }
+    }
+
+    return S_default;
+  }
+
+  /**
+   * Renvoi un des mouvements de la bibliothèque correspondant à une position, choisi
+   * aléatoirement en fonction des poids des mouvements.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pAleatoire Générateur de nombres aléatoires.
+   * @return Mouvement correspondant (ou null si la position est absente de la bibliothèque).
+   */
+  Move getMove(final MoveGenerator pEtat, final Random pAleatoire)
+  {
+    assert pEtat != null;
+    assert pAleatoire != null;
+
+    final long cle = pEtat.getZobristKey();
+    final int premier = indexOf(cle);
+    int total = 0;
+    int dernier = premier;
+    while ((dernier < _count) && (keyAt(dernier) == cle))
+    {
+      total += weightAt(dernier);
+      dernier++;
+    }
+    if (total <= 0)
+    {
+      return null;
+    }
+
+    int tirage = pAleatoire.nextInt(total);
+    for (int i = premier; i < dernier; i++)
+    {
+      tirage -= weightAt(i);
+      if (tirage < 0)
+      {
+        final Move res = Move.valueOf(moveAt(i));
+        assert isValid(pEtat, res);
+        return res;
+      }
+    }
+
+    assert false;
+    return null;
+  }
+
+  /**
+   * Renvoi le fichier correspondant à la ressource de la bibliothèque par défaut, en recopiant
+   * celle-ci dans un fichier temporaire si elle n'est pas directement accessible (dans une archive
+   * JAR, par exemple).
+   * 
+   * @return Fichier de la bibliothèque par défaut (ou null si la ressource est absente).
+   * @throws IOException en cas d'erreur lors de la copie de la ressource.
+   */
+  private static File getResourceFile() throws IOException
+  {
+    final URL url = OpeningBook.class.getResource(RESOURCE);
+    if (url == null)
+    {
+      return null;
+    }
+    if ("file".equals(url.getProtocol()))
+    {
+      try
+      {
+        return new File(url.toURI());
+      }
+      catch (final URISyntaxException e)
+      {
+        // Passe par une copie...
+      }
+    }
+
+    final File res = File.createTempFile("jchecs", ".bk");
+    res.deleteOnExit();
+    final InputStream in = url.openStream();
+    try
+    {
+      final OutputStream out = new FileOutputStream(res);
+      try
+      {
+        final byte [] tampon = new byte [ 65536 ];
+        int lus = in.read(tampon);
+        while (lus >= 0)
+        {
+          out.write(tampon, 0, lus);
+          lus = in.read(tampon);
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi l'indice du premier enregistrement dont la clé est supérieure ou égale à une clé.
+   * 
+   * @param pCle Clé recherchée.
+   * @return Indice du premier enregistrement correspondant (ou nombre d'enregistrements).
+   */
+  private int indexOf(final long pCle)
+  {
+    int bas = 0;
+    int haut = _count;
+    while (bas < haut)
+    {
+      final int milieu = (bas + haut) >>> 1;
+      if (keyAt(milieu) < pCle)
+      {
+        bas = milieu + 1;
+      }
+      else
+      {
+        haut = milieu;
+      }
+    }
+
+    return bas;
+  }
+
+  /**
+   * Vérifie qu'un mouvement de la bibliothèque est valide dans une position.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pMouvement Mouvement à vérifier.
+   * @return Vrai si le mouvement est valide.
+   */
+  private static boolean isValid(final MoveGenerator pEtat, final Move pMouvement)
+  {
+    for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
+    {
+      if (mvt.equals(pMouvement))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Renvoi la clé d'un enregistrement.
+   * 
+   * @param pIndice Indice de l'enregistrement.
+   * @return Clé "Zobrist" de la position.
+   */
+  private long keyAt(final int pIndice)
+  {
+    return _buffer.getLong(HEADER_SIZE + pIndice * RECORD_SIZE);
+  }
+
+  /**
+   * Projette un fichier en mémoire, en lecture seule.
+   * 
+   * @param pFichier Fichier à projeter.
+   * @return Contenu du fichier.
+   * @throws IOException en cas d'erreur d'accès au fichier.
+   */
+  private static ByteBuffer map(final File pFichier) throws IOException
+  {
+    assert pFichier != null;
+
+    final RandomAccessFile f = new RandomAccessFile(pFichier, "r");
+    try
+    {
+      final FileChannel canal = f.getChannel();
+      // La projection reste valide après la fermeture du fichier...
+      return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+    }
+    finally
+    {
+      f.close();
+    }
+  }
+
+  /**
+   * Renvoi l'identifiant du mouvement d'un enregistrement.
+   * 
+   * @param pIndice Indice de l'enregistrement.
+   * @return Identifiant du mouvement.
+   */
+  private int moveAt(final int pIndice)
+  {
+    return _buffer.getInt(HEADER_SIZE + pIndice * RECORD_SIZE + 8);
+  }
+
+  /**
+   * Renvoi le poids du mouvement d'un enregistrement.
+   * 
+   * @param pIndice Indice de l'enregistrement.
+   * @return Poids du mouvement (> 0).
+   */
+  private int weightAt(final int pIndice)
+  {
+    return _buffer.getInt(HEADER_SIZE + pIndice * RECORD_SIZE + 12);
+  }
+}
@@ -0,0 +1,430 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Game;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.PGNException;
+import fr.free.jchecs.core.PGNUtils;
+
+/**
+ * Outil de construction des bibliothèques d'ouvertures lues par {@link OpeningBook}.
+ * <p>
+ * Les positions rencontrées dans les premiers demi-coups des parties d'une collection PGN sont
+ * enregistrées avec les mouvements joués, pondérés par leur nombre d'occurrences. L'ancienne
+ * bibliothèque compressée de jChecs, indexée par des clés de hachage sur 32 bits, peut aussi être
+ * convertie en la parcourant depuis la position initiale.
+ * </p>
+ * <p>
+ * Utilisation : <code>OpeningBookBuilder fichier.bk [-plies=N] [-min=N] [-legacy=fichier.opn]
+ * [parties.pgn ...]</code>.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class OpeningBookBuilder
+{
+  /** Nombre de demi-coups enregistrés par défaut pour chaque partie. */
+  static final int DEFAULT_PLIES = 24;
+
+  /** Poids des mouvements, par clé "Zobrist" de position puis par identifiant de mouvement. */
+  private final Map<Long, Map<Integer, int []>> _moves = new HashMap<Long, Map<Integer, int []>>();
+
+  /** Nombre de demi-coups enregistrés pour chaque partie. */
+  private final int _plies;
+
+  /**
+   * Instancie un nouvel outil de construction.
+   * 
+   * @param pDemiCoups Nombre de demi-coups enregistrés pour chaque partie (> 0).
+   */
+  public OpeningBookBuilder(final int pDemiCoups)
+  {
+    assert pDemiCoups > 0;
+
+    _plies = pDemiCoups;
+  }
+
+  /**
+   * Enregistre un mouvement joué dans une position.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pMouvement Mouvement joué.
+   * @param pPoids Poids à ajouter au mouvement (> 0).
+   */
+  private void add(final MoveGenerator pEtat, final Move pMouvement, final int pPoids)
+  {
+    assert pPoids > 0;
+
+    final Long cle = Long.valueOf(pEtat.getZobristKey());
+    Map<Integer, int []> mvts = _moves.get(cle);
+    if (mvts == null)
+    {
+      mvts = new HashMap<Integer, int []>();
+      _moves.put(cle, mvts);
+    }
+    final Integer id = Integer.valueOf(pMouvement.toId());
+    final int [] poids = mvts.get(id);
+    if (poids == null)
+    {
+      mvts.put(id, new int [] { pPoids });
+    }
+    else
+    {
+      poids[0] += pPoids;
+    }
+  }
+
+  /**
+   * Enregistre les premiers demi-coups d'une partie.
+   * 
+   * @param pPartie Partie à enregistrer.
+   * @throws FENException en cas d'erreur dans la position de départ de la partie.
+   */
+  public void addGame(final Game pPartie) throws FENException
+  {
+    assert pPartie != null;
+
+    final Board depart = FENUtils.toBoard(pPartie.getStartingPosition());
+    MoveGenerator etat = BoardFactory.valueOf(FASTEST, EMPTY).derive(depart);
+    final Move [] mvts = pPartie.getMovesToCurrent();
+    for (int i = 0; (i < mvts.length) && (i < _plies); i++)
+    {
+      add(etat, mvts[i], 1);
+      etat = etat.derive(mvts[i], true);
+    }
+  }
+
+  /**
+   * Enregistre les parties d'une collection au format PGN.
+   * <p>
+   * Les parties invalides sont ignorées.
+   * </p>
+   * 
+   * @param pFlux Flux contenant les parties au format PGN.
+   * @return Nombre de parties enregistrées.
+   * @throws IOException en cas d'erreur de lecture du flux.
+   */
+  public int addGames(final BufferedReader pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    int res = 0;
+    while (hasMoreGames(pFlux))
+    {
+      try
+      {
+        final Game partie = PGNUtils.toGame(pFlux);
+        if (partie.getMovesCount() > 0)
+        {
+          addGame(partie);
+          res++;
+        }
+      }
+      catch (final PGNException e)
+      {
+        // Partie ignorée...
+      }
+      catch (final FENException e)
+      {
+        // Partie ignorée...
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Enregistre le contenu de l'ancienne bibliothèque d'ouvertures compressée de jChecs.
+   * <p>
+   * Cette bibliothèque étant indexée par des clés de hachage sur 32 bits, ses positions sont
+   * retrouvées en la parcourant depuis la position initiale : seuls les mouvements valides dans
+   * les positions atteintes sont conservés, chacun avec un poids unitaire. Les positions des noirs
+   * absentes de la bibliothèque sont franchies en essayant toutes leurs réponses.
+   * </p>
+   * 
+   * @param pFlux Flux contenant l'ancienne bibliothèque compressée.
+   * @return Nombre de positions enregistrées.
+   * @throws IOException en cas d'erreur de lecture du flux.
+   */
+  public int addLegacy(final InputStream pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    final Map<Integer, int []> anciens = new HashMap<Integer, int []>();
+    final DataInputStream in = new DataInputStream(new GZIPInputStream(pFlux));
+    try
+    {
+      while (true)
+      {
+        final int nb = in.readByte();
+        final int [] mvtsId = new int [ nb ];
+        final int cle = in.readInt();
+        for (int i = 0; i < nb; i++)
+        {
+          mvtsId[i] = (in.readUnsignedShort() << 8) + in.readUnsignedByte();
+        }
+        anciens.put(Integer.valueOf(cle), mvtsId);
+      }
+    }
+    catch (final EOFException e)
+    {
+      // Fin de la bibliothèque...
+    }
+    finally
+    {
+      in.close();
+    }
+
+    int res = 0;
+    final Set<Long> vues = new HashSet<Long>();
+    final LinkedList<MoveGenerator> aVoir = new LinkedList<MoveGenerator>();
+    aVoir.add(BoardFactory.valueOf(FASTEST, STARTING));
+    while (!aVoir.isEmpty())
+    {
+      final MoveGenerator etat = aVoir.removeFirst();
+      if (!vues.add(Long.valueOf(etat.getZobristKey())))
+      {
+        continue;
+      }
+      final Move [] valides = etat.getValidMoves(etat.isWhiteActive());
+      final int [] ids = anciens.get(Integer.valueOf(etat.hashCode()));
+      if (ids == null)
+      {
+        // L'ancienne bibliothèque ne contient quasiment que des positions où le trait est aux
+        // blancs : les réponses des noirs absentes sont donc toutes explorées...
+        if (!etat.isWhiteActive())
+        {
+          for (final Move mvt : valides)
+          {
+            final MoveGenerator suivant = etat.derive(mvt, true);
+            if (anciens.containsKey(Integer.valueOf(suivant.hashCode())))
+            {
+              aVoir.add(suivant);
+            }
+          }
+        }
+        continue;
+      }
+      boolean trouve = false;
+      for (final int id : ids)
+      {
+        final Move mvt = Move.valueOf(id);
+        if (Arrays.asList(valides).contains(mvt))
+        {
+          trouve = true;
+          add(etat, mvt, 1);
+          aVoir.add(etat.derive(mvt, true));
+        }
+      }
+      if (trouve)
+      {
+        res++;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi le nombre de positions enregistrées.
+   * 
+   * @return Nombre de positions.
+   */
+  public int getPositionsCount()
+  {
+    return _moves.size();
+  }
+
+  /**
+   * Indique s'il reste des caractères à lire dans un flux, sans les consommer.
+   * 
+   * @param pFlux Flux à tester.
+   * @return "true" s'il reste des caractères dans le flux.
+   * @throws IOException en cas d'erreur de lecture du flux.
+   */
+  private static boolean hasMoreGames(final BufferedReader pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    pFlux.mark(1);
+    final boolean res = pFlux.read() >= 0;
+    pFlux.reset();
+
+    return res;
+  }
+
+  /**
+   * Construit une bibliothèque d'ouvertures.
+   * 
+   * @param pArgs Arguments de la ligne de commande : <code>fichier.bk [-plies=N] [-min=N]
+   *          [-legacy=fichier.opn] [parties.pgn ...]</code>.
+   * @throws IOException en cas d'erreur d'accès aux fichiers.
+   */
+  public static void main(final String [] pArgs) throws IOException
+  {
+    if (pArgs.length == 0)
+    {
+      System.err.println("Usage: OpeningBookBuilder book.bk [-plies=N] [-min=N]"
+          + " [-legacy=jchecs.opn] [games.pgn ...]");
+      System.exit(1);
+    }
+
+    int demiCoups = DEFAULT_PLIES;
+    int poidsMin = 1;
+    for (int i = 1; i < pArgs.length; i++)
+    {
+      if (pArgs[i].startsWith("-plies="))
+      {
+        demiCoups = Integer.parseInt(pArgs[i].substring(7));
+      }
+      else if (pArgs[i].startsWith("-min="))
+      {
+        poidsMin = Integer.parseInt(pArgs[i].substring(5));
+      }
+    }
+
+    final OpeningBookBuilder constructeur = new OpeningBookBuilder(demiCoups);
+    for (int i = 1; i < pArgs.length; i++)
+    {
+      final String arg = pArgs[i];
+      if (arg.startsWith("-legacy="))
+      {
+        final int nb = constructeur.addLegacy(new FileInputStream(arg.substring(8)));
+        System.out.println(arg.substring(8) + " : " + nb + " positions");
+      }
+      else if (!arg.startsWith("-"))
+      {
+        final BufferedReader in =
+            new BufferedReader(new InputStreamReader(new FileInputStream(arg), "ISO-8859-1"));
+        try
+        {
+          System.out.println(arg + " : " + constructeur.addGames(in) + " parties");
+        }
+        finally
+        {
+          in.close();
+        }
+      }
+    }
+
+    final int nb = constructeur.write(new File(pArgs[0]), poidsMin);
+    System.out.println(pArgs[0] + " : " + constructeur.getPositionsCount() + " positions, " + nb
+        + " mouvements");
+  }
+
+  /**
+   * Ecrit la bibliothèque d'ouvertures dans un fichier.
+   * 
+   * @param pFichier Fichier à écrire.
+   * @param pPoidsMin Poids minimal d'un mouvement pour qu'il soit conservé (> 0).
+   * @return Nombre d'enregistrements (couples position / mouvement) écrits.
+   * @throws IOException en cas d'erreur d'écriture.
+   */
+  public int write(final File pFichier, final int pPoidsMin) throws IOException
+  {
+    assert pFichier != null;
+    assert pPoidsMin > 0;
+
+    int nb = 0;
+    final long [] cles = new long [ _moves.size() ];
+    for (final Map.Entry<Long, Map<Integer, int []>> e : _moves.entrySet())
+    {
+      cles[nb++] = e.getKey().longValue();
+    }
+    Arrays.sort(cles);
+
+    int res = 0;
+    for (final Map<Integer, int []> mvts : _moves.values())
+    {
+      for (final int [] poids : mvts.values())
+      {
+        if (poids[0] >= pPoidsMin)
+        {
+          res++;
+        }
+      }
+    }
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pFichier)));
+    try
+    {
+      out.writeInt(OpeningBook.MAGIC);
+      out.writeInt(OpeningBook.VERSION);
+      out.writeLong(res);
+      for (final long cle : cles)
+      {
+        final Map<Integer, int []> mvts = _moves.get(Long.valueOf(cle));
+        final int [] ids = new int [ mvts.size() ];
+        int i = 0;
+        for (final Integer id : mvts.keySet())
+        {
+          ids[i++] = id.intValue();
+        }
+        // Ordre stable, pour que les fichiers produits soient reproductibles...
+        Arrays.sort(ids);
+        for (final int id : ids)
+        {
+          final int poids = mvts.get(Integer.valueOf(id))[0];
+          if (poids >= pPoidsMin)
+          {
+            out.writeLong(cle);
+            out.writeInt(id);
+            out.writeInt(poids);
+          }
+        }
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+
+    return res;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.Comparator;
+
+import fr.free.jchecs.core.Move;
+
+/**
+ * Interface présentée par les méthodes de tri des mouvements capables de classer des mouvements
+ * identifiés par des entiers (voir {@link Move#toId()}), sans avoir à les instancier.
+ * <p>
+ * L'ordre obtenu doit être le même que celui défini par
+ * {@link Comparator#compare(Object, Object)} : les mouvements de plus forte priorité en premier.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+interface PackedMoveSorter extends Comparator<Move>
+{
+  /**
+   * Renvoi la priorité d'un mouvement identifié par un entier.
+   * 
+   * @param pMouvement Entier identifiant le mouvement.
+   * @return Priorité du mouvement (les plus fortes sont examinées en premier).
+   */
+  int getPriority(final int pMouvement);
+}
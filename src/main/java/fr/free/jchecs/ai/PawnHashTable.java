@@ -0,0 +1,131 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import fr.free.jchecs.core.Board;
+
+/**
+ * Classe implémentant un cache des évaluations de structures de pions, identifiées par la clé
+ * "Zobrist" de leurs pions (voir {@link Board#getPawnKey()}).
+ * <p>
+ * La structure des pions variant rarement d'un noeud de la recherche à ses voisins, la plupart
+ * des évaluations sont retrouvées dans le cache. La table est à correspondance directe : chaque
+ * clé n'a qu'une entrée possible, systématiquement remplacée.
+ * </p>
+ * <p>
+ * Comme pour {@link TranspositionTable}, la clé est stockée combinée (par un "ou exclusif") avec
+ * les données, pour que la table puisse être partagée entre plusieurs threads sans verrou.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class PawnHashTable
+{
+  /** Valeur renvoyée pour une structure absente de la table. */
+  static final int NO_VALUE = Integer.MIN_VALUE;
+
+  /** Nombre de "long" occupés par une entrée (clé + données). */
+  private static final int ENTRY_LENGTH = 2;
+
+  /** Bit toujours positionné dans les données d'une entrée valide. */
+  private static final long VALID = 1L << 32;
+
+  /** Tableau des entrées. */
+  private final long [] _entries;
+
+  /** Masque appliqué aux clés pour obtenir l'indice d'une entrée. */
+  private final int _mask;
+
+  // Les compteurs ne sont pas synchronisés : ils restent approximatifs si la table est partagée.
+
+  /** Nombre de consultations ayant trouvé la structure. */
+  private long _hits;
+
+  /** Nombre de consultations n'ayant pas trouvé la structure. */
+  private long _misses;
+
+  /**
+   * Instancie une nouvelle table.
+   * 
+   * @param pTaille Nombre d'entrées de la table (arrondi à la puissance de 2 inférieure).
+   */
+  PawnHashTable(final int pTaille)
+  {
+    assert pTaille > 0;
+
+    _mask = Integer.highestOneBit(pTaille) - 1;
+    _entries = new long [ (_mask + 1) * ENTRY_LENGTH ];
+  }
+
+  /**
+   * Renvoi l'évaluation d'une structure de pions.
+   * 
+   * @param pCle Clé "Zobrist" des pions.
+   * @return Evaluation de la structure, ou NO_VALUE si elle est absente de la table.
+   */
+  int get(final long pCle)
+  {
+    final int idx = ((int) pCle & _mask) * ENTRY_LENGTH;
+    final long donnees = _entries[idx + 1];
+    if ((donnees != 0) && ((_entries[idx] ^ donnees) == pCle))
+    {
+      _hits++;
+      return (int) donnees;
+    }
+
+    _misses++;
+    return NO_VALUE;
+  }
+
+  /**
+   * Renvoi le nombre de consultations ayant trouvé la structure.
+   * 
+   * @return Nombre de consultations fructueuses.
+   */
+  long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Renvoi le nombre de consultations n'ayant pas trouvé la structure.
+   * 
+   * @return Nombre de consultations infructueuses.
+   */
+  long getMisses()
+  {
+    return _misses;
+  }
+
+  /**
+   * Mémorise l'évaluation d'une structure de pions.
+   * 
+   * @param pCle Clé "Zobrist" des pions.
+   * @param pValeur Evaluation de la structure (différente de NO_VALUE).
+   */
+  void put(final long pCle, final int pValeur)
+  {
+    assert pValeur != NO_VALUE;
+
+    final int idx = ((int) pCle & _mask) * ENTRY_LENGTH;
+    final long donnees = VALID | (pValeur & 0xFFFFFFFFL);
+    _entries[idx] = pCle ^ donnees;
+    _entries[idx + 1] = donnees;
+  }
+}
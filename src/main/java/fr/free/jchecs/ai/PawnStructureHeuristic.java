@@ -0,0 +1,215 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.BLACK_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_PAWN;
+
+import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Piece;
+
+/**
+ * Fonction d'évaluation complétant une autre fonction d'évaluation par l'analyse de la structure
+ * des pions : pions passés, isolés et doublés.
+ * <p>
+ * Les évaluations des structures de pions sont conservées dans un cache ({@link PawnHashTable})
+ * indexé par la clé "Zobrist" des pions : leur coût est négligeable pour la plupart des noeuds.
+ * </p>
+ * <p>
+ * Classe sûre vis-à-vis des threads (si la fonction complétée l'est aussi).
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class PawnStructureHeuristic implements Heuristic
+{
+  /** Malus d'un pion doublé (par pion au delà du premier sur une colonne). */
+  private static final int DOUBLED_PAWN = 10;
+
+  /** Malus d'un pion isolé. */
+  private static final int ISOLATED_PAWN = 12;
+
+  /** Bonus d'un pion passé, en fonction de sa rangée (du point de vue de sa couleur). */
+  private static final int [] PASSED_PAWN = { 0, 5, 10, 20, 35, 60, 100, 0 };
+  static
+  {
+    assert PASSED_PAWN.length == RANK_COUNT;
+  }
+
+  /** Nombre d'entrées du cache des structures de pions. */
+  private static final int TABLE_SIZE = 1 << 14;
+
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = -1432087463190427985L;
+
+  /** Fonction d'évaluation complétée. */
+  private final Heuristic _heuristic;
+
+  /** Cache des évaluations des structures de pions (recréé à la demande). */
+  private transient volatile PawnHashTable _table;
+
+  /**
+   * Crée une nouvelle instance.
+   * 
+   * @param pHeuristique Fonction d'évaluation à compléter.
+   */
+  PawnStructureHeuristic(final Heuristic pHeuristique)
+  {
+    assert pHeuristique != null;
+
+    _heuristic = pHeuristique;
+  }
+
+  /**
+   * Evalue une structure de pions.
+   * 
+   * @param pEtat Etat du jeu.
+   * @return Evaluation de la structure des pions, du point de vue des blancs.
+   */
+  static int evaluatePawns(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    // Nombre de pions, rangée minimale des pions blancs et maximale des pions noirs par colonne...
+    final int [] blancs = new int [ FILE_COUNT ];
+    final int [] noirs = new int [ FILE_COUNT ];
+    final int [] minBlancs = new int [ FILE_COUNT ];
+    final int [] maxNoirs = new int [ FILE_COUNT ];
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      minBlancs[x] = RANK_COUNT;
+      maxNoirs[x] = -1;
+      for (int y = 0; y < RANK_COUNT; y++)
+      {
+        final Piece p = pEtat.getPieceAt(x, y);
+        if (p == WHITE_PAWN)
+        {
+          blancs[x]++;
+          minBlancs[x] = Math.min(minBlancs[x], y);
+        }
+        else if (p == BLACK_PAWN)
+        {
+          noirs[x]++;
+          maxNoirs[x] = y;
+        }
+      }
+    }
+
+    int res = 0;
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      if (blancs[x] > 1)
+      {
+        res -= (blancs[x] - 1) * DOUBLED_PAWN;
+      }
+      if (noirs[x] > 1)
+      {
+        res += (noirs[x] - 1) * DOUBLED_PAWN;
+      }
+      final boolean gauche = x > 0;
+      final boolean droite = x < FILE_COUNT - 1;
+      if (((!gauche) || (blancs[x - 1] == 0)) && ((!droite) || (blancs[x + 1] == 0)))
+      {
+        res -= blancs[x] * ISOLATED_PAWN;
+      }
+      if (((!gauche) || (noirs[x - 1] == 0)) && ((!droite) || (noirs[x + 1] == 0)))
+      {
+        res += noirs[x] * ISOLATED_PAWN;
+      }
+      for (int y = 0; y < RANK_COUNT; y++)
+      {
+        final Piece p = pEtat.getPieceAt(x, y);
+        if (p == WHITE_PAWN)
+        {
+          // Passé si aucun pion noir devant lui, sur sa colonne ou les colonnes voisines...
+          if ((maxNoirs[x] < y) && ((!gauche) || (maxNoirs[x - 1] <= y))
+              && ((!droite) || (maxNoirs[x + 1] <= y)))
+          {
+            res += PASSED_PAWN[y];
+          }
+        }
+        else if (p == BLACK_PAWN)
+        {
+          if ((minBlancs[x] > y) && ((!gauche) || (minBlancs[x - 1] >= y))
+              && ((!droite) || (minBlancs[x + 1] >= y)))
+          {
+            res -= PASSED_PAWN[(RANK_COUNT - 1) - y];
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la valeur estimée d'un état du jeu, pour les fonctions de recherche du meilleur coup.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pTrait Positionné à "true" si l'on veut une évaluation du point de vue des blancs.
+   * @return Valeur estimée.
+   * @see Heuristic#evaluate(MoveGenerator,boolean)
+   */
+  public int evaluate(final MoveGenerator pEtat, final boolean pTrait)
+  {
+    assert pEtat != null;
+
+    final int res = _heuristic.evaluate(pEtat, pTrait);
+    if ((res == MATE_VALUE) || (res == -MATE_VALUE))
+    {
+      // Mat : inutile d'aller plus loin...
+      return res;
+    }
+
+    PawnHashTable table = _table;
+    if (table == null)
+    {
+      table = new PawnHashTable(TABLE_SIZE);
+      _table = table;
+    }
+    final long cle = pEtat.getPawnKey();
+    int pions = table.get(cle);
+    if (pions == PawnHashTable.NO_VALUE)
+    {
+      pions = evaluatePawns(pEtat);
+      table.put(cle, pions);
+    }
+
+    if (pTrait)
+    {
+      return res + pions;
+    }
+
+    return res - pions;
+  }
+
+  /**
+   * Renvoi le cache des évaluations des structures de pions.
+   * 
+   * @return Cache des structures de pions (null si aucune évaluation n'a encore eu lieu).
+   */
+  PawnHashTable getTable()
+  {
+    return _table;
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.core.Constants.MAX_MOVES;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contexte d'une recherche en cours : décompte des noeuds visités, conditions d'interruption
+ * (demande d'arrêt, limite de noeuds, échéance) et tableaux de travail réutilisés d'un noeud à
+ * l'autre.
+ * <p>
+ * Chaque recherche porte un numéro, attribué par {@link #newSearch()} dès qu'elle est décidée :
+ * une demande d'arrêt vise toutes les recherches numérotées jusque là, y compris celles qui n'ont
+ * pas encore commencé, et jamais les suivantes. Seules la numérotation et la demande d'arrêt
+ * peuvent provenir d'un autre thread que celui qui mène la recherche.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class SearchContext
+{
+  /** Masque fixant la fréquence de consultation de l'horloge (tous les 1024 noeuds). */
+  private static final long CLOCK_CHECK_MASK = 1023;
+
+  /** Dernier numéro de recherche attribué. */
+  private final AtomicLong _lastSearch = new AtomicLong();
+
+  /** Numéro de la dernière recherche dont l'arrêt est demandé (par un autre thread). */
+  private final AtomicLong _stoppedSearch = new AtomicLong();
+
+  /** Numéro de la recherche en cours. */
+  private long _search;
+
+  /** Drapeau signalant l'interruption de la recherche en cours. */
+  private boolean _aborted;
+
+  /** Heure limite de la recherche (en ms, 0 si pas de limite). */
+  private long _deadline;
+
+  /** Nombre maximal de noeuds à visiter (0 si pas de limite). */
+  private long _nodeLimit;
+
+  /** Nombre de noeuds visités depuis le début de la recherche. */
+  private long _nodes;
+
+  /** Nombre de coupures beta depuis le début de la recherche. */
+  private long _cutoffs;
+
+  /** Nombre de coupures beta obtenues dès le premier mouvement examiné. */
+  private long _firstMoveCutoffs;
+
+  /** Listes des mouvements, une par demi-coup de profondeur (allouées à la demande). */
+  private int [][] _moves = new int [ 0 ][];
+
+  /** Priorités des mouvements pour leur tri, une liste par demi-coup (allouées à la demande). */
+  private int [][] _priorities = new int [ 0 ][];
+
+  /**
+   * Instancie un nouveau contexte de recherche.
+   */
+  SearchContext()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Comptabilise une coupure beta.
+   * 
+   * @param pRang Rang (dans l'ordre d'examen) du mouvement ayant provoqué la coupure.
+   */
+  void cutoff(final int pRang)
+  {
+    assert pRang >= 0;
+
+    _cutoffs++;
+    if (pRang == 0)
+    {
+      _firstMoveCutoffs++;
+    }
+  }
+
+  /**
+   * Renvoi le nombre de coupures beta depuis le début de la recherche.
+   * 
+   * @return Nombre de coupures beta.
+   */
+  long getCutoffs()
+  {
+    return _cutoffs;
+  }
+
+  /**
+   * Renvoi le nombre de coupures beta obtenues dès le premier mouvement examiné.
+   * 
+   * @return Nombre de coupures au premier mouvement.
+   */
+  long getFirstMoveCutoffs()
+  {
+    return _firstMoveCutoffs;
+  }
+
+  /**
+   * Renvoi le tableau de travail destiné à recevoir les mouvements générés à un demi-coup donné.
+   * 
+   * @param pPly Distance (en demi-coups) à la racine de la recherche.
+   * @return Tableau de {@link fr.free.jchecs.core.Constants#MAX_MOVES} entiers.
+   */
+  int [] getMoves(final int pPly)
+  {
+    assert pPly >= 0;
+
+    if (pPly >= _moves.length)
+    {
+      grow(pPly + 1);
+    }
+
+    return _moves[pPly];
+  }
+
+  /**
+   * Renvoi le nombre de noeuds visités depuis le début de la recherche.
+   * 
+   * @return Nombre de noeuds visités.
+   */
+  long getNodes()
+  {
+    assert _nodes >= 0;
+    return _nodes;
+  }
+
+  /**
+   * Renvoi le tableau de travail destiné à recevoir les priorités des mouvements d'un demi-coup.
+   * 
+   * @param pPly Distance (en demi-coups) à la racine de la recherche.
+   * @return Tableau de {@link fr.free.jchecs.core.Constants#MAX_MOVES} entiers.
+   */
+  int [] getPriorities(final int pPly)
+  {
+    assert pPly >= 0;
+
+    if (pPly >= _priorities.length)
+    {
+      grow(pPly + 1);
+    }
+
+    return _priorities[pPly];
+  }
+
+  /**
+   * Etend les tableaux de travail jusqu'à une profondeur donnée.
+   * 
+   * @param pProfondeur Nombre de demi-coups à couvrir.
+   */
+  private void grow(final int pProfondeur)
+  {
+    final int l = _moves.length;
+    final int taille = Math.max(pProfondeur, 2 * l);
+    final int [][] mvts = new int [ taille ][];
+    final int [][] prios = new int [ taille ][];
+    System.arraycopy(_moves, 0, mvts, 0, l);
+    System.arraycopy(_priorities, 0, prios, 0, l);
+    for (int i = l; i < taille; i++)
+    {
+      mvts[i] = new int [ MAX_MOVES ];
+      prios[i] = new int [ MAX_MOVES ];
+    }
+    _moves = mvts;
+    _priorities = prios;
+  }
+
+  /**
+   * Indique si la recherche en cours a été interrompue.
+   * 
+   * @return "true" si la recherche doit être abandonnée.
+   */
+  boolean isAborted()
+  {
+    return _aborted;
+  }
+
+  /**
+   * Attribue un numéro à une nouvelle recherche (peut être appelé depuis n'importe quel thread).
+   * 
+   * @return Numéro de la recherche, à transmettre à {@link #start(long, long, long)}.
+   */
+  long newSearch()
+  {
+    return _lastSearch.incrementAndGet();
+  }
+
+  /**
+   * Réinitialise le contexte au début d'une recherche.
+   * <p>
+   * Une demande d'arrêt visant déjà cette recherche reste valable : la recherche s'interrompt alors
+   * dès le premier noeud.
+   * </p>
+   * 
+   * @param pEcheance Heure limite de la recherche (en ms, 0 si pas de limite).
+   * @param pNoeuds Nombre maximal de noeuds à visiter (0 si pas de limite).
+   * @param pRecherche Numéro de la recherche, obtenu par {@link #newSearch()}.
+   */
+  void start(final long pEcheance, final long pNoeuds, final long pRecherche)
+  {
+    assert pEcheance >= 0;
+    assert pNoeuds >= 0;
+    assert (pRecherche > 0) && (pRecherche <= _lastSearch.get());
+
+    _deadline = pEcheance;
+    _nodeLimit = pNoeuds;
+    _nodes = 0;
+    _cutoffs = 0;
+    _firstMoveCutoffs = 0;
+    _aborted = false;
+    _search = pRecherche;
+  }
+
+  /**
+   * Demande l'arrêt de la recherche en cours et de celles déjà numérotées (peut être appelé depuis
+   * n'importe quel thread).
+   */
+  void stop()
+  {
+    stop(_lastSearch.get());
+  }
+
+  /**
+   * Demande l'arrêt d'une recherche et de celles numérotées avant elle (peut être appelé depuis
+   * n'importe quel thread). Les recherches numérotées après elle ne sont pas concernées.
+   * 
+   * @param pRecherche Numéro de la recherche à arrêter.
+   */
+  void stop(final long pRecherche)
+  {
+    long arret = _stoppedSearch.get();
+    while ((pRecherche > arret) && !_stoppedSearch.compareAndSet(arret, pRecherche))
+    {
+      arret = _stoppedSearch.get();
+    }
+  }
+
+  /**
+   * Comptabilise la visite d'un noeud et vérifie les conditions d'interruption.
+   * 
+   * @return "true" si la recherche doit être abandonnée.
+   */
+  boolean visit()
+  {
+    if (!_aborted)
+    {
+      _nodes++;
+      if ((_stoppedSearch.get() >= _search) || ((_nodeLimit > 0) && (_nodes >= _nodeLimit)))
+      {
+        _aborted = true;
+      }
+      else if ((_deadline > 0) && ((_nodes & CLOCK_CHECK_MASK) == 0)
+          && (System.currentTimeMillis() >= _deadline))
+      {
+        _aborted = true;
+      }
+    }
+
+    return _aborted;
+  }
+}
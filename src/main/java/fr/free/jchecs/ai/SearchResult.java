@@ -0,0 +1,235 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import fr.free.jchecs.core.Move;
+
+/**
+ * Résultat détaillé d'une recherche menée par un moteur : variation principale, profondeur atteinte
+ * et statistiques permettant d'en évaluer le coût (noeuds, durée, efficacité de la table de
+ * transposition et du tri des mouvements).
+ * <p>
+ * Les instances de cette classe sont immuables.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class SearchResult
+{
+  /** Variation principale, en commençant par le mouvement joué. */
+  private final Move [] _principalVariation;
+
+  /** Variation principale en notation SAN. */
+  private final String _principalVariationSAN;
+
+  /** Score du mouvement joué. */
+  private final int _score;
+
+  /** Profondeur de la dernière itération complète (0 si le mouvement n'a pas été recherché). */
+  private final int _depth;
+
+  /** Nombre de noeuds visités par la recherche principale. */
+  private final long _nodes;
+
+  /** Durée de la recherche (en ms). */
+  private final long _time;
+
+  /** Nombre de consultations fructueuses de la table de transposition. */
+  private final long _hashHits;
+
+  /** Nombre total de consultations de la table de transposition. */
+  private final long _hashProbes;
+
+  /** Nombre de coupures beta. */
+  private final long _cutoffs;
+
+  /** Nombre de coupures beta obtenues dès le premier mouvement examiné. */
+  private final long _firstMoveCutoffs;
+
+  /**
+   * Instancie un nouveau résultat de recherche.
+   * 
+   * @param pVariation Variation principale, en commençant par le mouvement joué (au moins un).
+   * @param pVariationSAN Variation principale en notation SAN.
+   * @param pScore Score du mouvement joué.
+   * @param pProfondeur Profondeur de la dernière itération complète.
+   * @param pNoeuds Nombre de noeuds visités.
+   * @param pDuree Durée de la recherche (en ms).
+   * @param pSucces Nombre de consultations fructueuses de la table de transposition.
+   * @param pConsultations Nombre total de consultations de la table de transposition.
+   * @param pCoupures Nombre de coupures beta.
+   * @param pPremieres Nombre de coupures beta obtenues dès le premier mouvement.
+   */
+  SearchResult(final Move [] pVariation, final String pVariationSAN, final int pScore,
+      final int pProfondeur, final long pNoeuds, final long pDuree, final long pSucces,
+      final long pConsultations, final long pCoupures, final long pPremieres)
+  {
+    assert pVariation != null;
+    assert pVariation.length > 0;
+    assert pVariationSAN != null;
+    assert pProfondeur >= 0;
+    assert (pSucces >= 0) && (pSucces <= pConsultations);
+    assert (pPremieres >= 0) && (pPremieres <= pCoupures);
+
+    _principalVariation = pVariation.clone();
+    _principalVariationSAN = pVariationSAN;
+    _score = pScore;
+    _depth = pProfondeur;
+    _nodes = pNoeuds;
+    _time = pDuree;
+    _hashHits = pSucces;
+    _hashProbes = pConsultations;
+    _cutoffs = pCoupures;
+    _firstMoveCutoffs = pPremieres;
+  }
+
+  /**
+   * Renvoi la proportion des coupures beta obtenues dès le premier mouvement examiné, qui mesure
+   * la qualité du tri des mouvements.
+   * 
+   * @return Pourcentage des coupures obtenues au premier mouvement (0 si aucune coupure).
+   */
+  public int getCutoffRatio()
+  {
+    if (_cutoffs == 0)
+    {
+      return 0;
+    }
+
+    return (int) ((100 * _firstMoveCutoffs) / _cutoffs);
+  }
+
+  /**
+   * Renvoi le nombre de coupures beta de la recherche.
+   * 
+   * @return Nombre de coupures beta.
+   */
+  public long getCutoffs()
+  {
+    return _cutoffs;
+  }
+
+  /**
+   * Renvoi la profondeur de la dernière itération complète de la recherche.
+   * 
+   * @return Profondeur atteinte (en demi-coups, 0 si le mouvement vient de la bibliothèque
+   *         d'ouvertures ou des tables de finales).
+   */
+  public int getDepth()
+  {
+    return _depth;
+  }
+
+  /**
+   * Renvoi la proportion des consultations de la table de transposition ayant trouvé la position.
+   * 
+   * @return Pourcentage de consultations fructueuses (0 si aucune consultation).
+   */
+  public int getHashHitRate()
+  {
+    if (_hashProbes == 0)
+    {
+      return 0;
+    }
+
+    return (int) ((100 * _hashHits) / _hashProbes);
+  }
+
+  /**
+   * Renvoi le mouvement joué.
+   * 
+   * @return Mouvement joué.
+   */
+  public Move getMove()
+  {
+    return _principalVariation[0];
+  }
+
+  /**
+   * Renvoi le nombre de noeuds visités par la recherche principale.
+   * 
+   * @return Nombre de noeuds visités.
+   */
+  public long getNodes()
+  {
+    return _nodes;
+  }
+
+  /**
+   * Renvoi le nombre de noeuds visités par seconde.
+   * 
+   * @return Nombre de noeuds par seconde.
+   */
+  public long getNodesPerSecond()
+  {
+    return (1000 * _nodes) / Math.max(1, _time);
+  }
+
+  /**
+   * Renvoi la variation principale : le mouvement joué, suivi de la suite de coups attendue.
+   * 
+   * @return Copie de la variation principale.
+   */
+  public Move [] getPrincipalVariation()
+  {
+    return _principalVariation.clone();
+  }
+
+  /**
+   * Renvoi le score du mouvement joué.
+   * 
+   * @return Score du mouvement joué.
+   */
+  public int getScore()
+  {
+    return _score;
+  }
+
+  /**
+   * Renvoi la durée de la recherche.
+   * 
+   * @return Durée de la recherche (en ms).
+   */
+  public long getTime()
+  {
+    return _time;
+  }
+
+  /**
+   * Renvoi une chaine résumant le résultat, destinée aux traces.
+   * 
+   * @return Chaine décrivant le résultat.
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("depth ").append(_depth);
+    sb.append(" score ").append(_score);
+    sb.append(" nodes ").append(_nodes);
+    sb.append(" nps ").append(getNodesPerSecond());
+    sb.append(" time ").append(_time).append("ms");
+    sb.append(" hash ").append(getHashHitRate()).append('%');
+    sb.append(" cutoffs ").append(_cutoffs).append(" (").append(getCutoffRatio()).append(
+        "% first)");
+    sb.append(" pv ").append(_principalVariationSAN);
+
+    return sb.toString();
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceType.BISHOP;
+import static fr.free.jchecs.core.PieceType.KING;
+import static fr.free.jchecs.core.PieceType.KNIGHT;
+import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.PieceType.QUEEN;
+import static fr.free.jchecs.core.PieceType.ROOK;
+
+import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.PieceType;
+
+/**
+ * Evaluation statique des échanges ("Static Exchange Evaluation") provoqués par une prise.
+ * <p>
+ * Les deux camps reprennent alternativement sur la case d'arrivée, toujours avec leur pièce la
+ * moins chère, chacun pouvant interrompre la séquence quand elle lui devient défavorable. Les pièces
+ * masquées par un attaquant (rayons X) entrent en jeu dès que celui-ci a été utilisé. Les clouages,
+ * les promotions et la prise en passant ne sont pas pris en compte : l'évaluation n'est qu'une
+ * estimation, destinée au tri et à l'élagage des prises.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class StaticExchange
+{
+  /** Valeur attribuée au roi : le prendre compense n'importe quel échange. */
+  private static final int KING_VALUE = 100 * QUEEN.getValue();
+
+  /** Nombre maximal de prises dans une séquence d'échanges (autant que de pièces). */
+  private static final int MAX_EXCHANGES = 32;
+
+  /** Directions des déplacements diagonaux. */
+  private static final int [][] DIAGONALS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+  /** Directions des déplacements orthogonaux. */
+  private static final int [][] LINES = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+
+  /** Déplacements des cavaliers. */
+  private static final int [][] KNIGHT_JUMPS = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 },
+      { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 } };
+
+  /**
+   * Classe utilitaire : ne pas instancier.
+   */
+  private StaticExchange()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi le bilan matériel, pour le camp qui joue, de la séquence d'échanges ouverte par un
+   * mouvement.
+   * 
+   * @param pEtat Etat de l'échiquier avant le mouvement.
+   * @param pMouvement Mouvement ouvrant la séquence (généralement une prise).
+   * @return Bilan matériel de la séquence (négatif si elle fait perdre du matériel).
+   */
+  static int evaluate(final Board pEtat, final Move pMouvement)
+  {
+    assert pMouvement != null;
+
+    return evaluate(pEtat, pMouvement.toId());
+  }
+
+  /**
+   * Renvoi le bilan matériel, pour le camp qui joue, de la séquence d'échanges ouverte par un
+   * mouvement identifié par un entier (voir {@link Move#toId()}).
+   * 
+   * @param pEtat Etat de l'échiquier avant le mouvement.
+   * @param pMouvement Entier identifiant le mouvement ouvrant la séquence.
+   * @return Bilan matériel de la séquence (négatif si elle fait perdre du matériel).
+   */
+  static int evaluate(final Board pEtat, final int pMouvement)
+  {
+    assert pEtat != null;
+
+    final int dst = Move.toOf(pMouvement);
+    final int colonne = dst % FILE_COUNT;
+    final int ligne = dst / FILE_COUNT;
+    final int [] gains = new int [ MAX_EXCHANGES + 1 ];
+    gains[0] = valueOf(Move.capturedOf(pMouvement));
+    final Piece piece = Move.pieceOf(pMouvement);
+    int surCase = valueOf(piece);
+    long retirees = 1L << Move.fromOf(pMouvement);
+    boolean trait = !piece.isWhite();
+    int n = 0;
+    while (n < MAX_EXCHANGES)
+    {
+      final int attaquant = findLeastValuableAttacker(pEtat, colonne, ligne, trait, retirees);
+      if (attaquant < 0)
+      {
+        break;
+      }
+      n++;
+      // Gain si la pièce sur la case est prise, en supposant que la séquence s'arrête là...
+      gains[n] = surCase - gains[n - 1];
+      surCase = valueOf(pEtat.getPieceAt(attaquant % FILE_COUNT, attaquant / FILE_COUNT));
+      retirees |= 1L << attaquant;
+      trait = !trait;
+    }
+
+    // ... puis chaque camp choisit, en remontant, entre poursuivre l'échange ou s'arrêter.
+    while (n > 0)
+    {
+      gains[n - 1] = -Math.max(-gains[n - 1], gains[n]);
+      n--;
+    }
+
+    return gains[0];
+  }
+
+  /**
+   * Recherche la pièce la moins chère d'un camp attaquant une case.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pColonne Colonne de la case attaquée.
+   * @param pLigne Ligne de la case attaquée.
+   * @param pBlanc A "true" pour rechercher parmi les pièces blanches, à "false" sinon.
+   * @param pRetirees Cases (un bit par indice) des pièces ayant déjà pris part à l'échange.
+   * @return Indice de la case de l'attaquant trouvé, ou -1 s'il n'y en a pas.
+   */
+  private static int findLeastValuableAttacker(final Board pEtat, final int pColonne,
+      final int pLigne, final boolean pBlanc, final long pRetirees)
+  {
+    assert pEtat != null;
+
+    int res = -1;
+    int valeurRes = Integer.MAX_VALUE;
+
+    // Pions...
+    final int lignePion;
+    if (pBlanc)
+    {
+      lignePion = pLigne - 1;
+    }
+    else
+    {
+      lignePion = pLigne + 1;
+    }
+    for (int dc = -1; dc <= 1; dc += 2)
+    {
+      final Piece p = pieceAt(pEtat, pColonne + dc, lignePion, pRetirees);
+      if ((p != null) && (p.isWhite() == pBlanc) && (p.getType() == PAWN))
+      {
+        return lignePion * FILE_COUNT + pColonne + dc;
+      }
+    }
+
+    // Cavaliers...
+    for (final int [] saut : KNIGHT_JUMPS)
+    {
+      final int c = pColonne + saut[0];
+      final int l = pLigne + saut[1];
+      final Piece p = pieceAt(pEtat, c, l, pRetirees);
+      if ((p != null) && (p.isWhite() == pBlanc) && (p.getType() == KNIGHT))
+      {
+        return l * FILE_COUNT + c;
+      }
+    }
+
+    // Pièces à longue portée (y compris derrière un attaquant déjà retiré) et roi...
+    for (int i = 0; i < 2; i++)
+    {
+      final int [][] directions;
+      final PieceType type;
+      if (i == 0)
+      {
+        directions = DIAGONALS;
+        type = BISHOP;
+      }
+      else
+      {
+        directions = LINES;
+        type = ROOK;
+      }
+      for (final int [] dir : directions)
+      {
+        int c = pColonne + dir[0];
+        int l = pLigne + dir[1];
+        int distance = 1;
+        while ((c >= 0) && (c < FILE_COUNT) && (l >= 0) && (l < RANK_COUNT))
+        {
+          final Piece p = pieceAt(pEtat, c, l, pRetirees);
+          if (p != null)
+          {
+            if (p.isWhite() == pBlanc)
+            {
+              final PieceType t = p.getType();
+              if ((t == type) || (t == QUEEN) || ((t == KING) && (distance == 1)))
+              {
+                final int valeur = valueOf(p);
+                if (valeur < valeurRes)
+                {
+                  valeurRes = valeur;
+                  res = l * FILE_COUNT + c;
+                }
+              }
+            }
+            break;
+          }
+          c += dir[0];
+          l += dir[1];
+          distance++;
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la pièce occupant une case, en ignorant celles ayant déjà pris part à l'échange.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pColonne Colonne de la case (éventuellement hors de l'échiquier).
+   * @param pLigne Ligne de la case (éventuellement hors de l'échiquier).
+   * @param pRetirees Cases (un bit par indice) des pièces ayant déjà pris part à l'échange.
+   * @return Pièce présente (ou null).
+   */
+  private static Piece pieceAt(final Board pEtat, final int pColonne, final int pLigne,
+      final long pRetirees)
+  {
+    if ((pColonne < 0) || (pColonne >= FILE_COUNT) || (pLigne < 0) || (pLigne >= RANK_COUNT)
+        || ((pRetirees & (1L << (pLigne * FILE_COUNT + pColonne))) != 0))
+    {
+      return null;
+    }
+
+    return pEtat.getPieceAt(pColonne, pLigne);
+  }
+
+  /**
+   * Renvoi la valeur d'une pièce dans un échange.
+   * 
+   * @param pPiece Pièce (ou null).
+   * @return Valeur de la pièce (0 si null).
+   */
+  private static int valueOf(final Piece pPiece)
+  {
+    if (pPiece == null)
+    {
+      return 0;
+    }
+
+    final PieceType type = pPiece.getType();
+    if (type == KING)
+    {
+      return KING_VALUE;
+    }
+
+    return type.getValue();
+  }
+}
@@ -19,7 +19,6 @@
 package fr.free.jchecs.ai;
 
 import java.io.Serializable;
-import java.util.Comparator;
 
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.Piece;
@@ -31,11 +30,17 @@ import fr.free.jchecs.core.Piece;
  * 
  * @author David Cotton
  */
-final class StaticMoveSorter implements Comparator<Move>, Serializable
+final class StaticMoveSorter implements PackedMoveSorter, Serializable
 {
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = -1345309675511434759L;
 
+  /** Priorité de base d'un mouvement avec prise (supérieure à celle de tout mouvement sans prise). */
+  private static final int CAPTURE_PRIORITY = 2000000;
+
+  /** Poids de la valeur de la pièce prise (supérieur à la valeur de toute pièce déplacée). */
+  private static final int CAPTURED_WEIGHT = 1024;
+
   /**
    * Crée une nouvelle instance.
    */
@@ -65,10 +70,20 @@ final class StaticMoveSorter implements Comparator<Move>, Serializable
     }
     else
     {
-      if ((prise2 == null) || (prise1.getType().getValue() > prise2.getType().getValue()))
+      if (prise2 == null)
+      {
+        return -1;
+      }
+      final int valPrise1 = prise1.getType().getValue();
+      final int valPrise2 = prise2.getType().getValue();
+      if (valPrise1 > valPrise2)
       {
         return -1;
       }
+      else if (valPrise1 < valPrise2)
+      {
+        return 1;
+      }
     }
 
     final int val1 = pMvt1.getPiece().getType().getValue();
@@ -89,4 +104,23 @@ final class StaticMoveSorter implements Comparator<Move>, Serializable
 
     return res;
   }
+
+  /**
+   * Renvoi la priorité d'un mouvement identifié par un entier, suivant le même ordre que
+   * {@link #compare(Move, Move)}.
+   * 
+   * @param pMouvement Entier identifiant le mouvement.
+   * @return Priorité du mouvement.
+   */
+  public int getPriority(final int pMouvement)
+  {
+    final int valeur = Move.pieceOf(pMouvement).getType().getValue();
+    final Piece prise = Move.capturedOf(pMouvement);
+    if (prise == null)
+    {
+      return valeur;
+    }
+
+    return CAPTURE_PRIORITY + CAPTURED_WEIGHT * prise.getType().getValue() - valeur;
+  }
 }
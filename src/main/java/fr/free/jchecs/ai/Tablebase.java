@@ -0,0 +1,434 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.PieceType;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Ensemble de tables de finales, interrogées par les moteurs lorsqu'il ne reste que peu de pièces.
+ * <p>
+ * Une position est recherchée dans la table correspondant à ses pièces, ou à défaut dans celle
+ * correspondant aux pièces de couleurs inversées (la position est alors symétrisée). Les positions
+ * avec droits de roque ou prise en passant possible ne sont pas couvertes ; celles où il ne reste
+ * qu'au plus une pièce mineure en plus des rois sont nulles sans qu'une table soit nécessaire.
+ * </p>
+ * <p>
+ * Classe sûre vis-à-vis des threads, une fois toutes les tables ajoutées.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class Tablebase
+{
+  /** Noms des tables fournies en ressources avec jChecs. */
+  static final String [] RESOURCES = { "KQK", "KRK", "KPK", };
+
+  /** Propriété système désignant un répertoire contenant des tables supplémentaires. */
+  static final String DIRECTORY_PROPERTY = "jchecs.tablebases";
+
+  /** Valeur renvoyée pour une position non couverte par les tables. */
+  static final int NO_VALUE = Integer.MIN_VALUE;
+
+  /** Log de la classe. */
+  private static final Logger LOGGER = Logger.getLogger(Tablebase.class.getName());
+
+  /** Ensemble de tables par défaut (chargé à la demande). */
+  private static Tablebase S_default;
+
+  /** Drapeau indiquant si le chargement de l'ensemble de tables par défaut a été tenté. */
+  private static boolean S_defaultLoaded;
+
+  /** Tables, par nom. */
+  private final Map<String, EndgameTable> _tables = new HashMap<String, EndgameTable>();
+
+  /** Nombre maximal de pièces (rois compris) couvert par les tables. */
+  private int _maxPieceCount = 3;
+
+  /**
+   * Instancie un nouvel ensemble de tables vide.
+   */
+  Tablebase()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Ajoute une table à l'ensemble, en remplaçant une éventuelle table de même nom.
+   * 
+   * @param pTable Table à ajouter.
+   */
+  void add(final EndgameTable pTable)
+  {
+    assert pTable != null;
+
+    _tables.put(pTable.getName(), pTable);
+    _maxPieceCount = Math.max(_maxPieceCount, pTable.getPieceCount());
+  }
+
+  /**
+   * Recherche le meilleur mouvement d'une position couverte par les tables : le plus court chemin
+   * vers le mat pour le camp gagnant, la nulle si elle est accessible, et sinon la plus longue
+   * résistance.
+   * 
+   * @param pEtat Etat du jeu.
+   * @return Meilleur mouvement (ou null si la position n'est pas couverte par les tables).
+   */
+  Move getBestMove(final MoveGenerator pEtat)
+  {
+    assert pEtat != null;
+
+    if (probe(pEtat) == NO_VALUE)
+    {
+      return null;
+    }
+
+    Move res = null;
+    int meilleur = Integer.MIN_VALUE;
+    for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
+    {
+      final MoveGenerator suivant = pEtat.derive(mvt, true);
+      final int valeur;
+      if (suivant.getValidMoves(suivant.isWhiteActive()).length == 0)
+      {
+        if (suivant.isInCheck(suivant.isWhiteActive()))
+        {
+          valeur = -1;
+        }
+        else
+        {
+          valeur = 0;
+        }
+      }
+      else
+      {
+        valeur = probe(suivant);
+      }
+      if (valeur == NO_VALUE)
+      {
+        continue;
+      }
+      final int preference = preferenceOf(valeur);
+      if (preference > meilleur)
+      {
+        meilleur = preference;
+        res = mvt;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi l'ensemble de tables par défaut : celles fournies en ressources (voir
+   * {@link #RESOURCES}), complétées par celles du répertoire désigné par la propriété système
+   * {@link #DIRECTORY_PROPERTY}.
+   * 
+   * @return Ensemble de tables par défaut (ou null si aucune table n'est disponible).
+   */
+  static synchronized Tablebase getDefault()
+  {
+    if (!S_defaultLoaded)
+    {
+      S_defaultLoaded = true;
+      final Tablebase res = new Tablebase();
+      for (final String nom : RESOURCES)
+      {
+        final InputStream in = Tablebase.class.getResourceAsStream(nom + EndgameTable.EXTENSION);
+        if (in != null)
+        {
+          try
+          {
+            res.add(EndgameTable.read(nom, in));
+          }
+          catch (final IOException e)
+          {
+            // Pas grave, les coups seront calculés...
+            LOGGER.log(Level.WARNING, "Endgame table " + nom + " not available", e);
+          }
+        }
+      }
+      final String repertoire = System.getProperty(DIRECTORY_PROPERTY);
+      if (repertoire != null)
+      {
+        final File [] fichiers = new File(repertoire).listFiles();
+        if (fichiers == null)
+        {
+          LOGGER.warning("Endgame tables directory " + repertoire + " not available");
+        }
+        else
+        {
+          for (final File f : fichiers)
+          {
+            final String nom = f.getName();
+            if (nom.endsWith(EndgameTable.EXTENSION))
+            {
+              try
+              {
+                res.add(EndgameTable.read(nom.substring(0, nom.length()
+                    - EndgameTable.EXTENSION.length()), new FileInputStream(f)));
+              }
+              catch (final IOException e)
+              {
+                LOGGER.log(Level.WARNING, "Endgame table " + f + " not available", e);
+              }
+              catch (final IllegalArgumentException e)
+              {
+                LOGGER.log(Level.WARNING, "Endgame table " + f + " not available", e);
+              }
+            }
+          }
+        }
+      }
+      if (!res._tables.isEmpty())
+      {
+        S_default = res;
+      }
+    }
+
+    return S_default;
+  }
+
+  /**
+   * Renvoi le nombre maximal de pièces (rois compris) couvert par les tables.
+   * 
+   * @return Nombre maximal de pièces.
+   */
+  int getMaxPieceCount()
+  {
+    return _maxPieceCount;
+  }
+
+  /**
+   * Renvoi une table de l'ensemble.
+   * 
+   * @param pNom Nom de la table.
+   * @return Table correspondante (ou null).
+   */
+  EndgameTable getTable(final String pNom)
+  {
+    return _tables.get(pNom);
+  }
+
+  /**
+   * Indique si une prise en passant est possible dans une position.
+   * 
+   * @param pEtat Etat du jeu.
+   * @return "true" si un pion du camp qui a le trait peut prendre en passant.
+   */
+  private static boolean isEnPassantPossible(final Board pEtat)
+  {
+    final Square ep = pEtat.getEnPassant();
+    if (ep == null)
+    {
+      return false;
+    }
+
+    final boolean trait = pEtat.isWhiteActive();
+    final Piece pion;
+    final int ligne;
+    if (trait)
+    {
+      pion = Piece.WHITE_PAWN;
+      ligne = ep.getRank() - 1;
+    }
+    else
+    {
+      pion = Piece.BLACK_PAWN;
+      ligne = ep.getRank() + 1;
+    }
+    for (int dc = -1; dc <= 1; dc += 2)
+    {
+      final int colonne = ep.getFile() + dc;
+      if ((colonne >= 0) && (colonne < FILE_COUNT) && (pEtat.getPieceAt(colonne, ligne) == pion))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Renvoi la pièce de même type et de couleur opposée.
+   * 
+   * @param pPiece Pièce.
+   * @return Pièce de couleur opposée.
+   */
+  private static Piece opposite(final Piece pPiece)
+  {
+    final char c = pPiece.getFENLetter();
+    if (pPiece.isWhite())
+    {
+      return Piece.valueOf(Character.toLowerCase(c));
+    }
+
+    return Piece.valueOf(Character.toUpperCase(c));
+  }
+
+  /**
+   * Traduit la valeur d'une position atteinte par un mouvement en préférence pour le camp qui joue
+   * ce mouvement (plus elle est élevée, meilleur est le mouvement).
+   * 
+   * @param pValeur Valeur de la position atteinte, pour l'adversaire.
+   * @return Préférence du mouvement.
+   */
+  private static int preferenceOf(final int pValeur)
+  {
+    if (pValeur < 0)
+    {
+      // Gain : le mat le plus rapide...
+      return Byte.MAX_VALUE * 2 + pValeur;
+    }
+    if (pValeur > 0)
+    {
+      // Perte : la résistance la plus longue...
+      return pValeur - Byte.MAX_VALUE * 2;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Recherche la valeur d'une position dans les tables.
+   * 
+   * @param pEtat Etat du jeu.
+   * @return Valeur de la position pour le camp qui a le trait (voir {@link EndgameTable}), ou
+   *         {@link #NO_VALUE} si la position n'est pas couverte.
+   */
+  int probe(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    if ((pEtat.getPieceCount() > _maxPieceCount) || pEtat.canCastleLong(true)
+        || pEtat.canCastleShort(true) || pEtat.canCastleLong(false) || pEtat.canCastleShort(false)
+        || isEnPassantPossible(pEtat))
+    {
+      return NO_VALUE;
+    }
+
+    final Piece [] pieces = new Piece [ _maxPieceCount ];
+    final int [] cases = new int [ _maxPieceCount ];
+    int n = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        pieces[n] = p;
+        cases[n++] = s.getIndex();
+      }
+    }
+
+    return probe(pieces, cases, n, pEtat.isWhiteActive());
+  }
+
+  /**
+   * Recherche la valeur d'une position, décrite par la liste de ses pièces, dans les tables.
+   * 
+   * @param pPieces Pièces de la position (rois compris, dans un ordre quelconque).
+   * @param pCases Indices des cases des pièces.
+   * @param pNombre Nombre de pièces de la position.
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @return Valeur de la position pour le camp qui a le trait (voir {@link EndgameTable}), ou
+   *         {@link #NO_VALUE} si la position n'est pas couverte.
+   */
+  int probe(final Piece [] pPieces, final int [] pCases, final int pNombre,
+      final boolean pTraitBlanc)
+  {
+    assert pPieces != null;
+    assert pCases != null;
+
+    if (pNombre == 2)
+    {
+      return 0;
+    }
+    if (pNombre == 3)
+    {
+      for (int i = 0; i < pNombre; i++)
+      {
+        final PieceType t = pPieces[i].getType();
+        if ((t == PieceType.BISHOP) || (t == PieceType.KNIGHT))
+        {
+          // Matériel insuffisant pour mater...
+          return 0;
+        }
+      }
+    }
+
+    final String nom = EndgameTable.nameOf(pPieces, pNombre);
+    boolean inverse = false;
+    EndgameTable table = _tables.get(nom);
+    if (table == null)
+    {
+      final int roiNoir = nom.indexOf('K', 1);
+      table = _tables.get(nom.substring(roiNoir) + nom.substring(0, roiNoir));
+      inverse = true;
+    }
+    if (table == null)
+    {
+      return NO_VALUE;
+    }
+
+    final int [] cases = new int [ pNombre ];
+    final boolean [] utilisees = new boolean [ pNombre ];
+    for (int i = 0; i < pNombre; i++)
+    {
+      Piece attendue = table.getPiece(i);
+      if (inverse)
+      {
+        attendue = opposite(attendue);
+      }
+      for (int j = 0; j < pNombre; j++)
+      {
+        if ((!utilisees[j]) && (pPieces[j] == attendue))
+        {
+          utilisees[j] = true;
+          if (inverse)
+          {
+            // Symétrie par rapport au milieu de l'échiquier (rangée 1 <-> rangée 8)...
+            cases[i] = pCases[j] ^ 56;
+          }
+          else
+          {
+            cases[i] = pCases[j];
+          }
+          break;
+        }
+      }
+    }
+
+    return table.getValue(EndgameTable.indexOf(cases, pTraitBlanc != inverse));
+  }
+}
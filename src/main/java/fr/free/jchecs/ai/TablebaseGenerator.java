@@ -0,0 +1,868 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.PieceType;
+
+/**
+ * Outil de construction hors ligne des tables de finales lues par {@link Tablebase}.
+ * <p>
+ * Les valeurs sont établies par analyse rétrograde itérative : les mats (et pats) sont d'abord
+ * identifiés, puis l'itération k retient les positions gagnées en k demi-coups (l'un des mouvements
+ * mène à une position perdue en k - 1 demi-coups) et celles perdues en k demi-coups (tous les
+ * mouvements mènent à des positions gagnées, la plus longue en k - 1 demi-coups). Les positions
+ * jamais résolues sont nulles. Les prises et promotions mènent vers d'autres tables, construites
+ * au préalable. La prise en passant est ignorée.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class TablebaseGenerator
+{
+  /** Valeur des positions pas encore résolues. */
+  private static final byte UNKNOWN = Byte.MIN_VALUE;
+
+  /** Plus grande distance au mat (en demi-coups) représentable. */
+  private static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+  /** Déplacements (colonne, ligne) du roi et de la dame. */
+  private static final int [][] KING_STEPS = {
+      { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 1 }, { -1, 0 }, { -1, -1 }, { 0, -1 }, { 1, -1 },
+  };
+
+  /** Déplacements (colonne, ligne) du cavalier. */
+  private static final int [][] KNIGHT_STEPS = {
+      { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 },
+  };
+
+  /** Déplacements (colonne, ligne) de la tour. */
+  private static final int [][] ROOK_STEPS = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 }, };
+
+  /** Déplacements (colonne, ligne) du fou. */
+  private static final int [][] BISHOP_STEPS = { { 1, 1 }, { -1, 1 }, { -1, -1 }, { 1, -1 }, };
+
+  /** Types des pièces pouvant être obtenues par promotion. */
+  private static final PieceType [] PROMOTIONS = {
+      PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT,
+  };
+
+  /** Tables déjà construites. */
+  private final Tablebase _tables = new Tablebase();
+
+  /** Liste des tables construites, dans l'ordre de construction. */
+  private final List<EndgameTable> _generated = new ArrayList<EndgameTable>();
+
+  /** Pièces de la table en cours de construction. */
+  private Piece [] _pieces;
+
+  /** Valeurs de la table en cours de construction. */
+  private byte [] _values;
+
+  /** Cases des pièces de la position en cours d'examen. */
+  private int [] _squares;
+
+  /** Cases des pièces après le mouvement en cours d'examen. */
+  private int [] _next;
+
+  /** Tampon des pièces des positions menant vers une autre table. */
+  private Piece [] _otherPieces;
+
+  /** Tampon des cases des positions menant vers une autre table. */
+  private int [] _otherSquares;
+
+  /** Plus grande valeur absolue rencontrée parmi les positions des autres tables. */
+  private int _maxOther;
+
+  /**
+   * Par position, plus courte distance au mat (en demi-coups) obtenue par un mouvement menant vers
+   * une autre table (0 si aucun ne gagne).
+   */
+  private byte [] _otherWin;
+
+  /**
+   * Par position, plus longue résistance des mouvements menant vers une autre table s'ils sont
+   * tous perdants (-1 si l'un d'eux ne perd pas, 0 s'il n'y en a aucun).
+   */
+  private byte [] _otherLongest;
+
+  /** Indice de la position en cours d'examen. */
+  private int _index;
+
+  /** Numéro de l'itération en cours. */
+  private int _iteration;
+
+  /** Résolution de la position en cours d'examen. */
+  private final Resolution _resolution = new Resolution();
+
+  /**
+   * Instancie un nouvel outil de construction.
+   */
+  public TablebaseGenerator()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Indique si une pièce attaque une case.
+   * 
+   * @param pPiece Pièce.
+   * @param pOrigine Case de la pièce.
+   * @param pCible Case attaquée.
+   * @param pOccupation Masque des cases occupées.
+   * @return "true" si la pièce attaque la case.
+   */
+  private static boolean attacks(final Piece pPiece, final int pOrigine, final int pCible,
+      final long pOccupation)
+  {
+    final int dc = (pCible & 7) - (pOrigine & 7);
+    final int dl = (pCible >> 3) - (pOrigine >> 3);
+    final int adc = Math.abs(dc);
+    final int adl = Math.abs(dl);
+    switch (pPiece.getType())
+    {
+      case KING :
+        return Math.max(adc, adl) == 1;
+      case KNIGHT :
+        return adc * adl == 2;
+      case PAWN :
+        return (adc == 1) && (dl == (pPiece.isWhite() ? 1 : -1));
+      case ROOK :
+        return ((dc == 0) != (dl == 0)) && isPathClear(pOrigine, pCible, pOccupation);
+      case BISHOP :
+        return (adc == adl) && (adc != 0) && isPathClear(pOrigine, pCible, pOccupation);
+      case QUEEN :
+        return (((dc == 0) != (dl == 0)) || ((adc == adl) && (adc != 0)))
+            && isPathClear(pOrigine, pCible, pOccupation);
+      default :
+        assert false;
+        return false;
+    }
+  }
+
+  /**
+   * Examine un mouvement de la position en cours et renvoi la valeur, pour l'adversaire, de la
+   * position obtenue.
+   * 
+   * @param pIndice Indice de la pièce déplacée.
+   * @param pCible Case de destination.
+   * @param pPromotion Pièce obtenue par promotion (ou null).
+   * @param pTraitBlanc A "true" si le trait est aux blancs dans la position en cours.
+   * @return Valeur de la position obtenue ({@link #UNKNOWN} si elle n'est pas encore résolue), ou
+   *         {@link Tablebase#NO_VALUE} si le mouvement n'est pas légal ou mène vers une autre
+   *         table déjà prise en compte.
+   */
+  private int childValue(final int pIndice, final int pCible, final Piece pPromotion,
+      final boolean pTraitBlanc)
+  {
+    final int n = _pieces.length;
+    int prise = -1;
+    long occupation = 0;
+    for (int i = 0; i < n; i++)
+    {
+      _next[i] = _squares[i];
+      if (_squares[i] == pCible)
+      {
+        prise = i;
+      }
+      else if (i != pIndice)
+      {
+        occupation |= 1L << _squares[i];
+      }
+    }
+    final boolean autreTable = (prise >= 0) || (pPromotion != null);
+    if (autreTable && (_iteration > 0))
+    {
+      // Déjà pris en compte lors de l'itération 0...
+      return Tablebase.NO_VALUE;
+    }
+    _next[pIndice] = pCible;
+    occupation |= 1L << pCible;
+
+    // Le roi du camp qui joue ne doit pas rester en échec...
+    final int roi = _next[pTraitBlanc ? 0 : 1];
+    for (int i = 0; i < n; i++)
+    {
+      if ((i != prise) && (_pieces[i].isWhite() != pTraitBlanc)
+          && attacks(_pieces[i], _next[i], roi, occupation))
+      {
+        return Tablebase.NO_VALUE;
+      }
+    }
+
+    if (!autreTable)
+    {
+      return _values[EndgameTable.indexOf(_next, !pTraitBlanc)];
+    }
+
+    int l = 0;
+    for (int i = 0; i < n; i++)
+    {
+      if (i != prise)
+      {
+        if ((i == pIndice) && (pPromotion != null))
+        {
+          _otherPieces[l] = pPromotion;
+        }
+        else
+        {
+          _otherPieces[l] = _pieces[i];
+        }
+        _otherSquares[l++] = _next[i];
+      }
+    }
+    final int res = _tables.probe(_otherPieces, _otherSquares, l, !pTraitBlanc);
+    if (res == Tablebase.NO_VALUE)
+    {
+      throw new IllegalStateException("Missing endgame table "
+          + EndgameTable.nameOf(_otherPieces, l));
+    }
+    _maxOther = Math.max(_maxOther, Math.abs(res));
+    if (res < 0)
+    {
+      if ((_otherWin[_index] == 0) || (-res < _otherWin[_index]))
+      {
+        _otherWin[_index] = (byte) -res;
+      }
+    }
+    else if ((res == 0) || (_otherLongest[_index] < 0))
+    {
+      _otherLongest[_index] = -1;
+    }
+    else
+    {
+      _otherLongest[_index] = (byte) Math.max(_otherLongest[_index], res);
+    }
+
+    return res;
+  }
+
+  /**
+   * Résout la position en cours lors d'une itération.
+   * 
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @param pIteration Numéro de l'itération (0 : recherche des mats et pats).
+   * @return Valeur de la position si elle est résolue par l'itération, sinon {@link #UNKNOWN}.
+   */
+  private int evaluate(final boolean pTraitBlanc, final int pIteration)
+  {
+    final Resolution res = _resolution;
+    res.start(pIteration);
+    if (pIteration > 0)
+    {
+      res.addOthers(_otherWin[_index], _otherLongest[_index]);
+    }
+    final int n = _pieces.length;
+    for (int i = 0; (i < n) && (res.value == UNKNOWN); i++)
+    {
+      final Piece p = _pieces[i];
+      if (p.isWhite() != pTraitBlanc)
+      {
+        continue;
+      }
+      final int origine = _squares[i];
+      final int col = origine & 7;
+      final int lig = origine >> 3;
+      switch (p.getType())
+      {
+        case KING :
+          evaluateSteps(i, KING_STEPS, false, pTraitBlanc, res);
+          break;
+        case KNIGHT :
+          evaluateSteps(i, KNIGHT_STEPS, false, pTraitBlanc, res);
+          break;
+        case ROOK :
+          evaluateSteps(i, ROOK_STEPS, true, pTraitBlanc, res);
+          break;
+        case BISHOP :
+          evaluateSteps(i, BISHOP_STEPS, true, pTraitBlanc, res);
+          break;
+        case QUEEN :
+          evaluateSteps(i, KING_STEPS, true, pTraitBlanc, res);
+          break;
+        case PAWN :
+          final int sens = pTraitBlanc ? 1 : -1;
+          final int avant = origine + 8 * sens;
+          if (!isOccupied(avant))
+          {
+            evaluatePawn(i, avant, pTraitBlanc, res);
+            if ((lig == (pTraitBlanc ? 1 : 6)) && !isOccupied(avant + 8 * sens))
+            {
+              evaluatePawn(i, avant + 8 * sens, pTraitBlanc, res);
+            }
+          }
+          for (int dc = -1; dc <= 1; dc += 2)
+          {
+            if ((col + dc >= 0) && (col + dc < 8) && isEnemy(avant + dc, pTraitBlanc))
+            {
+              evaluatePawn(i, avant + dc, pTraitBlanc, res);
+            }
+          }
+          break;
+        default :
+          assert false;
+      }
+    }
+
+    if ((pIteration == 0) && (res.getMoveCount() == 0))
+    {
+      // Mat ou pat, résolu dès l'itération 0...
+      if (isInCheck(pTraitBlanc))
+      {
+        return -1;
+      }
+      return 0;
+    }
+
+    return res.resolve();
+  }
+
+  /**
+   * Examine un mouvement de pion, en déclinant les promotions.
+   * 
+   * @param pIndice Indice du pion.
+   * @param pCible Case de destination.
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @param pResolution Résolution en cours de la position.
+   */
+  private void evaluatePawn(final int pIndice, final int pCible, final boolean pTraitBlanc,
+      final Resolution pResolution)
+  {
+    final int lig = pCible >> 3;
+    if ((lig == 0) || (lig == 7))
+    {
+      for (final PieceType t : PROMOTIONS)
+      {
+        final Piece promotion = Piece.valueOf(pTraitBlanc ? t.getSANLetter().charAt(0)
+            : Character.toLowerCase(t.getSANLetter().charAt(0)));
+        pResolution.add(childValue(pIndice, pCible, promotion, pTraitBlanc));
+      }
+    }
+    else
+    {
+      pResolution.add(childValue(pIndice, pCible, null, pTraitBlanc));
+    }
+  }
+
+  /**
+   * Examine les mouvements d'une pièce suivant une liste de déplacements.
+   * 
+   * @param pIndice Indice de la pièce.
+   * @param pDeplacements Déplacements (colonne, ligne) de la pièce.
+   * @param pGlissement A "true" si la pièce peut répéter ses déplacements (pièces à longue portée).
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @param pResolution Résolution en cours de la position.
+   */
+  private void evaluateSteps(final int pIndice, final int [][] pDeplacements,
+      final boolean pGlissement, final boolean pTraitBlanc, final Resolution pResolution)
+  {
+    final int origine = _squares[pIndice];
+    for (final int [] d : pDeplacements)
+    {
+      int col = origine & 7;
+      int lig = origine >> 3;
+      do
+      {
+        col += d[0];
+        lig += d[1];
+        if ((col < 0) || (col >= 8) || (lig < 0) || (lig >= 8))
+        {
+          break;
+        }
+        final int cible = col + lig * 8;
+        if (isOccupied(cible))
+        {
+          if (isEnemy(cible, pTraitBlanc))
+          {
+            pResolution.add(childValue(pIndice, cible, null, pTraitBlanc));
+          }
+          break;
+        }
+        pResolution.add(childValue(pIndice, cible, null, pTraitBlanc));
+      }
+      while (pGlissement && (pResolution.value == UNKNOWN));
+    }
+  }
+
+  /**
+   * Construit une table, ainsi que les tables vers lesquelles mènent ses prises et promotions.
+   * 
+   * @param pNom Nom de la table.
+   * @return Table construite (ou déjà disponible).
+   */
+  public EndgameTable generate(final String pNom)
+  {
+    EndgameTable res = _tables.getTable(pNom);
+    if (res != null)
+    {
+      return res;
+    }
+
+    final Piece [] pieces = EndgameTable.piecesOf(pNom);
+    final int n = pieces.length;
+    final Piece [] autres = new Piece [ n ];
+    for (int i = 2; i < n; i++)
+    {
+      // Prise de la pièce...
+      int l = 0;
+      for (int j = 0; j < n; j++)
+      {
+        if (j != i)
+        {
+          autres[l++] = pieces[j];
+        }
+      }
+      generateOther(autres, l);
+      if (pieces[i].getType() == PieceType.PAWN)
+      {
+        // Promotion du pion...
+        for (final PieceType t : PROMOTIONS)
+        {
+          System.arraycopy(pieces, 0, autres, 0, n);
+          final char c = t.getSANLetter().charAt(0);
+          autres[i] = Piece.valueOf(pieces[i].isWhite() ? c : Character.toLowerCase(c));
+          // (les prises qui suivent la promotion sont des dépendances de la table obtenue)
+          generateOther(autres, n);
+        }
+      }
+    }
+
+    res = new EndgameTable(pNom, solve(pieces));
+    _tables.add(res);
+    _generated.add(res);
+
+    return res;
+  }
+
+  /**
+   * Construit, si nécessaire, la table correspondant à une liste de pièces (ou celle des pièces de
+   * couleurs inversées, si elle est déjà disponible ou si les blancs y ont plus de pièces).
+   * 
+   * @param pPieces Pièces (rois compris).
+   * @param pNombre Nombre de pièces de la liste à prendre en compte.
+   */
+  private void generateOther(final Piece [] pPieces, final int pNombre)
+  {
+    if (pNombre == 2)
+    {
+      return;
+    }
+    if (pNombre == 3)
+    {
+      for (int i = 0; i < pNombre; i++)
+      {
+        final PieceType t = pPieces[i].getType();
+        if ((t == PieceType.BISHOP) || (t == PieceType.KNIGHT))
+        {
+          // Nulle sans table...
+          return;
+        }
+      }
+    }
+
+    final String nom = EndgameTable.nameOf(pPieces, pNombre);
+    final int roiNoir = nom.indexOf('K', 1);
+    final String inverse = nom.substring(roiNoir) + nom.substring(0, roiNoir);
+    if ((_tables.getTable(nom) == null) && (_tables.getTable(inverse) == null))
+    {
+      if (nom.length() - roiNoir > roiNoir)
+      {
+        generate(inverse);
+      }
+      else
+      {
+        generate(nom);
+      }
+    }
+  }
+
+  /**
+   * Renvoi la liste des tables construites, dans l'ordre de construction.
+   * 
+   * @return Liste des tables construites.
+   */
+  public List<EndgameTable> getGenerated()
+  {
+    return new ArrayList<EndgameTable>(_generated);
+  }
+
+  /**
+   * Indique si une case est occupée par une pièce adverse, dans la position en cours.
+   * 
+   * @param pCase Indice de la case.
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @return "true" si une pièce adverse occupe la case.
+   */
+  private boolean isEnemy(final int pCase, final boolean pTraitBlanc)
+  {
+    for (int i = _pieces.length; --i >= 0; /* Pré-décrémenté */)
+    {
+      if (_squares[i] == pCase)
+      {
+        return _pieces[i].isWhite() != pTraitBlanc;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Indique si le roi du camp qui a le trait est en échec, dans la position en cours.
+   * 
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @return "true" si le roi est en échec.
+   */
+  private boolean isInCheck(final boolean pTraitBlanc)
+  {
+    final int n = _pieces.length;
+    long occupation = 0;
+    for (int i = 0; i < n; i++)
+    {
+      occupation |= 1L << _squares[i];
+    }
+
+    final int roi = _squares[pTraitBlanc ? 0 : 1];
+    for (int i = 0; i < n; i++)
+    {
+      if ((_pieces[i].isWhite() != pTraitBlanc)
+          && attacks(_pieces[i], _squares[i], roi, occupation))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Indique si la position en cours est légale : cases distinctes, rois non adjacents, pions hors
+   * des rangées extrêmes et roi du camp qui n'a pas le trait hors d'échec.
+   * 
+   * @param pTraitBlanc A "true" si le trait est aux blancs.
+   * @return "true" si la position est légale.
+   */
+  private boolean isLegal(final boolean pTraitBlanc)
+  {
+    final int n = _pieces.length;
+    long occupation = 0;
+    for (int i = 0; i < n; i++)
+    {
+      final long masque = 1L << _squares[i];
+      if ((occupation & masque) != 0)
+      {
+        return false;
+      }
+      occupation |= masque;
+      final int lig = _squares[i] >> 3;
+      if ((_pieces[i].getType() == PieceType.PAWN) && ((lig == 0) || (lig == 7)))
+      {
+        return false;
+      }
+    }
+
+    final int roi = _squares[pTraitBlanc ? 1 : 0];
+    for (int i = 0; i < n; i++)
+    {
+      if ((_pieces[i].isWhite() == pTraitBlanc)
+          && attacks(_pieces[i], _squares[i], roi, occupation))
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Indique si une case est occupée, dans la position en cours.
+   * 
+   * @param pCase Indice de la case.
+   * @return "true" si une pièce occupe la case.
+   */
+  private boolean isOccupied(final int pCase)
+  {
+    for (int i = _pieces.length; --i >= 0; /* Pré-décrémenté */)
+    {
+      if (_squares[i] == pCase)
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Indique si les cases situées entre deux cases alignées sont libres.
+   * 
+   * @param pOrigine Case de départ.
+   * @param pCible Case d'arrivée.
+   * @param pOccupation Masque des cases occupées.
+   * @return "true" si le chemin est libre.
+   */
+  private static boolean isPathClear(final int pOrigine, final int pCible, final long pOccupation)
+  {
+    final int pas = Integer.signum((pCible & 7) - (pOrigine & 7))
+        + 8 * Integer.signum((pCible >> 3) - (pOrigine >> 3));
+    for (int s = pOrigine + pas; s != pCible; s += pas)
+    {
+      if ((pOccupation & (1L << s)) != 0)
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Construit des tables de finales et les écrit dans un répertoire.
+   * 
+   * @param pArgs Arguments de la ligne de commande : <code>répertoire KQK KRK KPK ...</code>.
+   * @throws IOException en cas d'erreur d'écriture des fichiers.
+   */
+  public static void main(final String [] pArgs) throws IOException
+  {
+    if (pArgs.length < 2)
+    {
+      System.err.println("Usage: TablebaseGenerator directory KQK [KRK KPK KQKR ...]");
+      System.exit(1);
+    }
+
+    final File repertoire = new File(pArgs[0]);
+    final TablebaseGenerator generateur = new TablebaseGenerator();
+    for (int i = 1; i < pArgs.length; i++)
+    {
+      final long debut = System.currentTimeMillis();
+      generateur.generate(pArgs[i]);
+      System.out.println(pArgs[i] + " : " + (System.currentTimeMillis() - debut) + " ms");
+    }
+    for (final EndgameTable t : generateur.getGenerated())
+    {
+      final File fichier = new File(repertoire, t.getName() + EndgameTable.EXTENSION);
+      t.write(new FileOutputStream(fichier));
+      System.out.println(fichier + " : " + fichier.length() + " octets");
+    }
+  }
+
+  /**
+   * Calcule les valeurs de toutes les positions d'une table.
+   * 
+   * @param pPieces Pièces de la table, rois en tête.
+   * @return Valeurs des positions.
+   */
+  private byte [] solve(final Piece [] pPieces)
+  {
+    final int n = pPieces.length;
+    _pieces = pPieces;
+    _values = new byte [ EndgameTable.sizeOf(n) ];
+    _squares = new int [ n ];
+    _next = new int [ n ];
+    _otherPieces = new Piece [ n ];
+    _otherSquares = new int [ n ];
+    _otherWin = new byte [ _values.length ];
+    _otherLongest = new byte [ _values.length ];
+    _maxOther = 0;
+    Arrays.fill(_values, UNKNOWN);
+
+    int derniere = 0;
+    for (int k = 0; k <= MAX_DISTANCE; k++)
+    {
+      _iteration = k;
+      boolean modifie = false;
+      for (int idx = _values.length; --idx >= 0; /* Pré-décrémenté */)
+      {
+        if (_values[idx] != UNKNOWN)
+        {
+          continue;
+        }
+        _index = idx;
+        final boolean trait = (idx & 1) == 0;
+        for (int i = 0; i < n; i++)
+        {
+          _squares[i] = (idx >> (1 + 6 * i)) & 63;
+        }
+        if ((k == 0) && !isLegal(trait))
+        {
+          _values[idx] = 0;
+          continue;
+        }
+        final int valeur = evaluate(trait, k);
+        if (valeur != UNKNOWN)
+        {
+          _values[idx] = (byte) valeur;
+          modifie = true;
+        }
+      }
+      if (modifie)
+      {
+        derniere = k;
+      }
+      else if ((k > derniere + 1) && (k > _maxOther + 1))
+      {
+        break;
+      }
+    }
+
+    _otherWin = null;
+    _otherLongest = null;
+    // Les positions non résolues sont nulles...
+    for (int idx = _values.length; --idx >= 0; /* Pré-décrémenté */)
+    {
+      if (_values[idx] == UNKNOWN)
+      {
+        _values[idx] = 0;
+      }
+    }
+
+    return _values;
+  }
+
+  /**
+   * Résolution d'une position au cours d'une itération, à partir des valeurs de ses successeurs.
+   */
+  private static final class Resolution
+  {
+    /** Numéro de l'itération. */
+    private int _iteration;
+
+    /** Valeur de la position, si elle est déjà résolue ({@link #UNKNOWN} sinon). */
+    int value;
+
+    /** Nombre de mouvements légaux examinés. */
+    private int _moves;
+
+    /** Drapeau indiquant que tous les successeurs examinés sont résolus et gagnants. */
+    private boolean _allWon;
+
+    /** Plus longue distance au mat parmi les successeurs gagnants. */
+    private int _longest;
+
+    /**
+     * Instancie une nouvelle résolution.
+     */
+    Resolution()
+    {
+      // Rien de spécifique...
+    }
+
+    /**
+     * Prend en compte la valeur d'un successeur.
+     * 
+     * @param pValeur Valeur du successeur, pour l'adversaire ({@link #UNKNOWN} s'il n'est pas
+     *          encore résolu, {@link Tablebase#NO_VALUE} si le mouvement n'est pas légal).
+     */
+    void add(final int pValeur)
+    {
+      if (pValeur == Tablebase.NO_VALUE)
+      {
+        return;
+      }
+
+      _moves++;
+      if (pValeur == UNKNOWN)
+      {
+        _allWon = false;
+      }
+      else if (pValeur <= 0)
+      {
+        _allWon = false;
+        if ((pValeur < 0) && (-pValeur == _iteration))
+        {
+          // L'adversaire est maté en (k - 1) demi-coups...
+          value = _iteration;
+        }
+      }
+      else
+      {
+        _longest = Math.max(_longest, pValeur);
+      }
+    }
+
+    /**
+     * Prend en compte les mouvements menant vers d'autres tables, évalués lors de l'itération 0.
+     * 
+     * @param pGain Plus courte distance au mat obtenue par ces mouvements (0 si aucun ne gagne).
+     * @param pResistance Plus longue résistance de ces mouvements s'ils sont tous perdants (-1 si
+     *          l'un d'eux ne perd pas, 0 s'il n'y en a aucun).
+     */
+    void addOthers(final int pGain, final int pResistance)
+    {
+      if (pGain == _iteration)
+      {
+        value = _iteration;
+      }
+      if ((pGain > 0) || (pResistance < 0))
+      {
+        _allWon = false;
+      }
+      else
+      {
+        _longest = Math.max(_longest, pResistance);
+      }
+    }
+
+    /**
+     * Renvoi le nombre de mouvements légaux examinés.
+     * 
+     * @return Nombre de mouvements légaux.
+     */
+    int getMoveCount()
+    {
+      return _moves;
+    }
+
+    /**
+     * Termine la résolution, une fois tous les mouvements examinés.
+     * 
+     * @return Valeur de la position si elle est résolue, sinon {@link #UNKNOWN}.
+     */
+    int resolve()
+    {
+      if ((value == UNKNOWN) && _allWon && (_longest + 1 == _iteration))
+      {
+        // Tous les mouvements mènent au mat, le plus lointain en (k - 1) demi-coups...
+        return -(_iteration + 1);
+      }
+
+      return value;
+    }
+
+    /**
+     * Démarre la résolution d'une position.
+     * 
+     * @param pIteration Numéro de l'itération.
+     */
+    void start(final int pIteration)
+    {
+      _iteration = pIteration;
+      value = UNKNOWN;
+      _moves = 0;
+      _allWon = true;
+      _longest = 0;
+    }
+  }
+}
@@ -21,16 +21,40 @@ package fr.free.jchecs.ai;
 import java.util.Arrays;
 
 import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.Move;
 
 /**
  * Classe implémentant la gestion d'une table de transposition intégrable dans un moteur d'I.A.
+ * <p>
+ * Les positions sont identifiées par leur clé "Zobrist" sur 64 bits, intégralement stockée et
+ * vérifiée. La table est organisée en seaux de quatre entrées occupant chacun une ligne de cache
+ * (64 octets) d'un unique tableau de "long" : chaque entrée est composée de la clé, suivie d'une
+ * valeur regroupant l'évaluation, le meilleur mouvement, la profondeur, le type d'évaluation et la
+ * génération de la recherche l'ayant produite.
+ * </p>
+ * <p>
+ * Pour qu'une table puisse être partagée entre plusieurs threads sans verrou, la clé est stockée
+ * combinée (par un "ou exclusif") avec les données : une entrée partiellement écrite par un autre
+ * thread ne correspond plus à sa clé et est simplement ignorée.
+ * </p>
+ * <p>
+ * Les trois premières entrées d'un seau sont attribuées en privilégiant la profondeur (une entrée
+ * issue d'une recherche plus ancienne pouvant toujours être remplacée), la dernière est remplacée
+ * systématiquement. La table n'a donc plus besoin d'être vidée entre deux recherches.
+ * </p>
  * 
  * @author David Cotton
  */
 final class TranspositionTable
 {
-  /** Nombre maximum de collisions entre les clés avant l'abandon. */
-  private static final int MAX_COLLISIONS = 3;
+  /** Nombre d'entrées par seau. */
+  private static final int BUCKET_SIZE = 4;
+
+  /** Nombre de "long" occupés par une entrée (clé + données). */
+  private static final int ENTRY_LENGTH = 2;
+
+  /** Indice, dans un seau, de l'entrée remplacée systématiquement. */
+  private static final int ALWAYS_REPLACE = BUCKET_SIZE - 1;
 
   /** Identifiant d'une valeur de type "ALPHA". */
   private static final int ALPHA = 0;
@@ -41,31 +65,72 @@ final class TranspositionTable
   /** Identifiant d'une valeur de type "EXACT". */
   private static final int EXACT = 2;
 
-  /** Tableau accueillant les clés de hachage identifiant les états de jeu. */
-  private final int [] _hashCodes;
+  /** Profondeur minimale pouvant être stockée. */
+  private static final int MIN_DEPTH = -1;
+
+  /** Profondeur maximale pouvant être stockée. */
+  private static final int MAX_DEPTH = MIN_DEPTH + 0x3F;
+
+  /** Décalage du mouvement dans les données d'une entrée (20 bits). */
+  private static final int MOVE_SHIFT = 32;
+
+  /** Décalage de la profondeur dans les données d'une entrée (6 bits). */
+  private static final int DEPTH_SHIFT = 52;
+
+  /** Décalage du type dans les données d'une entrée (2 bits, type + 1 : jamais nul). */
+  private static final int TYPE_SHIFT = 58;
+
+  /** Décalage de la génération dans les données d'une entrée (4 bits). */
+  private static final int AGE_SHIFT = 60;
+
+  /** Masque des générations. */
+  private static final int AGE_MASK = 0xF;
 
-  /** Tableau types d'éléments. */
-  private final byte [] _types;
+  /** Taille d'une entrée, en octets. */
+  private static final int ENTRY_BYTES = ENTRY_LENGTH * 8;
 
-  /** Tableau des profondeurs. */
-  private final byte [] _depths;
+  /** Tableau des entrées, par seaux consécutifs. */
+  private final long [] _entries;
 
-  /** Tableau des valeurs. */
-  private final int [] _values;
+  /** Masque appliqué aux clés pour obtenir l'indice d'un seau. */
+  private final int _mask;
+
+  /** Taille de la table, en Mo. */
+  private final int _size;
+
+  /** Génération de la recherche courante. */
+  private volatile int _age;
+
+  // Les compteurs ne sont pas synchronisés : ils restent approximatifs si la table est partagée.
+
+  /** Nombre de consultations ayant trouvé la position. */
+  private long _hits;
+
+  /** Nombre de consultations n'ayant pas trouvé la position. */
+  private long _misses;
+
+  /** Nombre d'entrées valides écrasées par une autre position. */
+  private long _overwrites;
 
   /**
    * Instancie une nouvelle table de transposition.
    * 
-   * @param pCapacite Taille maximale de la table de transposition.
+   * @param pTaille Taille maximale de la table, en Mo (le nombre de seaux est arrondi à la
+   *          puissance de 2 inférieure).
    */
-  TranspositionTable(final int pCapacite)
+  TranspositionTable(final int pTaille)
   {
-    assert pCapacite > 0;
+    assert pTaille > 0;
 
-    _hashCodes = new int [ pCapacite ];
-    _types = new byte [ pCapacite ];
-    _depths = new byte [ pCapacite ];
-    _values = new int [ pCapacite ];
+    final long seauxMax = (pTaille * 1024L * 1024L) / (BUCKET_SIZE * ENTRY_BYTES);
+    int seaux = 1;
+    while (((seaux << 1) <= seauxMax) && ((seaux << 1) * BUCKET_SIZE * ENTRY_LENGTH > 0))
+    {
+      seaux <<= 1;
+    }
+    _size = pTaille;
+    _mask = seaux - 1;
+    _entries = new long [ seaux * BUCKET_SIZE * ENTRY_LENGTH ];
   }
 
   /**
@@ -73,7 +138,82 @@ final class TranspositionTable
    */
   void clear()
   {
-    Arrays.fill(_hashCodes, 0);
+    Arrays.fill(_entries, 0);
+  }
+
+  /**
+   * Signale le début d'une nouvelle recherche : les entrées produites par les recherches
+   * précédentes restent exploitables, mais deviennent prioritaires pour le remplacement.
+   */
+  void newSearch()
+  {
+    _age = (_age + 1) & AGE_MASK;
+    _hits = 0;
+    _misses = 0;
+    _overwrites = 0;
+  }
+
+  /**
+   * Renvoi le nombre de consultations ayant trouvé la position depuis le début de la recherche.
+   * 
+   * @return Nombre de consultations fructueuses.
+   */
+  long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Renvoi le nombre de consultations n'ayant pas trouvé la position depuis le début de la
+   * recherche.
+   * 
+   * @return Nombre de consultations infructueuses.
+   */
+  long getMisses()
+  {
+    return _misses;
+  }
+
+  /**
+   * Renvoi le nombre d'entrées valides écrasées par une autre position depuis le début de la
+   * recherche.
+   * 
+   * @return Nombre d'entrées écrasées.
+   */
+  long getOverwrites()
+  {
+    return _overwrites;
+  }
+
+  /**
+   * Renvoi la taille de la table.
+   * 
+   * @return Taille de la table, en Mo.
+   */
+  int getSize()
+  {
+    return _size;
+  }
+
+  /**
+   * Renvoi les données de l'entrée correspondant à une clé.
+   * 
+   * @param pCle Clé "Zobrist" recherchée.
+   * @return Données de l'entrée, ou 0 si la clé est absente.
+   */
+  private long find(final long pCle)
+  {
+    final int seau = ((int) pCle & _mask) * BUCKET_SIZE * ENTRY_LENGTH;
+    for (int i = seau; i < seau + BUCKET_SIZE * ENTRY_LENGTH; i += ENTRY_LENGTH)
+    {
+      final long donnees = _entries[i + 1];
+      if ((donnees != 0) && ((_entries[i] ^ donnees) == pCle))
+      {
+        return donnees;
+      }
+    }
+
+    return 0;
   }
 
   /**
@@ -90,37 +230,50 @@ final class TranspositionTable
     assert pEtat != null;
     // TODO: assert pAlpha <= pBeta;
 
-    final int cleCherchee = pEtat.hashCode();
-    final int capacite = _hashCodes.length;
-    int pos = Math.abs(cleCherchee % capacite);
-    int cle = _hashCodes[pos];
-    for (int i = MAX_COLLISIONS; (cle != 0) && (--i >= 0); /* Pré-décrémenté */)
+    final long donnees = find(pEtat.getZobristKey());
+    if (donnees == 0)
+    {
+      _misses++;
+    }
+    else
     {
-      if (cle == cleCherchee)
+      _hits++;
+      if (depthOf(donnees) >= pProfondeur)
       {
-        if (_depths[pos] >= pProfondeur)
+        final int type = typeOf(donnees);
+        final int val = (int) donnees;
+        if ((type == EXACT) || ((type == ALPHA) && (val <= pAlpha))
+            || ((type == BETA) && (val >= pBeta)))
         {
-          final int type = _types[pos];
-          final int val = _values[pos];
-          if ((type == EXACT) || ((type == ALPHA) && (val <= pAlpha))
-              || ((type == BETA) && (val >= pBeta)))
-          {
-            return Integer.valueOf(val);
-          }
+          return Integer.valueOf(val);
         }
-        break;
-      }
-      pos++;
-      if (pos >= capacite)
-      {
-        pos -= capacite;
       }
-      cle = _hashCodes[pos];
     }
 
     return null;
   }
 
+  /**
+   * Renvoi l'éventuel meilleur mouvement mémorisé pour un état de jeu, quelle que soit la
+   * profondeur à laquelle il a été obtenu.
+   * 
+   * @param pEtat Etat recherché.
+   * @return Entier identifiant le meilleur mouvement connu (voir {@link Move#toId()}), ou 0 si
+   *         aucun.
+   */
+  int getMove(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    final long donnees = find(pEtat.getZobristKey());
+    if (donnees != 0)
+    {
+      return ((int) (donnees >>> MOVE_SHIFT) & 0xFFFFF) << 4;
+    }
+
+    return 0;
+  }
+
   /**
    * Stocke la valeur donnée à un état dans la table de transposition.
    * 
@@ -129,46 +282,134 @@ final class TranspositionTable
    * @param pAlpha Valeur alpha.
    * @param pBeta Valeur beta.
    * @param pValeur Valeur du résultat.
+   * @param pMouvement Entier identifiant le meilleur mouvement trouvé (0 si aucun).
    */
   void put(final Board pEtat, final int pProfondeur, final int pAlpha, final int pBeta,
-      final int pValeur)
+      final int pValeur, final int pMouvement)
   {
     assert pEtat != null;
     // TODO: assert pAlpha <= pBeta;
 
-    final int cleEtat = pEtat.hashCode();
-    final int capacite = _hashCodes.length;
-    int pos = Math.abs(cleEtat % capacite);
-    int cle = _hashCodes[pos];
-    for (int i = MAX_COLLISIONS; (cle != 0) && (cle != cleEtat) && (--i >= 0); /* Pré-décrémenté */)
+    final int profondeur = Math.max(MIN_DEPTH, Math.min(MAX_DEPTH, pProfondeur));
+    final long cle = pEtat.getZobristKey();
+    final int seau = ((int) cle & _mask) * BUCKET_SIZE * ENTRY_LENGTH;
+    final int age = _age;
+
+    int idMvt = pMouvement >>> 4;
+    int pos = -1;
+    for (int i = seau; i < seau + BUCKET_SIZE * ENTRY_LENGTH; i += ENTRY_LENGTH)
     {
-      pos++;
-      if (pos >= capacite)
+      final long donnees = _entries[i + 1];
+      if ((donnees != 0) && ((_entries[i] ^ donnees) == cle))
       {
-        pos -= capacite;
+        // Position déjà connue : conserve l'entrée la plus profonde de la recherche courante...
+        if ((i != seau + ALWAYS_REPLACE * ENTRY_LENGTH) && (ageOf(donnees) == age)
+            && (depthOf(donnees) > profondeur))
+        {
+          return;
+        }
+        if (idMvt == 0)
+        {
+          idMvt = (int) (donnees >>> MOVE_SHIFT) & 0xFFFFF;
+        }
+        pos = i;
+        break;
       }
-      cle = _hashCodes[pos];
     }
-
-    if ((cle == 0) || ((cle == cleEtat) && (_depths[pos] < pProfondeur)))
+    if (pos < 0)
     {
-      byte type = EXACT;
-      if (pProfondeur > 0)
+      // ... sinon cherche, parmi les entrées privilégiant la profondeur, une entrée libre, d'une
+      // recherche précédente ou à défaut la moins profonde ...
+      int victime = seau;
+      int note = Integer.MAX_VALUE;
+      for (int i = seau; i < seau + ALWAYS_REPLACE * ENTRY_LENGTH; i += ENTRY_LENGTH)
       {
-        if (pValeur > pBeta)
+        final long donnees = _entries[i + 1];
+        final int n;
+        if (donnees == 0)
         {
-          type = BETA;
+          n = Integer.MIN_VALUE;
         }
-        else if (pValeur < pAlpha)
+        else if (ageOf(donnees) != age)
         {
-          type = ALPHA;
+          n = depthOf(donnees) - (MAX_DEPTH + 1);
+        }
+        else
+        {
+          n = depthOf(donnees);
+        }
+        if (n < note)
+        {
+          note = n;
+          victime = i;
         }
       }
+      if (note <= profondeur)
+      {
+        pos = victime;
+      }
+      else
+      {
+        // ... et en dernier recours, l'entrée remplacée systématiquement.
+        pos = seau + ALWAYS_REPLACE * ENTRY_LENGTH;
+      }
+      if (_entries[pos + 1] != 0)
+      {
+        _overwrites++;
+      }
+    }
 
-      _hashCodes[pos] = cleEtat;
-      _types[pos] = type;
-      _depths[pos] = (byte) pProfondeur;
-      _values[pos] = pValeur;
+    int type = EXACT;
+    if (pProfondeur > 0)
+    {
+      if (pValeur > pBeta)
+      {
+        type = BETA;
+      }
+      else if (pValeur < pAlpha)
+      {
+        type = ALPHA;
+      }
     }
+
+    final long donnees =
+        (pValeur & 0xFFFFFFFFL) | ((long) idMvt << MOVE_SHIFT)
+            | ((long) (profondeur - MIN_DEPTH) << DEPTH_SHIFT) | ((long) (type + 1) << TYPE_SHIFT)
+            | ((long) age << AGE_SHIFT);
+    _entries[pos] = cle ^ donnees;
+    _entries[pos + 1] = donnees;
+  }
+
+  /**
+   * Extrait la génération des données d'une entrée.
+   * 
+   * @param pDonnees Données d'une entrée.
+   * @return Génération de l'entrée.
+   */
+  private static int ageOf(final long pDonnees)
+  {
+    return (int) (pDonnees >>> AGE_SHIFT) & AGE_MASK;
+  }
+
+  /**
+   * Extrait la profondeur des données d'une entrée.
+   * 
+   * @param pDonnees Données d'une entrée.
+   * @return Profondeur de l'entrée.
+   */
+  private static int depthOf(final long pDonnees)
+  {
+    return ((int) (pDonnees >>> DEPTH_SHIFT) & 0x3F) + MIN_DEPTH;
+  }
+
+  /**
+   * Extrait le type d'évaluation des données d'une entrée.
+   * 
+   * @param pDonnees Données d'une entrée.
+   * @return Type de l'évaluation (ALPHA, BETA ou EXACT).
+   */
+  private static int typeOf(final long pDonnees)
+  {
+    return ((int) (pDonnees >>> TYPE_SHIFT) & 0x3) - 1;
   }
 }
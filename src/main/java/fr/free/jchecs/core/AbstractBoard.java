@@ -52,6 +52,27 @@ abstract class AbstractBoard implements Board
   /** Constante de grand roque pour les blancs pour le calcul de clés de hachage "Zobrist". */
   protected static final int ZOBRIST_WHITE_CASTLE_SHORT;
 
+  /** Constantes de pièce / position pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long [][] ZOBRIST_KEY_PIECE_POSITION;
+
+  /** Constante de prise en passant pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long [] ZOBRIST_KEY_EN_PASSANT;
+
+  /** Constante de petit roque pour les noirs pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST_KEY_BLACK_CASTLE_LONG;
+
+  /** Constante de grand roque pour les noirs pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST_KEY_BLACK_CASTLE_SHORT;
+
+  /** Constante de trait aux blancs pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST_KEY_WHITE_ACTIVE;
+
+  /** Constante de petit roque pour les blancs pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST_KEY_WHITE_CASTLE_LONG;
+
+  /** Constante de grand roque pour les blancs pour le calcul de clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST_KEY_WHITE_CASTLE_SHORT;
+
   static
   {
     final Random rnd = new Random(123456789L);
@@ -74,6 +95,28 @@ abstract class AbstractBoard implements Board
     ZOBRIST_WHITE_ACTIVE = rnd.nextInt();
     ZOBRIST_WHITE_CASTLE_LONG = rnd.nextInt();
     ZOBRIST_WHITE_CASTLE_SHORT = rnd.nextInt();
+
+    // Générateur distinct, pour ne pas modifier les clés 32 bits (utilisées par la bibliothèque
+    // d'ouvertures)...
+    final Random rnd64 = new Random(987654321L);
+    ZOBRIST_KEY_PIECE_POSITION = new long [ nbPieces ] [ FILE_COUNT * RANK_COUNT ];
+    for (int i = nbPieces; --i >= 0; /* Pré-décrémenté */)
+    {
+      for (int j = FILE_COUNT * RANK_COUNT; --j >= 0; /* Pré-décrémenté */)
+      {
+        ZOBRIST_KEY_PIECE_POSITION[i][j] = rnd64.nextLong();
+      }
+    }
+    ZOBRIST_KEY_EN_PASSANT = new long [ FILE_COUNT ];
+    for (int i = FILE_COUNT; --i >= 0; /* Pré-décrémenté */)
+    {
+      ZOBRIST_KEY_EN_PASSANT[i] = rnd64.nextLong();
+    }
+    ZOBRIST_KEY_BLACK_CASTLE_LONG = rnd64.nextLong();
+    ZOBRIST_KEY_BLACK_CASTLE_SHORT = rnd64.nextLong();
+    ZOBRIST_KEY_WHITE_ACTIVE = rnd64.nextLong();
+    ZOBRIST_KEY_WHITE_CASTLE_LONG = rnd64.nextLong();
+    ZOBRIST_KEY_WHITE_CASTLE_SHORT = rnd64.nextLong();
   }
 
   /** Drapeau indiquant le droit de roquer côté roi (petit roque) pour les noirs. */
@@ -146,6 +189,28 @@ abstract class AbstractBoard implements Board
     _whiteCastleLong = pEtat._whiteCastleLong;
   }
 
+  /**
+   * Recopie, sur l'instance elle même, l'état de l'instance reçue.
+   * <p>
+   * Réservé aux sous-classes mutables : les instances doivent rester immuables une fois diffusées.
+   * </p>
+   * 
+   * @param pEtat Instance à recopier.
+   */
+  protected final void copyFrom(final AbstractBoard pEtat)
+  {
+    assert pEtat != null;
+
+    _blackCastleShort = pEtat._blackCastleShort;
+    _blackCastleLong = pEtat._blackCastleLong;
+    _enPassant = pEtat._enPassant;
+    _fullmoveNumber = pEtat._fullmoveNumber;
+    _halfmoveCount = pEtat._halfmoveCount;
+    _whiteActive = pEtat._whiteActive;
+    _whiteCastleShort = pEtat._whiteCastleShort;
+    _whiteCastleLong = pEtat._whiteCastleLong;
+  }
+
   /**
    * Renvoi l'état du droit de roquer côté roi (petit roque) pour une couleur.
    * 
@@ -386,6 +451,100 @@ abstract class AbstractBoard implements Board
     return _halfmoveCount;
   }
 
+  /**
+   * Implémentation par défaut du calcul de la clé "Zobrist" des pions.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode pour des raisons de
+   * performance, en maintenant la clé de façon incrémentale.
+   * </p>
+   * 
+   * @return Clé "Zobrist" des pions sur 64 bits.
+   */
+  public long getPawnKey()
+  {
+    long res = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if ((p == Piece.WHITE_PAWN) || (p == Piece.BLACK_PAWN))
+      {
+        res ^= ZOBRIST_KEY_PIECE_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Implémentation par défaut du décompte des pièces présentes sur le plateau.
+   * 
+   * @return Nombre de pièces.
+   */
+  public int getPieceCount()
+  {
+    int res = 0;
+    for (final Square s : Square.values())
+    {
+      if (getPieceAt(s) != null)
+      {
+        res++;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Implémentation par défaut du calcul du score des blancs suivant une table de valeurs.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode pour des raisons de
+   * performance, en maintenant les scores de façon incrémentale.
+   * </p>
+   * 
+   * @param pTable Table des valeurs des pièces en fonction de leur position.
+   * @return Score des blancs sur le plateau.
+   */
+  public int getPieceSquareScore(final PieceSquareTable pTable)
+  {
+    assert pTable != null;
+
+    int res = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res += pTable.valueOf(p.ordinal(), s.getIndex());
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Implémentation par défaut du calcul de la clé "Zobrist" sur 64 bits.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode pour des raisons de
+   * performance, en maintenant la clé de façon incrémentale.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  public long getZobristKey()
+  {
+    long res = zobristKeyRoot();
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res ^= ZOBRIST_KEY_PIECE_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
   /**
    * Implémentation par défaut du calcul des clés de hachage, suivant la méthode "Zobrist".
    * <p>
@@ -587,4 +746,41 @@ abstract class AbstractBoard implements Board
 
     return res;
   }
+
+  /**
+   * Calcule le début de la clé "Zobrist" sur 64 bits.
+   * 
+   * @return Partie de la clé correspondant aux données internes de cette classe.
+   */
+  protected final long zobristKeyRoot()
+  {
+    long res = 0;
+
+    if (_blackCastleLong)
+    {
+      res ^= ZOBRIST_KEY_BLACK_CASTLE_LONG;
+    }
+    if (_blackCastleShort)
+    {
+      res ^= ZOBRIST_KEY_BLACK_CASTLE_SHORT;
+    }
+    if (_enPassant != null)
+    {
+      res ^= ZOBRIST_KEY_EN_PASSANT[_enPassant.getFile()];
+    }
+    if (_whiteActive)
+    {
+      res ^= ZOBRIST_KEY_WHITE_ACTIVE;
+    }
+    if (_whiteCastleLong)
+    {
+      res ^= ZOBRIST_KEY_WHITE_CASTLE_LONG;
+    }
+    if (_whiteCastleShort)
+    {
+      res ^= ZOBRIST_KEY_WHITE_CASTLE_SHORT;
+    }
+
+    return res;
+  }
 }
@@ -83,6 +83,49 @@ abstract class AbstractMoveGenerator extends AbstractBoard implements MoveGenera
     _whiteCastled = pEtat._whiteCastled;
   }
 
+  /**
+   * Recopie, sur l'instance elle même, l'état de l'instance reçue.
+   * <p>
+   * Réservé aux sous-classes mutables : les instances doivent rester immuables une fois diffusées.
+   * </p>
+   * 
+   * @param pEtat Instance à recopier.
+   */
+  protected final void copyFrom(final AbstractMoveGenerator pEtat)
+  {
+    super.copyFrom(pEtat);
+
+    _blackKingSquare = pEtat._blackKingSquare;
+    _blackCastled = pEtat._blackCastled;
+    _whiteKingSquare = pEtat._whiteKingSquare;
+    _whiteCastled = pEtat._whiteCastled;
+  }
+
+  /**
+   * Range dans un tableau les entiers identifiant tous les mouvements valides pour une couleur.
+   * <p>
+   * Implémentation par défaut, s'appuyant sur {@link #getValidMoves(boolean)}.
+   * </p>
+   * 
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pCoups Tableau recevant les mouvements.
+   * @return Nombre de mouvements rangés dans le tableau.
+   */
+  public int generateMoves(final boolean pTrait, final int [] pCoups)
+  {
+    assert pCoups != null;
+
+    final Move [] coups = getValidMoves(pTrait);
+    final int res = coups.length;
+    assert res <= pCoups.length;
+    for (int i = 0; i < res; i++)
+    {
+      pCoups[i] = coups[i].toId();
+    }
+
+    return res;
+  }
+
   /**
    * Renvoi la case contenant le roi d'une couleur.
    * 
@@ -117,6 +160,57 @@ abstract class AbstractMoveGenerator extends AbstractBoard implements MoveGenera
     return _blackCastled;
   }
 
+  /**
+   * Retire une case d'une liste de cases occupées (l'ordre de la liste n'est pas conservé).
+   * 
+   * @param pListe Liste des cases occupées par les pièces d'une couleur.
+   * @param pNombre Nombre de cases de la liste.
+   * @param pCase Indice de la case à retirer.
+   * @return Nouveau nombre de cases de la liste.
+   */
+  static final int removeSquare(final byte [] pListe, final int pNombre, final int pCase)
+  {
+    assert pListe != null;
+
+    final int res = pNombre - 1;
+    for (int i = res; i >= 0; i--)
+    {
+      if (pListe[i] == pCase)
+      {
+        pListe[i] = pListe[res];
+        return res;
+      }
+    }
+
+    assert false;
+    return pNombre;
+  }
+
+  /**
+   * Remplace une case par une autre dans une liste de cases occupées.
+   * 
+   * @param pListe Liste des cases occupées par les pièces d'une couleur.
+   * @param pNombre Nombre de cases de la liste.
+   * @param pOrigine Indice de la case quittée.
+   * @param pDestination Indice de la case nouvellement occupée.
+   */
+  static final void replaceSquare(final byte [] pListe, final int pNombre, final int pOrigine,
+      final int pDestination)
+  {
+    assert pListe != null;
+
+    for (int i = pNombre - 1; i >= 0; i--)
+    {
+      if (pListe[i] == pOrigine)
+      {
+        pListe[i] = (byte) pDestination;
+        return;
+      }
+    }
+
+    assert false;
+  }
+
   /**
    * Alimente l'indicateur de roi ayant roqué pour une couleur.
    * 
@@ -20,6 +20,7 @@ package fr.free.jchecs.core;
 
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.NO_CODE;
 import static fr.free.jchecs.core.Piece.BLACK_BISHOP;
 import static fr.free.jchecs.core.Piece.BLACK_KING;
 import static fr.free.jchecs.core.Piece.BLACK_KNIGHT;
@@ -32,6 +33,8 @@ import static fr.free.jchecs.core.Piece.WHITE_KNIGHT;
 import static fr.free.jchecs.core.Piece.WHITE_PAWN;
 import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
 import static fr.free.jchecs.core.Piece.WHITE_ROOK;
+import static fr.free.jchecs.core.Piece.isWhite;
+import static fr.free.jchecs.core.Piece.typeOf;
 import static fr.free.jchecs.core.PieceType.BISHOP;
 import static fr.free.jchecs.core.PieceType.KING;
 import static fr.free.jchecs.core.PieceType.KNIGHT;
@@ -47,6 +50,10 @@ import static fr.free.jchecs.core.PieceType.ROOK;
  * faibles performances : elle est à éviter dans un moteur de génération des coups, mais est idéale
  * pour les tests unitaires de représentations plus complexes.
  * </p>
+ * <p>
+ * Les cases contiennent les codes des pièces (voir {@link Piece#getCode()}) et une liste des cases
+ * occupées est tenue à jour pour chaque couleur.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -59,31 +66,29 @@ final class ArrayBoard extends AbstractMoveGenerator
   static final MoveGenerator STARTING;
   static
   {
-    final ArrayBoard etat = new ArrayBoard();
+    final MutableBoard etat = new MutableBoard();
     for (int x = 0; x < FILE_COUNT; x++)
     {
-      etat._pieces[x][1] = WHITE_PAWN;
-      etat._pieces[x][RANK_COUNT - 2] = BLACK_PAWN;
+      etat.setPieceAt(WHITE_PAWN, Square.valueOf(x, 1));
+      etat.setPieceAt(BLACK_PAWN, Square.valueOf(x, RANK_COUNT - 2));
     }
-    etat._pieces[0][0] = WHITE_ROOK;
-    etat._pieces[1][0] = WHITE_KNIGHT;
-    etat._pieces[2][0] = WHITE_BISHOP;
-    etat._pieces[3][0] = WHITE_QUEEN;
-    etat._pieces[FILE_COUNT - 4][0] = WHITE_KING;
-    etat._pieces[FILE_COUNT - 3][0] = WHITE_BISHOP;
-    etat._pieces[FILE_COUNT - 2][0] = WHITE_KNIGHT;
-    etat._pieces[FILE_COUNT - 1][0] = WHITE_ROOK;
-    etat._pieces[0][RANK_COUNT - 1] = BLACK_ROOK;
-    etat._pieces[1][RANK_COUNT - 1] = BLACK_KNIGHT;
-    etat._pieces[2][RANK_COUNT - 1] = BLACK_BISHOP;
-    etat._pieces[3][RANK_COUNT - 1] = BLACK_QUEEN;
-    etat._pieces[FILE_COUNT - 4][RANK_COUNT - 1] = BLACK_KING;
-    etat._pieces[FILE_COUNT - 3][RANK_COUNT - 1] = BLACK_BISHOP;
-    etat._pieces[FILE_COUNT - 2][RANK_COUNT - 1] = BLACK_KNIGHT;
-    etat._pieces[FILE_COUNT - 1][RANK_COUNT - 1] = BLACK_ROOK;
-    etat.setKingSquare(false, Square.valueOf(4, 7));
-    etat.setKingSquare(true, Square.valueOf(4, 0));
-    STARTING = etat;
+    etat.setPieceAt(WHITE_ROOK, Square.valueOf(0, 0));
+    etat.setPieceAt(WHITE_KNIGHT, Square.valueOf(1, 0));
+    etat.setPieceAt(WHITE_BISHOP, Square.valueOf(2, 0));
+    etat.setPieceAt(WHITE_QUEEN, Square.valueOf(3, 0));
+    etat.setPieceAt(WHITE_KING, Square.valueOf(FILE_COUNT - 4, 0));
+    etat.setPieceAt(WHITE_BISHOP, Square.valueOf(FILE_COUNT - 3, 0));
+    etat.setPieceAt(WHITE_KNIGHT, Square.valueOf(FILE_COUNT - 2, 0));
+    etat.setPieceAt(WHITE_ROOK, Square.valueOf(FILE_COUNT - 1, 0));
+    etat.setPieceAt(BLACK_ROOK, Square.valueOf(0, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_KNIGHT, Square.valueOf(1, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_BISHOP, Square.valueOf(2, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_QUEEN, Square.valueOf(3, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_KING, Square.valueOf(FILE_COUNT - 4, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_BISHOP, Square.valueOf(FILE_COUNT - 3, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_KNIGHT, Square.valueOf(FILE_COUNT - 2, RANK_COUNT - 1));
+    etat.setPieceAt(BLACK_ROOK, Square.valueOf(FILE_COUNT - 1, RANK_COUNT - 1));
+    STARTING = new ArrayBoard(etat);
   }
 
   /** Identifiant de la classe pour la sérialisation. */
@@ -95,8 +100,20 @@ final class ArrayBoard extends AbstractMoveGenerator
   /** Liste des modificateurs pour les mouvements d'un cavalier. */
   private static final int [] KNIGHT_MOVES = { -1, 1, 2, 2, 1, -1, -2, -2, };
 
-  /** Description du plateau. */
-  private final Piece [][] _pieces = new Piece [ FILE_COUNT ] [ RANK_COUNT ];
+  /** Liste des indices des cases occupées par les pièces noires. */
+  private final byte [] _blackSquares;
+
+  /** Nombre de pièces noires. */
+  private int _blackCount;
+
+  /** Description du plateau (codes des pièces). */
+  private final byte [][] _pieces = new byte [ FILE_COUNT ] [ RANK_COUNT ];
+
+  /** Liste des indices des cases occupées par les pièces blanches. */
+  private final byte [] _whiteSquares;
+
+  /** Nombre de pièces blanches. */
+  private int _whiteCount;
 
   /** Buffer de la clé de hachage (peut être à null). */
   private Integer _hashCode;
@@ -106,7 +123,8 @@ final class ArrayBoard extends AbstractMoveGenerator
    */
   private ArrayBoard()
   {
-    // Rien de spécifique...
+    _blackSquares = new byte [ 0 ];
+    _whiteSquares = new byte [ 0 ];
   }
 
   /**
@@ -118,10 +136,29 @@ final class ArrayBoard extends AbstractMoveGenerator
   {
     super(pEtat);
 
+    final byte [] blancs = new byte [ FILE_COUNT * RANK_COUNT ];
+    final byte [] noirs = new byte [ FILE_COUNT * RANK_COUNT ];
     for (final Square s : Square.values())
     {
-      _pieces[s.getFile()][s.getRank()] = pEtat.getPieceAt(s);
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        _pieces[s.getFile()][s.getRank()] = p.getCode();
+        if (p.isWhite())
+        {
+          blancs[_whiteCount++] = (byte) s.getIndex();
+        }
+        else
+        {
+          noirs[_blackCount++] = (byte) s.getIndex();
+        }
+      }
     }
+    // Les promotions remplaçant un pion, le nombre de pièces d'une couleur ne peut que diminuer...
+    _whiteSquares = new byte [ _whiteCount ];
+    System.arraycopy(blancs, 0, _whiteSquares, 0, _whiteCount);
+    _blackSquares = new byte [ _blackCount ];
+    System.arraycopy(noirs, 0, _blackSquares, 0, _blackCount);
   }
 
   /**
@@ -137,6 +174,10 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       System.arraycopy(pEtat._pieces[x], 0, _pieces[x], 0, RANK_COUNT);
     }
+    _blackSquares = pEtat._blackSquares.clone();
+    _blackCount = pEtat._blackCount;
+    _whiteSquares = pEtat._whiteSquares.clone();
+    _whiteCount = pEtat._whiteCount;
   }
 
   /**
@@ -190,12 +231,17 @@ final class ArrayBoard extends AbstractMoveGenerator
     final Square src = pMouvement.getFrom();
     final int xSrc = src.getFile();
     final int ySrc = src.getRank();
-    assert res._pieces[xSrc][ySrc] == piece;
-    res._pieces[xSrc][ySrc] = null;
+    assert res._pieces[xSrc][ySrc] == piece.getCode();
+    res._pieces[xSrc][ySrc] = NO_CODE;
     final Square dst = pMouvement.getTo();
     final int xDst = dst.getFile();
     final int yDst = dst.getRank();
-    res._pieces[xDst][yDst] = piece;
+    if (res._pieces[xDst][yDst] != NO_CODE)
+    {
+      res.removeSquare(!trait, dst.getIndex());
+    }
+    res.replaceSquare(trait, src.getIndex(), dst.getIndex());
+    res._pieces[xDst][yDst] = piece.getCode();
     // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
     if (typePiece == KING)
     {
@@ -205,21 +251,23 @@ final class ArrayBoard extends AbstractMoveGenerator
         if (xDst == 2)
         {
           // ... côté reine...
-          final Piece tour = res._pieces[0][yDst];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[0][yDst] = null;
+          final byte tour = res._pieces[0][yDst];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[0][yDst] = NO_CODE;
           res._pieces[3][yDst] = tour;
+          res.replaceSquare(trait, yDst * FILE_COUNT, 3 + yDst * FILE_COUNT);
           res.setCastled(trait, true);
         }
         else if (xDst == 6)
         {
           // ... côté roi...
-          final Piece tour = res._pieces[FILE_COUNT - 1][yDst];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[FILE_COUNT - 1][yDst] = null;
+          final byte tour = res._pieces[FILE_COUNT - 1][yDst];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[FILE_COUNT - 1][yDst] = NO_CODE;
           res._pieces[5][yDst] = tour;
+          res.replaceSquare(trait, FILE_COUNT - 1 + yDst * FILE_COUNT, 5 + yDst * FILE_COUNT);
           res.setCastled(trait, true);
         }
       }
@@ -229,11 +277,13 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       if (trait)
       {
-        res._pieces[xDst][yDst - 1] = null;
+        res._pieces[xDst][yDst - 1] = NO_CODE;
+        res.removeSquare(false, dst.getIndex() - FILE_COUNT);
       }
       else
       {
-        res._pieces[xDst][yDst + 1] = null;
+        res._pieces[xDst][yDst + 1] = NO_CODE;
+        res.removeSquare(true, dst.getIndex() + FILE_COUNT);
       }
     }
     // Gére la promotion des pions...
@@ -244,7 +294,7 @@ final class ArrayBoard extends AbstractMoveGenerator
         assert yDst > ySrc;
         if (yDst == RANK_COUNT - 1)
         {
-          res._pieces[xDst][yDst] = WHITE_QUEEN;
+          res._pieces[xDst][yDst] = WHITE_QUEEN.getCode();
         }
       }
       else
@@ -252,7 +302,7 @@ final class ArrayBoard extends AbstractMoveGenerator
         assert yDst < ySrc;
         if (yDst == 0)
         {
-          res._pieces[xDst][yDst] = BLACK_QUEEN;
+          res._pieces[xDst][yDst] = BLACK_QUEEN.getCode();
         }
       }
     }
@@ -352,11 +402,11 @@ final class ArrayBoard extends AbstractMoveGenerator
 
     Square [] res = null;
 
-    final Piece piece = _pieces[pOrigine.getFile()][pOrigine.getRank()];
-    if (piece != null)
+    final int piece = _pieces[pOrigine.getFile()][pOrigine.getRank()];
+    if (piece != NO_CODE)
     {
-      final boolean trait = piece.isWhite();
-      switch (piece.getType())
+      final boolean trait = isWhite(piece);
+      switch (typeOf(piece))
       {
         case BISHOP :
           res = getBishopTargets(pOrigine, trait);
@@ -411,14 +461,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     int yDst = ySrc;
     while ((--xDst >= 0) && (++yDst < RANK_COUNT))
     {
-      final Piece p = _pieces[xDst][yDst];
-      if (p == null)
+      final int p = _pieces[xDst][yDst];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xDst, yDst);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -431,14 +481,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     yDst = ySrc;
     while ((++xDst < FILE_COUNT) && (++yDst < RANK_COUNT))
     {
-      final Piece p = _pieces[xDst][yDst];
-      if (p == null)
+      final int p = _pieces[xDst][yDst];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xDst, yDst);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -451,14 +501,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     yDst = ySrc;
     while ((--xDst >= 0) && (--yDst >= 0))
     {
-      final Piece p = _pieces[xDst][yDst];
-      if (p == null)
+      final int p = _pieces[xDst][yDst];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xDst, yDst);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -471,14 +521,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     yDst = ySrc;
     while ((++xDst < FILE_COUNT) && (--yDst >= 0))
     {
-      final Piece p = _pieces[xDst][yDst];
-      if (p == null)
+      final int p = _pieces[xDst][yDst];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xDst, yDst);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -515,8 +565,8 @@ final class ArrayBoard extends AbstractMoveGenerator
       final int yDst = ySrc + KING_MOVES[(i + 2) % kLength];
       if ((xDst >= 0) && (yDst >= 0) && (xDst < FILE_COUNT) && (yDst < RANK_COUNT))
       {
-        final Piece p = _pieces[xDst][yDst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[xDst][yDst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -524,19 +574,19 @@ final class ArrayBoard extends AbstractMoveGenerator
     }
     if ((nb > 0) && (xSrc == 4))
     {
-      if (canCastleShort(pBlanc) && (_pieces[5][ySrc] == null) && (_pieces[6][ySrc] == null))
+      if (canCastleShort(pBlanc) && (_pieces[5][ySrc] == NO_CODE) && (_pieces[6][ySrc] == NO_CODE))
       {
-        final Piece t = _pieces[FILE_COUNT - 1][ySrc];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[FILE_COUNT - 1][ySrc];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           tmp[nb++] = Square.valueOf(6, ySrc);
         }
       }
-      if (canCastleLong(pBlanc) && (_pieces[3][ySrc] == null) && (_pieces[2][ySrc] == null)
-          && (_pieces[1][ySrc] == null))
+      if (canCastleLong(pBlanc) && (_pieces[3][ySrc] == NO_CODE) && (_pieces[2][ySrc] == NO_CODE)
+          && (_pieces[1][ySrc] == NO_CODE))
       {
-        final Piece t = _pieces[0][ySrc];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[0][ySrc];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           tmp[nb++] = Square.valueOf(2, ySrc);
         }
@@ -572,8 +622,8 @@ final class ArrayBoard extends AbstractMoveGenerator
       final int yDst = oY + KNIGHT_MOVES[(i + 2) % kLength];
       if ((xDst >= 0) && (yDst >= 0) && (xDst < FILE_COUNT) && (yDst < RANK_COUNT))
       {
-        final Piece p = _pieces[xDst][yDst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[xDst][yDst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           tmp[nb++] = Square.valueOf(xDst, yDst);
         }
@@ -607,11 +657,11 @@ final class ArrayBoard extends AbstractMoveGenerator
       {
         final int xSrc = pOrigine.getFile();
         // Mouvement de 1...
-        if (_pieces[xSrc][ySrc + 1] == null)
+        if (_pieces[xSrc][ySrc + 1] == NO_CODE)
         {
           tmp[nb++] = Square.valueOf(xSrc, ySrc + 1);
           // Mouvement initial de 2
-          if ((ySrc == 1) && (_pieces[xSrc][3] == null))
+          if ((ySrc == 1) && (_pieces[xSrc][3] == NO_CODE))
           {
             tmp[nb++] = Square.valueOf(xSrc, 3);
           }
@@ -620,8 +670,8 @@ final class ArrayBoard extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final Square cDest = Square.valueOf(xSrc - 1, ySrc + 1);
-          final Piece pDest = _pieces[xSrc - 1][ySrc + 1];
-          if (((pDest != null) && (!pDest.isWhite())) || (cDest == getEnPassant()))
+          final int pDest = _pieces[xSrc - 1][ySrc + 1];
+          if (((pDest != NO_CODE) && (!isWhite(pDest))) || (cDest == getEnPassant()))
           {
             tmp[nb++] = cDest;
           }
@@ -630,8 +680,8 @@ final class ArrayBoard extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final Square cDest = Square.valueOf(xSrc + 1, ySrc + 1);
-          final Piece pDest = _pieces[xSrc + 1][ySrc + 1];
-          if (((pDest != null) && (!pDest.isWhite())) || (cDest == getEnPassant()))
+          final int pDest = _pieces[xSrc + 1][ySrc + 1];
+          if (((pDest != NO_CODE) && (!isWhite(pDest))) || (cDest == getEnPassant()))
           {
             tmp[nb++] = cDest;
           }
@@ -644,11 +694,11 @@ final class ArrayBoard extends AbstractMoveGenerator
       {
         final int xSrc = pOrigine.getFile();
         // Mouvement de 1...
-        if (_pieces[xSrc][ySrc - 1] == null)
+        if (_pieces[xSrc][ySrc - 1] == NO_CODE)
         {
           tmp[nb++] = Square.valueOf(xSrc, ySrc - 1);
           // Mouvement initial de 2
-          if ((ySrc == RANK_COUNT - 2) && (_pieces[xSrc][RANK_COUNT - 4] == null))
+          if ((ySrc == RANK_COUNT - 2) && (_pieces[xSrc][RANK_COUNT - 4] == NO_CODE))
           {
             tmp[nb++] = Square.valueOf(xSrc, RANK_COUNT - 4);
           }
@@ -657,8 +707,8 @@ final class ArrayBoard extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final Square cDest = Square.valueOf(xSrc - 1, ySrc - 1);
-          final Piece pDest = _pieces[xSrc - 1][ySrc - 1];
-          if (((pDest != null) && pDest.isWhite()) || (cDest == getEnPassant()))
+          final int pDest = _pieces[xSrc - 1][ySrc - 1];
+          if (((pDest != NO_CODE) && isWhite(pDest)) || (cDest == getEnPassant()))
           {
             tmp[nb++] = cDest;
           }
@@ -667,8 +717,8 @@ final class ArrayBoard extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final Square cDest = Square.valueOf(xSrc + 1, ySrc - 1);
-          final Piece pDest = _pieces[xSrc + 1][ySrc - 1];
-          if (((pDest != null) && pDest.isWhite()) || (cDest == getEnPassant()))
+          final int pDest = _pieces[xSrc + 1][ySrc - 1];
+          if (((pDest != NO_CODE) && isWhite(pDest)) || (cDest == getEnPassant()))
           {
             tmp[nb++] = cDest;
           }
@@ -707,7 +757,7 @@ final class ArrayBoard extends AbstractMoveGenerator
     assert (pColonne >= 0) && (pColonne < FILE_COUNT);
     assert (pLigne >= 0) && (pLigne < RANK_COUNT);
 
-    return _pieces[pColonne][pLigne];
+    return Piece.valueOfCode(_pieces[pColonne][pLigne]);
   }
 
   /**
@@ -755,14 +805,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     // Mouvements / prise vers la gauche...
     for (int x = xSrc - 1; x >= 0; x--)
     {
-      final Piece p = _pieces[x][ySrc];
-      if (p == null)
+      final int p = _pieces[x][ySrc];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(x, ySrc);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(x, ySrc);
         }
@@ -773,14 +823,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     // Mouvements / prise vers la droite...
     for (int x = xSrc + 1; x < FILE_COUNT; x++)
     {
-      final Piece p = _pieces[x][ySrc];
-      if (p == null)
+      final int p = _pieces[x][ySrc];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(x, ySrc);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(x, ySrc);
         }
@@ -791,14 +841,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     // Mouvements / prise vers le haut...
     for (int y = ySrc + 1; y < RANK_COUNT; y++)
     {
-      final Piece p = _pieces[xSrc][y];
-      if (p == null)
+      final int p = _pieces[xSrc][y];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xSrc, y);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xSrc, y);
         }
@@ -809,14 +859,14 @@ final class ArrayBoard extends AbstractMoveGenerator
     // Mouvements / prise vers le bas...
     for (int y = ySrc - 1; y >= 0; y--)
     {
-      final Piece p = _pieces[xSrc][y];
-      if (p == null)
+      final int p = _pieces[xSrc][y];
+      if (p == NO_CODE)
       {
         tmp[nb++] = Square.valueOf(xSrc, y);
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           tmp[nb++] = Square.valueOf(xSrc, y);
         }
@@ -841,35 +891,42 @@ final class ArrayBoard extends AbstractMoveGenerator
     final Move [] tmp = new Move [ 164 ];
     int nb = 0;
 
-    for (int x = FILE_COUNT; --x >= 0; /* Pré-décrémenté */)
+    final byte [] cases;
+    final int nbCases;
+    if (pTrait)
     {
-      for (int y = RANK_COUNT; --y >= 0; /* Pré-décrémenté */)
+      cases = _whiteSquares;
+      nbCases = _whiteCount;
+    }
+    else
+    {
+      cases = _blackSquares;
+      nbCases = _blackCount;
+    }
+    for (int i = nbCases; --i >= 0; /* Pré-décrémenté */)
+    {
+      final Square orig = Square.valueOf(cases[i]);
+      final Piece p = getPieceAt(orig);
+      assert (p != null) && (p.isWhite() == pTrait);
+      for (final Square dst : getValidTargets(orig))
       {
-        final Piece p = _pieces[x][y];
-        if ((p != null) && (p.isWhite() == pTrait))
+        final Piece prise;
+        if ((p.getType() != PAWN) || (dst != getEnPassant()))
         {
-          final Square orig = Square.valueOf(x, y);
-          for (final Square dst : getValidTargets(orig))
+          prise = getPieceAt(dst);
+        }
+        else
+        {
+          if (pTrait)
           {
-            final Piece prise;
-            if ((p.getType() != PAWN) || (dst != getEnPassant()))
-            {
-              prise = _pieces[dst.getFile()][dst.getRank()];
-            }
-            else
-            {
-              if (pTrait)
-              {
-                prise = _pieces[dst.getFile()][dst.getRank() - 1];
-              }
-              else
-              {
-                prise = _pieces[dst.getFile()][dst.getRank() + 1];
-              }
-            }
-            tmp[nb++] = new Move(p, orig, dst, prise);
+            prise = getPieceAt(dst.getFile(), dst.getRank() - 1);
+          }
+          else
+          {
+            prise = getPieceAt(dst.getFile(), dst.getRank() + 1);
           }
         }
+        tmp[nb++] = new Move(p, orig, dst, prise);
       }
     }
 
@@ -889,7 +946,7 @@ final class ArrayBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Piece piece = _pieces[pOrigine.getFile()][pOrigine.getRank()];
+    final Piece piece = Piece.valueOfCode(_pieces[pOrigine.getFile()][pOrigine.getRank()]);
     if (piece != null)
     {
       final Square [] total = getAllTargets(pOrigine);
@@ -902,7 +959,7 @@ final class ArrayBoard extends AbstractMoveGenerator
         final Square cible = total[t];
         final int xDst = cible.getFile();
         final int yDst = cible.getRank();
-        final Piece prise = _pieces[xDst][yDst];
+        final Piece prise = Piece.valueOfCode(_pieces[xDst][yDst]);
         if (!derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
         {
           if ((piece.getType() == KING) && (pOrigine.getFile() == 4))
@@ -949,10 +1006,10 @@ final class ArrayBoard extends AbstractMoveGenerator
       {
         for (int y = RANK_COUNT; --y >= 0; /* Pré-décrémenté */)
         {
-          final Piece p = _pieces[x][y];
-          if (p != null)
+          final int p = _pieces[x][y];
+          if (p != NO_CODE)
           {
-            h ^= ZOBRIST_PIECE_POSITION[p.ordinal()][x + y * FILE_COUNT];
+            h ^= ZOBRIST_PIECE_POSITION[Piece.valueOfCode(p).ordinal()][x + y * FILE_COUNT];
           }
         }
       }
@@ -978,132 +1035,132 @@ final class ArrayBoard extends AbstractMoveGenerator
     final int xSrc = pCible.getFile();
     final int ySrc = pCible.getRank();
 
-    Piece p = null;
+    int p = NO_CODE;
     int x = xSrc - 1;
     // Gauche
-    while ((x >= 0) && (p == null))
+    while ((x >= 0) && (p == NO_CODE))
     {
       p = _pieces[x--][ySrc];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     x = xSrc + 1;
     // Droite
-    while ((x < FILE_COUNT) && (p == null))
+    while ((x < FILE_COUNT) && (p == NO_CODE))
     {
       p = _pieces[x++][ySrc];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     int y = ySrc - 1;
     // Bas
-    while ((y >= 0) && (p == null))
+    while ((y >= 0) && (p == NO_CODE))
     {
       p = _pieces[xSrc][y--];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     y = ySrc + 1;
     // Haut
-    while ((y < RANK_COUNT) && (p == null))
+    while ((y < RANK_COUNT) && (p == NO_CODE))
     {
       p = _pieces[xSrc][y++];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     x = xSrc - 1;
     y = ySrc - 1;
     // Bas / Gauche
-    while ((x >= 0) && (y >= 0) && (p == null))
+    while ((x >= 0) && (y >= 0) && (p == NO_CODE))
     {
       p = _pieces[x--][y--];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     x = xSrc - 1;
     y = ySrc + 1;
     // Haut / Gauche
-    while ((x >= 0) && (y < RANK_COUNT) && (p == null))
+    while ((x >= 0) && (y < RANK_COUNT) && (p == NO_CODE))
     {
       p = _pieces[x--][y++];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     x = xSrc + 1;
     y = ySrc + 1;
     // Haut / Droit
-    while ((x < FILE_COUNT) && (y < RANK_COUNT) && (p == null))
+    while ((x < FILE_COUNT) && (y < RANK_COUNT) && (p == NO_CODE))
     {
       p = _pieces[x++][y++];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     x = xSrc + 1;
     y = ySrc - 1;
     // Bas / Droit
-    while ((x < FILE_COUNT) && (y >= 0) && (p == null))
+    while ((x < FILE_COUNT) && (y >= 0) && (p == NO_CODE))
     {
       p = _pieces[x++][y--];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
@@ -1119,7 +1176,7 @@ final class ArrayBoard extends AbstractMoveGenerator
       if ((x >= 0) && (y >= 0) && (x < FILE_COUNT) && (y < RANK_COUNT))
       {
         p = _pieces[x][y];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KNIGHT))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KNIGHT))
         {
           return true;
         }
@@ -1135,7 +1192,7 @@ final class ArrayBoard extends AbstractMoveGenerator
       if ((x >= 0) && (y >= 0) && (x < FILE_COUNT) && (y < RANK_COUNT))
       {
         p = _pieces[x][y];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KING))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KING))
         {
           return true;
         }
@@ -1147,8 +1204,9 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       if (ySrc > 1)
       {
-        if (((xSrc > 0) && (_pieces[xSrc - 1][ySrc - 1] == WHITE_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[xSrc + 1][ySrc - 1] == WHITE_PAWN)))
+        if (((xSrc > 0) && (_pieces[xSrc - 1][ySrc - 1] == WHITE_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1)
+                && (_pieces[xSrc + 1][ySrc - 1] == WHITE_PAWN.getCode())))
         {
           return true;
         }
@@ -1158,8 +1216,9 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       if (ySrc < RANK_COUNT - 2)
       {
-        if (((xSrc > 0) && (_pieces[xSrc - 1][ySrc + 1] == BLACK_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[xSrc + 1][ySrc + 1] == BLACK_PAWN)))
+        if (((xSrc > 0) && (_pieces[xSrc - 1][ySrc + 1] == BLACK_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1)
+                && (_pieces[xSrc + 1][ySrc + 1] == BLACK_PAWN.getCode())))
         {
           return true;
         }
@@ -1179,23 +1238,29 @@ final class ArrayBoard extends AbstractMoveGenerator
   {
     final Square posRoi = getKingSquare(pCouleur);
 
-    for (int x = FILE_COUNT; --x >= 0; /* Pré-décrémenté */)
+    final byte [] cases;
+    final int nbCases;
+    if (pCouleur)
     {
-      for (int y = RANK_COUNT; --y >= 0; /* Pré-décrémenté */)
+      cases = _blackSquares;
+      nbCases = _blackCount;
+    }
+    else
+    {
+      cases = _whiteSquares;
+      nbCases = _whiteCount;
+    }
+    for (int i = nbCases; --i >= 0; /* Pré-décrémenté */)
+    {
+      final Square test = Square.valueOf(cases[i]);
+      assert isWhite(_pieces[test.getFile()][test.getRank()]) != pCouleur;
+      if (test != posRoi)
       {
-        final Piece p = _pieces[x][y];
-        if ((p != null) && (p.isWhite() != pCouleur))
+        for (final Square s : getAllTargets(test))
         {
-          final Square test = Square.valueOf(x, y);
-          if (test != posRoi)
+          if (s == posRoi)
           {
-            for (final Square s : getAllTargets(test))
-            {
-              if (s == posRoi)
-              {
-                return true;
-              }
-            }
+            return true;
           }
         }
       }
@@ -1203,4 +1268,41 @@ final class ArrayBoard extends AbstractMoveGenerator
 
     return false;
   }
+
+  /**
+   * Retire une case de la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pCase Indice de la case libérée.
+   */
+  private void removeSquare(final boolean pBlanc, final int pCase)
+  {
+    if (pBlanc)
+    {
+      _whiteCount = removeSquare(_whiteSquares, _whiteCount, pCase);
+    }
+    else
+    {
+      _blackCount = removeSquare(_blackSquares, _blackCount, pCase);
+    }
+  }
+
+  /**
+   * Remplace une case par une autre dans la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pOrigine Indice de la case quittée.
+   * @param pDestination Indice de la case nouvellement occupée.
+   */
+  private void replaceSquare(final boolean pBlanc, final int pOrigine, final int pDestination)
+  {
+    if (pBlanc)
+    {
+      replaceSquare(_whiteSquares, _whiteCount, pOrigine, pDestination);
+    }
+    else
+    {
+      replaceSquare(_blackSquares, _blackCount, pOrigine, pDestination);
+    }
+  }
 }
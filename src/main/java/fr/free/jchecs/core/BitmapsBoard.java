@@ -0,0 +1,1400 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.MAX_MOVES;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.BLACK_BISHOP;
+import static fr.free.jchecs.core.Piece.BLACK_KING;
+import static fr.free.jchecs.core.Piece.BLACK_KNIGHT;
+import static fr.free.jchecs.core.Piece.BLACK_PAWN;
+import static fr.free.jchecs.core.Piece.BLACK_QUEEN;
+import static fr.free.jchecs.core.Piece.BLACK_ROOK;
+import static fr.free.jchecs.core.Piece.WHITE_BISHOP;
+import static fr.free.jchecs.core.Piece.WHITE_KING;
+import static fr.free.jchecs.core.Piece.WHITE_KNIGHT;
+import static fr.free.jchecs.core.Piece.WHITE_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
+import static fr.free.jchecs.core.Piece.WHITE_ROOK;
+import static fr.free.jchecs.core.PieceType.KING;
+import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.PieceType.ROOK;
+
+/**
+ * Représentation d'un état de la partie basée sur des cartes binaires (une valeur de 64 bits par
+ * type de pièce, un bit par case).
+ * <p>
+ * Les attaques des pièces à longue portée sont calculées par la méthode "classique" des rayons :
+ * pour chaque direction, le rayon complet est masqué à partir du premier bloqueur trouvé par un
+ * simple balayage de bits. Cette méthode ne nécessite ni nombres "magiques" ni instruction PEXT.
+ * </p>
+ * <p>
+ * Cette classe ne dispose d'aucun buffer statique : elle est naturellement sûre vis-à-vis des
+ * threads.
+ * </p>
+ *
+ * @author David Cotton
+ */
+class BitmapsBoard extends AbstractMoveGenerator
+{
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = -2174938870560437192L;
+
+  /** Nombre de cases de l'échiquier. */
+  private static final int SQUARE_COUNT = FILE_COUNT * RANK_COUNT;
+
+  /** Masque de la colonne "a". */
+  private static final long FILE_A = 0x0101010101010101L;
+
+  /** Masque de la colonne "h". */
+  private static final long FILE_H = FILE_A << (FILE_COUNT - 1);
+
+  /** Masque de la première ligne. */
+  private static final long RANK_1 = 0xFFL;
+
+  /** Masque de la dernière ligne. */
+  private static final long RANK_8 = RANK_1 << (SQUARE_COUNT - FILE_COUNT);
+
+  /** Indice de la direction "haut". */
+  private static final int NORTH = 0;
+
+  /** Indice de la direction "droite". */
+  private static final int EAST = 1;
+
+  /** Indice de la direction "haut / droite". */
+  private static final int NORTH_EAST = 2;
+
+  /** Indice de la direction "haut / gauche". */
+  private static final int NORTH_WEST = 3;
+
+  /** Indice de la direction "bas". */
+  private static final int SOUTH = 4;
+
+  /** Indice de la direction "gauche". */
+  private static final int WEST = 5;
+
+  /** Indice de la direction "bas / gauche". */
+  private static final int SOUTH_WEST = 6;
+
+  /** Indice de la direction "bas / droite". */
+  private static final int SOUTH_EAST = 7;
+
+  /** Déplacements (colonne, ligne) correspondant aux directions. */
+  private static final int [][] DIRECTIONS =
+      { { 0, 1 }, { 1, 0 }, { 1, 1 }, { -1, 1 }, { 0, -1 }, { -1, 0 }, { -1, -1 }, { 1, -1 }, };
+
+  /** Rayons (cases atteignables sur un échiquier vide) par direction et par case. */
+  private static final long [][] RAYS = new long [ DIRECTIONS.length ] [ SQUARE_COUNT ];
+
+  /** Cases atteintes par un cavalier, par case d'origine. */
+  private static final long [] KNIGHT_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases atteintes par un roi, par case d'origine. */
+  private static final long [] KING_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases attaquées par un pion blanc, par case d'origine. */
+  private static final long [] WHITE_PAWN_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases attaquées par un pion noir, par case d'origine. */
+  private static final long [] BLACK_PAWN_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Liste de cases cibles vides. */
+  private static final Square [] NO_SQUARE = new Square [ 0 ];
+
+  /** Tables de valeurs des pièces dont les scores sont maintenus de façon incrémentale. */
+  private static final PieceSquareTable [] TABLES = PieceSquareTable.values();
+
+  static
+  {
+    final int [][] sautsCavalier =
+        { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 }, };
+    for (int s = 0; s < SQUARE_COUNT; s++)
+    {
+      final int x = s % FILE_COUNT;
+      final int y = s / FILE_COUNT;
+      for (int d = 0; d < DIRECTIONS.length; d++)
+      {
+        final int dx = DIRECTIONS[d][0];
+        final int dy = DIRECTIONS[d][1];
+        long rayon = 0;
+        int cx = x + dx;
+        int cy = y + dy;
+        while ((cx >= 0) && (cx < FILE_COUNT) && (cy >= 0) && (cy < RANK_COUNT))
+        {
+          rayon |= 1L << (cy * FILE_COUNT + cx);
+          cx += dx;
+          cy += dy;
+        }
+        RAYS[d][s] = rayon;
+        if (((x + dx) >= 0) && ((x + dx) < FILE_COUNT) && ((y + dy) >= 0)
+            && ((y + dy) < RANK_COUNT))
+        {
+          KING_ATTACKS[s] |= 1L << ((y + dy) * FILE_COUNT + x + dx);
+        }
+      }
+      for (final int [] saut : sautsCavalier)
+      {
+        final int cx = x + saut[0];
+        final int cy = y + saut[1];
+        if ((cx >= 0) && (cx < FILE_COUNT) && (cy >= 0) && (cy < RANK_COUNT))
+        {
+          KNIGHT_ATTACKS[s] |= 1L << (cy * FILE_COUNT + cx);
+        }
+      }
+      if (y < RANK_COUNT - 1)
+      {
+        if (x > 0)
+        {
+          WHITE_PAWN_ATTACKS[s] |= 1L << (s + FILE_COUNT - 1);
+        }
+        if (x < FILE_COUNT - 1)
+        {
+          WHITE_PAWN_ATTACKS[s] |= 1L << (s + FILE_COUNT + 1);
+        }
+      }
+      if (y > 0)
+      {
+        if (x > 0)
+        {
+          BLACK_PAWN_ATTACKS[s] |= 1L << (s - FILE_COUNT - 1);
+        }
+        if (x < FILE_COUNT - 1)
+        {
+          BLACK_PAWN_ATTACKS[s] |= 1L << (s - FILE_COUNT + 1);
+        }
+      }
+    }
+  }
+
+  /** Cartes binaires des pièces, indexées par l'ordinal de la pièce. */
+  private final long [] _bitmaps = new long [ Piece.values().length ];
+
+  /** Carte binaire de l'ensemble des pièces blanches. */
+  private long _whitePieces;
+
+  /** Carte binaire de l'ensemble des pièces noires. */
+  private long _blackPieces;
+
+  /** Description du plateau, case par case, pour un accès direct aux pièces. */
+  private final Piece [] _pieces = new Piece [ SQUARE_COUNT ];
+
+  /** Clé de hachage. */
+  private int _hashCode;
+
+  /** Clé de hachage "Zobrist" sur 64 bits. */
+  private long _zobristKey;
+
+  /** Clé de hachage "Zobrist" des pions sur 64 bits. */
+  private long _pawnKey;
+
+  /** Scores des blancs suivant chaque table de valeurs, indexés par l'ordinal de la table. */
+  private final int [] _scores = new int [ TABLES.length ];
+
+  /**
+   * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
+   *
+   * @param pEtat Instance initial.
+   */
+  BitmapsBoard(final Board pEtat)
+  {
+    super(pEtat);
+
+    for (final Square s : Square.values())
+    {
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        addPiece(p, s.getIndex());
+      }
+    }
+    _hashCode = super.hashCode();
+    _zobristKey = super.getZobristKey();
+  }
+
+  /**
+   * Crée une nouvelle instance, copie conforme de l'instance reçue.
+   *
+   * @param pEtat Instance à copier.
+   */
+  BitmapsBoard(final BitmapsBoard pEtat)
+  {
+    super(pEtat);
+
+    System.arraycopy(pEtat._bitmaps, 0, _bitmaps, 0, _bitmaps.length);
+    System.arraycopy(pEtat._pieces, 0, _pieces, 0, SQUARE_COUNT);
+    System.arraycopy(pEtat._scores, 0, _scores, 0, _scores.length);
+    _whitePieces = pEtat._whitePieces;
+    _blackPieces = pEtat._blackPieces;
+    _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
+    _pawnKey = pEtat._pawnKey;
+  }
+
+  /**
+   * Recopie l'état d'une autre instance sur l'instance elle même, sans allocation.
+   * <p>
+   * Seules les cases dont le contenu diffère entre les deux instances sont recopiées dans la
+   * description case par case.
+   * </p>
+   * <p>
+   * Réservé aux sous-classes mutables : les instances de cette classe doivent rester immuables une
+   * fois diffusées.
+   * </p>
+   *
+   * @param pEtat Instance à recopier.
+   */
+  final void copyFrom(final BitmapsBoard pEtat)
+  {
+    assert pEtat != null;
+
+    super.copyFrom(pEtat);
+
+    long modifiees = 0;
+    for (int i = _bitmaps.length; --i >= 0; /* Pré-décrémenté */)
+    {
+      final long b = pEtat._bitmaps[i];
+      modifiees |= _bitmaps[i] ^ b;
+      _bitmaps[i] = b;
+    }
+    while (modifiees != 0)
+    {
+      final int idx = Long.numberOfTrailingZeros(modifiees);
+      modifiees &= modifiees - 1;
+      _pieces[idx] = pEtat._pieces[idx];
+    }
+    System.arraycopy(pEtat._scores, 0, _scores, 0, _scores.length);
+    _whitePieces = pEtat._whitePieces;
+    _blackPieces = pEtat._blackPieces;
+    _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
+    _pawnKey = pEtat._pawnKey;
+  }
+
+  /**
+   * Ajoute une pièce sur une case vide (sans mise à jour de la clé de hachage, mais en mettant à
+   * jour les scores et la clé des pions).
+   *
+   * @param pPiece Pièce à ajouter.
+   * @param pIndice Indice de la case.
+   */
+  private void addPiece(final Piece pPiece, final int pIndice)
+  {
+    assert _pieces[pIndice] == null;
+
+    final long bit = 1L << pIndice;
+    _bitmaps[pPiece.ordinal()] |= bit;
+    if (pPiece.isWhite())
+    {
+      _whitePieces |= bit;
+    }
+    else
+    {
+      _blackPieces |= bit;
+    }
+    _pieces[pIndice] = pPiece;
+    final int ordinal = pPiece.ordinal();
+    if (pPiece.getType() == PAWN)
+    {
+      _pawnKey ^= ZOBRIST_KEY_PIECE_POSITION[ordinal][pIndice];
+    }
+    for (int t = TABLES.length; --t >= 0; /* Pré-décrémenté */)
+    {
+      _scores[t] += TABLES[t].valueOf(ordinal, pIndice);
+    }
+  }
+
+  /**
+   * Retire la pièce présente sur une case (sans mise à jour de la clé de hachage, mais en mettant
+   * à jour les scores et la clé des pions).
+   *
+   * @param pIndice Indice de la case.
+   * @return Pièce retirée.
+   */
+  private Piece removePiece(final int pIndice)
+  {
+    final Piece res = _pieces[pIndice];
+    assert res != null;
+
+    final long bit = 1L << pIndice;
+    _bitmaps[res.ordinal()] ^= bit;
+    if (res.isWhite())
+    {
+      _whitePieces ^= bit;
+    }
+    else
+    {
+      _blackPieces ^= bit;
+    }
+    _pieces[pIndice] = null;
+    final int ordinal = res.ordinal();
+    if (res.getType() == PAWN)
+    {
+      _pawnKey ^= ZOBRIST_KEY_PIECE_POSITION[ordinal][pIndice];
+    }
+    for (int t = TABLES.length; --t >= 0; /* Pré-décrémenté */)
+    {
+      _scores[t] -= TABLES[t].valueOf(ordinal, pIndice);
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi les cases atteintes par une pièce à longue portée dans une direction "positive" (vers
+   * les indices croissants).
+   *
+   * @param pDirection Indice de la direction.
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupation Carte des cases occupées.
+   * @return Carte des cases atteintes (y compris le premier bloqueur).
+   */
+  private static long positiveRay(final int pDirection, final int pOrigine,
+      final long pOccupation)
+  {
+    long res = RAYS[pDirection][pOrigine];
+    final long bloqueurs = res & pOccupation;
+    if (bloqueurs != 0)
+    {
+      res ^= RAYS[pDirection][Long.numberOfTrailingZeros(bloqueurs)];
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi les cases atteintes par une pièce à longue portée dans une direction "négative" (vers
+   * les indices décroissants).
+   *
+   * @param pDirection Indice de la direction.
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupation Carte des cases occupées.
+   * @return Carte des cases atteintes (y compris le premier bloqueur).
+   */
+  private static long negativeRay(final int pDirection, final int pOrigine,
+      final long pOccupation)
+  {
+    long res = RAYS[pDirection][pOrigine];
+    final long bloqueurs = res & pOccupation;
+    if (bloqueurs != 0)
+    {
+      res ^= RAYS[pDirection][63 - Long.numberOfLeadingZeros(bloqueurs)];
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi les cases atteintes par un mouvement de type "fou".
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupation Carte des cases occupées.
+   * @return Carte des cases atteintes (y compris les bloqueurs).
+   */
+  private static long bishopAttacks(final int pOrigine, final long pOccupation)
+  {
+    return positiveRay(NORTH_EAST, pOrigine, pOccupation)
+        | positiveRay(NORTH_WEST, pOrigine, pOccupation)
+        | negativeRay(SOUTH_WEST, pOrigine, pOccupation)
+        | negativeRay(SOUTH_EAST, pOrigine, pOccupation);
+  }
+
+  /**
+   * Renvoi les cases atteintes par un mouvement de type "tour".
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupation Carte des cases occupées.
+   * @return Carte des cases atteintes (y compris les bloqueurs).
+   */
+  private static long rookAttacks(final int pOrigine, final long pOccupation)
+  {
+    return positiveRay(NORTH, pOrigine, pOccupation) | positiveRay(EAST, pOrigine, pOccupation)
+        | negativeRay(SOUTH, pOrigine, pOccupation) | negativeRay(WEST, pOrigine, pOccupation);
+  }
+
+  /**
+   * Convertit une carte binaire en liste de cases.
+   *
+   * @param pCarte Carte binaire.
+   * @return Liste des cases correspondantes.
+   */
+  private static Square [] toSquares(final long pCarte)
+  {
+    if (pCarte == 0)
+    {
+      return NO_SQUARE;
+    }
+
+    final Square [] res = new Square [ Long.bitCount(pCarte) ];
+    long reste = pCarte;
+    for (int i = 0; reste != 0; i++)
+    {
+      res[i] = Square.valueOf(Long.numberOfTrailingZeros(reste));
+      reste &= reste - 1;
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la carte des pièces d'une couleur.
+   *
+   * @param pBlanc A vrai pour obtenir les pièces blanches.
+   * @return Carte des pièces de la couleur.
+   */
+  private long getPieces(final boolean pBlanc)
+  {
+    if (pBlanc)
+    {
+      return _whitePieces;
+    }
+
+    return _blackPieces;
+  }
+
+  /**
+   * Renvoi les cases cibles d'un mouvement de type "fou" (y compris ceux mettant le roi en échec).
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pBlanc A vrai pour une recherche concernant les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long bishopTargets(final int pOrigine, final boolean pBlanc)
+  {
+    return bishopAttacks(pOrigine, _whitePieces | _blackPieces) & ~getPieces(pBlanc);
+  }
+
+  /**
+   * Renvoi les cases cibles d'un mouvement de type "roi" (y compris ceux mettant le roi en échec,
+   * et les roques).
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pBlanc A vrai pour une recherche concernant les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long kingTargets(final int pOrigine, final boolean pBlanc)
+  {
+    long res = KING_ATTACKS[pOrigine] & ~getPieces(pBlanc);
+    if ((res != 0) && ((pOrigine % FILE_COUNT) == 4))
+    {
+      final Piece tour;
+      if (pBlanc)
+      {
+        tour = WHITE_ROOK;
+      }
+      else
+      {
+        tour = BLACK_ROOK;
+      }
+      if (canCastleShort(pBlanc) && (_pieces[pOrigine + 1] == null)
+          && (_pieces[pOrigine + 2] == null) && (_pieces[pOrigine + 3] == tour))
+      {
+        res |= 1L << (pOrigine + 2);
+      }
+      if (canCastleLong(pBlanc) && (_pieces[pOrigine - 1] == null)
+          && (_pieces[pOrigine - 2] == null) && (_pieces[pOrigine - 3] == null)
+          && (_pieces[pOrigine - 4] == tour))
+      {
+        res |= 1L << (pOrigine - 2);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi les cases cibles d'un mouvement de type "cavalier" (y compris ceux mettant le roi en
+   * échec).
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pBlanc A vrai pour une recherche concernant les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long knightTargets(final int pOrigine, final boolean pBlanc)
+  {
+    return KNIGHT_ATTACKS[pOrigine] & ~getPieces(pBlanc);
+  }
+
+  /**
+   * Renvoi les cases cibles d'un mouvement de type "pion" (y compris ceux mettant le roi en échec
+   * et les prises "en passant").
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pBlanc A vrai pour une recherche concernant les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long pawnTargets(final int pOrigine, final boolean pBlanc)
+  {
+    final long vides = ~(_whitePieces | _blackPieces);
+    final Square ep = getEnPassant();
+    long cibles = 0;
+    if (ep != null)
+    {
+      cibles = 1L << ep.getIndex();
+    }
+
+    long res = 0;
+    final int ySrc = pOrigine / FILE_COUNT;
+    if (pBlanc)
+    {
+      if (ySrc < RANK_COUNT - 1)
+      {
+        final long un = (1L << (pOrigine + FILE_COUNT)) & vides;
+        res = un;
+        if ((ySrc == 1) && (un != 0))
+        {
+          res |= (un << FILE_COUNT) & vides;
+        }
+        res |= WHITE_PAWN_ATTACKS[pOrigine] & (_blackPieces | cibles);
+      }
+    }
+    else
+    {
+      if (ySrc > 0)
+      {
+        final long un = (1L << (pOrigine - FILE_COUNT)) & vides;
+        res = un;
+        if ((ySrc == RANK_COUNT - 2) && (un != 0))
+        {
+          res |= (un >>> FILE_COUNT) & vides;
+        }
+        res |= BLACK_PAWN_ATTACKS[pOrigine] & (_whitePieces | cibles);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi les cases cibles d'un mouvement de type "tour" (y compris ceux mettant le roi en échec).
+   *
+   * @param pOrigine Indice de la case d'origine.
+   * @param pBlanc A vrai pour une recherche concernant les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long rookTargets(final int pOrigine, final boolean pBlanc)
+  {
+    return rookAttacks(pOrigine, _whitePieces | _blackPieces) & ~getPieces(pBlanc);
+  }
+
+  /**
+   * Renvoi toutes les cases cibles des mouvements possibles (y compris ceux mettant le roi en
+   * échec) pour la pièce contenue par une case.
+   *
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @return Carte des cases cibles.
+   */
+  private long allTargets(final int pOrigine)
+  {
+    final Piece piece = _pieces[pOrigine];
+    if (piece == null)
+    {
+      return 0;
+    }
+
+    final boolean trait = piece.isWhite();
+    switch (piece.getType())
+    {
+      case BISHOP :
+        return bishopTargets(pOrigine, trait);
+      case KING :
+        return kingTargets(pOrigine, trait);
+      case KNIGHT :
+        return knightTargets(pOrigine, trait);
+      case PAWN :
+        return pawnTargets(pOrigine, trait);
+      case QUEEN :
+        return bishopTargets(pOrigine, trait) | rookTargets(pOrigine, trait);
+      case ROOK :
+        return rookTargets(pOrigine, trait);
+      default :
+        assert false;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Indique si une case est attaquée par une couleur, pour une occupation donnée de l'échiquier.
+   *
+   * @param pCible Indice de la case cible.
+   * @param pCouleur A vrai pour tester l'attaque par les blancs.
+   * @param pOccupation Carte des cases occupées.
+   * @param pIgnorees Carte des cases dont les pièces doivent être ignorées (pièces prises).
+   * @return Vrai si la case est attaquée.
+   */
+  private boolean isAttacked(final int pCible, final boolean pCouleur, final long pOccupation,
+      final long pIgnorees)
+  {
+    final long actives = ~pIgnorees;
+    final long dames;
+    final long tours;
+    final long fous;
+    final long cavaliers;
+    final long roi;
+    final long pions;
+    if (pCouleur)
+    {
+      dames = _bitmaps[WHITE_QUEEN.ordinal()];
+      tours = _bitmaps[WHITE_ROOK.ordinal()];
+      fous = _bitmaps[WHITE_BISHOP.ordinal()];
+      cavaliers = _bitmaps[WHITE_KNIGHT.ordinal()];
+      roi = _bitmaps[WHITE_KING.ordinal()];
+      // Un pion blanc sur la première ligne n'attaque rien (compatibilité avec les autres
+      // représentations)...
+      pions = BLACK_PAWN_ATTACKS[pCible] & _bitmaps[WHITE_PAWN.ordinal()] & ~RANK_1;
+    }
+    else
+    {
+      dames = _bitmaps[BLACK_QUEEN.ordinal()];
+      tours = _bitmaps[BLACK_ROOK.ordinal()];
+      fous = _bitmaps[BLACK_BISHOP.ordinal()];
+      cavaliers = _bitmaps[BLACK_KNIGHT.ordinal()];
+      roi = _bitmaps[BLACK_KING.ordinal()];
+      pions = WHITE_PAWN_ATTACKS[pCible] & _bitmaps[BLACK_PAWN.ordinal()] & ~RANK_8;
+    }
+
+    if (((pions | (KNIGHT_ATTACKS[pCible] & cavaliers) | (KING_ATTACKS[pCible] & roi)) & actives)
+        != 0)
+    {
+      return true;
+    }
+
+    final long lignes = (dames | tours) & actives;
+    if ((lignes != 0) && ((rookAttacks(pCible, pOccupation) & lignes) != 0))
+    {
+      return true;
+    }
+
+    final long diagonales = (dames | fous) & actives;
+    return (diagonales != 0) && ((bishopAttacks(pCible, pOccupation) & diagonales) != 0);
+  }
+
+  /**
+   * Indique si un mouvement laisserait le roi de la couleur qui le joue en échec.
+   * <p>
+   * Le mouvement est simulé sur les cartes d'occupation, sans création d'une nouvelle instance.
+   * </p>
+   *
+   * @param pPiece Pièce déplacée.
+   * @param pOrigine Indice de la case d'origine.
+   * @param pDestination Indice de la case de destination.
+   * @return Vrai si le roi est en échec à l'issue du mouvement.
+   */
+  private boolean isInCheckAfter(final Piece pPiece, final int pOrigine, final int pDestination)
+  {
+    final boolean trait = pPiece.isWhite();
+    final long bitDst = 1L << pDestination;
+    long prises = bitDst;
+    long occupation = (_whitePieces | _blackPieces) & ~(1L << pOrigine);
+    occupation |= bitDst;
+    final int roi;
+    if (pPiece.getType() == KING)
+    {
+      roi = pDestination;
+      if ((pOrigine % FILE_COUNT) == 4)
+      {
+        // Le déplacement de la tour lors d'un roque...
+        final int delta = pDestination - pOrigine;
+        if (delta == 2)
+        {
+          occupation &= ~(1L << (pOrigine + 3));
+          occupation |= 1L << (pOrigine + 1);
+        }
+        else if (delta == -2)
+        {
+          occupation &= ~(1L << (pOrigine - 4));
+          occupation |= 1L << (pOrigine - 1);
+        }
+      }
+    }
+    else
+    {
+      roi = getKingSquare(trait).getIndex();
+      if ((pPiece.getType() == PAWN) && (_pieces[pDestination] == null)
+          && (((pDestination - pOrigine) & 1) != 0))
+      {
+        // Prise "en passant"...
+        final int idxPrise;
+        if (trait)
+        {
+          idxPrise = pDestination - FILE_COUNT;
+        }
+        else
+        {
+          idxPrise = pDestination + FILE_COUNT;
+        }
+        prises |= 1L << idxPrise;
+        occupation &= ~(1L << idxPrise);
+      }
+    }
+
+    return isAttacked(roi, !trait, occupation, prises);
+  }
+
+  /**
+   * Renvoi une nouvelle instance, initialisée à partir d'un état quelconque.
+   *
+   * @param pEtat Etat de départ.
+   * @return Copie de l'état.
+   */
+  public MoveGenerator derive(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    return new BitmapsBoard(pEtat);
+  }
+
+  /**
+   * Renvoi une nouvelle instance décrivant l'état du jeu après application d'un mouvement.
+   *
+   * @param pMouvement Description de mouvement.
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   * @return Instance dérivée.
+   */
+  public MoveGenerator derive(final Move pMouvement, final boolean pSuivant)
+  {
+    assert pMouvement != null;
+
+    final BitmapsBoard res = new BitmapsBoard(this);
+    res.play(pMouvement, pSuivant);
+
+    return res;
+  }
+
+  /**
+   * Applique un mouvement sur l'instance elle même.
+   * <p>
+   * Réservé aux sous-classes mutables : les instances de cette classe doivent rester immuables une
+   * fois diffusées.
+   * </p>
+   *
+   * @param pMouvement Description de mouvement.
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   */
+  final void play(final Move pMouvement, final boolean pSuivant)
+  {
+    assert pMouvement != null;
+
+    play(pMouvement.toId(), pSuivant);
+  }
+
+  /**
+   * Applique sur l'instance elle même un mouvement identifié par un entier (voir
+   * {@link Move#toId()}).
+   * <p>
+   * Réservé aux sous-classes mutables : les instances de cette classe doivent rester immuables une
+   * fois diffusées.
+   * </p>
+   *
+   * @param pMouvement Entier identifiant le mouvement.
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   */
+  final void play(final int pMouvement, final boolean pSuivant)
+  {
+    // Ajuste les compteurs...
+    if (pSuivant)
+    {
+      final boolean t = !isWhiteActive();
+      setWhiteActive(t);
+      _hashCode ^= ZOBRIST_WHITE_ACTIVE;
+      _zobristKey ^= ZOBRIST_KEY_WHITE_ACTIVE;
+      if (t)
+      {
+        setFullmoveNumber(getFullmoveNumber() + 1);
+      }
+      if (Move.capturedOf(pMouvement) == null)
+      {
+        setHalfmoveCount(getHalfmoveCount() + 1);
+      }
+      else
+      {
+        setHalfmoveCount(0);
+      }
+    }
+    // Déplace la pièce...
+    final Piece piece = Move.pieceOf(pMouvement);
+    final PieceType typePiece = piece.getType();
+    final boolean trait = piece.isWhite();
+    final int iSrc = Move.fromOf(pMouvement);
+    final int xSrc = iSrc % FILE_COUNT;
+    assert _pieces[iSrc] == piece;
+    removePiece(iSrc);
+    final int pieceOrdinal = piece.ordinal();
+    _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
+    _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iSrc];
+    final int iDst = Move.toOf(pMouvement);
+    final int xDst = iDst % FILE_COUNT;
+    final int yDst = iDst / FILE_COUNT;
+    if (_pieces[iDst] != null)
+    {
+      final int priseOrdinal = removePiece(iDst).ordinal();
+      _hashCode ^= ZOBRIST_PIECE_POSITION[priseOrdinal][iDst];
+      _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[priseOrdinal][iDst];
+    }
+    addPiece(piece, iDst);
+    _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+    _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
+    // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
+    if (typePiece == KING)
+    {
+      setKingSquare(trait, Square.valueOf(iDst));
+      if (xSrc == 4)
+      {
+        if (xDst == 2)
+        {
+          // ... côté reine...
+          final int i = yDst * FILE_COUNT;
+          final Piece tour = removePiece(i);
+          assert tour.getType() == ROOK;
+          final int tourOrdinal = tour.ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i];
+          addPiece(tour, i + 3);
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i + 3];
+          setCastled(trait, true);
+        }
+        else if (xDst == 6)
+        {
+          // ... côté roi...
+          final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
+          final Piece tour = removePiece(i);
+          assert tour.getType() == ROOK;
+          final int tourOrdinal = tour.ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i];
+          addPiece(tour, i - 2);
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i - 2];
+          setCastled(trait, true);
+        }
+      }
+    }
+    // Tient compte des interdictions de roquer que le mouvement peut provoquer...
+    if (canCastleShort(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == FILE_COUNT - 1)))
+      {
+        setCastleShort(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST_KEY_WHITE_CASTLE_SHORT;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST_KEY_BLACK_CASTLE_SHORT;
+        }
+      }
+    }
+    if (canCastleLong(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == 0)))
+      {
+        setCastleLong(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST_KEY_WHITE_CASTLE_LONG;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST_KEY_BLACK_CASTLE_LONG;
+        }
+      }
+    }
+    // Détecte si une prise "en passant" doit être effectuée ou signalée et gère la promotion...
+    final Square epOrig = getEnPassant();
+    setEnPassant(null);
+    if (typePiece == PAWN)
+    {
+      final int ySrc = iSrc / FILE_COUNT;
+      // En profite pour aussi gérer le compteur de demis coups...
+      if (pSuivant)
+      {
+        setHalfmoveCount(0);
+      }
+      if (trait)
+      {
+        assert yDst > ySrc;
+        if (yDst == RANK_COUNT - 1)
+        {
+          removePiece(iDst);
+          addPiece(WHITE_QUEEN, iDst);
+          _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
+          _hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+        }
+        else if ((ySrc == 1) && (yDst == 3))
+        {
+          setEnPassant(Square.valueOf(xDst, 2));
+        }
+        else if ((epOrig != null) && (iDst == epOrig.getIndex()))
+        {
+          final int epDst = iDst - FILE_COUNT;
+          final int priseOrdinal = removePiece(epDst).ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[priseOrdinal][epDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[priseOrdinal][epDst];
+        }
+      }
+      else
+      {
+        assert yDst < ySrc;
+        if (yDst == 0)
+        {
+          removePiece(iDst);
+          addPiece(BLACK_QUEEN, iDst);
+          _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
+          _hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+        }
+        else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
+        {
+          setEnPassant(Square.valueOf(xDst, RANK_COUNT - 3));
+        }
+        else if ((epOrig != null) && (iDst == epOrig.getIndex()))
+        {
+          final int epDst = iDst + FILE_COUNT;
+          final int priseOrdinal = removePiece(epDst).ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[priseOrdinal][epDst];
+          _zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[priseOrdinal][epDst];
+        }
+      }
+    }
+
+    final Square epFinal = getEnPassant();
+    if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
+      _zobristKey ^= ZOBRIST_KEY_EN_PASSANT[epOrig.getFile()];
+    }
+    if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
+      _zobristKey ^= ZOBRIST_KEY_EN_PASSANT[epFinal.getFile()];
+    }
+
+  }
+
+  /**
+   * Passe le trait à l'adversaire sans déplacer de pièce ("coup nul"), sur l'instance elle même.
+   * <p>
+   * Réservé aux sous-classes mutables : les instances de cette classe doivent rester immuables une
+   * fois diffusées.
+   * </p>
+   */
+  final void playNull()
+  {
+    final boolean t = !isWhiteActive();
+    setWhiteActive(t);
+    _hashCode ^= ZOBRIST_WHITE_ACTIVE;
+    _zobristKey ^= ZOBRIST_KEY_WHITE_ACTIVE;
+    if (t)
+    {
+      setFullmoveNumber(getFullmoveNumber() + 1);
+    }
+    setHalfmoveCount(getHalfmoveCount() + 1);
+
+    final Square ep = getEnPassant();
+    if (ep != null)
+    {
+      setEnPassant(null);
+      _hashCode ^= ZOBRIST_EN_PASSANT[ep.getFile()];
+      _zobristKey ^= ZOBRIST_KEY_EN_PASSANT[ep.getFile()];
+    }
+  }
+
+  /**
+   * Méthode spécialisée pour tester l'égalité entre deux descriptions de ce type.
+   *
+   * @param pObjet Objet avec lequel comparer.
+   * @return Vrai si les deux objets sont égaux.
+   */
+  @Override
+  public boolean equals(final Object pObjet)
+  {
+    if (pObjet == this)
+    {
+      return true;
+    }
+
+    if (pObjet instanceof BitmapsBoard)
+    {
+      if (hashCode() != pObjet.hashCode())
+      {
+        return false;
+      }
+
+      final BitmapsBoard o = (BitmapsBoard) pObjet;
+      for (int i = _bitmaps.length; --i >= 0; /* Pré-décrémenté */)
+      {
+        if (_bitmaps[i] != o._bitmaps[i])
+        {
+          return false;
+        }
+      }
+
+      return equalsInternal(o);
+    }
+
+    return super.equals(pObjet);
+  }
+
+  /**
+   * Renvoi toutes les cases cibles des mouvements possibles (y compris ceux mettant le roi en
+   * échec) pour la pièce contenue par une case.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getAllTargets(final Square pOrigine)
+  {
+    assert pOrigine != null;
+
+    return toSquares(allTargets(pOrigine.getIndex()));
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "fou" d'une certaine couleur (y
+   * compris ceux mettant le roi en échec) à partir d'une case.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Positionné à vrai si la recherche concerne les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getBishopTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(bishopTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type roi.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getKingTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(kingTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type cavalier.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getKnightTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(knightTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type pion.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getPawnTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(pawnTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi l'éventuelle pièce présente sur la case indiquée.
+   *
+   * @param pCase Case à tester.
+   * @return Pièce présente sur la case (ou null si aucune).
+   */
+  public Piece getPieceAt(final Square pCase)
+  {
+    assert pCase != null;
+
+    return _pieces[pCase.getIndex()];
+  }
+
+  /**
+   * Renvoi l'éventuelle pièce présente sur la case dont les coordonnées sont indiquées.
+   *
+   * @param pColonne Colonne de la case à tester (de 0 à 7).
+   * @param pLigne Ligne de la case à tester (de 0 à 7).
+   * @return Pièce présente sur la case (ou null).
+   */
+  public Piece getPieceAt(final int pColonne, final int pLigne)
+  {
+    assert (pColonne >= 0) && (pColonne < FILE_COUNT);
+    assert (pLigne >= 0) && (pLigne < RANK_COUNT);
+
+    return _pieces[pLigne * FILE_COUNT + pColonne];
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" des pions, pour optimisation.
+   *
+   * @return Clé "Zobrist" des pions sur 64 bits.
+   */
+  @Override
+  public long getPawnKey()
+  {
+    assert _pawnKey == super.getPawnKey();
+    return _pawnKey;
+  }
+
+  /**
+   * Surcharge du décompte des pièces présentes sur le plateau, pour optimisation.
+   *
+   * @return Nombre de pièces.
+   */
+  @Override
+  public int getPieceCount()
+  {
+    final int res = Long.bitCount(_whitePieces | _blackPieces);
+    assert res == super.getPieceCount();
+    return res;
+  }
+
+  /**
+   * Surcharge du calcul du score des blancs suivant une table de valeurs, pour optimisation.
+   *
+   * @param pTable Table des valeurs des pièces en fonction de leur position.
+   * @return Score des blancs sur le plateau.
+   */
+  @Override
+  public int getPieceSquareScore(final PieceSquareTable pTable)
+  {
+    assert _scores[pTable.ordinal()] == super.getPieceSquareScore(pTable);
+    return _scores[pTable.ordinal()];
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "dame" d'une certaine couleur
+   * (y compris ceux mettant le roi en échec) à partir d'une case.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Mis à vrai pour rechercher pour les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getQueenTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    final int idx = pOrigine.getIndex();
+    return toSquares(bishopTargets(idx, pBlanc) | rookTargets(idx, pBlanc));
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "tour" d'une certaine couleur
+   * (y compris ceux mettant le roi en échec) à partir d'une case.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Mis à vrai pour rechercher pour les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getRookTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(rookTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Range dans un tableau les entiers identifiant tous les mouvements valides pour une couleur.
+   *
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pCoups Tableau recevant les mouvements.
+   * @return Nombre de mouvements rangés dans le tableau.
+   */
+  @Override
+  public int generateMoves(final boolean pTrait, final int [] pCoups)
+  {
+    assert pCoups != null;
+
+    int res = 0;
+    long pieces = getPieces(pTrait);
+    while (pieces != 0)
+    {
+      final int iSrc = Long.numberOfTrailingZeros(pieces);
+      pieces &= pieces - 1;
+      final Piece p = _pieces[iSrc];
+      long cibles = validTargets(iSrc);
+      while (cibles != 0)
+      {
+        final int iDst = Long.numberOfTrailingZeros(cibles);
+        cibles &= cibles - 1;
+        Piece prise = _pieces[iDst];
+        if ((prise == null) && (p.getType() == PAWN) && (((iDst - iSrc) & 1) != 0))
+        {
+          if (pTrait)
+          {
+            prise = _pieces[iDst - FILE_COUNT];
+          }
+          else
+          {
+            prise = _pieces[iDst + FILE_COUNT];
+          }
+        }
+        pCoups[res++] = Move.toId(p, iSrc, iDst, prise);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi tous les mouvements valides pour une couleur.
+   *
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @return Liste des mouvements valides.
+   */
+  public Move [] getValidMoves(final boolean pTrait)
+  {
+    final int [] ids = new int [ MAX_MOVES ];
+    final int nb = generateMoves(pTrait, ids);
+    final Move [] res = new Move [ nb ];
+    for (int i = 0; i < nb; i++)
+    {
+      res[i] = Move.valueOf(ids[i]);
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi toutes les cases cibles des mouvements valides à partir d'une case.
+   *
+   * @param pOrigine Case à l'origine du mouvement.
+   * @return Liste des cases cibles.
+   */
+  public Square [] getValidTargets(final Square pOrigine)
+  {
+    assert pOrigine != null;
+
+    return toSquares(validTargets(pOrigine.getIndex()));
+  }
+
+  /**
+   * Renvoi la carte des cases cibles des mouvements valides à partir d'une case.
+   *
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @return Carte des cases cibles.
+   */
+  private long validTargets(final int pOrigine)
+  {
+    final Piece piece = _pieces[pOrigine];
+    if (piece == null)
+    {
+      return 0;
+    }
+
+    final boolean trait = piece.isWhite();
+    long res = allTargets(pOrigine);
+    long cibles = res;
+    while (cibles != 0)
+    {
+      final int iDst = Long.numberOfTrailingZeros(cibles);
+      final long bit = cibles & -cibles;
+      cibles ^= bit;
+      if (isInCheckAfter(piece, pOrigine, iDst))
+      {
+        res ^= bit;
+      }
+      else if ((piece.getType() == KING) && ((pOrigine % FILE_COUNT) == 4))
+      {
+        final int delta = iDst - pOrigine;
+        if ((delta == 2) || (delta == -2))
+        {
+          // Elimine le roque si le roi est en échec ou s'il le serait sur la case
+          // intermédiaire...
+          if (isInCheck(trait) || isInCheckAfter(piece, pOrigine, pOrigine + (delta / 2)))
+          {
+            res ^= bit;
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, pour optimisation.
+   *
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long getZobristKey()
+  {
+    assert _zobristKey == super.getZobristKey();
+    return _zobristKey;
+  }
+
+  /**
+   * Surcharge du calcul des clés de hachage, pour optimisation.
+   *
+   * @return Clé de hachage.
+   */
+  @Override
+  public int hashCode()
+  {
+    assert _hashCode == super.hashCode();
+    return _hashCode;
+  }
+
+  /**
+   * Indique si une case est attaquée par une couleur.
+   *
+   * @param pCible Case cible.
+   * @param pCouleur Positionné à "true" pour tester l'attaque par les blancs.
+   * @return Vrai si la case est attaquée.
+   */
+  public boolean isAttacked(final Square pCible, final boolean pCouleur)
+  {
+    assert pCible != null;
+
+    return isAttacked(pCible.getIndex(), pCouleur, _whitePieces | _blackPieces, 0);
+  }
+
+  /**
+   * Indique si le roi d'une couleur est en échec.
+   *
+   * @param pCouleur Positionné à "true" pour tester l'échec sur les blancs, à "false" sinon.
+   * @return Vrai si le roi est en échec.
+   */
+  public boolean isInCheck(final boolean pCouleur)
+  {
+    return isAttacked(getKingSquare(pCouleur).getIndex(), !pCouleur, _whitePieces
+        | _blackPieces, 0);
+  }
+}
@@ -69,6 +69,46 @@ public interface Board extends Comparable<Board>, Serializable
    */
   int getHalfmoveCount();
 
+  /**
+   * Renvoi la clé de hachage "Zobrist" sur 64 bits restreinte aux pions de l'état.
+   * <p>
+   * Cette clé ne dépend que de la position des pions (et pas du trait, des droits de roque, ...) :
+   * elle identifie les structures de pions, pour les caches des fonctions d'évaluation. Elle est
+   * compatible entre les différentes implémentations.
+   * </p>
+   * 
+   * @return Clé "Zobrist" des pions sur 64 bits.
+   */
+  long getPawnKey();
+
+  /**
+   * Renvoi le nombre de pièces (rois compris) présentes sur le plateau.
+   * 
+   * @return Nombre de pièces ([2, 32] pour une position valide).
+   */
+  int getPieceCount();
+
+  /**
+   * Renvoi la somme des valeurs (matériel et bonus/malus de position) des pièces blanches,
+   * diminuée de celle des pièces noires, suivant une table de valeurs.
+   * 
+   * @param pTable Table des valeurs des pièces en fonction de leur position.
+   * @return Score des blancs sur le plateau.
+   */
+  int getPieceSquareScore(final PieceSquareTable pTable);
+
+  /**
+   * Renvoi la clé de hachage "Zobrist" sur 64 bits de l'état.
+   * <p>
+   * Contrairement à {@link Object#hashCode()}, limitée à 32 bits, cette clé est destinée à
+   * l'identification des positions dans les tables de transposition. Elle est compatible entre les
+   * différentes implémentations.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  long getZobristKey();
+
   /**
    * Renvoi l'éventuelle pièce présente sur la case indiquée.
    * 
@@ -33,6 +33,22 @@ public final class BoardFactory
     // Rien de spécifique...
   }
 
+  /**
+   * Renvoi une nouvelle instance modifiable sur place, initialisée à partir d'un état quelconque.
+   * <p>
+   * L'instance renvoyée est toujours nouvelle : elle est réservée à l'usage exclusif de l'appelant.
+   * </p>
+   * 
+   * @param pEtat Etat de départ.
+   * @return Instance modifiable, copie de l'état.
+   */
+  public static MutableMoveGenerator toMutable(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    return new MutableBitmapsBoard(pEtat);
+  }
+
   /**
    * Renvoi une instance de description de l'état d'une partie.
    * 
@@ -61,20 +77,20 @@ public final class BoardFactory
             assert false;
         }
         break;
-      // case BITMAPS :
-      // switch (pEtat)
-      // {
-      // case EMPTY :
-      // res = BitmapsBoard.EMPTY;
-      // break;
-      // case STARTING :
-      // res = BitmapsBoard.STARTING;
-      // break;
-      // default :
-      // assert false;
-      // }
-      // break;
+      case BITMAPS :
       case FASTEST :
+        switch (pEtat)
+        {
+          case EMPTY :
+            res = new BitmapsBoard(ArrayBoard.EMPTY);
+            break;
+          case STARTING :
+            res = new BitmapsBoard(ArrayBoard.STARTING);
+            break;
+          default :
+            assert false;
+        }
+        break;
       case MAILBOX :
         switch (pEtat)
         {
@@ -128,13 +144,13 @@ public final class BoardFactory
     /** Description basée sur un tableau bordé, à une dimension. */
     MAILBOX,
 
-    /** Description la plus rapide : actuellement équivalent à MAILBOX. */
+    /** Description la plus rapide : actuellement équivalent à BITMAPS. */
     FASTEST,
 
     /** Description basée sur un tableau à une dimension avec indice filtré par la valeur 0x88. */
-    X88;
+    X88,
 
-    // /** Description basée sur des cartes binaires. */
-    // BITMAPS;
+    /** Description basée sur des cartes binaires. */
+    BITMAPS;
   }
 }
@@ -43,6 +43,9 @@ public final class Constants
   /** Nombre de colonnes de l'échiquier (={@value}). */
   public static final int FILE_COUNT = 8;
 
+  /** Nombre maximal de mouvements valides dans une position (={@value}). */
+  public static final int MAX_MOVES = 218;
+
   /** Nombre de lignes de l'échiquier (={@value}). */
   public static final int RANK_COUNT = 8;
 
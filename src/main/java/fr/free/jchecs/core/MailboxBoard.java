@@ -20,10 +20,13 @@ package fr.free.jchecs.core;
 
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.NO_CODE;
 import static fr.free.jchecs.core.Piece.BLACK_PAWN;
 import static fr.free.jchecs.core.Piece.BLACK_QUEEN;
 import static fr.free.jchecs.core.Piece.WHITE_PAWN;
 import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
+import static fr.free.jchecs.core.Piece.isWhite;
+import static fr.free.jchecs.core.Piece.typeOf;
 import static fr.free.jchecs.core.PieceType.BISHOP;
 import static fr.free.jchecs.core.PieceType.KING;
 import static fr.free.jchecs.core.PieceType.KNIGHT;
@@ -38,6 +41,10 @@ import static fr.free.jchecs.core.PieceType.ROOK;
  * Cette représentation est plus performante que la représentation naturelle avec un tableau à deux
  * dimensions, tout en restant moins complexe que les BitBoards.
  * </p>
+ * <p>
+ * Les cases contiennent les codes des pièces (voir {@link Piece#getCode()}) et une liste des cases
+ * occupées est tenue à jour pour chaque couleur.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -83,8 +90,20 @@ final class MailboxBoard extends AbstractMoveGenerator
   /** Indice du dernier élément valide dans les buffer de travail des cases. */
   private static int S_nbBufferedSquares;
 
-  /** Description du plateau. */
-  private final Piece [] _pieces = new Piece [ FILE_COUNT * RANK_COUNT ];
+  /** Liste des cases occupées par les pièces noires. */
+  private final byte [] _blackSquares;
+
+  /** Nombre de pièces noires. */
+  private int _blackCount;
+
+  /** Description du plateau (codes des pièces). */
+  private final byte [] _pieces = new byte [ FILE_COUNT * RANK_COUNT ];
+
+  /** Liste des cases occupées par les pièces blanches. */
+  private final byte [] _whiteSquares;
+
+  /** Nombre de pièces blanches. */
+  private int _whiteCount;
 
   /** Clé de hachage. */
   private int _hashCode;
@@ -98,10 +117,30 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     super(pEtat);
 
+    final byte [] blancs = new byte [ FILE_COUNT * RANK_COUNT ];
+    final byte [] noirs = new byte [ FILE_COUNT * RANK_COUNT ];
     for (final Square s : Square.values())
     {
-      _pieces[s.getIndex()] = pEtat.getPieceAt(s);
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        final int idx = s.getIndex();
+        _pieces[idx] = p.getCode();
+        if (p.isWhite())
+        {
+          blancs[_whiteCount++] = (byte) idx;
+        }
+        else
+        {
+          noirs[_blackCount++] = (byte) idx;
+        }
+      }
     }
+    // Les promotions remplaçant un pion, le nombre de pièces d'une couleur ne peut que diminuer...
+    _whiteSquares = new byte [ _whiteCount ];
+    System.arraycopy(blancs, 0, _whiteSquares, 0, _whiteCount);
+    _blackSquares = new byte [ _blackCount ];
+    System.arraycopy(noirs, 0, _blackSquares, 0, _blackCount);
     _hashCode = super.hashCode();
   }
 
@@ -115,6 +154,10 @@ final class MailboxBoard extends AbstractMoveGenerator
     super(pEtat);
 
     System.arraycopy(pEtat._pieces, 0, _pieces, 0, FILE_COUNT * RANK_COUNT);
+    _blackSquares = pEtat._blackSquares.clone();
+    _blackCount = pEtat._blackCount;
+    _whiteSquares = pEtat._whiteSquares.clone();
+    _whiteCount = pEtat._whiteCount;
     _hashCode = pEtat._hashCode;
   }
 
@@ -128,11 +171,11 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
-    final Piece piece = _pieces[pOrigine];
-    if (piece != null)
+    final int piece = _pieces[pOrigine];
+    if (piece != NO_CODE)
     {
-      final boolean trait = piece.isWhite();
-      switch (piece.getType())
+      final boolean trait = isWhite(piece);
+      switch (typeOf(piece))
       {
         case BISHOP :
           addBishopTargets(pOrigine, trait);
@@ -177,14 +220,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     int dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -199,14 +242,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -221,14 +264,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -243,14 +286,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -279,8 +322,8 @@ final class MailboxBoard extends AbstractMoveGenerator
       final int dst = MAILBOX[mbSrc + km];
       if (dst >= 0)
       {
-        final Piece p = _pieces[dst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[dst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
           testerRoque = true;
@@ -290,19 +333,20 @@ final class MailboxBoard extends AbstractMoveGenerator
     if (testerRoque && (Square.valueOf(pOrigine).getFile() == 4))
     {
       final int dst = MAILBOX[mbSrc];
-      if (canCastleShort(pBlanc) && (_pieces[dst + 1] == null) && (_pieces[dst + 2] == null))
+      if (canCastleShort(pBlanc) && (_pieces[dst + 1] == NO_CODE)
+          && (_pieces[dst + 2] == NO_CODE))
       {
-        final Piece t = _pieces[dst + 3];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[dst + 3];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst + 2;
         }
       }
-      if (canCastleLong(pBlanc) && (_pieces[dst - 1] == null) && (_pieces[dst - 2] == null)
-          && (_pieces[dst - 3] == null))
+      if (canCastleLong(pBlanc) && (_pieces[dst - 1] == NO_CODE) && (_pieces[dst - 2] == NO_CODE)
+          && (_pieces[dst - 3] == NO_CODE))
       {
-        final Piece t = _pieces[dst - 4];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[dst - 4];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst - 2;
         }
@@ -327,8 +371,8 @@ final class MailboxBoard extends AbstractMoveGenerator
       final int dst = MAILBOX[mbSrc + km];
       if (dst >= 0)
       {
-        final Piece p = _pieces[dst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[dst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -354,11 +398,11 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (ySrc < RANK_COUNT - 1)
       {
         // Mouvement de 1...
-        if (_pieces[pOrigine + FILE_COUNT] == null)
+        if (_pieces[pOrigine + FILE_COUNT] == NO_CODE)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + FILE_COUNT;
           // Mouvement initial de 2
-          if ((ySrc == 1) && (_pieces[pOrigine + FILE_COUNT * 2] == null))
+          if ((ySrc == 1) && (_pieces[pOrigine + FILE_COUNT * 2] == NO_CODE))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + FILE_COUNT * 2;
           }
@@ -368,8 +412,9 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final int iDest = pOrigine - 1 + FILE_COUNT;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && (!pDest.isWhite())) || (Square.valueOf(iDest) == getEnPassant()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && (!isWhite(pDest)))
+              || (Square.valueOf(iDest) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
           }
@@ -378,8 +423,9 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final int iDest = pOrigine + 1 + FILE_COUNT;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && (!pDest.isWhite())) || (Square.valueOf(iDest) == getEnPassant()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && (!isWhite(pDest)))
+              || (Square.valueOf(iDest) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
           }
@@ -391,11 +437,11 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (ySrc > 0)
       {
         // Mouvement de 1...
-        if (_pieces[pOrigine - FILE_COUNT] == null)
+        if (_pieces[pOrigine - FILE_COUNT] == NO_CODE)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - FILE_COUNT;
           // Mouvement initial de 2
-          if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - FILE_COUNT * 2] == null))
+          if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - FILE_COUNT * 2] == NO_CODE))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - FILE_COUNT * 2;
           }
@@ -405,8 +451,8 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final int iDest = pOrigine - 1 - FILE_COUNT;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && pDest.isWhite()) || (Square.valueOf(iDest) == getEnPassant()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && isWhite(pDest)) || (Square.valueOf(iDest) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
           }
@@ -415,8 +461,8 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final int iDest = pOrigine + 1 - FILE_COUNT;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && pDest.isWhite()) || (Square.valueOf(iDest) == getEnPassant()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && isWhite(pDest)) || (Square.valueOf(iDest) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
           }
@@ -443,14 +489,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     int dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -464,14 +510,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -485,14 +531,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -507,14 +553,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     dst = MAILBOX[mbDst];
     while (dst >= 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -577,20 +623,22 @@ final class MailboxBoard extends AbstractMoveGenerator
     final Square src = pMouvement.getFrom();
     final int iSrc = src.getIndex();
     final int xSrc = src.getFile();
-    assert res._pieces[iSrc] == piece;
-    res._pieces[iSrc] = null;
+    assert res._pieces[iSrc] == piece.getCode();
+    res._pieces[iSrc] = NO_CODE;
     final int pieceOrdinal = piece.ordinal();
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
     final Square dst = pMouvement.getTo();
     final int iDst = dst.getIndex();
     final int xDst = dst.getFile();
     final int yDst = dst.getRank();
-    final Piece pieceDst = _pieces[iDst];
-    if (pieceDst != null)
+    final int codeDst = _pieces[iDst];
+    if (codeDst != NO_CODE)
     {
-      res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._hashCode ^= ZOBRIST_PIECE_POSITION[Piece.valueOfCode(codeDst).ordinal()][iDst];
+      res.removeSquare(!trait, iDst);
     }
-    res._pieces[iDst] = piece;
+    res.replaceSquare(trait, iSrc, iDst);
+    res._pieces[iDst] = piece.getCode();
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
     // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
     if (typePiece == KING)
@@ -602,12 +650,13 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // ... côté reine...
           final int i = yDst * FILE_COUNT;
-          final Piece tour = res._pieces[i];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i] = null;
-          final int tourOrdinal = tour.ordinal();
+          final byte tour = res._pieces[i];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[i] = NO_CODE;
+          final int tourOrdinal = Piece.valueOfCode(tour).ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res.replaceSquare(trait, i, i + 3);
           res._pieces[i + 3] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
           res.setCastled(trait, true);
@@ -616,12 +665,13 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           // ... côté roi...
           final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
-          final Piece tour = res._pieces[i];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i] = null;
-          final int tourOrdinal = tour.ordinal();
+          final byte tour = res._pieces[i];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[i] = NO_CODE;
+          final int tourOrdinal = Piece.valueOfCode(tour).ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res.replaceSquare(trait, i, i - 2);
           res._pieces[i - 2] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
           res.setCastled(trait, true);
@@ -675,7 +725,7 @@ final class MailboxBoard extends AbstractMoveGenerator
         assert yDst > ySrc;
         if (yDst == RANK_COUNT - 1)
         {
-          res._pieces[iDst] = WHITE_QUEEN;
+          res._pieces[iDst] = WHITE_QUEEN.getCode();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
         }
@@ -686,8 +736,10 @@ final class MailboxBoard extends AbstractMoveGenerator
         else if (dst == epOrig)
         {
           final int epDst = iDst - FILE_COUNT;
-          res._pieces[epDst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          assert _pieces[epDst] == BLACK_PAWN.getCode();
+          res._pieces[epDst] = NO_CODE;
+          res.removeSquare(false, epDst);
+          res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_PAWN.ordinal()][epDst];
         }
       }
       else
@@ -695,7 +747,7 @@ final class MailboxBoard extends AbstractMoveGenerator
         assert yDst < ySrc;
         if (yDst == 0)
         {
-          res._pieces[iDst] = BLACK_QUEEN;
+          res._pieces[iDst] = BLACK_QUEEN.getCode();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
         }
@@ -706,8 +758,10 @@ final class MailboxBoard extends AbstractMoveGenerator
         else if (dst == epOrig)
         {
           final int epDst = iDst + FILE_COUNT;
-          res._pieces[epDst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          assert _pieces[epDst] == WHITE_PAWN.getCode();
+          res._pieces[epDst] = NO_CODE;
+          res.removeSquare(true, epDst);
+          res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_PAWN.ordinal()][epDst];
         }
       }
     }
@@ -774,8 +828,7 @@ final class MailboxBoard extends AbstractMoveGenerator
     assert pOrigine != null;
 
     final int idx = pOrigine.getIndex();
-    final Piece piece = _pieces[idx];
-    if (piece != null)
+    if (_pieces[idx] != NO_CODE)
     {
       final Square [] res;
 
@@ -925,7 +978,7 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pCase != null;
 
-    return _pieces[pCase.getIndex()];
+    return Piece.valueOfCode(_pieces[pCase.getIndex()]);
   }
 
   /**
@@ -940,7 +993,7 @@ final class MailboxBoard extends AbstractMoveGenerator
     assert (pColonne >= 0) && (pColonne < FILE_COUNT);
     assert (pLigne >= 0) && (pLigne < RANK_COUNT);
 
-    return _pieces[pColonne + pLigne * FILE_COUNT];
+    return Piece.valueOfCode(_pieces[pColonne + pLigne * FILE_COUNT]);
   }
 
   /**
@@ -1016,39 +1069,50 @@ final class MailboxBoard extends AbstractMoveGenerator
     Move [] tmp = new Move [ 45 ];
     int nb = 0;
     int lTmp = tmp.length;
-    for (int i = FILE_COUNT * RANK_COUNT; --i >= 0; /* Pré-décrémenté */)
+    final byte [] cases;
+    final int nbCases;
+    if (pTrait)
+    {
+      cases = _whiteSquares;
+      nbCases = _whiteCount;
+    }
+    else
     {
-      final Piece p = _pieces[i];
-      if ((p != null) && (p.isWhite() == pTrait))
+      cases = _blackSquares;
+      nbCases = _blackCount;
+    }
+    for (int i = 0; i < nbCases; i++)
+    {
+      final int iSrc = cases[i];
+      final Piece p = Piece.valueOfCode(_pieces[iSrc]);
+      assert (p != null) && (p.isWhite() == pTrait);
+      final Square orig = Square.valueOf(iSrc);
+      for (final Square dst : getValidTargets(orig))
       {
-        final Square orig = Square.valueOf(i);
-        for (final Square dst : getValidTargets(orig))
+        final Piece prise;
+        if ((p.getType() != PAWN) || (dst != getEnPassant()))
+        {
+          prise = Piece.valueOfCode(_pieces[dst.getIndex()]);
+        }
+        else
         {
-          final Piece prise;
-          if ((p.getType() != PAWN) || (dst != getEnPassant()))
+          if (pTrait)
           {
-            prise = _pieces[dst.getIndex()];
+            prise = Piece.valueOfCode(_pieces[dst.getIndex() - FILE_COUNT]);
           }
           else
           {
-            if (pTrait)
-            {
-              prise = _pieces[dst.getIndex() - FILE_COUNT];
-            }
-            else
-            {
-              prise = _pieces[dst.getIndex() + FILE_COUNT];
-            }
-          }
-          tmp[nb++] = new Move(p, orig, dst, prise);
-          if (nb >= lTmp)
-          {
-            final Move [] extension = new Move [ lTmp + 15 ];
-            System.arraycopy(tmp, 0, extension, 0, lTmp);
-            tmp = extension;
-            lTmp = tmp.length;
+            prise = Piece.valueOfCode(_pieces[dst.getIndex() + FILE_COUNT]);
           }
         }
+        tmp[nb++] = new Move(p, orig, dst, prise);
+        if (nb >= lTmp)
+        {
+          final Move [] extension = new Move [ lTmp + 15 ];
+          System.arraycopy(tmp, 0, extension, 0, lTmp);
+          tmp = extension;
+          lTmp = tmp.length;
+        }
       }
     }
 
@@ -1069,7 +1133,7 @@ final class MailboxBoard extends AbstractMoveGenerator
     assert pOrigine != null;
 
     final int iSrc = pOrigine.getIndex();
-    final Piece piece = _pieces[iSrc];
+    final Piece piece = Piece.valueOfCode(_pieces[iSrc]);
     if (piece != null)
     {
       synchronized (SQUARES_BUFFER)
@@ -1082,7 +1146,7 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           final int idxCible = SQUARES_BUFFER[t];
           final Square cible = Square.valueOf(idxCible);
-          final Piece prise = _pieces[idxCible];
+          final Piece prise = Piece.valueOfCode(_pieces[idxCible]);
           if (derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
           {
             SQUARES_BUFFER[t] = -1;
@@ -1155,150 +1219,150 @@ final class MailboxBoard extends AbstractMoveGenerator
 
     final int mbSrc = TO_MAILBOX[pCible.getIndex()];
 
-    Piece p = null;
+    int p = NO_CODE;
     int mbDst = mbSrc - 1;
     int dst = MAILBOX[mbDst];
     // Gauche
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       dst = MAILBOX[--mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc + 1;
     dst = MAILBOX[mbDst];
     // Droite
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       dst = MAILBOX[++mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc - 10;
     dst = MAILBOX[mbDst];
     // Bas
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst -= 10;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc + 10;
     dst = MAILBOX[mbDst];
     // Haut
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst += 10;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc - 11;
     dst = MAILBOX[mbDst];
     // Bas / Gauche
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst -= 11;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc + 9;
     dst = MAILBOX[mbDst];
     // Haut / Gauche
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst += 9;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc + 11;
     dst = MAILBOX[mbDst];
     // Haut / Droit
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst += 11;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     mbDst = mbSrc - 9;
     dst = MAILBOX[mbDst];
     // Bas / Droit
-    while ((dst >= 0) && (p == null))
+    while ((dst >= 0) && (p == NO_CODE))
     {
       p = _pieces[dst];
       mbDst -= 9;
       dst = MAILBOX[mbDst];
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
@@ -1312,7 +1376,7 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (dst >= 0)
       {
         p = _pieces[dst];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KNIGHT))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KNIGHT))
         {
           return true;
         }
@@ -1326,7 +1390,7 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (dst >= 0)
       {
         p = _pieces[dst];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KING))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KING))
         {
           return true;
         }
@@ -1340,8 +1404,9 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (ySrc > 1)
       {
         final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[MAILBOX[mbSrc - 11]] == WHITE_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[MAILBOX[mbSrc - 9]] == WHITE_PAWN)))
+        if (((xSrc > 0) && (_pieces[MAILBOX[mbSrc - 11]] == WHITE_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1)
+                && (_pieces[MAILBOX[mbSrc - 9]] == WHITE_PAWN.getCode())))
         {
           return true;
         }
@@ -1353,8 +1418,9 @@ final class MailboxBoard extends AbstractMoveGenerator
       if (ySrc < RANK_COUNT - 2)
       {
         final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[MAILBOX[mbSrc + 9]] == BLACK_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[MAILBOX[mbSrc + 11]] == BLACK_PAWN)))
+        if (((xSrc > 0) && (_pieces[MAILBOX[mbSrc + 9]] == BLACK_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1)
+                && (_pieces[MAILBOX[mbSrc + 11]] == BLACK_PAWN.getCode())))
         {
           return true;
         }
@@ -1374,4 +1440,41 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     return isAttacked(getKingSquare(pCouleur), !pCouleur);
   }
+
+  /**
+   * Retire une case de la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pCase Indice de la case libérée.
+   */
+  private void removeSquare(final boolean pBlanc, final int pCase)
+  {
+    if (pBlanc)
+    {
+      _whiteCount = removeSquare(_whiteSquares, _whiteCount, pCase);
+    }
+    else
+    {
+      _blackCount = removeSquare(_blackSquares, _blackCount, pCase);
+    }
+  }
+
+  /**
+   * Remplace une case par une autre dans la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pOrigine Indice de la case quittée.
+   * @param pDestination Indice de la case nouvellement occupée.
+   */
+  private void replaceSquare(final boolean pBlanc, final int pOrigine, final int pDestination)
+  {
+    if (pBlanc)
+    {
+      replaceSquare(_whiteSquares, _whiteCount, pOrigine, pDestination);
+    }
+    else
+    {
+      replaceSquare(_blackSquares, _blackCount, pOrigine, pDestination);
+    }
+  }
 }
@@ -25,6 +25,12 @@ import java.io.Serializable;
  * <p>
  * Les instances de cette classe sont <b>immuables</b>, donc sûres vis-à-vis des threads.
  * </p>
+ * <p>
+ * Un mouvement peut aussi être manipulé sous la forme de l'entier qui l'identifie (voir
+ * {@link #toId()}), sans allocation d'objet : les méthodes statiques {@link #pieceOf(int)},
+ * {@link #fromOf(int)}, {@link #toOf(int)} et {@link #capturedOf(int)} en extraient les
+ * composantes.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -33,6 +39,9 @@ public final class Move implements Serializable
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = 8372326813848101389L;
 
+  /** Liste des pièces, indexée par ordinal (évite la copie faite par Piece.values()). */
+  private static final Piece [] PIECES = Piece.values();
+
   /** Pièce déplacée. */
   private final Piece _piece;
 
@@ -45,8 +54,8 @@ public final class Move implements Serializable
   /** Eventuelle pièce capturée. */
   private final Piece _captured;
 
-  /** Buffer stockant l'entier identifiant un mouvement. */
-  private Integer _id;
+  /** Buffer stockant l'entier identifiant un mouvement (0 tant qu'il n'est pas calculé). */
+  private transient int _id;
 
   /**
    * Instancie une nouvelle description de mouvement, sans prise.
@@ -176,17 +185,12 @@ public final class Move implements Serializable
    */
   public int toId()
   {
-    if (_id == null)
+    if (_id == 0)
     {
-      int id = (_piece.ordinal() << 20) + (_from.getIndex() << 14) + (_to.getIndex() << 8);
-      if (_captured != null)
-      {
-        id += (_captured.ordinal() + 1) << 4;
-      }
-      _id = Integer.valueOf(id);
+      _id = toId(_piece, _from.getIndex(), _to.getIndex(), _captured);
     }
 
-    return _id.intValue();
+    return _id;
   }
 
   /**
@@ -207,27 +211,88 @@ public final class Move implements Serializable
   }
 
   /**
-   * Renvoi une instance de mouvement correspondant à l'entier identifiant reçu.
+   * Renvoi l'éventuelle pièce capturée par un mouvement identifié par un entier.
    * 
    * @param pId Entier identifiant un mouvement.
-   * @return Instance du mouvement correspondant.
+   * @return Pièce capturée (ou null si aucune).
    */
-  public static Move valueOf(final int pId)
+  public static Piece capturedOf(final int pId)
   {
-    final Piece pce = Piece.values()[(pId >> 20) & 0xF];
-    final Square src = Square.valueOf((pId >> 14) & 0x3F);
-    final Square dst = Square.valueOf((pId >> 8) & 0x3F);
     final int idCpt = (pId >> 4) & 0xF;
-    final Piece cpt;
     if (idCpt <= 0)
     {
-      cpt = null;
+      return null;
     }
-    else
+
+    return PIECES[idCpt - 1];
+  }
+
+  /**
+   * Renvoi l'indice de la case de départ d'un mouvement identifié par un entier.
+   * 
+   * @param pId Entier identifiant un mouvement.
+   * @return Indice de la case de départ.
+   */
+  public static int fromOf(final int pId)
+  {
+    return (pId >> 14) & 0x3F;
+  }
+
+  /**
+   * Renvoi la pièce déplacée par un mouvement identifié par un entier.
+   * 
+   * @param pId Entier identifiant un mouvement.
+   * @return Pièce déplacée.
+   */
+  public static Piece pieceOf(final int pId)
+  {
+    return PIECES[(pId >> 20) & 0xF];
+  }
+
+  /**
+   * Renvoi l'entier identifiant un mouvement, sans instancier celui-ci.
+   * 
+   * @param pPiece Pièce à bouger.
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @param pDestination Indice de la case finale du mouvement.
+   * @param pPrise Pièce prise (ou null si aucune).
+   * @return Entier identifiant le mouvement (jamais nul).
+   */
+  public static int toId(final Piece pPiece, final int pOrigine, final int pDestination,
+      final Piece pPrise)
+  {
+    assert pPiece != null;
+    assert pOrigine != pDestination;
+
+    int res = (pPiece.ordinal() << 20) + (pOrigine << 14) + (pDestination << 8);
+    if (pPrise != null)
     {
-      cpt = Piece.values()[idCpt - 1];
+      res += (pPrise.ordinal() + 1) << 4;
     }
 
-    return new Move(pce, src, dst, cpt);
+    return res;
+  }
+
+  /**
+   * Renvoi l'indice de la case d'arrivée d'un mouvement identifié par un entier.
+   * 
+   * @param pId Entier identifiant un mouvement.
+   * @return Indice de la case d'arrivée.
+   */
+  public static int toOf(final int pId)
+  {
+    return (pId >> 8) & 0x3F;
+  }
+
+  /**
+   * Renvoi une instance de mouvement correspondant à l'entier identifiant reçu.
+   * 
+   * @param pId Entier identifiant un mouvement.
+   * @return Instance du mouvement correspondant.
+   */
+  public static Move valueOf(final int pId)
+  {
+    return new Move(pieceOf(pId), Square.valueOf(fromOf(pId)), Square.valueOf(toOf(pId)),
+        capturedOf(pId));
   }
 }
@@ -124,6 +124,20 @@ public interface MoveGenerator extends Board
    */
   Move [] getValidMoves(final boolean pTrait);
 
+  /**
+   * Range dans un tableau les entiers identifiant tous les mouvements valides pour une couleur (voir
+   * {@link Move#toId()}).
+   * <p>
+   * Contrairement à {@link #getValidMoves(boolean)}, aucun objet n'a besoin d'être alloué : le
+   * tableau peut être réutilisé d'un appel à l'autre.
+   * </p>
+   * 
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pCoups Tableau recevant les mouvements (d'au moins {@link Constants#MAX_MOVES} cases).
+   * @return Nombre de mouvements rangés dans le tableau.
+   */
+  int generateMoves(final boolean pTrait, final int [] pCoups);
+
   /**
    * Renvoi toutes les cases cibles des mouvements valides à partir d'une case.
    * 
@@ -0,0 +1,122 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Version modifiable sur place de la représentation basée sur des cartes binaires.
+ * <p>
+ * Avant chaque mouvement, l'état courant est recopié dans un état de sauvegarde pré-alloué : une
+ * fois la pile de sauvegarde dimensionnée à la profondeur de la recherche, l'application et
+ * l'annulation des mouvements ne provoquent plus aucune allocation.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class MutableBitmapsBoard extends BitmapsBoard implements MutableMoveGenerator
+{
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = 6003520713944383129L;
+
+  /** Taille initiale de la pile de sauvegarde. */
+  private static final int INITIAL_DEPTH = 32;
+
+  /** Pile des états sauvegardés avant chaque mouvement (alimentée à la demande). */
+  private BitmapsBoard [] _undo = new BitmapsBoard [ INITIAL_DEPTH ];
+
+  /** Nombre de mouvements appliqués (et donc d'états sauvegardés). */
+  private int _ply;
+
+  /**
+   * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
+   * 
+   * @param pEtat Instance initial.
+   */
+  MutableBitmapsBoard(final Board pEtat)
+  {
+    super(pEtat);
+  }
+
+  /**
+   * Applique un mouvement sur l'instance, en changeant le trait.
+   * 
+   * @param pMouvement Description du mouvement (valide) à appliquer.
+   */
+  public void makeMove(final Move pMouvement)
+  {
+    assert pMouvement != null;
+
+    makeMove(pMouvement.toId());
+  }
+
+  /**
+   * Applique un mouvement identifié par un entier sur l'instance, en changeant le trait.
+   * 
+   * @param pMouvement Entier identifiant le mouvement (valide) à appliquer.
+   */
+  public void makeMove(final int pMouvement)
+  {
+    save();
+
+    play(pMouvement, true);
+  }
+
+  /**
+   * Passe le trait à l'adversaire sans déplacer de pièce ("coup nul").
+   */
+  public void makeNullMove()
+  {
+    save();
+
+    playNull();
+  }
+
+  /**
+   * Sauvegarde l'état courant sur la pile, avant l'application d'un mouvement.
+   */
+  private void save()
+  {
+    if (_ply >= _undo.length)
+    {
+      final BitmapsBoard [] extension = new BitmapsBoard [ _undo.length * 2 ];
+      System.arraycopy(_undo, 0, extension, 0, _ply);
+      _undo = extension;
+    }
+    final BitmapsBoard sauvegarde = _undo[_ply];
+    if (sauvegarde == null)
+    {
+      _undo[_ply] = new BitmapsBoard(this);
+    }
+    else
+    {
+      sauvegarde.copyFrom(this);
+    }
+    _ply++;
+  }
+
+  /**
+   * Annule le dernier mouvement appliqué par {@link #makeMove(Move)}, {@link #makeMove(int)} ou
+   * {@link #makeNullMove()}.
+   */
+  public void unmakeMove()
+  {
+    assert _ply > 0;
+
+    copyFrom(_undo[--_ply]);
+  }
+}
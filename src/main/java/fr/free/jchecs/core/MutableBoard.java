@@ -20,6 +20,7 @@ package fr.free.jchecs.core;
 
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.NO_CODE;
 
 /**
  * Version modifiable d'une description d'état du jeu.
@@ -36,8 +37,8 @@ final class MutableBoard extends AbstractBoard
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = -3845129626288554731L;
 
-  /** Description du plateau. */
-  private final Piece [][] _pieces = new Piece [ FILE_COUNT ] [ RANK_COUNT ];
+  /** Description du plateau (codes des pièces). */
+  private final byte [][] _pieces = new byte [ FILE_COUNT ] [ RANK_COUNT ];
 
   /**
    * Crée une nouvelle instance de description modifiable d'état de jeu.
@@ -72,7 +73,7 @@ final class MutableBoard extends AbstractBoard
     assert (pColonne >= 0) && (pColonne < FILE_COUNT);
     assert (pLigne >= 0) && (pLigne < RANK_COUNT);
 
-    return _pieces[pColonne][pLigne];
+    return Piece.valueOfCode(_pieces[pColonne][pLigne]);
   }
 
   /**
@@ -85,6 +86,13 @@ final class MutableBoard extends AbstractBoard
   {
     assert pCase != null;
 
-    _pieces[pCase.getFile()][pCase.getRank()] = pPiece;
+    if (pPiece == null)
+    {
+      _pieces[pCase.getFile()][pCase.getRank()] = NO_CODE;
+    }
+    else
+    {
+      _pieces[pCase.getFile()][pCase.getRank()] = pPiece.getCode();
+    }
   }
 }
@@ -0,0 +1,61 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Interface mise à disposition par les générateurs de mouvements modifiables sur place.
+ * <p>
+ * Contrairement aux autres descriptions d'état, les instances de cette interface ne sont pas
+ * immuables : un mouvement est appliqué directement sur l'instance, puis annulé à l'aide d'une pile
+ * interne, sans allocation d'un nouvel état. Elles sont destinées à un usage privé (par exemple le
+ * parcours de l'arbre de recherche d'un moteur) et ne doivent ni être partagées entre threads, ni
+ * être utilisées comme clés de tables de hachage.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public interface MutableMoveGenerator extends MoveGenerator
+{
+  /**
+   * Applique un mouvement sur l'instance, en changeant le trait.
+   * 
+   * @param pMouvement Description du mouvement (valide) à appliquer.
+   */
+  void makeMove(final Move pMouvement);
+
+  /**
+   * Applique un mouvement identifié par un entier (voir {@link Move#toId()}) sur l'instance, en
+   * changeant le trait.
+   * 
+   * @param pMouvement Entier identifiant le mouvement (valide) à appliquer.
+   */
+  void makeMove(final int pMouvement);
+
+  /**
+   * Passe le trait à l'adversaire sans déplacer de pièce ("coup nul", utilisé par les moteurs pour
+   * élaguer l'arbre de recherche). Une éventuelle prise "en passant" possible est perdue.
+   */
+  void makeNullMove();
+
+  /**
+   * Annule le dernier mouvement appliqué par {@link #makeMove(Move)}, {@link #makeMove(int)} ou
+   * {@link #makeNullMove()}.
+   */
+  void unmakeMove();
+}
@@ -0,0 +1,405 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+import static fr.free.jchecs.core.Constants.MAX_MOVES;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Outil de comptage exhaustif des positions atteignables ("perft"), servant à valider et à mesurer
+ * les générateurs de mouvements.
+ * <p>
+ * Sans paramètre, la classe parcourt les positions de référence pour chaque représentation et
+ * s'arrête en erreur (code de sortie 1) au premier résultat inattendu. Avec des paramètres
+ * (<code>profondeur [type [threads [FEN]]]</code>), elle détaille le nombre de positions obtenues
+ * sous chaque demi-coup initial ("divide").
+ * </p>
+ * <p>
+ * Les mouvements de jChecs ne portant pas la pièce choisie lors d'une promotion (toujours une
+ * dame), les valeurs attendues ne coïncident avec les tables publiées qu'en l'absence de promotion
+ * dans l'arbre parcouru.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class Perft
+{
+  /**
+   * Classe utilitaire : ne pas instancier.
+   */
+  private Perft()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Détaille, pour chaque demi-coup initial valide, le nombre de positions atteintes à une
+   * profondeur donnée.
+   * <p>
+   * Les sous-arbres sont répartis entre plusieurs threads si demandé.
+   * </p>
+   * 
+   * @param pEtat Etat de départ.
+   * @param pProfondeur Profondeur du comptage (au moins 1).
+   * @param pThreads Nombre de threads à utiliser (au moins 1).
+   * @return Nombres de positions, par demi-coup initial (dans l'ordre de génération).
+   */
+  public static Map<Move, Long> divide(final MoveGenerator pEtat, final int pProfondeur,
+      final int pThreads)
+  {
+    assert pEtat != null;
+    assert pProfondeur > 0;
+    assert pThreads > 0;
+
+    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
+    final Map<Move, Long> res = new LinkedHashMap<Move, Long>();
+    final ExecutorService executeur = Executors.newFixedThreadPool(pThreads);
+    try
+    {
+      final List<Future<Long>> resultats = new ArrayList<Future<Long>>(coups.length);
+      for (final Move mvt : coups)
+      {
+        resultats.add(executeur.submit(new Callable<Long>()
+        {
+          public Long call()
+          {
+            return Long.valueOf(perft(pEtat.derive(mvt, true), pProfondeur - 1));
+          }
+        }));
+      }
+      for (int i = 0; i < coups.length; i++)
+      {
+        res.put(coups[i], resultats.get(i).get());
+      }
+    }
+    catch (final InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    catch (final ExecutionException e)
+    {
+      throw new IllegalStateException(e.getCause());
+    }
+    finally
+    {
+      executeur.shutdownNow();
+    }
+
+    return res;
+  }
+
+  /**
+   * Point d'entrée de l'outil.
+   * 
+   * @param pArgs Arguments de la ligne de commande : aucun pour vérifier les positions de
+   *          référence, ou <code>profondeur [type [threads [FEN]]]</code> pour un "divide".
+   * @throws FENException si la chaîne FEN fournie est invalide.
+   */
+  public static void main(final String [] pArgs) throws FENException
+  {
+    if (pArgs.length == 0)
+    {
+      if (!runSuite())
+      {
+        System.exit(1);
+      }
+      return;
+    }
+
+    final int profondeur = Integer.parseInt(pArgs[0]);
+    BoardFactory.Type type = FASTEST;
+    if (pArgs.length > 1)
+    {
+      type = BoardFactory.Type.valueOf(pArgs[1]);
+    }
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (pArgs.length > 2)
+    {
+      threads = Integer.parseInt(pArgs[2]);
+    }
+    String fen = FENUtils.STANDART_STARTING_FEN;
+    if (pArgs.length > 3)
+    {
+      final StringBuilder sb = new StringBuilder(pArgs[3]);
+      for (int i = 4; i < pArgs.length; i++)
+      {
+        sb.append(' ').append(pArgs[i]);
+      }
+      fen = sb.toString();
+    }
+
+    final MoveGenerator etat = valueOf(type, fen);
+    final long debut = System.nanoTime();
+    long total = 0;
+    for (final Map.Entry<Move, Long> e : divide(etat, profondeur, threads).entrySet())
+    {
+      final Move mvt = e.getKey();
+      System.out.println("  " + mvt.getFrom().getFENString() + mvt.getTo().getFENString() + " = "
+          + e.getValue());
+      total += e.getValue().longValue();
+    }
+    final long duree = System.nanoTime() - debut;
+    System.out.println("Perft(" + profondeur + ") " + etat.getClass().getSimpleName() + " = "
+        + total + " (" + duree / 1000000 + "ms, " + nodesPerSecond(total, duree) + " n/s)");
+  }
+
+  /**
+   * Calcule le débit d'un comptage.
+   * 
+   * @param pPositions Nombre de positions comptées.
+   * @param pDuree Durée du comptage (en nanosecondes).
+   * @return Nombre de positions par seconde.
+   */
+  private static long nodesPerSecond(final long pPositions, final long pDuree)
+  {
+    return (pPositions * 1000000000L) / Math.max(1, pDuree);
+  }
+
+  /**
+   * Compte le nombre de positions atteignables à une profondeur donnée.
+   * <p>
+   * Les représentations modifiables sur place (voir {@link BoardFactory#toMutable(Board)}) sont
+   * parcourues sans allocation de mouvements, les autres à l'aide de
+   * {@link MoveGenerator#derive(Move, boolean)}.
+   * </p>
+   * 
+   * @param pEtat Etat de départ.
+   * @param pProfondeur Profondeur du comptage (0 pour compter la position elle-même).
+   * @return Nombre de positions atteintes.
+   */
+  public static long perft(final MoveGenerator pEtat, final int pProfondeur)
+  {
+    assert pEtat != null;
+    assert pProfondeur >= 0;
+
+    if (pProfondeur == 0)
+    {
+      return 1;
+    }
+
+    if (pEtat instanceof BitmapsBoard)
+    {
+      final MutableMoveGenerator etat = BoardFactory.toMutable(pEtat);
+      return perft(etat, new int [ pProfondeur ] [ MAX_MOVES ], pProfondeur);
+    }
+
+    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
+    if (pProfondeur == 1)
+    {
+      return coups.length;
+    }
+
+    long res = 0;
+    for (final Move mvt : coups)
+    {
+      res += perft(pEtat.derive(mvt, true), pProfondeur - 1);
+    }
+
+    return res;
+  }
+
+  /**
+   * Compte le nombre de positions atteignables à une profondeur donnée, sur une instance
+   * modifiable.
+   * 
+   * @param pEtat Etat de départ, restauré à la fin du comptage.
+   * @param pCoups Tampons de mouvements, un par niveau.
+   * @param pProfondeur Profondeur du comptage (au moins 1).
+   * @return Nombre de positions atteintes.
+   */
+  private static long perft(final MutableMoveGenerator pEtat, final int [][] pCoups,
+      final int pProfondeur)
+  {
+    final int [] coups = pCoups[pProfondeur - 1];
+    final int l = pEtat.generateMoves(pEtat.isWhiteActive(), coups);
+    if (pProfondeur == 1)
+    {
+      return l;
+    }
+
+    long res = 0;
+    for (int i = 0; i < l; i++)
+    {
+      pEtat.makeMove(coups[i]);
+      res += perft(pEtat, pCoups, pProfondeur - 1);
+      pEtat.unmakeMove();
+    }
+
+    return res;
+  }
+
+  /**
+   * Vérifie les positions de référence, pour chaque représentation disponible.
+   * 
+   * @return Vrai si tous les comptages sont conformes.
+   * @throws FENException en cas d'erreur dans une position de référence.
+   */
+  private static boolean runSuite() throws FENException
+  {
+    final int threads = Runtime.getRuntime().availableProcessors();
+    boolean res = true;
+    for (final Position p : Position.values())
+    {
+      final int profondeur = p.getBenchDepth();
+      final long attendu = p.getExpectedNodes(profondeur);
+      System.out.println("Perft(" + profondeur + ") " + p + " : " + attendu);
+      for (final BoardFactory.Type t : BoardFactory.Type.values())
+      {
+        if (t == FASTEST)
+        {
+          continue;
+        }
+        final MoveGenerator etat = valueOf(t, p.getFEN());
+        final long debut = System.nanoTime();
+        long total = 0;
+        for (final Long n : divide(etat, profondeur, threads).values())
+        {
+          total += n.longValue();
+        }
+        final long duree = System.nanoTime() - debut;
+        final StringBuilder sb = new StringBuilder("  ");
+        sb.append(etat.getClass().getSimpleName()).append(" = ").append(duree / 1000000);
+        sb.append("ms (").append(nodesPerSecond(total, duree)).append(" n/s)");
+        if (total != attendu)
+        {
+          sb.append(" ERREUR : ").append(total);
+          res = false;
+        }
+        System.out.println(sb);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi une instance d'une représentation donnée, initialisée à partir d'une chaîne FEN.
+   * 
+   * @param pType Type de représentation souhaité.
+   * @param pFEN Chaîne FEN décrivant la position.
+   * @return Instance correspondante.
+   * @throws FENException en cas d'erreur dans la chaîne FEN.
+   */
+  public static MoveGenerator valueOf(final BoardFactory.Type pType, final String pFEN)
+    throws FENException
+  {
+    assert pType != null;
+    assert pFEN != null;
+
+    return BoardFactory.valueOf(pType, BoardFactory.State.EMPTY).derive(FENUtils.toBoard(pFEN));
+  }
+
+  /** Enumération des positions de référence. */
+  public static enum Position
+  {
+    /** Position initiale standard. */
+    STARTING(FENUtils.STANDART_STARTING_FEN, 4, 20, 400, 8902, 197281, 4865609),
+
+    /** Position "Kiwipete" : roques, prises en passant et clouages en milieu de partie. */
+    KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 48, 2039,
+        97862),
+
+    /** Finale de tours et pions, riche en prises en passant et en échecs découverts. */
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4, 14, 191, 2812, 43238, 674624),
+
+    /** Position riche en promotions (comptages propres à la promotion systématique en dame). */
+    PROMOTIONS("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 3, 6, 228,
+        8087);
+
+    /** Chaîne FEN de la position. */
+    private final String _fen;
+
+    /** Profondeur utilisée pour la vérification de toutes les représentations. */
+    private final int _benchDepth;
+
+    /** Nombres de positions attendus, pour les profondeurs 1, 2, ... */
+    private final long [] _expected;
+
+    /**
+     * Instancie une position de référence.
+     * 
+     * @param pFEN Chaîne FEN de la position.
+     * @param pProfondeur Profondeur de vérification de toutes les représentations.
+     * @param pAttendus Nombres de positions attendus, pour les profondeurs 1, 2, ...
+     */
+    private Position(final String pFEN, final int pProfondeur, final long... pAttendus)
+    {
+      assert pFEN != null;
+      assert (pProfondeur > 0) && (pProfondeur <= pAttendus.length);
+
+      _fen = pFEN;
+      _benchDepth = pProfondeur;
+      _expected = pAttendus;
+    }
+
+    /**
+     * Renvoi la profondeur de vérification de toutes les représentations.
+     * 
+     * @return Profondeur de vérification.
+     */
+    public int getBenchDepth()
+    {
+      return _benchDepth;
+    }
+
+    /**
+     * Renvoi le nombre de positions attendu à une profondeur.
+     * 
+     * @param pProfondeur Profondeur (de 1 à {@link #getMaxDepth()}).
+     * @return Nombre de positions attendu.
+     */
+    public long getExpectedNodes(final int pProfondeur)
+    {
+      assert (pProfondeur > 0) && (pProfondeur <= _expected.length);
+
+      return _expected[pProfondeur - 1];
+    }
+
+    /**
+     * Renvoi la chaîne FEN de la position.
+     * 
+     * @return Chaîne FEN.
+     */
+    public String getFEN()
+    {
+      return _fen;
+    }
+
+    /**
+     * Renvoi la profondeur maximale pour laquelle le nombre de positions est connu.
+     * 
+     * @return Profondeur maximale.
+     */
+    public int getMaxDepth()
+    {
+      return _expected.length;
+    }
+  }
+}
@@ -34,6 +34,11 @@ import java.util.Map;
  * Les instances de cette classe sont des <b>singletons immuables</b> : classe sûre vis-à-vis des
  * threads et permettant des comparaisons directes sur les références d'objets.
  * </p>
+ * <p>
+ * Pour les représentations compactes de l'échiquier, chaque pièce est aussi identifiée par un code
+ * sur un octet : un bit de couleur ({@link #WHITE_CODE}) combiné au type de la pièce, la valeur 0
+ * désignant une case vide.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -75,6 +80,18 @@ public enum Piece
   /** Tour blanche. */
   WHITE_ROOK('R', true, ROOK);
 
+  /** Code d'une case vide. */
+  static final byte NO_CODE = 0;
+
+  /** Masque isolant le type de la pièce dans un code. */
+  static final int TYPE_CODE_MASK = 0x7;
+
+  /** Bit marquant les pièces blanches dans un code. */
+  static final int WHITE_CODE = 0x8;
+
+  /** Transpositions codes / pièces. */
+  private static final Piece [] CODE_TO_PIECE = new Piece [ WHITE_CODE * 2 ];
+
   /** Transpositions lettres FEN / pièces. */
   private static final Map<Character, Piece> FEN_TO_PIECE = new HashMap<Character, Piece>();
   static
@@ -82,9 +99,13 @@ public enum Piece
     for (final Piece p : values())
     {
       FEN_TO_PIECE.put(Character.valueOf(p.getFENLetter()), p);
+      CODE_TO_PIECE[p.getCode()] = p;
     }
   }
 
+  /** Code de la pièce sur un octet. */
+  private final byte _code;
+
   /** Caractère identifiant la pièce en notation FEN. */
   private final char _fenLetter;
 
@@ -108,6 +129,17 @@ public enum Piece
     _fenLetter = pLettre;
     _white = pBlanc;
     _type = pType;
+    _code = (byte) ((pBlanc ? WHITE_CODE : 0) | typeCodeOf(pType));
+  }
+
+  /**
+   * Renvoi le code, sur un octet, identifiant la pièce.
+   * 
+   * @return Code de la pièce (jamais égal à {@link #NO_CODE}).
+   */
+  byte getCode()
+  {
+    return _code;
   }
 
   /**
@@ -141,6 +173,45 @@ public enum Piece
     return _white;
   }
 
+  /**
+   * Indique si le code d'une pièce désigne une pièce blanche.
+   * 
+   * @param pCode Code d'une pièce (différent de {@link #NO_CODE}).
+   * @return Vrai si la pièce est blanche.
+   */
+  static boolean isWhite(final int pCode)
+  {
+    assert pCode != NO_CODE;
+
+    return (pCode & WHITE_CODE) != 0;
+  }
+
+  /**
+   * Renvoi le type de la pièce désignée par un code.
+   * 
+   * @param pCode Code d'une pièce (différent de {@link #NO_CODE}).
+   * @return Type de la pièce.
+   */
+  static PieceType typeOf(final int pCode)
+  {
+    assert pCode != NO_CODE;
+
+    return CODE_TO_PIECE[pCode].getType();
+  }
+
+  /**
+   * Renvoi le code identifiant, dans le code d'une pièce, un type de pièce.
+   * 
+   * @param pType Type de pièce.
+   * @return Code du type (entre 1 et {@link #TYPE_CODE_MASK}).
+   */
+  static int typeCodeOf(final PieceType pType)
+  {
+    assert pType != null;
+
+    return pType.ordinal() + 1;
+  }
+
   /**
    * Renvoi l'instance de pièce correspond à un caractère FEN.
    * 
@@ -151,4 +222,15 @@ public enum Piece
   {
     return FEN_TO_PIECE.get(Character.valueOf(pLettre));
   }
+
+  /**
+   * Renvoi l'instance de pièce correspondant à un code.
+   * 
+   * @param pCode Code de la pièce.
+   * @return Pièce correspondante (ou null pour {@link #NO_CODE}).
+   */
+  static Piece valueOfCode(final int pCode)
+  {
+    return CODE_TO_PIECE[pCode];
+  }
 }
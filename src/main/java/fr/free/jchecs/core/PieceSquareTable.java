@@ -0,0 +1,281 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+
+/**
+ * Enumération des tables de valeurs des pièces en fonction de leur position ("piece-square
+ * tables"), utilisées par les fonctions d'évaluation.
+ * <p>
+ * La valeur d'une pièce sur une case combine son matériel ({@link PieceType#getValue()}) et un
+ * bonus/malus de position. Les tables sont définies pour les blancs et appliquées aux noirs par
+ * symétrie horizontale. La somme de ces valeurs sur l'ensemble du plateau (voir
+ * {@link Board#getPieceSquareScore(PieceSquareTable)}) est maintenue de façon incrémentale par les
+ * implémentations les plus rapides.
+ * </p>
+ * <p>
+ * Les instances de cette classe sont des <b>singletons immuables</b> : classe sûre vis-à-vis des
+ * threads.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public enum PieceSquareTable
+{
+  /** Tables de la fonction d'évaluation basée sur le contrôle du plateau. */
+  BOARD_CONTROL(Positions.CONTROL_PAWN, Positions.CONTROL_KNIGHT, Positions.CONTROL_DEFAULT,
+      Positions.CONTROL_DEFAULT, Positions.CONTROL_DEFAULT, Positions.NONE),
+
+  /**
+   * Tables de la fonction d'évaluation basée sur la mobilité (hors position du roi, qui dépend de
+   * l'avancement de la partie).
+   */
+  MOBILITY(Positions.MOBILITY_PAWN, Positions.MOBILITY_KNIGHT, Positions.MOBILITY_BISHOP,
+      Positions.MOBILITY_ROOK, Positions.MOBILITY_QUEEN, Positions.NONE),
+
+  /**
+   * Tables de la fonction d'évaluation basée sur la mobilité, en début de partie : une reine ayant
+   * quitté sa case initiale y est pénalisée.
+   */
+  MOBILITY_OPENING(Positions.MOBILITY_PAWN, Positions.MOBILITY_KNIGHT, Positions.MOBILITY_BISHOP,
+      Positions.MOBILITY_ROOK, Positions.MOBILITY_OPENING_QUEEN, Positions.NONE);
+
+  /** Valeurs signées (positives pour les blancs), indexées par ordinal de pièce et par case. */
+  private final int [][] _values = new int [ Piece.values().length ] [ FILE_COUNT * RANK_COUNT ];
+
+  /**
+   * Instancie une nouvelle table à partir des bonus/malus de position des pièces blanches.
+   * 
+   * @param pPion Bonus/Malus d'un pion.
+   * @param pCavalier Bonus/Malus d'un cavalier.
+   * @param pFou Bonus/Malus d'un fou.
+   * @param pTour Bonus/Malus d'une tour.
+   * @param pReine Bonus/Malus d'une reine.
+   * @param pRoi Bonus/Malus d'un roi.
+   */
+  private PieceSquareTable(final int [] pPion, final int [] pCavalier, final int [] pFou,
+      final int [] pTour, final int [] pReine, final int [] pRoi)
+  {
+    for (final Piece p : Piece.values())
+    {
+      final int [] positions;
+      switch (p.getType())
+      {
+        case BISHOP :
+          positions = pFou;
+          break;
+        case KING :
+          positions = pRoi;
+          break;
+        case KNIGHT :
+          positions = pCavalier;
+          break;
+        case PAWN :
+          positions = pPion;
+          break;
+        case QUEEN :
+          positions = pReine;
+          break;
+        case ROOK :
+          positions = pTour;
+          break;
+        default :
+          assert false;
+          positions = Positions.NONE;
+      }
+      assert positions.length == FILE_COUNT * RANK_COUNT;
+      final int [] valeurs = _values[p.ordinal()];
+      final int mat = p.getType().getValue();
+      for (int i = valeurs.length; --i >= 0; /* Pré-décrémenté */)
+      {
+        if (p.isWhite())
+        {
+          valeurs[i] = mat + positions[i];
+        }
+        else
+        {
+          valeurs[i] =
+              -(mat + positions[((RANK_COUNT - 1) - i / FILE_COUNT) * FILE_COUNT + i % FILE_COUNT]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Renvoi la valeur d'une pièce sur une case (matériel et bonus/malus de position), du point de
+   * vue de sa propre couleur.
+   * 
+   * @param pPiece Pièce.
+   * @param pCase Case occupée par la pièce.
+   * @return Valeur de la pièce sur la case.
+   */
+  public int getValue(final Piece pPiece, final Square pCase)
+  {
+    assert pPiece != null;
+    assert pCase != null;
+
+    final int res = _values[pPiece.ordinal()][pCase.getIndex()];
+    if (pPiece.isWhite())
+    {
+      return res;
+    }
+
+    return -res;
+  }
+
+  /**
+   * Renvoi la valeur signée (positive pour les blancs, négative pour les noirs) d'une pièce sur une
+   * case.
+   * 
+   * @param pOrdinal Ordinal de la pièce.
+   * @param pIndice Indice de la case.
+   * @return Valeur signée de la pièce sur la case.
+   */
+  int valueOf(final int pOrdinal, final int pIndice)
+  {
+    return _values[pOrdinal][pIndice];
+  }
+
+  /**
+   * Bonus/Malus de position des pièces blanches, regroupés hors de l'énumération pour pouvoir être
+   * référencés par ses constantes.
+   */
+  private static final class Positions
+  {
+    /** Bonus/Malus de base du contrôle du plateau (symétrique : adapté aux deux couleurs). */
+    static final int [] CONTROL_DEFAULT = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      0, 0, 0, 5, 5, 0, 0, 0, // a2 ... h2
+      0, 0, 5, 5, 5, 5, 0, 0, // a3 ... h3
+      0, 5, 5, 10, 10, 5, 5, 0, // a4 ... h4
+      0, 5, 5, 10, 10, 5, 5, 0, // a5 ... h5
+      0, 0, 5, 5, 5, 5, 0, 0, // a6 ... h6
+      0, 0, 0, 5, 5, 0, 0, 0, // a7 ... h7
+      0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'un cavalier pour le contrôle du plateau. */
+    static final int [] CONTROL_KNIGHT = { -50, -30, -30, -30, -30, -30, -30, -50, // a1 ... h1
+      -30, -20, -20, -20, -20, -20, -20, -30, // a2 ... h2
+      -20, 0, 20, 20, 20, 20, 0, -20, // a3 ... h3
+      -20, 0, 20, 20, 20, 20, 0, -20, // a4 ... h4
+      -20, 0, 10, 20, 20, 10, 0, -20, // a5 ... h5
+      -20, 0, 10, 10, 10, 10, 0, -20, // a6 ... h6
+      -20, -10, 0, 0, 0, 0, -10, -20, // a7 ... h7
+      -40, -20, -20, -20, -20, -20, -20, -40, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'un pion pour le contrôle du plateau. */
+    static final int [] CONTROL_PAWN = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      2, 2, 2, -2, -2, 2, 2, 2, // a2 ... h2
+      -2, -2, -2, 4, 4, -2, -2, -2, // a3 ... h3
+      0, 0, 0, 4, 4, 0, 0, 0, // a4 ... h4
+      2, 4, 6, 8, 8, 6, 4, 2, // a5 ... h5
+      4, 6, 8, 10, 10, 8, 6, 4, // a6 ... h6
+      4, 6, 8, 10, 10, 8, 6, 4, // a7 ... h7
+      500, 500, 500, 500, 500, 500, 500, 500, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'un fou pour la mobilité. */
+    static final int [] MOBILITY_BISHOP = { -5, -5, -5, -5, -5, -5, -5, -5, // a1 ... h1
+      -5, 10, 5, 10, 10, 5, 10, -5, // a2 ... h2
+      -5, 5, 3, 12, 12, 3, 5, -5, // a3 ... h3
+      -5, 3, 12, 3, 3, 12, 3, -5, // a4 ... h4
+      -5, 3, 12, 3, 3, 12, 3, -5, // a5 ... h5
+      -5, 5, 3, 12, 12, 3, 5, -5, // a6 ... h6
+      -5, 10, 5, 10, 10, 5, 10, -5, // a7 ... h7
+      -5, -5, -5, -5, -5, -5, -5, -5, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'un cavalier pour la mobilité. */
+    static final int [] MOBILITY_KNIGHT = { -10, -5, -3, -1, -1, -3, -5, -10, // a1 ... h1
+      -5, 0, 0, 3, 3, 0, 0, -5, // a2 ... h2
+      -3, 0, 5, 5, 5, 5, 0, -3, // a3 ... h3
+      -1, 1, 5, 10, 10, 5, 1, -1, // a4 ... h4
+      -1, 1, 7, 12, 12, 7, 1, -1, // a5 ... h5
+      -3, 0, 5, 7, 7, 5, 0, -3, // a6 ... h6
+      -5, 0, 0, 3, 3, 0, 0, -5, // a7 ... h7
+      -10, -5, -3, -1, -1, -3, -5, -10, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'un pion pour la mobilité. */
+    static final int [] MOBILITY_PAWN = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      0, 0, 0, -5, -5, 0, 0, 0, // a2 ... h2
+      1, 2, 4, 4, 4, 3, 2, 1, // a3 ... h3
+      2, 4, 7, 8, 8, 6, 4, 2, // a4 ... h4
+      3, 6, 11, 12, 12, 9, 6, 3, // a5 ... h5
+      4, 8, 12, 16, 16, 12, 8, 4, // a6 ... h6
+      5, 10, 15, 20, 20, 15, 10, 5, // a7 ... h7
+      100, 100, 100, 100, 100, 100, 100, 100, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'une reine pour la mobilité. */
+    static final int [] MOBILITY_QUEEN = { -5, -5, -5, 0, 0, -5, -5, -5, // a1 ... h1
+      0, 0, 3, 3, 3, 0, 0, 0, // a2 ... h2
+      0, 3, 3, 3, 3, 0, 0, 0, // a3 ... h3
+      0, 0, 0, 5, 5, 0, 0, 0, // a4 ... h4
+      0, 0, 0, 5, 5, 0, 0, 0, // a5 ... h5
+      -5, -5, 0, 0, 0, 0, 0, 0, // a6 ... h6
+      -5, -5, 0, 0, 0, 0, 0, 0, // a7 ... h7
+      -5, -5, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+
+    /** Bonus/Malus d'une reine pour la mobilité en début de partie. */
+    static final int [] MOBILITY_OPENING_QUEEN = new int [ FILE_COUNT * RANK_COUNT ];
+
+    /** Bonus/Malus d'une tour pour la mobilité. */
+    static final int [] MOBILITY_ROOK = { 0, 0, 0, 5, 5, 0, 0, 0, // a1 ... h1
+      -2, 0, 0, 0, 0, 0, 0, -2, // a2 ... h2
+      -2, 0, 0, 0, 0, 0, 0, -2, // a3 ... h3
+      -2, 0, 0, 0, 0, 0, 0, -2, // a4 ... h4
+      -2, 0, 0, 0, 0, 0, 0, -2, // a5 ... h5
+      -2, 0, 0, 0, 0, 0, 0, -2, // a6 ... h6
+      10, 10, 10, 10, 10, 10, 10, 10, // a7 ... h7
+      0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+
+    /** Absence de bonus/malus. */
+    static final int [] NONE = new int [ FILE_COUNT * RANK_COUNT ];
+
+    static
+    {
+      for (int i = MOBILITY_QUEEN.length; --i >= 0; /* Pré-décrémenté */)
+      {
+        // Essayer d'éviter de déplacer la reine trop tôt...
+        if (i == Square.valueOf("d1").getIndex())
+        {
+          MOBILITY_OPENING_QUEEN[i] = MOBILITY_QUEEN[i];
+        }
+        else
+        {
+          MOBILITY_OPENING_QUEEN[i] = MOBILITY_QUEEN[i] - 30;
+        }
+      }
+    }
+
+    /**
+     * Classe utilitaire : ne pas instancier.
+     */
+    private Positions()
+    {
+      // Rien de spécifique...
+    }
+  }
+}
@@ -20,10 +20,13 @@ package fr.free.jchecs.core;
 
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.NO_CODE;
 import static fr.free.jchecs.core.Piece.BLACK_PAWN;
 import static fr.free.jchecs.core.Piece.BLACK_QUEEN;
 import static fr.free.jchecs.core.Piece.WHITE_PAWN;
 import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
+import static fr.free.jchecs.core.Piece.isWhite;
+import static fr.free.jchecs.core.Piece.typeOf;
 import static fr.free.jchecs.core.PieceType.BISHOP;
 import static fr.free.jchecs.core.PieceType.KING;
 import static fr.free.jchecs.core.PieceType.KNIGHT;
@@ -38,6 +41,11 @@ import static fr.free.jchecs.core.PieceType.ROOK;
  * Cette représentation est plus performante que la représentation naturelle avec un tableau à deux
  * dimensions, tout en restant moins complexe que les BitBoards.
  * </p>
+ * <p>
+ * Les cases contiennent les codes des pièces (voir {@link Piece#getCode()}) et une liste des cases
+ * occupées est tenue à jour pour chaque couleur : les instances de {@link Piece} ne sont
+ * matérialisées qu'aux frontières de l'API.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -80,12 +88,27 @@ final class X88Board extends AbstractMoveGenerator
   // 27 est le nombre maximum de cases cibles pour une pièce (une dame, dans le meilleur des cas).
   private static final int [] SQUARES_BUFFER = new int [ 27 ];
 
-  /** Description du plateau. */
-  private final Piece [] _pieces = new Piece [ FILE_COUNT * RANK_COUNT * 2 - FILE_COUNT ];
+  /** Liste des cases (indices x88) occupées par les pièces noires. */
+  private final byte [] _blackSquares;
+
+  /** Nombre de pièces noires. */
+  private int _blackCount;
+
+  /** Description du plateau (codes des pièces). */
+  private final byte [] _pieces = new byte [ FILE_COUNT * RANK_COUNT * 2 - FILE_COUNT ];
+
+  /** Liste des cases (indices x88) occupées par les pièces blanches. */
+  private final byte [] _whiteSquares;
+
+  /** Nombre de pièces blanches. */
+  private int _whiteCount;
 
   /** Clé de hachage. */
   private int _hashCode;
 
+  /** Clé de hachage "Zobrist" sur 64 bits. */
+  private long _zobristKey;
+
   /**
    * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
    * 
@@ -95,11 +118,32 @@ final class X88Board extends AbstractMoveGenerator
   {
     super(pEtat);
 
+    final byte [] blancs = new byte [ FILE_COUNT * RANK_COUNT ];
+    final byte [] noirs = new byte [ FILE_COUNT * RANK_COUNT ];
     for (final Square s : Square.values())
     {
-      _pieces[s.getRank() * 16 + s.getFile()] = pEtat.getPieceAt(s);
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        final int i88 = s.getRank() * 16 + s.getFile();
+        _pieces[i88] = p.getCode();
+        if (p.isWhite())
+        {
+          blancs[_whiteCount++] = (byte) i88;
+        }
+        else
+        {
+          noirs[_blackCount++] = (byte) i88;
+        }
+      }
     }
+    // Les promotions remplaçant un pion, le nombre de pièces d'une couleur ne peut que diminuer...
+    _whiteSquares = new byte [ _whiteCount ];
+    System.arraycopy(blancs, 0, _whiteSquares, 0, _whiteCount);
+    _blackSquares = new byte [ _blackCount ];
+    System.arraycopy(noirs, 0, _blackSquares, 0, _blackCount);
     _hashCode = super.hashCode();
+    _zobristKey = super.getZobristKey();
   }
 
   /**
@@ -112,7 +156,12 @@ final class X88Board extends AbstractMoveGenerator
     super(pEtat);
 
     System.arraycopy(pEtat._pieces, 0, _pieces, 0, _pieces.length);
+    _blackSquares = pEtat._blackSquares.clone();
+    _blackCount = pEtat._blackCount;
+    _whiteSquares = pEtat._whiteSquares.clone();
+    _whiteCount = pEtat._whiteCount;
     _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
   }
 
   /**
@@ -125,11 +174,11 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert (pOrigine & X88) == 0;
 
-    final Piece piece = _pieces[pOrigine];
-    if (piece != null)
+    final int piece = _pieces[pOrigine];
+    if (piece != NO_CODE)
     {
-      final boolean trait = piece.isWhite();
-      switch (piece.getType())
+      final boolean trait = isWhite(piece);
+      switch (typeOf(piece))
       {
         case BISHOP :
           addBishopTargets(pOrigine, trait);
@@ -171,14 +220,14 @@ final class X88Board extends AbstractMoveGenerator
     int dst = pOrigine + 15;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -191,14 +240,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine + 17;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -211,14 +260,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine - 17;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -231,14 +280,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine - 15;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -265,8 +314,8 @@ final class X88Board extends AbstractMoveGenerator
       final int dst = pOrigine + km;
       if ((dst & X88) == 0)
       {
-        final Piece p = _pieces[dst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[dst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
           testerRoque = true;
@@ -275,20 +324,20 @@ final class X88Board extends AbstractMoveGenerator
     }
     if (testerRoque && ((pOrigine & 0xF) == 4))
     {
-      if (canCastleShort(pBlanc) && (_pieces[pOrigine + 1] == null)
-          && (_pieces[pOrigine + 2] == null))
+      if (canCastleShort(pBlanc) && (_pieces[pOrigine + 1] == NO_CODE)
+          && (_pieces[pOrigine + 2] == NO_CODE))
       {
-        final Piece t = _pieces[pOrigine + 3];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[pOrigine + 3];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 2;
         }
       }
-      if (canCastleLong(pBlanc) && (_pieces[pOrigine - 1] == null)
-          && (_pieces[pOrigine - 2] == null) && (_pieces[pOrigine - 3] == null))
+      if (canCastleLong(pBlanc) && (_pieces[pOrigine - 1] == NO_CODE)
+          && (_pieces[pOrigine - 2] == NO_CODE) && (_pieces[pOrigine - 3] == NO_CODE))
       {
-        final Piece t = _pieces[pOrigine - 4];
-        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        final int t = _pieces[pOrigine - 4];
+        if ((t != NO_CODE) && (typeOf(t) == ROOK) && (isWhite(t) == pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 2;
         }
@@ -312,8 +361,8 @@ final class X88Board extends AbstractMoveGenerator
       final int dst = pOrigine + km;
       if ((dst & X88) == 0)
       {
-        final Piece p = _pieces[dst];
-        if ((p == null) || (p.isWhite() != pBlanc))
+        final int p = _pieces[dst];
+        if ((p == NO_CODE) || (isWhite(p) != pBlanc))
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -338,11 +387,11 @@ final class X88Board extends AbstractMoveGenerator
       if (ySrc < RANK_COUNT - 1)
       {
         // Mouvement de 1...
-        if (_pieces[pOrigine + 16] == null)
+        if (_pieces[pOrigine + 16] == NO_CODE)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 16;
           // Mouvement initial de 2
-          if ((ySrc == 1) && (_pieces[pOrigine + 32] == null))
+          if ((ySrc == 1) && (_pieces[pOrigine + 32] == NO_CODE))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 32;
           }
@@ -352,8 +401,8 @@ final class X88Board extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final int iDest = pOrigine + 15;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && (!pDest.isWhite()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && (!isWhite(pDest)))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
@@ -363,8 +412,8 @@ final class X88Board extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final int iDest = pOrigine + 17;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && (!pDest.isWhite()))
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && (!isWhite(pDest)))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
@@ -377,11 +426,11 @@ final class X88Board extends AbstractMoveGenerator
       if (ySrc > 0)
       {
         // Mouvement de 1...
-        if (_pieces[pOrigine - 16] == null)
+        if (_pieces[pOrigine - 16] == NO_CODE)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 16;
           // Mouvement initial de 2
-          if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - 32] == null))
+          if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - 32] == NO_CODE))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 32;
           }
@@ -391,8 +440,8 @@ final class X88Board extends AbstractMoveGenerator
         {
           // Prise à gauche (y compris en passant)...
           final int iDest = pOrigine - 17;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && pDest.isWhite())
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && isWhite(pDest))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
@@ -402,8 +451,8 @@ final class X88Board extends AbstractMoveGenerator
         {
           // Prise à droite (y compris en passant)...
           final int iDest = pOrigine - 15;
-          final Piece pDest = _pieces[iDest];
-          if (((pDest != null) && pDest.isWhite())
+          final int pDest = _pieces[iDest];
+          if (((pDest != NO_CODE) && isWhite(pDest))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
             SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
@@ -428,14 +477,14 @@ final class X88Board extends AbstractMoveGenerator
     int dst = pOrigine - 1;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -448,14 +497,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine + 1;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -468,14 +517,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine + 16;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -488,14 +537,14 @@ final class X88Board extends AbstractMoveGenerator
     dst = pOrigine - 16;
     while ((dst & X88) == 0)
     {
-      final Piece p = _pieces[dst];
-      if (p == null)
+      final int p = _pieces[dst];
+      if (p == NO_CODE)
       {
         SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
       }
       else
       {
-        if (p.isWhite() != pBlanc)
+        if (isWhite(p) != pBlanc)
         {
           SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
         }
@@ -537,6 +586,7 @@ final class X88Board extends AbstractMoveGenerator
       final boolean t = !isWhiteActive();
       res.setWhiteActive(t);
       res._hashCode ^= ZOBRIST_WHITE_ACTIVE;
+      res._zobristKey ^= ZOBRIST_KEY_WHITE_ACTIVE;
       if (t)
       {
         res.setFullmoveNumber(getFullmoveNumber() + 1);
@@ -558,22 +608,28 @@ final class X88Board extends AbstractMoveGenerator
     final int iSrc = src.getIndex();
     final int xSrc = src.getFile();
     final int i88Src = src.getRank() * 16 + xSrc;
-    assert res._pieces[i88Src] == piece;
-    res._pieces[i88Src] = null;
+    assert res._pieces[i88Src] == piece.getCode();
+    res._pieces[i88Src] = NO_CODE;
     final int pieceOrdinal = piece.ordinal();
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
+    res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iSrc];
     final Square dst = pMouvement.getTo();
     final int iDst = dst.getIndex();
     final int xDst = dst.getFile();
     final int yDst = dst.getRank();
     final int i88Dst = yDst * 16 + xDst;
-    final Piece pieceDst = _pieces[i88Dst];
-    if (pieceDst != null)
+    final int codeDst = _pieces[i88Dst];
+    if (codeDst != NO_CODE)
     {
-      res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      final int ordinalDst = Piece.valueOfCode(codeDst).ordinal();
+      res._hashCode ^= ZOBRIST_PIECE_POSITION[ordinalDst][iDst];
+      res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[ordinalDst][iDst];
+      res.removeSquare(!trait, i88Dst);
     }
-    res._pieces[i88Dst] = piece;
+    res.replaceSquare(trait, i88Src, i88Dst);
+    res._pieces[i88Dst] = piece.getCode();
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+    res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
     // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
     if (typePiece == KING)
     {
@@ -585,14 +641,17 @@ final class X88Board extends AbstractMoveGenerator
           // ... côté reine...
           final int i = yDst * FILE_COUNT;
           final int i88 = i * 2;
-          final Piece tour = res._pieces[i88];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i88] = null;
-          final int tourOrdinal = tour.ordinal();
+          final byte tour = res._pieces[i88];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[i88] = NO_CODE;
+          final int tourOrdinal = Piece.valueOfCode(tour).ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i];
+          res.replaceSquare(trait, i88, i88 + 3);
           res._pieces[i88 + 3] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i + 3];
           res.setCastled(trait, true);
         }
         else if (xDst == 6)
@@ -600,14 +659,17 @@ final class X88Board extends AbstractMoveGenerator
           // ... côté roi...
           final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
           final int i88 = i + yDst * FILE_COUNT;
-          final Piece tour = res._pieces[i88];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i88] = null;
-          final int tourOrdinal = tour.ordinal();
+          final byte tour = res._pieces[i88];
+          assert tour != NO_CODE;
+          assert typeOf(tour) == ROOK;
+          res._pieces[i88] = NO_CODE;
+          final int tourOrdinal = Piece.valueOfCode(tour).ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i];
+          res.replaceSquare(trait, i88, i88 - 2);
           res._pieces[i88 - 2] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[tourOrdinal][i - 2];
           res.setCastled(trait, true);
         }
       }
@@ -621,10 +683,12 @@ final class X88Board extends AbstractMoveGenerator
         if (trait)
         {
           res._hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
+          res._zobristKey ^= ZOBRIST_KEY_WHITE_CASTLE_SHORT;
         }
         else
         {
           res._hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
+          res._zobristKey ^= ZOBRIST_KEY_BLACK_CASTLE_SHORT;
         }
       }
     }
@@ -636,10 +700,12 @@ final class X88Board extends AbstractMoveGenerator
         if (trait)
         {
           res._hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          res._zobristKey ^= ZOBRIST_KEY_WHITE_CASTLE_LONG;
         }
         else
         {
           res._hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          res._zobristKey ^= ZOBRIST_KEY_BLACK_CASTLE_LONG;
         }
       }
     }
@@ -659,9 +725,11 @@ final class X88Board extends AbstractMoveGenerator
         assert yDst > ySrc;
         if (yDst == RANK_COUNT - 1)
         {
-          res._pieces[i88Dst] = WHITE_QUEEN;
+          res._pieces[i88Dst] = WHITE_QUEEN.getCode();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
         }
         else if ((ySrc == 1) && (yDst == 3))
         {
@@ -671,8 +739,11 @@ final class X88Board extends AbstractMoveGenerator
         {
           final int epDst = iDst - FILE_COUNT;
           final int ep88Dst = i88Dst - 16;
-          res._pieces[ep88Dst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[ep88Dst].ordinal()][epDst];
+          assert _pieces[ep88Dst] == BLACK_PAWN.getCode();
+          res._pieces[ep88Dst] = NO_CODE;
+          res.removeSquare(false, ep88Dst);
+          res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_PAWN.ordinal()][epDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[BLACK_PAWN.ordinal()][epDst];
         }
       }
       else
@@ -680,9 +751,11 @@ final class X88Board extends AbstractMoveGenerator
         assert yDst < ySrc;
         if (yDst == 0)
         {
-          res._pieces[i88Dst] = BLACK_QUEEN;
+          res._pieces[i88Dst] = BLACK_QUEEN.getCode();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
         }
         else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
         {
@@ -692,8 +765,11 @@ final class X88Board extends AbstractMoveGenerator
         {
           final int epDst = iDst + FILE_COUNT;
           final int ep88Dst = i88Dst + 16;
-          res._pieces[ep88Dst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[ep88Dst].ordinal()][epDst];
+          assert _pieces[ep88Dst] == WHITE_PAWN.getCode();
+          res._pieces[ep88Dst] = NO_CODE;
+          res.removeSquare(true, ep88Dst);
+          res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_PAWN.ordinal()][epDst];
+          res._zobristKey ^= ZOBRIST_KEY_PIECE_POSITION[WHITE_PAWN.ordinal()][epDst];
         }
       }
     }
@@ -702,10 +778,12 @@ final class X88Board extends AbstractMoveGenerator
     if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
     {
       res._hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
+      res._zobristKey ^= ZOBRIST_KEY_EN_PASSANT[epOrig.getFile()];
     }
     if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
     {
       res._hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
+      res._zobristKey ^= ZOBRIST_KEY_EN_PASSANT[epFinal.getFile()];
     }
 
     return res;
@@ -765,8 +843,7 @@ final class X88Board extends AbstractMoveGenerator
     assert pOrigine != null;
 
     final int idx = pOrigine.getRank() * 16 + pOrigine.getFile();
-    final Piece piece = _pieces[idx];
-    if (piece != null)
+    if (_pieces[idx] != NO_CODE)
     {
       final Square [] res;
 
@@ -916,7 +993,7 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pCase != null;
 
-    return _pieces[pCase.getRank() * 16 + pCase.getFile()];
+    return Piece.valueOfCode(_pieces[pCase.getRank() * 16 + pCase.getFile()]);
   }
 
   /**
@@ -931,7 +1008,7 @@ final class X88Board extends AbstractMoveGenerator
     assert (pColonne >= 0) && (pColonne < FILE_COUNT);
     assert (pLigne >= 0) && (pLigne < RANK_COUNT);
 
-    return _pieces[pLigne * 16 + pColonne];
+    return Piece.valueOfCode(_pieces[pLigne * 16 + pColonne]);
   }
 
   /**
@@ -1007,46 +1084,52 @@ final class X88Board extends AbstractMoveGenerator
     Move [] tmp = new Move [ 45 ];
     int nb = 0;
     int lTmp = tmp.length;
-    int i88 = 0;
-    for (int y = 0; y < RANK_COUNT; y++)
+    final byte [] cases;
+    final int nbCases;
+    if (pTrait)
     {
-      for (int x = 0; x < FILE_COUNT; x++)
+      cases = _whiteSquares;
+      nbCases = _whiteCount;
+    }
+    else
+    {
+      cases = _blackSquares;
+      nbCases = _blackCount;
+    }
+    for (int i = 0; i < nbCases; i++)
+    {
+      final int i88 = cases[i];
+      final Piece p = Piece.valueOfCode(_pieces[i88]);
+      assert (p != null) && (p.isWhite() == pTrait);
+      final Square orig = Square.valueOf(FROM_X88[i88]);
+      for (final Square dst : getValidTargets(orig))
       {
-        final Piece p = _pieces[i88];
-        if ((p != null) && (p.isWhite() == pTrait))
+        final int i88Dst = dst.getRank() * 16 + dst.getFile();
+        final Piece prise;
+        if ((p.getType() != PAWN) || (dst != getEnPassant()))
         {
-          final Square orig = Square.valueOf(FROM_X88[i88]);
-          for (final Square dst : getValidTargets(orig))
+          prise = Piece.valueOfCode(_pieces[i88Dst]);
+        }
+        else
+        {
+          if (pTrait)
           {
-            final Piece prise;
-            if ((p.getType() != PAWN) || (dst != getEnPassant()))
-            {
-              prise = _pieces[dst.getRank() * 16 + dst.getFile()];
-            }
-            else
-            {
-              if (pTrait)
-              {
-                prise = _pieces[dst.getRank() * 16 + dst.getFile() - 16];
-              }
-              else
-              {
-                prise = _pieces[dst.getRank() * 16 + dst.getFile() + 16];
-              }
-            }
-            tmp[nb++] = new Move(p, orig, dst, prise);
-            if (nb >= lTmp)
-            {
-              final Move [] extension = new Move [ lTmp + 15 ];
-              System.arraycopy(tmp, 0, extension, 0, lTmp);
-              tmp = extension;
-              lTmp = tmp.length;
-            }
+            prise = Piece.valueOfCode(_pieces[i88Dst - 16]);
           }
+          else
+          {
+            prise = Piece.valueOfCode(_pieces[i88Dst + 16]);
+          }
+        }
+        tmp[nb++] = new Move(p, orig, dst, prise);
+        if (nb >= lTmp)
+        {
+          final Move [] extension = new Move [ lTmp + 15 ];
+          System.arraycopy(tmp, 0, extension, 0, lTmp);
+          tmp = extension;
+          lTmp = tmp.length;
         }
-        i88++;
       }
-      i88 += 8;
     }
 
     final Move [] res = new Move [ nb ];
@@ -1066,7 +1149,7 @@ final class X88Board extends AbstractMoveGenerator
     assert pOrigine != null;
 
     final int iSrc = pOrigine.getRank() * 16 + pOrigine.getFile();
-    final Piece piece = _pieces[iSrc];
+    final Piece piece = Piece.valueOfCode(_pieces[iSrc]);
     if (piece != null)
     {
       synchronized (SQUARES_BUFFER)
@@ -1079,7 +1162,7 @@ final class X88Board extends AbstractMoveGenerator
         {
           final int idxCible = SQUARES_BUFFER[t];
           final Square cible = Square.valueOf(FROM_X88[idxCible]);
-          final Piece prise = _pieces[idxCible];
+          final Piece prise = Piece.valueOfCode(_pieces[idxCible]);
           if (derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
           {
             SQUARES_BUFFER[t] = -1;
@@ -1127,6 +1210,18 @@ final class X88Board extends AbstractMoveGenerator
     return NO_SQUARE;
   }
 
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, pour optimisation.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long getZobristKey()
+  {
+    assert _zobristKey == super.getZobristKey();
+    return _zobristKey;
+  }
+
   /**
    * Surcharge du calcul des clés de hachage, pour optimisation.
    * 
@@ -1151,136 +1246,136 @@ final class X88Board extends AbstractMoveGenerator
     assert pCible != null;
 
     final int iSrc = pCible.getRank() * 16 + pCible.getFile();
-    Piece p = null;
+    int p = NO_CODE;
     int dst = iSrc - 1;
     // Gauche
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst--;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc + 1;
     // Droite
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst++;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc - 16;
     // Bas
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst -= 16;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc + 16;
     // Haut
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst += 16;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == ROOK) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc - 17;
     // Bas / Gauche
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst -= 17;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc + 15;
     // Haut / Gauche
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst += 15;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc + 17;
     // Haut / Droit
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst += 17;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
       }
     }
 
-    p = null;
+    p = NO_CODE;
     dst = iSrc - 15;
     // Bas / Droit
-    while ((p == null) && ((dst & X88) == 0))
+    while ((p == NO_CODE) && ((dst & X88) == 0))
     {
       p = _pieces[dst];
       dst -= 15;
     }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    if ((p != NO_CODE) && (isWhite(p) == pCouleur))
     {
-      final PieceType t = p.getType();
+      final PieceType t = typeOf(p);
       if ((t == BISHOP) || (t == QUEEN))
       {
         return true;
@@ -1294,7 +1389,7 @@ final class X88Board extends AbstractMoveGenerator
       if ((dst & X88) == 0)
       {
         p = _pieces[dst];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KNIGHT))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KNIGHT))
         {
           return true;
         }
@@ -1308,7 +1403,7 @@ final class X88Board extends AbstractMoveGenerator
       if ((dst & X88) == 0)
       {
         p = _pieces[dst];
-        if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KING))
+        if ((p != NO_CODE) && (isWhite(p) == pCouleur) && (typeOf(p) == KING))
         {
           return true;
         }
@@ -1322,8 +1417,8 @@ final class X88Board extends AbstractMoveGenerator
       if (ySrc > 1)
       {
         final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[iSrc - 17] == WHITE_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc - 15] == WHITE_PAWN)))
+        if (((xSrc > 0) && (_pieces[iSrc - 17] == WHITE_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc - 15] == WHITE_PAWN.getCode())))
         {
           return true;
         }
@@ -1335,8 +1430,8 @@ final class X88Board extends AbstractMoveGenerator
       if (ySrc < RANK_COUNT - 2)
       {
         final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[iSrc + 15] == BLACK_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc + 17] == BLACK_PAWN)))
+        if (((xSrc > 0) && (_pieces[iSrc + 15] == BLACK_PAWN.getCode()))
+            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc + 17] == BLACK_PAWN.getCode())))
         {
           return true;
         }
@@ -1356,4 +1451,41 @@ final class X88Board extends AbstractMoveGenerator
   {
     return isAttacked(getKingSquare(pCouleur), !pCouleur);
   }
+
+  /**
+   * Retire une case de la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pCase Indice x88 de la case libérée.
+   */
+  private void removeSquare(final boolean pBlanc, final int pCase)
+  {
+    if (pBlanc)
+    {
+      _whiteCount = removeSquare(_whiteSquares, _whiteCount, pCase);
+    }
+    else
+    {
+      _blackCount = removeSquare(_blackSquares, _blackCount, pCase);
+    }
+  }
+
+  /**
+   * Remplace une case par une autre dans la liste des cases occupées par une couleur.
+   * 
+   * @param pBlanc Positionné à "true" pour modifier la liste des blancs.
+   * @param pOrigine Indice x88 de la case quittée.
+   * @param pDestination Indice x88 de la case nouvellement occupée.
+   */
+  private void replaceSquare(final boolean pBlanc, final int pOrigine, final int pDestination)
+  {
+    if (pBlanc)
+    {
+      replaceSquare(_whiteSquares, _whiteCount, pOrigine, pDestination);
+    }
+    else
+    {
+      replaceSquare(_blackSquares, _blackCount, pOrigine, pDestination);
+    }
+  }
 }
@@ -2,6 +2,7 @@ package me.desht.chesscraft;
 
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import me.desht.chesscraft.chess.*;
+import me.desht.chesscraft.chess.ai.AIExecutor;
 import me.desht.chesscraft.chess.ai.AIFactory;
 import me.desht.chesscraft.citizens.CitizensUtil;
 import me.desht.chesscraft.commands.*;
@@ -392,6 +393,8 @@ public class ChessCraft extends JavaPlugin implements ConfigurationListener, Plu
 			Messages.setMessageLocale(newVal.toString());
 			// redraw control panel signs in the right language
 			updateAllControlPanels();
+		} else if (key.equalsIgnoreCase("ai.worker_threads")) {
+			AIFactory.getInstance().getExecutor().setPoolSize(AIExecutor.getPoolSize((Integer) newVal));
 		} else if (key.equalsIgnoreCase("debug_level")) {
 			Debugger.getInstance().setLevel((Integer) newVal);
 		} else if (key.equalsIgnoreCase("teleporting")) {
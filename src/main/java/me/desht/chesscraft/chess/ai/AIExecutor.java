@@ -0,0 +1,341 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.dhutils.Debugger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author desht
+ *
+ * A size-capped pool of worker threads which runs the AI move calculations for all games.  When
+ * more AIs want to think than there are workers, the waiting AIs are served earliest deadline
+ * first: an AI's deadline is the time it was queued plus the time left on its clock, so AIs which
+ * are short of time go first, while AIs in untimed games still get their turn.
+ *
+ * The pool size is a cap on the number of threads searching, not only on the number of workers:
+ * a job may only start searching once it holds one of the pool's thread slots, and an engine
+ * wanting helper threads for a parallel search has to reserve further slots for them.
+ * Background jobs (searches on the opponent's time) only run when no AI has to move, at the
+ * lowest thread priority, and give up their worker when a move calculation is queued.
+ */
+public class AIExecutor {
+	// deadline slack given to AIs in untimed games (ms)
+	private static final long UNTIMED_SLACK = 600000L;
+	// idle workers are retired after this long (s)
+	private static final long KEEP_ALIVE = 60L;
+
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicLong jobsStarted = new AtomicLong();
+	private final AtomicLong totalWait = new AtomicLong();
+	private volatile long maxWait;
+	// thread slots in use, by running jobs and by the helper threads they reserved
+	private int busy;
+	private final List<Job> runningBackground = new ArrayList<Job>();
+
+	public AIExecutor(int poolSize) {
+		executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new WorkerFactory());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Get the number of worker threads to use for the given "ai.worker_threads" setting.
+	 *
+	 * @param configured the configured number of workers; 0 or less for automatic sizing
+	 * @return the number of workers
+	 */
+	public static int getPoolSize(int configured) {
+		if (configured > 0) {
+			return configured;
+		}
+		// leave a processor free for the server thread
+		return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	/**
+	 * Queue an AI to calculate its next move.
+	 *
+	 * @param ai the AI
+	 * @param remaining the time left on the AI's clock in milliseconds, or a negative value if the game is untimed
+	 * @return the queued job
+	 */
+	public Job submit(final ChessAI ai, long remaining) {
+		Job job = new Job(ai, new Runnable() {
+			@Override
+			public void run() {
+				ai.run();
+			}
+		}, remaining < 0 ? UNTIMED_SLACK : remaining, null);
+		executor.execute(job);
+		preemptBackground();
+		return job;
+	}
+
+	/**
+	 * Queue a background task for an AI, such as a search on the opponent's time.  Background
+	 * tasks run after all queued move calculations, at the lowest thread priority.
+	 *
+	 * @param ai the AI
+	 * @param task the task
+	 * @param preempt called when a move calculation needs the task's worker; it should make the task finish quickly
+	 * @return the queued job
+	 */
+	public Job submitBackground(ChessAI ai, Runnable task, Runnable preempt) {
+		Job job = new Job(ai, task, UNTIMED_SLACK, preempt);
+		executor.execute(job);
+		return job;
+	}
+
+	/**
+	 * Reserve thread slots for the helper threads of a parallel search.  Only slots which are not
+	 * in use by running jobs or other helpers are granted.
+	 *
+	 * @param wanted the number of helper threads wanted
+	 * @return the number of slots granted, which must be handed back with releaseThreads()
+	 */
+	public synchronized int reserveThreads(int wanted) {
+		int granted = Math.max(0, Math.min(wanted, getPoolSize() - busy));
+		busy += granted;
+		return granted;
+	}
+
+	/**
+	 * Hand back thread slots reserved with reserveThreads().
+	 *
+	 * @param n the number of slots
+	 */
+	public synchronized void releaseThreads(int n) {
+		if (n > 0) {
+			busy -= n;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Wait for a free thread slot, and take it.
+	 *
+	 * @return false if the worker was interrupted while waiting
+	 */
+	private synchronized boolean acquireThread() {
+		while (busy >= getPoolSize()) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		busy++;
+		return true;
+	}
+
+	/**
+	 * Ask one running background job to make way, if a move calculation can't start at once.
+	 */
+	private void preemptBackground() {
+		Job victim = null;
+		synchronized (this) {
+			if (busy >= getPoolSize() && !runningBackground.isEmpty()) {
+				victim = runningBackground.remove(0);
+			}
+		}
+		if (victim != null) {
+			Debugger.getInstance().debug(2, victim.ai.gameDetails + "background job preempted");
+			victim.preempt.run();
+		}
+	}
+
+	/**
+	 * Change the number of worker threads.  Searches already running are not affected.
+	 *
+	 * @param poolSize the new number of workers
+	 */
+	public void setPoolSize(int poolSize) {
+		if (poolSize > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(poolSize);
+			executor.setCorePoolSize(poolSize);
+		} else {
+			executor.setCorePoolSize(poolSize);
+			executor.setMaximumPoolSize(poolSize);
+		}
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+
+	public int getPoolSize() {
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * @return the number of AIs currently calculating a move
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of AIs waiting for a free worker
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of jobs which have started running since the executor was created
+	 */
+	public long getJobsStarted() {
+		return jobsStarted.get();
+	}
+
+	/**
+	 * @return the mean time jobs have spent waiting for a free worker (ms)
+	 */
+	public long getAverageWait() {
+		long started = jobsStarted.get();
+		return started == 0 ? 0 : totalWait.get() / started;
+	}
+
+	/**
+	 * @return the longest time a job has spent waiting for a free worker (ms)
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Stop all the workers.  Queued jobs are dropped; running searches should already have been
+	 * asked to stop.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void recordWait(long wait) {
+		jobsStarted.incrementAndGet();
+		totalWait.addAndGet(wait);
+		if (wait > maxWait) {
+			maxWait = wait;
+		}
+	}
+
+	/**
+	 * One AI move calculation or background task, queued or running.
+	 */
+	public class Job implements Runnable, Comparable<Job> {
+		private final ChessAI ai;
+		private final Runnable task;
+		private final Runnable preempt;
+		private final long queued;
+		private final long deadline;
+		private final long seq;
+		private volatile boolean running;
+		private volatile boolean cancelled;
+
+		private Job(ChessAI ai, Runnable task, long slack, Runnable preempt) {
+			this.ai = ai;
+			this.task = task;
+			this.preempt = preempt;
+			this.queued = System.currentTimeMillis();
+			this.deadline = queued + slack;
+			this.seq = sequence.getAndIncrement();
+		}
+
+		@Override
+		public void run() {
+			// set before checking for cancellation, so that cancel() and isRunning() can't both miss the job
+			running = true;
+			try {
+				if (!cancelled && acquireThread()) {
+					try {
+						runTask();
+					} finally {
+						releaseThreads(1);
+					}
+				}
+			} finally {
+				running = false;
+			}
+		}
+
+		private void runTask() {
+			if (cancelled) {
+				return;
+			}
+			long wait = System.currentTimeMillis() - queued;
+			recordWait(wait);
+			if (wait > 0) {
+				Debugger.getInstance().debug(2, ai.gameDetails + "waited " + wait + "ms for an AI worker, " + getQueueDepth() + " still queued");
+			}
+			if (!isBackground()) {
+				task.run();
+				return;
+			}
+			Thread worker = Thread.currentThread();
+			int priority = worker.getPriority();
+			worker.setPriority(Thread.MIN_PRIORITY);
+			synchronized (AIExecutor.this) {
+				runningBackground.add(this);
+			}
+			try {
+				task.run();
+			} finally {
+				synchronized (AIExecutor.this) {
+					runningBackground.remove(this);
+				}
+				worker.setPriority(priority);
+			}
+		}
+
+		private boolean isBackground() {
+			return preempt != null;
+		}
+
+		@Override
+		public int compareTo(Job other) {
+			if (isBackground() != other.isBackground()) {
+				return isBackground() ? 1 : -1;
+			}
+			if (deadline != other.deadline) {
+				return deadline < other.deadline ? -1 : 1;
+			}
+			return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+		}
+
+		/**
+		 * @return true if the job is currently running
+		 */
+		public boolean isRunning() {
+			return running;
+		}
+
+		/**
+		 * Cancel the job.  A queued job is dropped; a running job is left to the AI to abort.
+		 */
+		public void cancel() {
+			cancelled = true;
+			executor.remove(this);
+		}
+	}
+
+	private static class WorkerFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "ChessCraft AI worker #" + count.incrementAndGet());
+			t.setDaemon(true);
+			// the server thread matters more than a few milliseconds of AI thinking
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			return t;
+		}
+	}
+}
@@ -34,6 +34,8 @@ public class AIFactory {
 	private final HashMap<String, ChessAI> runningAIs = new HashMap<String, ChessAI>();
 	private final Map<String, AIDefinition> allAliases = new HashMap<String, AIDefinition>();
 	private final Map<String, AIDefinition> coreDefs = new HashMap<String, AIDefinition>();
+	private AIExecutor executor;
+	private EngineProcessPool enginePool;
 
 	private static AIFactory instance;
 
@@ -80,6 +82,36 @@ public class AIFactory {
 		return ai;
 	}
 
+	/**
+	 * Get the worker pool which runs all AI move calculations, creating it if necessary.
+	 *
+	 * @return the AI executor
+	 */
+	public synchronized AIExecutor getExecutor() {
+		if (executor == null) {
+			int threads = ChessCraft.getInstance().getConfig().getInt("ai.worker_threads", 0); //$NON-NLS-1$
+			executor = new AIExecutor(AIExecutor.getPoolSize(threads));
+			Debugger.getInstance().debug("AI executor started with " + executor.getPoolSize() + " worker(s)");
+		}
+		return executor;
+	}
+
+	/**
+	 * Get the pool of external engine processes shared by the XBoard and UCI AIs, creating it if
+	 * necessary.
+	 *
+	 * @return the engine process pool
+	 */
+	public synchronized EngineProcessPool getEnginePool() {
+		if (enginePool == null) {
+			Configuration config = ChessCraft.getInstance().getConfig();
+			int max = config.getInt("ai.engine_pool.max_processes", 2); //$NON-NLS-1$
+			long idle = config.getLong("ai.engine_pool.idle_timeout", 300); //$NON-NLS-1$
+			enginePool = new EngineProcessPool(max, idle * 1000L);
+		}
+		return enginePool;
+	}
+
 	void deleteAI(ChessAI ai) {
 		runningAIs.remove(ai.getName());
 	}
@@ -105,6 +137,16 @@ public class AIFactory {
 		for (ChessAI ai : l) {
 			ai.delete();
 		}
+		synchronized (this) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+			if (enginePool != null) {
+				enginePool.shutdown();
+				enginePool = null;
+			}
+		}
 	}
 
 	public List<AIDefinition> listAIDefinitions() {
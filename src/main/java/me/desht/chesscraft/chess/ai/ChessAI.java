@@ -31,7 +31,8 @@ public abstract class ChessAI implements Runnable {
 	public enum PendingAction { NONE, MOVED, DRAW_OFFERED, DRAW_ACCEPTED, DRAW_DECLINED }
 
 	private boolean active = false;
-	private BukkitTask aiTask;
+	private volatile BukkitTask delayTask;
+	private volatile AIExecutor.Job aiJob;
 	private boolean hasFailed = false;
 	private PendingAction pendingAction = PendingAction.NONE;
 	private int pendingFrom, pendingTo;
@@ -70,6 +71,31 @@ public abstract class ChessAI implements Runnable {
 
 	public abstract void notifyTimeControl(TimeControl timeControl);
 
+	/**
+	 * Called on the thread which decides that the AI should think about its next move, before
+	 * its job is queued, so that an abortSearch() arriving at any later time applies to that job.
+	 * The default implementation does nothing.
+	 */
+	protected void prepareToThink() {
+	}
+
+	/**
+	 * Ask a search in progress to give up as soon as possible.  Cancelling the AI job does not
+	 * interrupt a running search, so AIs which calculate in the task thread should override this.
+	 * May be called from any thread; the default implementation does nothing.
+	 */
+	protected void abortSearch() {
+	}
+
+	/**
+	 * Get the pool of external engine processes, for AIs which drive an external engine.
+	 *
+	 * @return the engine pool
+	 */
+	EngineProcessPool getEnginePool() {
+		return AIFactory.getInstance().getEnginePool();
+	}
+
 	/**
 	 * Perform the implementation-specfic steps needed to update the AI's internal game model with
 	 * the given move.  Square indices are always in Chesspresso sqi format.
@@ -246,19 +272,60 @@ public abstract class ChessAI implements Runnable {
 	 * AI's next move.
 	 */
 	private void startThinking() {
+		prepareToThink();
 		long delay = ChessCraft.getInstance().getConfig().getInt("ai.min_move_wait", 0);
-		aiTask = Bukkit.getScheduler().runTaskLaterAsynchronously(ChessCraft.getInstance(), this, delay * 20L);
+		if (delay > 0) {
+			delayTask = Bukkit.getScheduler().runTaskLater(ChessCraft.getInstance(), new Runnable() {
+				@Override
+				public void run() {
+					delayTask = null;
+					queueJob();
+				}
+			}, delay * 20L);
+		} else {
+			queueJob();
+		}
+	}
+
+	/**
+	 * Hand this AI to the shared AI worker pool, which will call run() when a worker is free.
+	 */
+	private void queueJob() {
+		aiJob = AIFactory.getInstance().getExecutor().submit(this, getRemainingTime());
 	}
 
 	/**
 	 * Tell the AI to stop thinking.
 	 */
 	private void stopThinking() {
-		if (Bukkit.getScheduler().isCurrentlyRunning(aiTask.getTaskId())) {
-			Debugger.getInstance().debug(gameDetails + "forcing shutdown for AI task #" + aiTask);
-			aiTask.cancel();
+		if (delayTask != null) {
+			delayTask.cancel();
+			delayTask = null;
+		}
+		AIExecutor.Job job = aiJob;
+		if (job != null) {
+			// cancel first: a job which starts after this sees the cancellation, and one which
+			// started before it is seen running
+			job.cancel();
+			if (job.isRunning()) {
+				Debugger.getInstance().debug(gameDetails + "forcing shutdown for AI job");
+				abortSearch();
+			}
+		}
+		aiJob = null;
+	}
+
+	/**
+	 * Get the time left on this AI's clock.
+	 *
+	 * @return the remaining time in milliseconds, or -1 if the game is untimed
+	 */
+	protected long getRemainingTime() {
+		TimeControl tc = getChessCraftGame().getClock().getTimeControl();
+		if (tc == null || tc.getControlType() == TimeControl.ControlType.NONE) {
+			return -1;
 		}
-		aiTask = null;
+		return getChessCraftGame().getClock().getRemainingTime(isWhite ? Chess.WHITE : Chess.BLACK);
 	}
 
 	/**
@@ -0,0 +1,225 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.chesscraft.exceptions.ChessException;
+import me.desht.dhutils.Debugger;
+import me.desht.dhutils.MiscUtil;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author desht
+ *
+ * A long-lived external engine process, owned by the {@link EngineProcessPool} and leased to
+ * one AI at a time for the duration of a search.
+ */
+public class EngineProcess {
+	public enum Protocol { XBOARD, UCI }
+
+	// how long the engine has to answer handshake and health check commands (ms)
+	private static final long RESPONSE_TIMEOUT = 5000L;
+	// how long an xboard engine has to list its features (ms)
+	private static final long FEATURE_TIMEOUT = 2000L;
+
+	private final String key;
+	private final String command;
+	private final Protocol protocol;
+	private final Map<String, String> options;
+	private final Map<String, String> features = new ConcurrentHashMap<String, String>();
+	private final ExternalIO io;
+	private String engineName;
+	private Object lastUser;
+	private long idleSince;
+	private int pingCount;
+
+	EngineProcess(String key, String command, Protocol protocol, Map<String, String> options) {
+		this.key = key;
+		this.command = command;
+		this.protocol = protocol;
+		this.options = options;
+		this.io = new ExternalIO(command);
+		this.engineName = command;
+	}
+
+	/**
+	 * Start the process and perform the protocol handshake.
+	 *
+	 * @throws IOException if the engine can't be read from
+	 * @throws ChessException if the engine does not start or does not answer in time
+	 */
+	void start() throws IOException {
+		io.start();
+		if (!isAlive()) {
+			throw new ChessException("can't start engine: " + command);
+		}
+		switch (protocol) {
+		case XBOARD:
+			io.writeLine("xboard");
+			io.writeLine("protover 2");
+			readFeatures();
+			break;
+		case UCI:
+			io.writeLine("uci");
+			String line;
+			while (!"uciok".equals(line = readLine(RESPONSE_TIMEOUT))) {
+				if (line.startsWith("id name ")) {
+					engineName = line.substring(8).trim();
+				}
+			}
+			for (Map.Entry<String, String> e : options.entrySet()) {
+				io.writeLine("setoption name " + e.getKey() + " value " + e.getValue());
+			}
+			break;
+		}
+		if (!ping()) {
+			throw new ChessException("engine " + engineName + " is not responding");
+		}
+		Debugger.getInstance().debug("started engine process: " + engineName);
+	}
+
+	/**
+	 * Read the "feature" lines an xboard engine sends in reply to "protover 2".  An engine which
+	 * does not finish within the time allowed keeps the features it has reported so far.
+	 *
+	 * @throws IOException if the engine can't be read from
+	 */
+	private void readFeatures() throws IOException {
+		long deadline = System.currentTimeMillis() + FEATURE_TIMEOUT;
+		long remaining;
+		while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+			String s = io.readLine(remaining);
+			if (s == null) {
+				break;
+			}
+			if (s.startsWith("feature ")) {
+				List<String> f = MiscUtil.splitQuotedString(s.replace("=", " "));
+				for (int i = 1; i + 1 < f.size(); i += 2) {
+					features.put(f.get(i), f.get(i + 1));
+				}
+				if ("1".equals(features.get("done"))) {
+					break;
+				}
+			}
+		}
+		if (features.containsKey("myname")) {
+			engineName = features.get("myname");
+		}
+		Debugger.getInstance().debug("feature reader done: " + features.size() + " features reported");
+	}
+
+	/**
+	 * Check that the engine is alive and responding.  Any output left over from an earlier
+	 * search is dropped, including lines which arrive before the engine's answer.
+	 *
+	 * @return true if the engine answered in time
+	 */
+	boolean ping() {
+		if (!isAlive()) {
+			return false;
+		}
+		io.discardInput();
+		try {
+			switch (protocol) {
+			case UCI:
+				io.writeLine("isready");
+				return waitFor("readyok");
+			default:
+				if (!"1".equals(features.get("ping"))) {
+					// nothing more we can check
+					return true;
+				}
+				String pong = "pong " + ++pingCount;
+				io.writeLine("ping " + pingCount);
+				return waitFor(pong);
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Check whether {@link #ping()} waits for an answer from the engine, and so skips any
+	 * output of a search which was cut short.  XBoard engines without the "ping" feature can't
+	 * be checked.
+	 *
+	 * @return true if the engine can be brought back in step with us
+	 */
+	boolean canSync() {
+		return protocol == Protocol.UCI || "1".equals(features.get("ping"));
+	}
+
+	private boolean waitFor(String expected) throws IOException {
+		String line;
+		do {
+			line = io.readLine(RESPONSE_TIMEOUT);
+		} while (line != null && !line.equals(expected));
+		return line != null;
+	}
+
+	private String readLine(long timeout) throws IOException {
+		String line = io.readLine(timeout);
+		if (line == null) {
+			throw new ChessException("engine " + engineName + " did not respond within " + timeout + "ms");
+		}
+		return line;
+	}
+
+	/**
+	 * Prepare the engine for a search on behalf of the given AI.  A UCI engine is told about a
+	 * new game when it was last used by another AI.  XBoard engines are reset by the AI, which
+	 * sends "new" and the position before every search.
+	 *
+	 * @param user the AI leasing the process
+	 * @throws ChessException if the engine does not answer in time
+	 */
+	void reset(Object user) {
+		if (protocol == Protocol.UCI && user != lastUser) {
+			io.writeLine("ucinewgame");
+			if (!ping()) {
+				throw new ChessException("engine " + engineName + " is not responding");
+			}
+		}
+		lastUser = user;
+	}
+
+	public ExternalIO getIO() {
+		return io;
+	}
+
+	public String getEngineName() {
+		return engineName;
+	}
+
+	public String getFeature(String k) {
+		return features.containsKey(k) ? features.get(k) : "";
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	long getIdleSince() {
+		return idleSince;
+	}
+
+	void setIdleSince(long idleSince) {
+		this.idleSince = idleSince;
+	}
+
+	boolean isAlive() {
+		return io.isAlive();
+	}
+
+	/**
+	 * Ask the engine to quit, and kill the process.
+	 */
+	void destroy() {
+		if (isAlive()) {
+			io.writeLine("quit");
+		}
+		io.destroy();
+		Debugger.getInstance().debug("stopped engine process: " + engineName);
+	}
+}
@@ -0,0 +1,330 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.chesscraft.exceptions.ChessException;
+import me.desht.dhutils.Debugger;
+import me.desht.dhutils.LogUtils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author desht
+ *
+ * A pool of long-lived external engine processes, shared by all the XBoard and UCI AIs.  Each
+ * distinct engine (command line, protocol and options) gets at most a fixed number of processes,
+ * which are leased to an AI for one search at a time and stay warm in between.  Idle processes
+ * are health-checked before being leased, and dead ones are replaced; a timer stops those which
+ * have been idle for too long.  A single shutdown hook stops every process the pool has started,
+ * leased or idle, if the JVM exits without the pool being shut down.
+ */
+public class EngineProcessPool {
+	// how long an AI waits for a free engine process by default (ms)
+	public static final long LEASE_TIMEOUT = 120000L;
+	// shortest interval between checks for processes idle for too long (ms)
+	private static final long MIN_REAP_INTERVAL = 10L;
+	// how many failed processes one lease replaces before giving up
+	static final int MAX_RESTARTS = 3;
+
+	private final int maxProcesses;
+	private final long idleTimeout;
+	private final Map<String, Deque<EngineProcess>> idle = new HashMap<String, Deque<EngineProcess>>();
+	private final Map<String, Integer> counts = new HashMap<String, Integer>();
+	// every process started and not yet stopped, leased or idle
+	private final Set<EngineProcess> running = new HashSet<EngineProcess>();
+	private final Timer reaper;
+	private final Thread shutdownHook;
+	private boolean shutDown = false;
+
+	/**
+	 * @param maxProcesses the maximum number of processes for each distinct engine
+	 * @param idleTimeout idle processes are stopped after this long (ms); 0 keeps them forever
+	 */
+	public EngineProcessPool(int maxProcesses, long idleTimeout) {
+		this.maxProcesses = Math.max(1, maxProcesses);
+		this.idleTimeout = idleTimeout;
+		if (idleTimeout > 0) {
+			// an idle process is stopped at most half the timeout late
+			long interval = Math.max(MIN_REAP_INTERVAL, idleTimeout / 2);
+			reaper = new Timer("ChessCraft engine reaper", true);
+			reaper.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					reapIdle();
+				}
+			}, interval, interval);
+		} else {
+			reaper = null;
+		}
+		shutdownHook = new Thread("ChessCraft engine shutdown") {
+			@Override
+			public void run() {
+				destroyAll();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Get a key identifying processes which may be shared.
+	 */
+	private static String makeKey(String command, EngineProcess.Protocol protocol, Map<String, String> options) {
+		return protocol + ":" + command + ":" + options;
+	}
+
+	/**
+	 * Lease a process for one search, starting one if there is no idle process and the limit for
+	 * this engine has not been reached, otherwise waiting for a process to be released.
+	 *
+	 * @param user the AI leasing the process
+	 * @param command the command line which starts the engine
+	 * @param protocol the protocol the engine speaks
+	 * @param options UCI options to set when the process starts
+	 * @param timeout how long to wait for a free process (ms)
+	 * @return the leased process, which must be handed back with release() or discard()
+	 * @throws ChessException if no process could be leased
+	 */
+	public EngineProcess lease(Object user, String command, EngineProcess.Protocol protocol, Map<String, String> options, long timeout) {
+		return lease(user, command, protocol, options, timeout, new AtomicBoolean());
+	}
+
+	/**
+	 * Lease a process for one search, as above, unless the lease is aborted first.  Setting the
+	 * abort flag and calling wakeWaiters() ends a wait for a free process at once.
+	 *
+	 * @param user the AI leasing the process
+	 * @param command the command line which starts the engine
+	 * @param protocol the protocol the engine speaks
+	 * @param options UCI options to set when the process starts
+	 * @param timeout how long to wait for a free process (ms)
+	 * @param abort set when the caller no longer wants a process
+	 * @return the leased process, which must be handed back with release() or discard(), or null if the lease was aborted
+	 * @throws ChessException if no process could be leased, or the engine kept failing its checks
+	 */
+	public EngineProcess lease(Object user, String command, EngineProcess.Protocol protocol, Map<String, String> options, long timeout, AtomicBoolean abort) {
+		String key = makeKey(command, protocol, options);
+		long deadline = System.currentTimeMillis() + timeout;
+		int restarts = 0;
+		while (true) {
+			EngineProcess p;
+			try {
+				p = takeIdle(key, deadline, abort);
+			} catch (CancellationException e) {
+				return null;
+			}
+			String failure = null;
+			if (p == null) {
+				// room for a new process
+				p = new EngineProcess(key, command, protocol, options);
+				synchronized (this) {
+					running.add(p);
+				}
+				try {
+					p.start();
+				} catch (IOException e) {
+					discard(p);
+					throw new ChessException("can't start engine " + command + ": " + e.getMessage());
+				} catch (RuntimeException e) {
+					discard(p);
+					throw e;
+				}
+			} else if (!p.ping()) {
+				failure = "is not responding";
+			}
+			if (failure == null) {
+				try {
+					p.reset(user);
+					return p;
+				} catch (ChessException e) {
+					failure = "can't be reset: " + e.getMessage();
+				}
+			}
+			discard(p);
+			if (abort.get()) {
+				return null;
+			}
+			if (++restarts > MAX_RESTARTS) {
+				throw new ChessException("engine " + p.getEngineName() + " " + failure + " (gave up after " + MAX_RESTARTS + " restarts)");
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				throw new ChessException("engine " + p.getEngineName() + " " + failure + " (no time left to restart it)");
+			}
+			LogUtils.warning("engine process " + p.getEngineName() + " " + failure + ": restarting it");
+		}
+	}
+
+	/**
+	 * Take an idle process for the given key, or reserve room for a new one.
+	 *
+	 * @return an idle process, or null if the caller should start a new one
+	 * @throws CancellationException if the lease was aborted
+	 */
+	private synchronized EngineProcess takeIdle(String key, long deadline, AtomicBoolean abort) {
+		while (true) {
+			if (shutDown) {
+				throw new ChessException("engine pool has been shut down");
+			}
+			if (abort.get()) {
+				throw new CancellationException();
+			}
+			Deque<EngineProcess> q = idle.get(key);
+			if (q != null && !q.isEmpty()) {
+				return q.pop();
+			}
+			int count = getCount(key);
+			if (count < maxProcesses) {
+				counts.put(key, count + 1);
+				return null;
+			}
+			long wait = deadline - System.currentTimeMillis();
+			if (wait <= 0) {
+				throw new ChessException("no engine process became free in time");
+			}
+			try {
+				wait(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ChessException("interrupted while waiting for an engine process");
+			}
+		}
+	}
+
+	/**
+	 * Have every AI waiting for a free process check whether its lease has been aborted.
+	 */
+	public synchronized void wakeWaiters() {
+		notifyAll();
+	}
+
+	/**
+	 * Hand back a process after a successful search, keeping it for the next lease.
+	 *
+	 * @param p the process
+	 */
+	public synchronized void release(EngineProcess p) {
+		if (shutDown || !p.isAlive()) {
+			discard(p);
+			return;
+		}
+		p.setIdleSince(System.currentTimeMillis());
+		Deque<EngineProcess> q = idle.get(p.getKey());
+		if (q == null) {
+			q = new ArrayDeque<EngineProcess>();
+			idle.put(p.getKey(), q);
+		}
+		// most recently used first: its hash tables are warmest
+		q.push(p);
+		notifyAll();
+	}
+
+	/**
+	 * Hand back a process which is not fit to be used again, stopping it.
+	 *
+	 * @param p the process
+	 */
+	public void discard(EngineProcess p) {
+		synchronized (this) {
+			counts.put(p.getKey(), Math.max(0, getCount(p.getKey()) - 1));
+			running.remove(p);
+			notifyAll();
+		}
+		p.destroy();
+	}
+
+	/**
+	 * Stop processes which have been idle for longer than the idle timeout.
+	 */
+	private void reapIdle() {
+		List<EngineProcess> l = new ArrayList<EngineProcess>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (Deque<EngineProcess> q : idle.values()) {
+				for (Iterator<EngineProcess> iter = q.iterator(); iter.hasNext(); ) {
+					EngineProcess p = iter.next();
+					if (now - p.getIdleSince() > idleTimeout) {
+						Debugger.getInstance().debug("engine process " + p.getEngineName() + " idle for too long");
+						iter.remove();
+						counts.put(p.getKey(), getCount(p.getKey()) - 1);
+						running.remove(p);
+						l.add(p);
+					}
+				}
+			}
+			if (!l.isEmpty()) {
+				notifyAll();
+			}
+		}
+		for (EngineProcess p : l) {
+			p.destroy();
+		}
+	}
+
+	private int getCount(String key) {
+		Integer n = counts.get(key);
+		return n == null ? 0 : n;
+	}
+
+	/**
+	 * @return the number of engine processes running, leased or idle
+	 */
+	public synchronized int getProcessCount() {
+		int n = 0;
+		for (int c : counts.values()) {
+			n += c;
+		}
+		return n;
+	}
+
+	/**
+	 * Stop all idle processes.  Leased processes are stopped when they are handed back.
+	 */
+	public void shutdown() {
+		if (reaper != null) {
+			reaper.cancel();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is already exiting, and the hook is taking care of things
+		}
+		List<EngineProcess> l = new ArrayList<EngineProcess>();
+		synchronized (this) {
+			shutDown = true;
+			for (Deque<EngineProcess> q : idle.values()) {
+				l.addAll(q);
+				running.removeAll(q);
+			}
+			idle.clear();
+			counts.clear();
+			notifyAll();
+		}
+		for (EngineProcess p : l) {
+			p.destroy();
+		}
+	}
+
+	/**
+	 * Stop every process the pool has started, whether leased or idle.  Run when the JVM exits.
+	 */
+	private void destroyAll() {
+		List<EngineProcess> l;
+		synchronized (this) {
+			l = new ArrayList<EngineProcess>(running);
+			running.clear();
+		}
+		for (EngineProcess p : l) {
+			p.destroy();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.dhutils.LogUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author desht
+ *
+ * A single thread which reads the output of every external engine process, and splits it into
+ * lines for the engine's {@link ExternalIO} object.  Process pipes can't be registered with an
+ * NIO selector, so the reactor polls them without blocking: it reads whatever each pipe has
+ * available, and backs off while all of them are quiet.  No thread is parked per engine, and
+ * waiting for a line with a timeout is just a poll on the engine's line queue.
+ */
+public class EngineReactor implements Runnable {
+	// shortest and longest pause between polls while no engine is writing (ms)
+	private static final long MIN_PAUSE = 1L;
+	private static final long MAX_PAUSE = 16L;
+
+	private static EngineReactor instance;
+
+	private final List<ExternalIO> channels = new CopyOnWriteArrayList<ExternalIO>();
+	private Thread thread;
+
+	private EngineReactor() {
+	}
+
+	public static synchronized EngineReactor getInstance() {
+		if (instance == null) {
+			instance = new EngineReactor();
+		}
+		return instance;
+	}
+
+	/**
+	 * Start reading an engine's output.  The reactor thread is started if necessary.
+	 *
+	 * @param io the engine's I/O object
+	 */
+	synchronized void register(ExternalIO io) {
+		channels.add(io);
+		if (thread == null) {
+			thread = new Thread(this, "ChessCraft engine I/O");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stop reading an engine's output.  The reactor thread exits once no engine is left.
+	 *
+	 * @param io the engine's I/O object
+	 */
+	synchronized void unregister(ExternalIO io) {
+		channels.remove(io);
+	}
+
+	/**
+	 * @return the number of engine processes being read
+	 */
+	public int getChannelCount() {
+		return channels.size();
+	}
+
+	@Override
+	public void run() {
+		long pause = MIN_PAUSE;
+		while (true) {
+			synchronized (this) {
+				if (channels.isEmpty()) {
+					thread = null;
+					return;
+				}
+			}
+			boolean busy = false;
+			for (ExternalIO io : channels) {
+				try {
+					if (io.pump()) {
+						busy = true;
+					}
+				} catch (IOException e) {
+					// a process being stopped closes its pipe under us: not worth a warning
+					if (io.isAlive()) {
+						LogUtils.warning("can't read from engine " + io.getCommand() + ": " + e.getMessage());
+					}
+					io.endOfStream();
+				}
+				if (io.isClosed()) {
+					unregister(io);
+				}
+			}
+			if (busy) {
+				pause = MIN_PAUSE;
+			} else {
+				try {
+					Thread.sleep(pause);
+				} catch (InterruptedException e) {
+					synchronized (this) {
+						thread = null;
+					}
+					return;
+				}
+				pause = Math.min(MAX_PAUSE, pause * 2);
+			}
+		}
+	}
+}
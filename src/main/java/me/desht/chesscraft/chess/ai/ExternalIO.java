@@ -3,11 +3,22 @@ package me.desht.chesscraft.chess.ai;
 import me.desht.dhutils.Debugger;
 
 import java.io.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class ExternalIO {
+	// marks the end of the process output in the line queue
+	private static final String EOF = new String("EOF");
+
 	private Process process;
-	private BufferedReader reader;
+	private InputStream input;
 	private PrintWriter writer;
+	private final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+	private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+	private final byte[] buffer = new byte[4096];
+	private volatile boolean closed = true;
+	private boolean eofRead = false;
 
 	private final String command;
 
@@ -20,27 +31,137 @@ public class ExternalIO {
 
 		try {
 			process = runtime.exec(command);
-			reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			input = process.getInputStream();
 			writer = new PrintWriter(new OutputStreamWriter(process.getOutputStream()), true);
-			runtime.addShutdownHook(new Thread() {
-				@Override
-				public void run() { cleanup(); }
-			});
+			lines.clear();
+			partial.reset();
+			eofRead = false;
+			closed = false;
+			EngineReactor.getInstance().register(this);
+			// no shutdown hook here: the engine pool stops all its processes when the JVM exits
 		} catch (IOException ex) {
 			ex.printStackTrace();
 		}
 	}
 
-	private void cleanup() {
-		if (writer != null) {
-			writeLine("quit");
-			writer.close();
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Read whatever output the process has available, without blocking, and queue up any
+	 * complete lines.  Called from the {@link EngineReactor} thread only.
+	 *
+	 * @return true if any output was read
+	 * @throws IOException
+	 */
+	synchronized boolean pump() throws IOException {
+		if (closed) {
+			return false;
+		}
+		int avail = input.available();
+		if (avail <= 0) {
+			if (!process.isAlive() && input.available() <= 0) {
+				endOfStream();
+			}
+			return false;
+		}
+		int n = input.read(buffer, 0, Math.min(avail, buffer.length));
+		if (n < 0) {
+			endOfStream();
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			byte b = buffer[i];
+			if (b == '\n') {
+				queueLine();
+			} else if (b != '\r') {
+				partial.write(b);
+			}
+		}
+		return true;
+	}
+
+	private void queueLine() {
+		lines.add(partial.toString());
+		partial.reset();
+	}
+
+	/**
+	 * Mark the end of the process output: readers get any remaining lines, then null.
+	 */
+	synchronized void endOfStream() {
+		if (!closed) {
+			if (partial.size() > 0) {
+				queueLine();
+			}
+			closed = true;
+			lines.add(EOF);
 		}
-		destroy();
 	}
 
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Read a line from the process, waiting as long as necessary.
+	 *
+	 * @return the line read, or null if the process has closed its output
+	 * @throws IOException
+	 */
 	public String readLine() throws IOException {
-		String string = reader.readLine();
+		if (eofRead) {
+			return null;
+		}
+		try {
+			return received(lines.take());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while reading from " + command);
+		}
+	}
+
+	/**
+	 * Read a line from the process, giving up if none is available within the given time.
+	 *
+	 * @param timeout the time to wait in milliseconds
+	 * @return the line read, or null if the process has closed its output or no complete line arrived in time
+	 * @throws IOException
+	 */
+	public String readLine(long timeout) throws IOException {
+		if (eofRead) {
+			return null;
+		}
+		try {
+			String string = lines.poll(timeout, TimeUnit.MILLISECONDS);
+			return string == null ? null : received(string);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while reading from " + command);
+		}
+	}
+
+	/**
+	 * Drop the lines which have been received but not read yet.  The end of the output, if it
+	 * has been reached, is kept for the next reader.
+	 */
+	public void discardInput() {
+		String string;
+		while ((string = lines.poll()) != null) {
+			if (string == EOF) {
+				lines.add(EOF);
+				return;
+			}
+			Debugger.getInstance().debug("ExternalIO: " + command + ": discarded [" + string + "]");
+		}
+	}
+
+	private String received(String string) {
+		if (string == EOF) {
+			eofRead = true;
+			string = null;
+		}
 		Debugger.getInstance().debug("ExternalIO: " + command + ": read [" + string + "]");
 		return string;
 	}
@@ -55,7 +176,16 @@ public class ExternalIO {
 		start();
 	}
 
+	public boolean isAlive() {
+		return process != null && process.isAlive();
+	}
+
 	public void destroy() {
-		process.destroy();
+		if (process != null) {
+			process.destroy();
+		}
+		EngineReactor.getInstance().unregister(this);
+		// wake up anyone still waiting for output
+		endOfStream();
 	}
 }
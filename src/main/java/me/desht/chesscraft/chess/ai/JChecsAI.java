@@ -1,27 +1,60 @@
 package me.desht.chesscraft.chess.ai;
 
+import chesspresso.Chess;
 import fr.free.jchecs.ai.Engine;
 import fr.free.jchecs.ai.EngineFactory;
+import fr.free.jchecs.ai.SearchResult;
 import fr.free.jchecs.core.*;
 import me.desht.chesscraft.ChessCraft;
 import me.desht.chesscraft.Messages;
 import me.desht.chesscraft.chess.ChessGame;
 import me.desht.chesscraft.chess.TimeControl;
 import me.desht.chesscraft.exceptions.ChessException;
+import me.desht.dhutils.Debugger;
 import org.bukkit.configuration.ConfigurationSection;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * @author des
  *
  */
 public class JChecsAI extends ChessAI {
 
+	// number of moves assumed to remain when the time control doesn't say
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+	// time kept in reserve to cover scheduling and move-processing latency (ms)
+	private static final long SAFETY_MARGIN = 500L;
+	// shortest search budget we will ask the engine for (ms)
+	private static final long MIN_BUDGET = 100L;
+
 	private final Game jChecsGame;
+	private final boolean ponderEnabled;
+	// depth of untimed searches, and the deepest a timed search may go
+	private final int depth;
+	private final int maxDepth;
+	// threads a search may use, if the AI workers have them to spare
+	private final int threads;
+	private volatile TimeControl timeControl;
+	// number of the engine search for our next move, allotted when the AI is told to think
+	private volatile long searchId;
+	// search running (or finished) on the opponent's time, if any
+	private volatile Ponder ponder;
+	// search to start on the opponent's time once our move is made, if any
+	private Ponder nextPonder;
 
 	public JChecsAI(String name, ChessGame chessCraftGame, Boolean isWhite, ConfigurationSection params) {
 		super(name, chessCraftGame, isWhite, params);
 
+		depth = params.getInt("depth", 1);
+		maxDepth = Math.max(depth, params.getInt("max_depth", depth));
+		threads = Math.max(1, params.getInt("threads", 1));
 		jChecsGame = initGame();
+		ponderEnabled = params.getBoolean("ponder", false);
 
 		setReady();
 	}
@@ -45,9 +78,15 @@ public class JChecsAI extends ChessAI {
 		if (moteur == null) {
 			throw new ChessException("unknown jChecs engine: " + engine);
 		}
-		int searchDepth = params.getInt("depth", 1);
-		moteur.setSearchDepthLimit(searchDepth);
+		moteur.setSearchDepthLimit(depth);
+		if (params.contains("hash")) {
+			moteur.setHashSize(params.getInt("hash"));
+		}
+		if (params.contains("nodes")) {
+			moteur.setNodeLimit(params.getLong("nodes"));
+		}
 		moteur.setOpeningsEnabled(ChessCraft.getInstance().getConfig().getBoolean("ai.use_opening_book", false));
+		moteur.setTablebasesEnabled(ChessCraft.getInstance().getConfig().getBoolean("ai.use_tablebases", true));
 		ai.setEngine(moteur);
 
 		return jChecsGame;
@@ -58,9 +97,23 @@ public class JChecsAI extends ChessAI {
 	 */
 	@Override
 	public void shutdown() {
+		abortSearch();
+		stopPondering();
 		jChecsGame.getPlayer(isWhite()).setEngine(null);
 	}
 
+	/* (non-Javadoc)
+	 * @see me.desht.chesscraft.chess.ai.ChessAI#prepareToThink()
+	 */
+	@Override
+	protected void prepareToThink() {
+		Engine engine = jChecsGame.getPlayer(isWhite()).getEngine();
+		if (engine != null) {
+			// a stop request from now on applies to this search, even before it starts
+			searchId = engine.newSearch();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see me.desht.chesscraft.chess.ai.AbstractAI#run()
 	 */
@@ -69,21 +122,60 @@ public class JChecsAI extends ChessAI {
 		try {
 			final MoveGenerator plateau = jChecsGame.getBoard();
 			final Engine engine = jChecsGame.getPlayer(isWhite()).getEngine();
-			final fr.free.jchecs.core.Move m = engine.getMoveFor(plateau);
+			long budget = getTimeBudget();
+			fr.free.jchecs.core.Move m = takePonderMove(engine, budget);
+			if (m == null) {
+				if (budget > 0) {
+					Debugger.getInstance().debug(2, gameDetails + "searching with a time budget of " + budget + "ms");
+				}
+				m = search(engine, plateau, searchId, budget, budget > 0 ? maxDepth : depth);
+			}
+			SearchResult result = engine.getSearchResult();
+			if (result != null) {
+				Debugger.getInstance().debug(2, gameDetails + result);
+			}
+			String hashStats = engine.getHashStatistics();
+			if (hashStats != null) {
+				Debugger.getInstance().debug(2, gameDetails + hashStats);
+			}
+			if (ponderEnabled && result != null) {
+				synchronized (jChecsGame) {
+					nextPonder = planPondering(engine, plateau, m, result);
+				}
+			}
 			aiHasMoved(m.getFrom().getIndex(), m.getTo().getIndex());
+			synchronized (jChecsGame) {
+				nextPonder = null;
+			}
 		} catch (Exception e) {
 			aiHasFailed(e);
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see me.desht.chesscraft.chess.ai.ChessAI#abortSearch()
+	 */
+	@Override
+	protected void abortSearch() {
+		Engine engine = jChecsGame.getPlayer(isWhite()).getEngine();
+		if (engine != null) {
+			engine.stopSearch();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see me.desht.chesscraft.chess.ai.AbstractAI#undoLastMove()
 	 */
 	@Override
 	public void undoLastMove() {
-		jChecsGame.goPrevious();
-		if (!toMove())
+		synchronized (jChecsGame) {
+			stopPondering();
 			jChecsGame.goPrevious();
+			if (!toMove())
+				jChecsGame.goPrevious();
+		}
+		// the engine's hash table and move ordering were learnt along the abandoned line
+		jChecsGame.getPlayer(isWhite()).getEngine().clearSearchState();
 	}
 
 	/* (non-Javadoc)
@@ -95,12 +187,239 @@ public class JChecsAI extends ChessAI {
 		Square from = Square.valueOf(fromSqi);
 		Square to = Square.valueOf(toSqi);
 
-		Move m = new Move(jChecsGame.getBoard().getPieceAt(from), from, to);
-		jChecsGame.moveFromCurrent(m);
+		// our own moves are made from the AI worker, the opponent's from the server thread
+		synchronized (jChecsGame) {
+			Move m = new Move(jChecsGame.getBoard().getPieceAt(from), from, to);
+			jChecsGame.moveFromCurrent(m);
+
+			if (otherPlayer) {
+				Ponder p = ponder;
+				if (p != null) {
+					p.hit = p.predicted.getFrom().equals(from) && p.predicted.getTo().equals(to);
+					Debugger.getInstance().debug(2, gameDetails + (p.hit ? "ponder hit" : "ponder miss"));
+					if (!p.hit) {
+						// free the CPU now rather than when our own search starts
+						stopPondering();
+					}
+				}
+			} else if (nextPonder != null) {
+				// no reply can have been made yet: the opponent's move needs this lock
+				startPondering(nextPonder);
+				nextPonder = null;
+			}
+		}
+	}
+
+	/**
+	 * Run an engine search.  Helper threads for a parallel search count against the AI workers'
+	 * thread limit, so the search only gets as many as are free when it starts.  The limits are
+	 * handed to the engine with the search, since our move search and a ponder search may be
+	 * started from different threads.
+	 *
+	 * @param engine the engine
+	 * @param position the position to search
+	 * @param id the search number
+	 * @param budget the time budget in milliseconds, or 0 for a fixed-depth search
+	 * @param maxPly the depth limit
+	 * @return the move found
+	 */
+	private fr.free.jchecs.core.Move search(Engine engine, MoveGenerator position, long id, long budget, int maxPly) {
+		AIExecutor executor = AIFactory.getInstance().getExecutor();
+		int helpers = executor.reserveThreads(threads - 1);
+		try {
+			return engine.getMoveFor(position, id, budget, maxPly, 1 + helpers);
+		} finally {
+			executor.releaseThreads(helpers);
+		}
+	}
+
+	/**
+	 * Work out what to search on the opponent's time after our move: the position after the reply
+	 * predicted by the principal variation of our search.  The position is derived from the one we
+	 * searched rather than from the game, which may move on as soon as our move is published.  The
+	 * engine keeps its transposition table, so even a wrong prediction leaves it warmed up for the
+	 * real search.
+	 *
+	 * @param engine the engine which has just searched
+	 * @param searched the position searched
+	 * @param m the move found
+	 * @param result the result of the search
+	 * @return the ponder search to start once our move is made, or null if there's nothing to ponder
+	 */
+	private Ponder planPondering(Engine engine, MoveGenerator searched, fr.free.jchecs.core.Move m, SearchResult result) {
+		fr.free.jchecs.core.Move[] pv = result.getPrincipalVariation();
+		if (pv.length < 2 || !pv[0].equals(m)) {
+			return null;
+		}
+		MoveGenerator position = searched.derive(m, true).derive(pv[1], true);
+		if (position.getValidMoves(position.isWhiteActive()).length == 0) {
+			return null;
+		}
+		return new Ponder(engine, pv[1], position);
+	}
+
+	/**
+	 * Start a ponder search.  Called with our move just made, before the opponent can reply.
+	 *
+	 * @param p the ponder search
+	 */
+	private void startPondering(Ponder p) {
+		ponder = p;
+		Debugger.getInstance().debug(2, gameDetails + "pondering on " + p.predicted.getFrom() + "->" + p.predicted.getTo());
+		p.start();
+	}
+
+	/**
+	 * Ask any search running on the opponent's time to stop, without waiting for it: the engine
+	 * is released as soon as the search unwinds, and our next search simply waits for that.
+	 */
+	private void stopPondering() {
+		Ponder p = ponder;
+		ponder = null;
+		if (p != null) {
+			p.stop();
+		}
+	}
+
+	/**
+	 * Get our move from the ponder search, if the opponent played the predicted reply.  A ponder
+	 * search which is still running is allowed to continue within the time budget for this move.
+	 *
+	 * @param engine the engine
+	 * @param budget the time budget in milliseconds, or 0 if the game is untimed
+	 * @return the move found by the ponder search, or null if a normal search is needed
+	 */
+	private fr.free.jchecs.core.Move takePonderMove(Engine engine, long budget) {
+		Ponder p = ponder;
+		ponder = null;
+		if (p == null) {
+			return null;
+		}
+		if (!p.hit || !p.isStarted() || p.preempted) {
+			p.stop();
+			return null;
+		}
+		try {
+			if (budget > 0) {
+				try {
+					return p.task.get(budget, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					p.stop();
+				}
+			}
+			return p.task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Debugger.getInstance().debug(gameDetails + "ponder search failed: " + e.getCause());
+		}
+		return null;
+	}
+
+	/**
+	 * A search of the position after the opponent's predicted reply.
+	 */
+	private class Ponder implements Callable<fr.free.jchecs.core.Move> {
+		private final Engine engine;
+		private final fr.free.jchecs.core.Move predicted;
+		private final MoveGenerator position;
+		private final FutureTask<fr.free.jchecs.core.Move> task;
+		private volatile long id;
+		private volatile boolean hit;
+		private volatile boolean preempted;
+		private boolean started;
+		private boolean stopped;
+
+		Ponder(Engine engine, fr.free.jchecs.core.Move predicted, MoveGenerator position) {
+			this.engine = engine;
+			this.predicted = predicted;
+			this.position = position;
+			this.task = new FutureTask<fr.free.jchecs.core.Move>(this);
+		}
+
+		/**
+		 * Number the search, and queue it as a background job of the AI workers, so that it only
+		 * uses a worker no AI needs to calculate its move.  The number is taken after our move's
+		 * own search was stopped, so that stop request can't apply to it.
+		 */
+		void start() {
+			id = engine.newSearch();
+			AIFactory.getInstance().getExecutor().submitBackground(JChecsAI.this, task, new Runnable() {
+				@Override
+				public void run() {
+					// another AI needs the worker: whatever the reply, search again when it comes
+					preempted = true;
+					stop();
+				}
+			});
+		}
+
+		@Override
+		public fr.free.jchecs.core.Move call() {
+			synchronized (this) {
+				if (stopped) {
+					return null;
+				}
+				started = true;
+			}
+			// the search is bounded by the AI's depth and by stop requests only
+			return search(engine, position, id, 0, depth);
+		}
+
+		synchronized boolean isStarted() {
+			return started;
+		}
+
+		/**
+		 * Ask the search to stop, without waiting for it.  The stop request targets this search's
+		 * number, so it holds even if the engine has not started searching yet, and never affects
+		 * a later search.
+		 */
+		void stop() {
+			synchronized (this) {
+				stopped = true;
+			}
+			engine.stopSearch(id);
+		}
 	}
 
 	@Override
 	public void notifyTimeControl(TimeControl timeControl) {
-		// do nothing here... JChecs doesn't support time controls
+		this.timeControl = timeControl;
+	}
+
+	/**
+	 * Work out how long the engine may think about its next move, given the time control
+	 * in force and the time left on our clock.
+	 *
+	 * @return the time budget in milliseconds, or 0 if the game is untimed (fixed-depth search)
+	 */
+	private long getTimeBudget() {
+		TimeControl tc = timeControl;
+		if (tc == null) {
+			tc = getChessCraftGame().getClock().getTimeControl();
+		}
+		if (tc == null || tc.getControlType() == TimeControl.ControlType.NONE) {
+			return 0;
+		}
+
+		long remaining = getChessCraftGame().getClock().getRemainingTime(isWhite() ? Chess.WHITE : Chess.BLACK);
+		long budget;
+		switch (tc.getControlType()) {
+		case MOVE_IN:
+			budget = remaining;
+			break;
+		case ROLLOVER:
+			TimeControl.RolloverPhase phase = tc.getCurrentPhase();
+			int movesToGo = Math.min(DEFAULT_MOVES_TO_GO, Math.max(1, phase.getMoves()));
+			budget = remaining / movesToGo + (phase.getIncrement() * 3) / 4;
+			break;
+		default:
+			budget = remaining / DEFAULT_MOVES_TO_GO;
+			break;
+		}
+		budget = Math.min(budget, remaining - SAFETY_MARGIN);
+
+		return Math.max(MIN_BUDGET, budget);
 	}
 }
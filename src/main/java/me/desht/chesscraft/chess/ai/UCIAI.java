@@ -0,0 +1,292 @@
+package me.desht.chesscraft.chess.ai;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import chesspresso.position.Position;
+import me.desht.chesscraft.chess.ChessGame;
+import me.desht.chesscraft.chess.TimeControl;
+import me.desht.chesscraft.chess.TwoPlayerClock;
+import me.desht.chesscraft.exceptions.ChessException;
+import me.desht.dhutils.Debugger;
+import me.desht.dhutils.LogUtils;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author desht
+ *
+ * An AI which drives an external engine through the UCI protocol.  UCI engines keep no game
+ * state between searches: each search sends the whole game as "position ... moves ..." followed
+ * by a "go" command built from the game clock, so undoing moves or restoring a saved game needs
+ * nothing special, and engine processes can be shared through the {@link EngineProcessPool}.
+ */
+public class UCIAI extends ChessAI {
+	// search time per move in untimed games, unless the AI defines "depth" or "movetime" (ms)
+	private static final long DEFAULT_MOVETIME = 3000L;
+
+	private final String command;
+	private final Map<String, String> options = new LinkedHashMap<String, String>();
+	// the engine process leased for the search in progress, if any
+	private volatile EngineProcess engine;
+	// set when the job we were given is aborted, even before it has an engine
+	private final AtomicBoolean aborted = new AtomicBoolean();
+	// position to which the game's move history applies
+	private String baseFEN = null;
+
+	public UCIAI(String name, ChessGame chessCraftGame, Boolean isWhite, ConfigurationSection params) {
+		super(name, chessCraftGame, isWhite, params);
+
+		command = params.getString("command", "stockfish");
+		if (params.contains("hash")) {
+			options.put("Hash", params.getString("hash"));
+		}
+		if (params.contains("threads")) {
+			options.put("Threads", params.getString("threads"));
+		}
+		ConfigurationSection opts = params.getConfigurationSection("options");
+		if (opts != null) {
+			for (String k : opts.getKeys(false)) {
+				options.put(k, opts.getString(k));
+			}
+		}
+
+		// engine processes are started by the pool when first needed
+		setReady();
+	}
+
+	@Override
+	public void shutdown() {
+		abortSearch();
+	}
+
+	@Override
+	protected void prepareToThink() {
+		// an abort from now on applies to this job, even while it waits for an engine
+		aborted.set(false);
+	}
+
+	@Override
+	public void run() {
+		EngineProcessPool pool = getEnginePool();
+		// one retry, on a fresh process, if the engine dies during the search
+		for (int attempt = 0; attempt < 2; attempt++) {
+			EngineProcess p;
+			try {
+				p = pool.lease(this, command, EngineProcess.Protocol.UCI, options, EngineProcessPool.LEASE_TIMEOUT, aborted);
+			} catch (ChessException e) {
+				aiHasFailed(e);
+				return;
+			}
+			if (p == null) {
+				Debugger.getInstance().debug(gameDetails + "search aborted while waiting for an engine");
+				return;
+			}
+			if (aborted.get()) {
+				pool.release(p);
+				return;
+			}
+			boolean finished = false;
+			try {
+				finished = search(p);
+			} catch (Exception e) {
+				// the engine's state is unknown: don't hand it to anyone else
+				aiHasFailed(e);
+				pool.discard(p);
+				return;
+			} finally {
+				engine = null;
+			}
+			if (finished) {
+				pool.release(p);
+				return;
+			}
+			pool.discard(p);
+			LogUtils.warning(gameDetails + "UCI engine " + p.getEngineName() + " has exited during a search");
+		}
+		aiHasFailed(new ChessException("UCI engine " + command + " keeps exiting"));
+	}
+
+	/**
+	 * Send the game to a leased engine and have it search for a move.
+	 *
+	 * @param p the engine process
+	 * @return false if the engine exited before finishing its search
+	 * @throws IOException
+	 * @throws IllegalMoveException if the engine's move can't be understood
+	 */
+	private boolean search(EngineProcess p) throws IOException, IllegalMoveException {
+		ExternalIO io = p.getIO();
+		io.writeLine(getPositionCommand());
+		io.writeLine(getGoCommand());
+		// only now may abortSearch() send "stop": an earlier one would be lost before "go"
+		engine = p;
+		if (aborted.get()) {
+			io.writeLine("stop");
+		}
+
+		SearchInfo info = new SearchInfo(p.getEngineName());
+		String line;
+		while ((line = io.readLine()) != null) {
+			if (line.startsWith("info ")) {
+				info.parse(line);
+			} else if (line.startsWith("bestmove")) {
+				break;
+			}
+		}
+		if (line == null) {
+			return false;
+		}
+		// the search is over: moving must not abort it
+		engine = null;
+		if (aborted.get()) {
+			Debugger.getInstance().debug(gameDetails + "discarding aborted search result: " + line);
+			return true;
+		}
+		Debugger.getInstance().debug(2, gameDetails + info);
+
+		String[] fields = line.split("\\s+");
+		if (fields.length < 2 || !fields[1].matches("[a-h][1-8][a-h][1-8][nbrq]?")) {
+			throw new IllegalMoveException("illegal move: " + line);
+		}
+		aiHasMoved(Chess.strToSqi(fields[1].substring(0, 2)), Chess.strToSqi(fields[1].substring(2, 4)));
+		return true;
+	}
+
+	/**
+	 * Build the "position" command for the current game.  The game's move history is replayed
+	 * from the standard start position, or from the position the board was last set to when the
+	 * history was empty.
+	 *
+	 * @return the command
+	 */
+	String getPositionCommand() {
+		List<Short> history = getChessCraftGame().getHistory();
+		Position pos = getChessCraftGame().getPosition();
+		if (history.isEmpty()) {
+			baseFEN = pos.getFEN();
+		}
+		StringBuilder sb = new StringBuilder("position ");
+		if (baseFEN == null) {
+			sb.append("startpos");
+		} else {
+			sb.append("fen ").append(baseFEN);
+		}
+		if (!history.isEmpty()) {
+			sb.append(" moves");
+			for (short move : history) {
+				sb.append(' ').append(Chess.sqiToStr(Move.getFromSqi(move))).append(Chess.sqiToStr(Move.getToSqi(move)));
+				if (Move.isPromotion(move)) {
+					sb.append(Character.toLowerCase(Chess.pieceToChar(Move.getPromotionPiece(move))));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Build the "go" command for our next search, from the time left on both players' clocks.
+	 *
+	 * @return the command
+	 */
+	String getGoCommand() {
+		TwoPlayerClock clock = getChessCraftGame().getClock();
+		TimeControl tc = clock.getTimeControl();
+		TimeControl.ControlType type = tc == null ? TimeControl.ControlType.NONE : tc.getControlType();
+		switch (type) {
+		case MOVE_IN:
+			return "go movetime " + clock.getRemainingTime(isWhite() ? Chess.WHITE : Chess.BLACK);
+		case GAME_IN:
+		case ROLLOVER:
+			StringBuilder sb = new StringBuilder("go");
+			sb.append(" wtime ").append(clock.getRemainingTime(Chess.WHITE));
+			sb.append(" btime ").append(clock.getRemainingTime(Chess.BLACK));
+			if (type == TimeControl.ControlType.ROLLOVER) {
+				long inc = tc.getCurrentPhase().getIncrement();
+				if (inc > 0) {
+					sb.append(" winc ").append(inc).append(" binc ").append(inc);
+				}
+			}
+			return sb.toString();
+		default:
+			if (params.contains("depth")) {
+				return "go depth " + params.getInt("depth");
+			}
+			return "go movetime " + params.getLong("movetime", DEFAULT_MOVETIME);
+		}
+	}
+
+	@Override
+	protected void abortSearch() {
+		aborted.set(true);
+		getEnginePool().wakeWaiters();
+		EngineProcess p = engine;
+		if (p != null) {
+			p.getIO().writeLine("stop");
+		}
+	}
+
+	@Override
+	public void undoLastMove() {
+		// nothing to do: the engine is sent the whole game for each search
+	}
+
+	@Override
+	protected void movePiece(int fromSqi, int toSqi, boolean otherPlayer) {
+		// nothing to do: the engine is sent the whole game for each search
+	}
+
+	@Override
+	public void notifyTimeControl(TimeControl timeControl) {
+		// nothing to do: the clock times are sent with each "go" command
+	}
+
+	/**
+	 * The latest search statistics reported by the engine's "info" lines.
+	 */
+	private static class SearchInfo {
+		private final String engineName;
+		private String depth = "?";
+		private String score = "?";
+		private String nodes = "?";
+		private String nps = "?";
+		private String pv = "";
+
+		private SearchInfo(String engineName) {
+			this.engineName = engineName;
+		}
+
+		private void parse(String line) {
+			String[] f = line.split("\\s+");
+			for (int i = 1; i < f.length - 1; i++) {
+				if (f[i].equals("depth")) {
+					depth = f[++i];
+				} else if (f[i].equals("score") && i + 2 < f.length) {
+					score = f[i + 1].equals("mate") ? "#" + f[i + 2] : f[i + 2];
+					i += 2;
+				} else if (f[i].equals("nodes")) {
+					nodes = f[++i];
+				} else if (f[i].equals("nps")) {
+					nps = f[++i];
+				} else if (f[i].equals("pv")) {
+					StringBuilder sb = new StringBuilder();
+					for (int j = i + 1; j < f.length; j++) {
+						sb.append(' ').append(f[j]);
+					}
+					pv = sb.toString();
+					break;
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return engineName + ": depth " + depth + " score " + score + " nodes " + nodes + " nps " + nps + " pv" + pv;
+		}
+	}
+}
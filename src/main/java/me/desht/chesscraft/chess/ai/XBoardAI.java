@@ -3,21 +3,17 @@ package me.desht.chesscraft.chess.ai;
 import chesspresso.Chess;
 import chesspresso.move.IllegalMoveException;
 import chesspresso.move.Move;
-import me.desht.chesscraft.ChessCraft;
 import me.desht.chesscraft.chess.ChessGame;
 import me.desht.chesscraft.chess.TimeControl;
 import me.desht.chesscraft.chess.TimeControl.RolloverPhase;
+import me.desht.chesscraft.chess.TwoPlayerClock;
 import me.desht.chesscraft.exceptions.ChessException;
-import me.desht.dhutils.Debugger;
-import me.desht.dhutils.LogUtils;
-import me.desht.dhutils.MiscUtil;
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,62 +25,137 @@ public class XBoardAI extends ChessAI {
 			Pattern.compile("(my)?\\s*move\\s*(is)?\\s*[:>=\\-]?\\s*(.+)", Pattern.CASE_INSENSITIVE);
 	private static final Pattern patternIllegal =
 			Pattern.compile("(Illegal move.+)|(Error.+)", Pattern.CASE_INSENSITIVE);
+	private static final Map<String, String> NO_OPTIONS = Collections.emptyMap();
 
-	private final ExternalIO io;
-	private final Map<String,String> features = new ConcurrentHashMap<String, String>();
+	private final String command;
+	// the engine process leased for the search in progress, if any
+	private volatile EngineProcess engine;
+	private volatile TimeControl timeControl;
+	// set when the job we were given is aborted, even before it has an engine
+	private final AtomicBoolean aborted = new AtomicBoolean();
 
 	private boolean moveFormatSAN = false;
+	// set when the engine's move has been read, so the search is over
+	private boolean moveRead = false;
 
 	public XBoardAI(String name, ChessGame chessCraftGame, Boolean isWhite, ConfigurationSection params) {
 		super(name, chessCraftGame, isWhite, params);
 
-		String command = params.getString("command", "gnuchess xboard");
-		io = new ExternalIO(command);
-		io.start();
-
-		io.writeLine("xboard");
-		io.writeLine("protover 2");
-
-		// this bit gets done asynchronously
-		new FeatureReader();
+		command = params.getString("command", "gnuchess xboard");
 
+		// engine processes are started by the pool when first needed
+		setReady();
 	}
 
 	@Override
 	public void shutdown() {
-		io.writeLine("exit");
+		abortSearch();
+	}
+
+	@Override
+	protected void prepareToThink() {
+		// an abort from now on applies to this job, even while it waits for an engine
+		aborted.set(false);
 	}
 
 	@Override
 	public void run() {
-		boolean done = false;
-		while (!done) {
-			try {
-				done = parseCommand();
-			} catch (IOException e) {
-				e.printStackTrace();
-				break;
+		EngineProcessPool pool = getEnginePool();
+		EngineProcess p;
+		try {
+			p = pool.lease(this, command, EngineProcess.Protocol.XBOARD, NO_OPTIONS, EngineProcessPool.LEASE_TIMEOUT, aborted);
+		} catch (ChessException e) {
+			aiHasFailed(e);
+			return;
+		}
+		if (p == null) {
+			return;
+		}
+		if (aborted.get()) {
+			pool.release(p);
+			return;
+		}
+		boolean healthy = false;
+		try {
+			healthy = search(p);
+		} catch (IOException e) {
+			aiHasFailed(e);
+		} catch (RuntimeException e) {
+			aiHasFailed(e);
+		} finally {
+			engine = null;
+			if (healthy) {
+				pool.release(p);
+			} else {
+				pool.discard(p);
 			}
 		}
 	}
 
-	@Override
-	public void replayMoves(List<Short> moves) {
-		// Do nothing here, because we set the position when the AI was created
-		// using the "setboard" command.
+	/**
+	 * Set up the game position on a leased engine, and have it search for a move.
+	 *
+	 * @param p the engine process
+	 * @return true if the engine can be leased again
+	 * @throws IOException
+	 */
+	private boolean search(EngineProcess p) throws IOException {
+		if (!p.getFeature("setboard").equals("1")) {
+			throw new ChessException("This xboard engine doesn't support the 'setboard' feature");
+		}
+		moveFormatSAN = p.getFeature("san").equals("1");
+		moveRead = false;
+
+		ExternalIO io = p.getIO();
+		io.writeLine("new");
+		io.writeLine("force");
+		sendTimeControl(io);
+		io.writeLine("setboard " + getChessCraftGame().getPosition().getFEN());
+		if (isDrawOfferedToAI()) {
+			io.writeLine("draw");
+		}
+		io.writeLine("go");
+		// only now may abortSearch() send "?": an earlier one would be lost before "go"
+		engine = p;
+		if (aborted.get()) {
+			io.writeLine("?");
+		}
+
+		boolean done = false;
+		while (!done) {
+			done = parseCommand(io);
+		}
+		// don't let the engine think on in the pool
+		io.writeLine("force");
+		if (!moveRead && !p.canSync()) {
+			// the search ended on a draw offer: a move may still be on its way, and the
+			// next lease would have no way to tell it from the move it asked for
+			return false;
+		}
+		return !hasFailed();
 	}
 
 	@Override
 	public void offerDraw() {
-		io.writeLine("draw");
 		setDrawOfferedToAI(true);
+		EngineProcess p = engine;
+		if (p != null) {
+			p.getIO().writeLine("draw");
+		}
 	}
 
-	public String getFeature(String k) {
-		return features.containsKey(k) ? features.get(k) : "";
+	@Override
+	protected void abortSearch() {
+		aborted.set(true);
+		getEnginePool().wakeWaiters();
+		EngineProcess p = engine;
+		if (p != null) {
+			// have the engine move now; the move is then discarded
+			p.getIO().writeLine("?");
+		}
 	}
 
-	private boolean parseCommand() throws IOException {
+	private boolean parseCommand(ExternalIO io) throws IOException {
 		final String line = io.readLine();
 		if (line == null) {
 			aiHasFailed(new IllegalMoveException("illegal move: " + line));
@@ -94,6 +165,12 @@ public class XBoardAI extends ChessAI {
 		Matcher matcher;
 		matcher = moveFormatSAN ? patternSanMove.matcher(line) : patternMove.matcher(line);
 		if (matcher.matches()) {
+			moveRead = true;
+			if (aborted.get()) {
+				return true;
+			}
+			// the search is over: moving must not abort it
+			engine = null;
 			int fromSqi, toSqi;
 			if (moveFormatSAN) {
 				Move m = getChessCraftGame().getMoveFromSAN(matcher.group(3));
@@ -130,35 +207,38 @@ public class XBoardAI extends ChessAI {
 
 	@Override
 	public void undoLastMove() {
-		if (toMove()) {
-			// stop the AI thinking, and back up one move
-			io.writeLine("force");
-			setActive(false);
-			io.writeLine("undo");
-		} else {
-			// undo the AI's last move and the other player's last move
-			io.writeLine("undo");
-			io.writeLine("undo");
-		}
-		// it is now the other player's move again
+		// nothing to do here: the engine is sent the current position before every search
 	}
 
 	@Override
 	protected void movePiece(int fromSqi, int toSqi, boolean otherPlayer) {
-		// we only send the move if it's the other player doing the move
-		if (otherPlayer) {
-			String move = Chess.sqiToStr(fromSqi) + Chess.sqiToStr(toSqi);
-			io.writeLine(move);
-		}
+		// nothing to do here: the engine is sent the current position before every search
 	}
 
 	@Override
 	public void notifyTimeControl(TimeControl timeControl) {
-		long totalSecs = timeControl.getTotalTime() / 1000;
+		this.timeControl = timeControl;
+	}
+
+	/**
+	 * Send the time control, and the time left on both clocks, to a freshly reset engine.
+	 *
+	 * @param io the engine's I/O channel
+	 */
+	private void sendTimeControl(ExternalIO io) {
+		TimeControl tc = timeControl;
+		if (tc == null) {
+			tc = getChessCraftGame().getClock().getTimeControl();
+		}
+		if (tc == null) {
+			return;
+		}
+
+		long totalSecs = tc.getTotalTime() / 1000;
 		long secs = totalSecs % 60;
 		long mins = totalSecs / 60;
 
-		switch (timeControl.getControlType()) {
+		switch (tc.getControlType()) {
 		case MOVE_IN:
 			io.writeLine("st " + totalSecs);
 			break;
@@ -166,84 +246,18 @@ public class XBoardAI extends ChessAI {
 			io.writeLine("level 0 " + mins + ":" + secs + " 0");
 			break;
 		case ROLLOVER:
-			RolloverPhase phase = timeControl.getCurrentPhase();
+			RolloverPhase phase = tc.getCurrentPhase();
 			io.writeLine("level " + phase.getMoves() + " " + phase.getMinutes() + " " + phase.getIncrement() / 1000);
 			break;
 		default:
-			break;
+			return;
 		}
-	}
-
-	private class FeatureReader implements Runnable {
-
-		private FeatureReader() {
-			Bukkit.getScheduler().runTaskAsynchronously(ChessCraft.getInstance(), this);
-		}
-
-		private void readLines() {
-			boolean done = false;
-			while (!done) {
-				try {
-					String s = io.readLine();
-					Debugger.getInstance().debug(2, "featurereader: [" + s + "]");
-					if (s.startsWith("feature ")) {
-						List<String> f = MiscUtil.splitQuotedString(s.replace("=", " "));
-						for (int i = 1; i < f.size(); i += 2) {
-							if ((i + 1) >= f.size()) break;
-							String k = f.get(i);
-							String v = f.get(i+1);
-							features.put(k, v);
-							if (k.equals("done") && v.equals("1")) {
-								Debugger.getInstance().debug("feature reader done: " + features.size() + " features reported");
-								done = true;
-							}
-						}
-					}
-				} catch (IOException e) {
-					LogUtils.severe("FeatureReader: caught io exception: " + e.getMessage());
-					done = true;
-				}
-			}
-
-			setReady();
-		}
-
-		@Override
-		public void run() {
-			ExecutorService executor = Executors.newFixedThreadPool(1);
-
-			Callable<Void> readTask = new Callable<Void>() {
-				@Override
-				public Void call() throws Exception {
-					readLines();
-					return null;
-				}
-			};
-
-			Future<Void> future = executor.submit(readTask);
-			try {
-				// we give the AI engine 2 seconds to reply to the "protover" command
-				// with a list of features
-				future.get(2000, TimeUnit.MILLISECONDS);
-
-				// now it's safe to finish AI init
-
-				if (getFeature("san").equals("1")) {
-					moveFormatSAN = true;
-				}
-
-				if (getFeature("setboard").equals("1")) {
-					io.writeLine("setboard " + getChessCraftGame().getPosition().getFEN());
-
-					if (toMove()) {
-						io.writeLine("go");
-					}
-				} else {
-					aiHasFailed(new ChessException("This xboard engine doesn't support the 'setboard' feature"));
-				}
-			} catch (Exception e) {
-				aiHasFailed(e);
-			}
+		if (tc.getControlType() != TimeControl.ControlType.MOVE_IN) {
+			// xboard clock times are in centiseconds
+			TwoPlayerClock clock = getChessCraftGame().getClock();
+			int us = isWhite() ? Chess.WHITE : Chess.BLACK;
+			io.writeLine("time " + clock.getRemainingTime(us) / 10);
+			io.writeLine("otim " + clock.getRemainingTime(Chess.otherPlayer(us)) / 10);
 		}
 	}
 }
@@ -1,6 +1,7 @@
 package me.desht.chesscraft.commands;
 
 import me.desht.chesscraft.Messages;
+import me.desht.chesscraft.chess.ai.AIExecutor;
 import me.desht.chesscraft.chess.ai.AIFactory;
 import me.desht.chesscraft.chess.ai.AIFactory.AIDefinition;
 import me.desht.chesscraft.util.EconomyUtil;
@@ -40,6 +41,10 @@ public class ListAICommand extends ChessAbstractCommand {
 				lines.add(MessagePager.BULLET +  sb.toString());
 			}
 			pager.add(lines);
+			AIExecutor executor = AIFactory.getInstance().getExecutor();
+			pager.add(Messages.getString("ChessCommandExecutor.AIworkers",
+			                             executor.getActiveCount(), executor.getPoolSize(), executor.getQueueDepth(),
+			                             executor.getAverageWait(), executor.getMaxWait()));
 		} else {
 			AIDefinition aiDef = AIFactory.getInstance().getAIDefinition(args[0], true);
 			pager.add(aiDef.getDetails());
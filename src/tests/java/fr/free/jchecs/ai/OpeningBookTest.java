@@ -0,0 +1,117 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires de la bibliothèque d'ouvertures.
+ * 
+ * @author David Cotton
+ */
+public final class OpeningBookTest
+{
+  /** Collection de parties de test. */
+  private static final String GAMES = "[Event \"Test 1\"]\n" //
+      + "[White \"Test\"]\n" //
+      + "[Black \"Test\"]\n" //
+      + "[Result \"*\"]\n" //
+      + "\n" //
+      + "1. e4 e5 2. Nf3 Nc6 *\n" //
+      + "\n" //
+      + "[Event \"Test 2\"]\n" //
+      + "[White \"Test\"]\n" //
+      + "[Black \"Test\"]\n" //
+      + "[Result \"*\"]\n" //
+      + "\n" //
+      + "1. e4 c5 2. Nf3 *\n";
+
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public OpeningBookTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Teste la construction et la lecture d'une bibliothèque d'ouvertures.
+   * 
+   * @throws IOException En cas d'erreur d'accès au fichier de test.
+   */
+  @Test
+  public void testGetMove() throws IOException
+  {
+    final OpeningBookBuilder constructeur = new OpeningBookBuilder(3);
+    assertEquals(2, constructeur.addGames(new BufferedReader(new StringReader(GAMES))));
+    assertEquals(4, constructeur.getPositionsCount());
+
+    final File fichier = File.createTempFile("jchecs", ".bk");
+    try
+    {
+      assertEquals(5, constructeur.write(fichier, 1));
+      OpeningBook bibliotheque = new OpeningBook(fichier);
+      assertEquals(5, bibliotheque.getCount());
+
+      final Random aleatoire = new Random(0);
+      MoveGenerator etat =
+          BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.STARTING);
+      final Move e4 = bibliotheque.getMove(etat, aleatoire);
+      assertEquals(Square.valueOf("e2"), e4.getFrom());
+      assertEquals(Square.valueOf("e4"), e4.getTo());
+      etat = etat.derive(e4, true);
+      boolean e5 = false;
+      boolean c5 = false;
+      for (int i = 0; i < 100; i++)
+      {
+        final Square dst = bibliotheque.getMove(etat, aleatoire).getTo();
+        e5 |= dst.equals(Square.valueOf("e5"));
+        c5 |= dst.equals(Square.valueOf("c5"));
+      }
+      assertTrue(e5 && c5);
+      etat = etat.derive(new Move(etat.getPieceAt(Square.valueOf("d7")), Square.valueOf("d7"),
+          Square.valueOf("d5")), true);
+      assertNull(bibliotheque.getMove(etat, aleatoire));
+
+      // Seul 1. e4, joué dans les deux parties, atteint un poids de 2...
+      assertEquals(1, constructeur.write(fichier, 2));
+      bibliotheque = new OpeningBook(fichier);
+      assertEquals(1, bibliotheque.getCount());
+    }
+    finally
+    {
+      assertTrue(fichier.delete());
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Tests unitaires de l'évaluation des structures de pions.
+ * 
+ * @author David Cotton
+ */
+public final class PawnStructureHeuristicTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PawnStructureHeuristicTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Teste l'utilisation du cache des structures de pions.
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   */
+  @Test
+  public void testEvaluate() throws FENException
+  {
+    final Heuristic base = new MobilityHeuristic();
+    final PawnStructureHeuristic heuristique = new PawnStructureHeuristic(base);
+    assertNull(heuristique.getTable());
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard("4k3/8/8/8/8/P7/P7/4K3 w - - 0 1"));
+    assertEquals(base.evaluate(etat, true) - 19, heuristique.evaluate(etat, true));
+    assertEquals(0, heuristique.getTable().getHits());
+    assertEquals(1, heuristique.getTable().getMisses());
+    assertEquals(base.evaluate(etat, false) + 19, heuristique.evaluate(etat, false));
+    assertEquals(1, heuristique.getTable().getHits());
+    assertEquals(1, heuristique.getTable().getMisses());
+  }
+
+  /**
+   * Teste l'évaluation des structures de pions.
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   */
+  @Test
+  public void testEvaluatePawns() throws FENException
+  {
+    assertEquals(0, PawnStructureHeuristic.evaluatePawns(BoardFactory.valueOf(
+        BoardFactory.Type.FASTEST, BoardFactory.State.STARTING)));
+    // Pion isolé et passé...
+    assertEquals(-12 + 5, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/8/8/8/8/8/P7/4K3 w - - 0 1")));
+    assertEquals(12 - 5, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/p7/8/8/8/8/8/4K3 w - - 0 1")));
+    // Pions isolés se bloquant mutuellement...
+    assertEquals(0, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/p7/8/8/8/8/P7/4K3 w - - 0 1")));
+    // Pions doublés, isolés et passés...
+    assertEquals(-10 - 2 * 12 + 5 + 10, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/8/8/8/8/P7/P7/4K3 w - - 0 1")));
+    // Pion passé contrôlé par un pion adverse d'une colonne voisine...
+    assertEquals(0, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/1p6/8/8/8/8/P7/4K3 w - - 0 1")));
+    // Pion central isolé et passé...
+    assertEquals(-12 + 20, PawnStructureHeuristic.evaluatePawns(FENUtils
+        .toBoard("4k3/8/8/8/3P4/8/8/4K3 w - - 0 1")));
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Tests unitaires des résultats détaillés des recherches.
+ * 
+ * @author David Cotton
+ */
+public final class SearchResultTest
+{
+  /** Position de milieu de partie utilisée par les tests. */
+  private static final String FEN =
+      "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public SearchResultTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Vérifie qu'une variation principale est une suite de mouvements valides.
+   * 
+   * @param pEtat Etat de départ.
+   * @param pVariation Variation principale.
+   */
+  private static void checkVariation(final MoveGenerator pEtat, final Move [] pVariation)
+  {
+    MoveGenerator etat = pEtat;
+    for (final Move mvt : pVariation)
+    {
+      boolean valide = false;
+      for (final Move m : etat.getValidMoves(etat.isWhiteActive()))
+      {
+        if (m.equals(mvt))
+        {
+          valide = true;
+        }
+      }
+      assertTrue(mvt.toString(), valide);
+      etat = etat.derive(mvt, true);
+    }
+  }
+
+  /**
+   * Teste le résultat d'une recherche à profondeur fixe.
+   * 
+   * @throws FENException En cas d'erreur dans la chaîne FEN du test.
+   */
+  @Test
+  public void testFixedDepth() throws FENException
+  {
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard(FEN));
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout" })
+    {
+      final Engine moteur = EngineFactory.newInstance(nom);
+      moteur.setOpeningsEnabled(false);
+      moteur.setSearchDepthLimit(4);
+      assertNull(moteur.getSearchResult());
+
+      final Move mvt = moteur.getMoveFor(etat);
+      final SearchResult res = moteur.getSearchResult();
+      assertNotNull(res);
+      assertEquals(nom, mvt, res.getMove());
+      assertEquals(nom, 4, res.getDepth());
+      assertEquals(nom, moteur.getScore(), res.getScore());
+      assertTrue(nom, res.getNodes() > 0);
+      assertTrue(nom, res.getCutoffs() > 0);
+      assertTrue(nom, (res.getCutoffRatio() > 0) && (res.getCutoffRatio() <= 100));
+      assertTrue(nom, (res.getHashHitRate() >= 0) && (res.getHashHitRate() <= 100));
+      final Move [] variation = res.getPrincipalVariation();
+      assertTrue(nom, (variation.length >= 1) && (variation.length <= 4));
+      assertEquals(nom, mvt, variation[0]);
+      checkVariation(etat, variation);
+      assertTrue(nom, res.toString().startsWith("depth 4 "));
+    }
+
+    // Seul NegaScout utilise une table de transposition, qui fournit la suite de la variation...
+    final Engine moteur = EngineFactory.newInstance("jChecs.NegaScout");
+    moteur.setOpeningsEnabled(false);
+    moteur.setSearchDepthLimit(4);
+    moteur.getMoveFor(etat);
+    assertTrue(moteur.getSearchResult().getPrincipalVariation().length > 1);
+    assertTrue(moteur.getSearchResult().getHashHitRate() > 0);
+  }
+
+  /**
+   * Teste l'arrêt de recherches numérotées à l'avance : une demande d'arrêt reçue avant le début
+   * de la recherche n'est pas perdue, et ne touche pas les recherches numérotées ensuite.
+   * 
+   * @throws FENException En cas d'erreur dans la chaîne FEN du test.
+   */
+  @Test
+  public void testStopBeforeSearch() throws FENException
+  {
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard(FEN));
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout" })
+    {
+      final Engine moteur = EngineFactory.newInstance(nom);
+      moteur.setOpeningsEnabled(false);
+      moteur.setSearchDepthLimit(4);
+
+      final long premiere = moteur.newSearch();
+      final long seconde = moteur.newSearch();
+      moteur.stopSearch(premiere);
+      final Move mvt = moteur.getMoveFor(etat, premiere);
+      checkVariation(etat, new Move [] { mvt });
+      assertEquals(nom, 0, moteur.getSearchResult().getDepth());
+      assertTrue(nom, moteur.getSearchResult().getNodes() < 10);
+      moteur.getMoveFor(etat, seconde);
+      assertEquals(nom, 4, moteur.getSearchResult().getDepth());
+
+      final long troisieme = moteur.newSearch();
+      moteur.stopSearch();
+      moteur.getMoveFor(etat, troisieme);
+      assertEquals(nom, 0, moteur.getSearchResult().getDepth());
+      moteur.getMoveFor(etat);
+      assertEquals(nom, 4, moteur.getSearchResult().getDepth());
+    }
+  }
+
+  /**
+   * Teste la limite de profondeur d'une recherche limitée en temps : elle ne dépasse pas la limite
+   * fixée, mais peut aller au delà de la profondeur maximale usuelle du moteur.
+   * 
+   * @throws FENException En cas d'erreur dans la chaîne FEN du test.
+   */
+  @Test
+  public void testTimedDepthLimit() throws FENException
+  {
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard(FEN));
+    final Engine moteur = EngineFactory.newInstance("jChecs.AlphaBeta");
+    moteur.setOpeningsEnabled(false);
+    moteur.setTimeLimit(60000);
+    moteur.setSearchDepthLimit(3);
+    moteur.getMoveFor(etat);
+    assertEquals(3, moteur.getSearchResult().getDepth());
+
+    // Finale simple : le temps disponible permet d'aller plus loin que d'habitude...
+    final MoveGenerator finale =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard("8/8/8/4k3/8/8/8/R3K3 w - - 0 1"));
+    moteur.setTablebasesEnabled(false);
+    moteur.setSearchDepthLimit(moteur.getMaximalSearchDepth() + 1);
+    moteur.getMoveFor(finale);
+    assertEquals(moteur.getMaximalSearchDepth() + 1, moteur.getSearchResult().getDepth());
+  }
+
+  /**
+   * Teste une recherche menée avec ses propres limites : elles remplacent celles du moteur.
+   * 
+   * @throws FENException En cas d'erreur dans la chaîne FEN du test.
+   */
+  @Test
+  public void testSearchLimits() throws FENException
+  {
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard(FEN));
+    final Engine moteur = EngineFactory.newInstance("jChecs.AlphaBeta");
+    moteur.setOpeningsEnabled(false);
+    final int min = moteur.getMinimalSearchDepth();
+    moteur.setTimeLimit(1);
+    moteur.setSearchDepthLimit(min);
+    moteur.getMoveFor(etat, moteur.newSearch(), 60000, min + 1, 1);
+    assertEquals(min + 1, moteur.getSearchResult().getDepth());
+    assertEquals(60000, moteur.getTimeLimit());
+    assertEquals(min + 1, moteur.getSearchDepthLimit());
+
+    moteur.getMoveFor(etat, moteur.newSearch(), 0, min, 1);
+    assertEquals(min, moteur.getSearchResult().getDepth());
+    assertEquals(0, moteur.getTimeLimit());
+  }
+
+  /**
+   * Teste le résultat d'un mouvement tiré de la bibliothèque d'ouvertures.
+   */
+  @Test
+  public void testOpenings()
+  {
+    final MoveGenerator etat =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.STARTING);
+    final Engine moteur = EngineFactory.newInstance("jChecs.NegaScout");
+    moteur.setOpeningsEnabled(true);
+    final Move mvt = moteur.getMoveFor(etat);
+    final SearchResult res = moteur.getSearchResult();
+    assertEquals(mvt, res.getMove());
+    assertEquals(0, res.getDepth());
+    assertEquals(1, res.getPrincipalVariation().length);
+    assertEquals(0, res.getNodes());
+    assertFalse(res.toString().contains("null"));
+  }
+}
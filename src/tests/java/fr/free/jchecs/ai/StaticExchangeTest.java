@@ -0,0 +1,87 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import static fr.free.jchecs.core.Piece.BLACK_KNIGHT;
+import static fr.free.jchecs.core.Piece.BLACK_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
+import static fr.free.jchecs.core.Piece.WHITE_ROOK;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.Board;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires de l'évaluation statique des échanges.
+ * 
+ * @author David Cotton
+ */
+public final class StaticExchangeTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public StaticExchangeTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Valide l'évaluation d'échanges simples.
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   */
+  @Test
+  public void testSimpleExchanges() throws FENException
+  {
+    Board etat = FENUtils.toBoard("4k3/8/8/3n4/4P3/8/8/4K3 w - - 0 1");
+    Move mvt = new Move(WHITE_PAWN, Square.valueOf("e4"), Square.valueOf("d5"), BLACK_KNIGHT);
+    assertEquals(300, StaticExchange.evaluate(etat, mvt));
+
+    etat = FENUtils.toBoard("4k3/8/4p3/3n4/4P3/8/8/4K3 w - - 0 1");
+    assertEquals(200, StaticExchange.evaluate(etat, mvt));
+
+    etat = FENUtils.toBoard("4k3/8/2p5/3p4/8/8/3Q4/4K3 w - - 0 1");
+    mvt = new Move(WHITE_QUEEN, Square.valueOf("d2"), Square.valueOf("d5"), BLACK_PAWN);
+    assertEquals(-900, StaticExchange.evaluate(etat, mvt));
+  }
+
+  /**
+   * Valide la prise en compte des pièces masquées par un attaquant (rayons X).
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   */
+  @Test
+  public void testXRays() throws FENException
+  {
+    Board etat = FENUtils.toBoard("3rk3/8/8/3p4/8/8/3R4/4K3 w - - 0 1");
+    final Move mvt = new Move(WHITE_ROOK, Square.valueOf("d2"), Square.valueOf("d5"), BLACK_PAWN);
+    assertEquals(-450, StaticExchange.evaluate(etat, mvt));
+
+    etat = FENUtils.toBoard("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1");
+    assertEquals(100, StaticExchange.evaluate(etat, mvt));
+  }
+}
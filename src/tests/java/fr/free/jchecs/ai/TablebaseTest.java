@@ -0,0 +1,160 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires des tables de finales.
+ * 
+ * @author David Cotton
+ */
+public final class TablebaseTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public TablebaseTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi l'état correspondant à une chaîne FEN.
+   * 
+   * @param pFEN Chaîne FEN.
+   * @return Etat correspondant.
+   * @throws FENException En cas d'erreur dans la chaîne FEN.
+   */
+  private static MoveGenerator toState(final String pFEN) throws FENException
+  {
+    return BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+        FENUtils.toBoard(pFEN));
+  }
+
+  /**
+   * Teste la construction et l'interrogation d'une table.
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   * @throws IOException En cas d'erreur d'écriture / relecture de la table.
+   */
+  @Test
+  public void testGenerate() throws FENException, IOException
+  {
+    final TablebaseGenerator generateur = new TablebaseGenerator();
+    final EndgameTable kqk = generateur.generate("KQK");
+    assertEquals(1, generateur.getGenerated().size());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    kqk.write(out);
+    final Tablebase tables = new Tablebase();
+    tables.add(EndgameTable.read("KQK", new ByteArrayInputStream(out.toByteArray())));
+    assertEquals(3, tables.getMaxPieceCount());
+
+    // Mat, pat et mat en un coup...
+    assertEquals(-1, tables.probe(toState("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")));
+    assertEquals(0, tables.probe(toState("k7/2K5/1Q6/8/8/8/8/8 b - - 0 1")));
+    final MoveGenerator etat = toState("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+    assertEquals(1, tables.probe(etat));
+    final Move mvt = tables.getBestMove(etat);
+    assertEquals(Square.valueOf("g8"), mvt.getTo());
+    // ... couleurs inversées.
+    assertEquals(1, tables.probe(toState("6q1/8/8/8/8/1k6/8/K7 b - - 0 1")));
+    // Distance au mat la plus longue de KQK : 10 coups.
+    int max = 0;
+    for (int i = EndgameTable.sizeOf(3); --i >= 0; /* Pré-décrémenté */)
+    {
+      max = Math.max(max, kqk.getValue(i));
+    }
+    assertEquals(19, max);
+
+    // Positions non couvertes : trop de pièces, droits de roque, table absente.
+    assertEquals(Tablebase.NO_VALUE, tables.probe(toState("k7/8/1K6/8/8/8/8/5RQ1 w - - 0 1")));
+    assertEquals(Tablebase.NO_VALUE, tables.probe(toState("4k3/8/8/8/8/8/8/4K2Q w k - 0 1")));
+    assertEquals(Tablebase.NO_VALUE, tables.probe(toState("k7/8/1K6/8/8/8/8/7R w - - 0 1")));
+    assertNull(tables.getBestMove(toState("k7/8/1K6/8/8/8/8/7R w - - 0 1")));
+    // Matériel insuffisant.
+    assertEquals(0, tables.probe(toState("k7/8/1K6/8/8/8/8/7N w - - 0 1")));
+  }
+
+  /**
+   * Teste les noms des tables.
+   */
+  @Test
+  public void testNames()
+  {
+    assertEquals("KQK", EndgameTable.nameOf(new Piece [] {
+        Piece.BLACK_KING, Piece.WHITE_QUEEN, Piece.WHITE_KING,
+    }, 3));
+    assertEquals("KPKR", EndgameTable.nameOf(new Piece [] {
+        Piece.BLACK_ROOK, Piece.WHITE_PAWN,
+    }, 2));
+    final Piece [] pieces = EndgameTable.piecesOf("KRPK");
+    assertEquals(4, pieces.length);
+    assertEquals(Piece.WHITE_KING, pieces[0]);
+    assertEquals(Piece.BLACK_KING, pieces[1]);
+    assertEquals(Piece.WHITE_ROOK, pieces[2]);
+    assertEquals(Piece.WHITE_PAWN, pieces[3]);
+    for (final String nom : new String [] { "KQ", "KPRK", "KXK", "QKK", })
+    {
+      try
+      {
+        EndgameTable.piecesOf(nom);
+        fail(nom);
+      }
+      catch (final IllegalArgumentException e)
+      {
+        // Nom invalide, comme attendu...
+      }
+    }
+  }
+
+  /**
+   * Teste l'utilisation des tables fournies avec jChecs par les moteurs.
+   * 
+   * @throws FENException En cas d'erreur dans les chaînes FEN des tests.
+   */
+  @Test
+  public void testEngines() throws FENException
+  {
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout", })
+    {
+      final Engine moteur = EngineFactory.newInstance(nom);
+      final Move mvt = moteur.getMoveFor(toState("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1"));
+      assertEquals(Square.valueOf("g8"), mvt.getTo());
+      assertEquals(AbstractEngine.TABLEBASE_WIN_VALUE - 1, moteur.getScore());
+    }
+  }
+}
@@ -192,6 +192,30 @@ public final class BoardTest
     }
   }
 
+  /**
+   * Teste la méthode de calcul des clés "Zobrist" sur 64 bits.
+   */
+  @Test
+  public void testGetZobristKey()
+  {
+    assertFalse(_board1.getZobristKey() == _board2.getZobristKey());
+
+    for (final BoardFactory.State s : BoardFactory.State.values())
+    {
+      Board etatPrec = null;
+      for (final BoardFactory.Type t : BoardFactory.Type.values())
+      {
+        final Board etat = BoardFactory.valueOf(t, s);
+        if (etatPrec != null)
+        {
+          final String nomClasse = etat.getClass().getSimpleName();
+          assertTrue(nomClasse, etatPrec.getZobristKey() == etat.getZobristKey());
+        }
+        etatPrec = etat;
+      }
+    }
+  }
+
   /**
    * Teste la méthode de calcul des clés de hachage.
    */
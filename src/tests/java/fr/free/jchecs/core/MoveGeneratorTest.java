@@ -196,6 +196,42 @@ public final class MoveGeneratorTest
     }
   }
 
+  /**
+   * Teste la génération des mouvements sous forme d'entiers.
+   */
+  @Test
+  public void testGenerateMoves()
+  {
+    final int [] coups = new int [ Constants.MAX_MOVES ];
+    for (final BoardFactory.Type t : BoardFactory.Type.values())
+    {
+      final Random randomizer = new Random(3000);
+      MoveGenerator etat = BoardFactory.valueOf(t, BoardFactory.State.STARTING);
+      final MutableMoveGenerator mutable = BoardFactory.toMutable(etat);
+      final String nomClasse = etat.getClass().getSimpleName();
+      for (int cps = 100; cps >= 0; cps--)
+      {
+        final boolean trait = etat.isWhiteActive();
+        final Move [] mvts = etat.getValidMoves(trait);
+        final int l = etat.generateMoves(trait, coups);
+        assertEquals(nomClasse, mvts.length, l);
+        for (int i = 0; i < l; i++)
+        {
+          assertEquals(nomClasse, mvts[i].toId(), coups[i]);
+          assertEquals(nomClasse, mvts[i], Move.valueOf(coups[i]));
+        }
+        if (l == 0)
+        {
+          break;
+        }
+        final int mvt = coups[randomizer.nextInt(l)];
+        etat = etat.derive(Move.valueOf(mvt), true);
+        mutable.makeMove(mvt);
+        assertEquals(nomClasse, etat, mutable);
+      }
+    }
+  }
+
   /**
    * Teste l'équivalence des méthodes de recherche des cases cibles d'une position.
    */
@@ -487,6 +523,106 @@ public final class MoveGeneratorTest
     }
   }
 
+  /**
+   * Teste l'application et l'annulation de coups nuls sur une instance modifiable.
+   * 
+   * @throws FENException En cas d'erreur dans la description FEN d'une position.
+   */
+  @Test
+  public void testMakeNullMove() throws FENException
+  {
+    final Random randomizer = new Random(2001);
+    final MoveGenerator modele = BoardFactory.valueOf(FASTEST, BoardFactory.State.STARTING);
+    final MutableMoveGenerator etat = BoardFactory.toMutable(modele);
+    for (int cps = 100; cps >= 0; cps--)
+    {
+      final boolean trait = etat.isWhiteActive();
+      final Move [] mvts = etat.getValidMoves(trait);
+      if (mvts.length == 0)
+      {
+        break;
+      }
+      if (!etat.isInCheck(trait))
+      {
+        final String [] champs = FENUtils.toFEN(etat).split(" ");
+        champs[1] = trait ? "b" : "w";
+        champs[3] = "-";
+        champs[4] = Integer.toString(Integer.parseInt(champs[4]) + 1);
+        if (!trait)
+        {
+          champs[5] = Integer.toString(Integer.parseInt(champs[5]) + 1);
+        }
+        final StringBuilder fen = new StringBuilder(champs[0]);
+        for (int i = 1; i < champs.length; i++)
+        {
+          fen.append(' ').append(champs[i]);
+        }
+        final MoveGenerator attendu = modele.derive(FENUtils.toBoard(fen.toString()));
+        final MoveGenerator avant = modele.derive(etat);
+        etat.makeNullMove();
+        assertEquals(attendu, etat);
+        assertEquals(attendu.hashCode(), etat.hashCode());
+        assertEquals(attendu.getZobristKey(), etat.getZobristKey());
+        assertEquals(attendu.getPawnKey(), etat.getPawnKey());
+        sameMoves("MutableMoveGenerator", attendu.getValidMoves(!trait), etat
+            .getValidMoves(!trait));
+        etat.unmakeMove();
+        assertEquals(avant, etat);
+        assertEquals(avant.getZobristKey(), etat.getZobristKey());
+      }
+      etat.makeMove(mvts[randomizer.nextInt(mvts.length)]);
+    }
+  }
+
+  /**
+   * Teste l'application et l'annulation de mouvements sur une instance modifiable.
+   */
+  @Test
+  public void testMakeUnmakeMove()
+  {
+    final Random randomizer = new Random(2000);
+    for (int p = 20; p >= 0; p--)
+    {
+      final MoveGenerator depart = BoardFactory.valueOf(FASTEST, BoardFactory.State.STARTING);
+      final MutableMoveGenerator etat = BoardFactory.toMutable(depart);
+      MoveGenerator reference = depart;
+      int joues = 0;
+      for (int cps = 100; cps >= 0; cps--)
+      {
+        final Move [] mvts = etat.getValidMoves(etat.isWhiteActive());
+        sameMoves("MutableMoveGenerator", reference.getValidMoves(reference.isWhiteActive()), mvts);
+        final int mLength = mvts.length;
+        if (mLength == 0)
+        {
+          break;
+        }
+        for (final Move mvt : mvts)
+        {
+          final MoveGenerator derive = reference.derive(mvt, true);
+          etat.makeMove(mvt);
+          assertEquals(derive, etat);
+          assertEquals(derive.hashCode(), etat.hashCode());
+          assertTrue(derive.isCastled(true) == etat.isCastled(true));
+          assertTrue(derive.isCastled(false) == etat.isCastled(false));
+          assertSame(derive.getKingSquare(true), etat.getKingSquare(true));
+          assertSame(derive.getKingSquare(false), etat.getKingSquare(false));
+          etat.unmakeMove();
+          assertEquals(reference, etat);
+        }
+        final Move mvt = mvts[randomizer.nextInt(mLength)];
+        reference = reference.derive(mvt, true);
+        etat.makeMove(mvt);
+        joues++;
+      }
+      while (joues-- > 0)
+      {
+        etat.unmakeMove();
+      }
+      assertEquals(depart, etat);
+      assertEquals(depart.hashCode(), etat.hashCode());
+    }
+  }
+
   /**
    * Teste l'équivalence des résultats lors du déroulement des parties.
    */
@@ -535,6 +671,10 @@ public final class MoveGeneratorTest
           if (i > 0)
           {
             assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1], etats[i]);
+            assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1].getZobristKey(),
+                etats[i].getZobristKey());
+            assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1].getPawnKey(),
+                etats[i].getPawnKey());
             assertTrue(etats[i].getClass().getSimpleName(),
                 etats[i - 1].isCastled(true) == etats[i].isCastled(true));
             assertTrue(etats[i].getClass().getSimpleName(),
@@ -0,0 +1,104 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static org.junit.Assert.assertEquals;
+
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests unitaires de l'outil de comptage exhaustif des positions ("perft").
+ * 
+ * @author David Cotton
+ */
+public final class PerftTest
+{
+  /** Profondeur maximale des vérifications portant sur toutes les représentations. */
+  private static final int MAX_DEPTH = 3;
+
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PerftTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Teste la cohérence du détail par demi-coup initial avec le comptage global.
+   * 
+   * @throws FENException en cas d'erreur dans une position de référence.
+   */
+  @Test
+  public void testDivide() throws FENException
+  {
+    final Perft.Position p = Perft.Position.KIWIPETE;
+    final MoveGenerator etat = Perft.valueOf(FASTEST, p.getFEN());
+    final Map<Move, Long> detail = Perft.divide(etat, 2, 2);
+    assertEquals(p.getExpectedNodes(1), detail.size());
+    long total = 0;
+    for (final Long n : detail.values())
+    {
+      total += n.longValue();
+    }
+    assertEquals(p.getExpectedNodes(2), total);
+  }
+
+  /**
+   * Teste les positions de référence en profondeur, sur la représentation la plus rapide.
+   * 
+   * @throws FENException en cas d'erreur dans une position de référence.
+   */
+  @Test
+  public void testFastest() throws FENException
+  {
+    for (final Perft.Position p : Perft.Position.values())
+    {
+      final MoveGenerator etat = Perft.valueOf(FASTEST, p.getFEN());
+      final int profondeur = Math.min(p.getMaxDepth(), 4);
+      assertEquals(p.toString(), p.getExpectedNodes(profondeur), Perft.perft(etat, profondeur));
+    }
+  }
+
+  /**
+   * Teste les positions de référence sur toutes les représentations.
+   * 
+   * @throws FENException en cas d'erreur dans une position de référence.
+   */
+  @Test
+  public void testPerft() throws FENException
+  {
+    for (final BoardFactory.Type t : BoardFactory.Type.values())
+    {
+      for (final Perft.Position p : Perft.Position.values())
+      {
+        final MoveGenerator etat = Perft.valueOf(t, p.getFEN());
+        final String nom = etat.getClass().getSimpleName() + ' ' + p;
+        for (int i = Math.min(p.getMaxDepth(), MAX_DEPTH); i > 0; i--)
+        {
+          assertEquals(nom, p.getExpectedNodes(i), Perft.perft(etat, i));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,350 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.chesscraft.exceptions.ChessException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author desht
+ *
+ * Protocol, latency and failure recovery tests for the engine process pool, run against
+ * {@link MockEngine} subprocesses.  Timings are printed so that regressions in handshake time
+ * and move round-trip latency show up in the test output; the assertions only use generous
+ * bounds, so that a slow build machine doesn't fail them.
+ */
+public class EngineProcessPoolTest {
+	private static final Map<String, String> NO_OPTIONS = Collections.emptyMap();
+	// upper bounds which only a broken reader thread or protocol exchange should exceed (ms)
+	private static final long MAX_HANDSHAKE = 10000L;
+	private static final long MAX_ROUND_TRIP = 250L;
+	private static final int ROUND_TRIPS = 50;
+
+	private final Object user = new Object();
+
+	private static EngineProcess lease(EngineProcessPool pool, EngineProcess.Protocol protocol, String... args) {
+		return pool.lease(new Object(), MockEngine.command(args), protocol, NO_OPTIONS, 5000L);
+	}
+
+	/**
+	 * Have a leased engine search for a move, and wait for its answer.
+	 *
+	 * @return the move line, or null if the engine exited
+	 */
+	private static String search(EngineProcess p) throws IOException {
+		ExternalIO io = p.getIO();
+		String prefix;
+		if (p.getFeature("setboard").isEmpty()) {
+			io.writeLine("position startpos moves e2e4");
+			io.writeLine("go movetime 1000");
+			prefix = "bestmove ";
+		} else {
+			io.writeLine("new");
+			io.writeLine("force");
+			io.writeLine("setboard rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+			io.writeLine("go");
+			prefix = "move ";
+		}
+		String line;
+		while ((line = io.readLine()) != null && !line.startsWith(prefix)) {
+			// skip info lines and anything else
+		}
+		return line;
+	}
+
+	@Test
+	public void testUCIHandshake() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			long start = System.currentTimeMillis();
+			EngineProcess p = lease(pool, EngineProcess.Protocol.UCI, "uci");
+			long elapsed = System.currentTimeMillis() - start;
+			System.out.println("UCI handshake: " + elapsed + "ms");
+			assertTrue("handshake took " + elapsed + "ms", elapsed < MAX_HANDSHAKE);
+			assertEquals(MockEngine.NAME, p.getEngineName());
+			assertEquals("bestmove e7e5", search(p));
+			pool.release(p);
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testXBoardHandshake() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			long start = System.currentTimeMillis();
+			EngineProcess p = lease(pool, EngineProcess.Protocol.XBOARD, "xboard");
+			long elapsed = System.currentTimeMillis() - start;
+			System.out.println("XBoard handshake: " + elapsed + "ms");
+			assertTrue("handshake took " + elapsed + "ms", elapsed < MAX_HANDSHAKE);
+			assertEquals(MockEngine.NAME, p.getEngineName());
+			assertEquals("1", p.getFeature("setboard"));
+			assertEquals("1", p.getFeature("ping"));
+			assertEquals("move e7e5", search(p));
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSlowHandshake() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			long start = System.currentTimeMillis();
+			EngineProcess p = lease(pool, EngineProcess.Protocol.UCI, "uci", "--handshake-delay", "300");
+			long elapsed = System.currentTimeMillis() - start;
+			assertTrue("handshake took " + elapsed + "ms", elapsed >= 300);
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRoundTripLatency() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			EngineProcess p = lease(pool, EngineProcess.Protocol.UCI, "uci", "--moves", "e7e5,g8f6,b8c6");
+			String[] expected = { "e7e5", "g8f6", "b8c6", "b8c6" };
+			long total = 0L;
+			long max = 0L;
+			for (int i = 0; i < ROUND_TRIPS; i++) {
+				long start = System.nanoTime();
+				String line = search(p);
+				long elapsed = (System.nanoTime() - start) / 1000L;
+				total += elapsed;
+				max = Math.max(max, elapsed);
+				assertEquals("bestmove " + expected[Math.min(i, expected.length - 1)], line);
+			}
+			System.out.println("UCI round trip: average " + total / ROUND_TRIPS + "us, max " + max + "us");
+			assertTrue("average round trip " + total / ROUND_TRIPS + "us", total / ROUND_TRIPS < MAX_ROUND_TRIP * 1000L);
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStopCutsSearchShort() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			EngineProcess p = lease(pool, EngineProcess.Protocol.XBOARD, "xboard", "--move-delay", "30000");
+			ExternalIO io = p.getIO();
+			io.writeLine("go");
+			assertNull(io.readLine(200L));
+			long start = System.currentTimeMillis();
+			io.writeLine("?");
+			assertEquals("move e7e5", io.readLine(MAX_HANDSHAKE));
+			long elapsed = System.currentTimeMillis() - start;
+			System.out.println("XBoard move now: " + elapsed + "ms");
+			assertTrue("move now took " + elapsed + "ms", elapsed < MAX_ROUND_TRIP * 4);
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testProcessReused() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(2, 0L);
+		try {
+			EngineProcess p1 = pool.lease(user, MockEngine.command("uci"), EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L);
+			assertEquals("bestmove e7e5", search(p1));
+			pool.release(p1);
+			long start = System.currentTimeMillis();
+			EngineProcess p2 = pool.lease(user, MockEngine.command("uci"), EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L);
+			System.out.println("warm lease: " + (System.currentTimeMillis() - start) + "ms");
+			assertSame(p1, p2);
+			assertEquals(1, pool.getProcessCount());
+			pool.release(p2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCrashRecovery() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			EngineProcess p1 = lease(pool, EngineProcess.Protocol.UCI, "uci", "--crash-after", "1");
+			assertNull(search(p1));
+			// a crashed engine must not wait forever for output
+			assertNull(p1.getIO().readLine(100L));
+			pool.discard(p1);
+			assertEquals(0, pool.getProcessCount());
+
+			long start = System.currentTimeMillis();
+			EngineProcess p2 = lease(pool, EngineProcess.Protocol.UCI, "uci", "--crash-after", "1");
+			System.out.println("UCI restart after crash: " + (System.currentTimeMillis() - start) + "ms");
+			assertNotSame(p1, p2);
+			assertTrue(p2.isAlive());
+			assertEquals(1, pool.getProcessCount());
+			pool.release(p2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDeadIdleProcessReplaced() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			EngineProcess p1 = lease(pool, EngineProcess.Protocol.XBOARD, "xboard");
+			pool.release(p1);
+			// the engine dies while idle in the pool
+			p1.getIO().destroy();
+			EngineProcess p2 = lease(pool, EngineProcess.Protocol.XBOARD, "xboard");
+			assertNotSame(p1, p2);
+			assertEquals("move e7e5", search(p2));
+			assertEquals(1, pool.getProcessCount());
+			pool.release(p2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testIdleProcessReaped() {
+		EngineProcessPool pool = new EngineProcessPool(1, 100L);
+		try {
+			EngineProcess p1 = lease(pool, EngineProcess.Protocol.UCI, "uci");
+			pool.release(p1);
+			// reaped without another lease to trigger it
+			sleep(300L);
+			assertFalse(p1.isAlive());
+			assertEquals(0, pool.getProcessCount());
+			EngineProcess p2 = lease(pool, EngineProcess.Protocol.UCI, "uci");
+			assertNotSame(p1, p2);
+			pool.release(p2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSilentEngine() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			long start = System.currentTimeMillis();
+			try {
+				lease(pool, EngineProcess.Protocol.UCI, "uci", "--silent");
+				fail("a silent engine was leased");
+			} catch (ChessException e) {
+				System.out.println("silent engine given up after " + (System.currentTimeMillis() - start) + "ms");
+			}
+			assertEquals(0, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(timeout = 30000L)
+	public void testEngineKeepsFailing() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			// every process starts, then dies when told about a new game
+			lease(pool, EngineProcess.Protocol.UCI, "uci", "--crash-on-newgame");
+			fail("an engine which always fails was leased");
+		} catch (ChessException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(EngineProcessPool.MAX_RESTARTS + " restarts"));
+			assertEquals(0, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testGarbageOutput() throws IOException {
+		EngineProcessPool pool = new EngineProcessPool(2, 0L);
+		try {
+			EngineProcess uci = lease(pool, EngineProcess.Protocol.UCI, "uci", "--garbage");
+			assertEquals(MockEngine.NAME, uci.getEngineName());
+			assertEquals("bestmove e7e5", search(uci));
+			assertTrue(uci.ping());
+			pool.release(uci);
+
+			EngineProcess xboard = lease(pool, EngineProcess.Protocol.XBOARD, "xboard", "--garbage");
+			assertEquals(MockEngine.NAME, xboard.getEngineName());
+			assertEquals("move e7e5", search(xboard));
+			assertTrue(xboard.ping());
+			pool.release(xboard);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLeaseTimeout() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			String command = MockEngine.command("uci");
+			EngineProcess p = pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L);
+			long start = System.currentTimeMillis();
+			try {
+				pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 200L);
+				fail("the pool's process limit was exceeded");
+			} catch (ChessException e) {
+				long elapsed = System.currentTimeMillis() - start;
+				assertTrue("gave up after " + elapsed + "ms", elapsed >= 200L);
+			}
+			pool.release(p);
+			// a released process is handed to the next waiter
+			assertSame(p, pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 200L));
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLeaseAborted() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			String command = MockEngine.command("uci");
+			EngineProcess p = pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L);
+			final AtomicBoolean abort = new AtomicBoolean(true);
+			assertNull(pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L, abort));
+
+			abort.set(false);
+			final EngineProcessPool waiting = pool;
+			new Thread() {
+				@Override
+				public void run() {
+					EngineProcessPoolTest.sleep(100L);
+					abort.set(true);
+					waiting.wakeWaiters();
+				}
+			}.start();
+			long start = System.currentTimeMillis();
+			assertNull(pool.lease(user, command, EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L, abort));
+			long elapsed = System.currentTimeMillis() - start;
+			assertTrue("abort took " + elapsed + "ms", elapsed < 2500L);
+			assertEquals(1, pool.getProcessCount());
+			pool.release(p);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
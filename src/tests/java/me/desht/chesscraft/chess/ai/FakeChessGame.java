@@ -0,0 +1,106 @@
+package me.desht.chesscraft.chess.ai;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import me.desht.chesscraft.chess.ChessGame;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * @author desht
+ *
+ * A chess game for testing AIs without a running server.  It is a real ChessGame, with a real
+ * clock, but it has no players and no board view: moves are played straight into the position
+ * and move history, and alerts are just collected.  A do-nothing Bukkit server is installed
+ * the first time a game is created, since a game asks the server for its name.
+ */
+public class FakeChessGame extends ChessGame {
+	private final List<String> alerts = new ArrayList<String>();
+
+	static {
+		installServer();
+	}
+
+	/**
+	 * @param tcSpec the time control, e.g. "N", "G/5", "M/10" or "40/90/30"
+	 */
+	public FakeChessGame(String tcSpec) {
+		super("test", null, tcSpec, Chess.WHITE);
+	}
+
+	/**
+	 * Play moves, given in coordinate notation, e.g. "e2e4" or "a7a8q".
+	 *
+	 * @param moves the moves
+	 * @throws IllegalArgumentException if a move is not legal
+	 */
+	public void play(String... moves) {
+		for (String s : moves) {
+			short move = findMove(s);
+			try {
+				getPosition().doMove(move);
+			} catch (IllegalMoveException e) {
+				throw new IllegalArgumentException("illegal move: " + s);
+			}
+			getHistory().add(move);
+		}
+	}
+
+	private short findMove(String s) {
+		int from = Chess.strToSqi(s.substring(0, 2));
+		int to = Chess.strToSqi(s.substring(2, 4));
+		for (short m : getPosition().getAllMoves()) {
+			if (Move.getFromSqi(m) != from || Move.getToSqi(m) != to) {
+				continue;
+			}
+			if (!Move.isPromotion(m) && s.length() == 4) {
+				return m;
+			}
+			if (Move.isPromotion(m) && s.length() == 5 && Character.toLowerCase(Chess.pieceToChar(Move.getPromotionPiece(m))) == s.charAt(4)) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException("illegal move: " + s);
+	}
+
+	@Override
+	public void alert(String message) {
+		alerts.add(message);
+	}
+
+	public List<String> getAlerts() {
+		return alerts;
+	}
+
+	private static synchronized void installServer() {
+		if (Bukkit.getServer() != null) {
+			return;
+		}
+		final Logger logger = Logger.getLogger(FakeChessGame.class.getName());
+		Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] { Server.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				Class<?> type = method.getReturnType();
+				if (type == Logger.class) {
+					return logger;
+				} else if (type == String.class) {
+					return "test";
+				} else if (type.isPrimitive() && type != void.class) {
+					// the type's default value
+					return Array.get(Array.newInstance(type, 1), 0);
+				}
+				return null;
+			}
+		});
+		Bukkit.setServer(server);
+	}
+}
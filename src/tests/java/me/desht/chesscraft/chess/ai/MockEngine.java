@@ -0,0 +1,271 @@
+package me.desht.chesscraft.chess.ai;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author desht
+ *
+ * A fake xboard/UCI engine, for testing the engine protocol code without a real chess engine.
+ * It is run as a separate process, like any other engine, and replays a scripted list of moves
+ * with configurable delays.  It can also be told to misbehave: crash during a search, never
+ * finish its handshake, mix junk lines into its output, or reject the position it is given.
+ *
+ * Usage: MockEngine uci|xboard [options]
+ * <ul>
+ * <li>--handshake-delay MS : wait before answering "uci" or "protover"</li>
+ * <li>--move-delay MS : think for this long before moving; "stop" or "?" cuts it short</li>
+ * <li>--crash-after N : exit without a word on the Nth "go" command</li>
+ * <li>--crash-once FILE : exit without a word on "go" if FILE does not exist yet, creating it;
+ * so only the first of several engines started with the same FILE crashes</li>
+ * <li>--garbage : send junk lines before each reply</li>
+ * <li>--silent : never answer the handshake</li>
+ * <li>--crash-on-newgame : (uci) exit without a word on "ucinewgame"</li>
+ * <li>--moves M1,M2,... : the moves to play, in turn (the last one is repeated)</li>
+ * <li>--san : (xboard) ask for SAN moves with "feature san=1"; the moves should then be SAN too</li>
+ * <li>--offer-draw : (xboard) send "offer draw" before each move</li>
+ * <li>--no-ping : (xboard) report "feature ping=0", and ignore "ping"</li>
+ * <li>--illegal : (xboard) answer "go" with "Illegal move" instead of moving</li>
+ * </ul>
+ */
+public class MockEngine {
+	public static final String NAME = "MockEngine";
+
+	private final boolean uci;
+	private long handshakeDelay = 0L;
+	private long moveDelay = 0L;
+	private int crashAfter = 0;
+	private File crashOnce = null;
+	private boolean san = false;
+	private boolean offerDraw = false;
+	private boolean noPing = false;
+	private boolean illegal = false;
+	private boolean garbage = false;
+	private boolean silent = false;
+	private boolean crashOnNewGame = false;
+	private List<String> moves = Arrays.asList("e7e5");
+
+	private final PrintStream out = System.out;
+	private final Object lock = new Object();
+	private int goCount = 0;
+	private int moveIndex = 0;
+	private boolean moveNow;
+
+	private MockEngine(String[] args) {
+		if (args.length == 0 || !(args[0].equals("uci") || args[0].equals("xboard"))) {
+			throw new IllegalArgumentException("usage: MockEngine uci|xboard [options]");
+		}
+		uci = args[0].equals("uci");
+		for (int i = 1; i < args.length; i++) {
+			String a = args[i];
+			if (a.equals("--handshake-delay")) {
+				handshakeDelay = Long.parseLong(args[++i]);
+			} else if (a.equals("--move-delay")) {
+				moveDelay = Long.parseLong(args[++i]);
+			} else if (a.equals("--crash-after")) {
+				crashAfter = Integer.parseInt(args[++i]);
+			} else if (a.equals("--crash-once")) {
+				crashOnce = new File(args[++i]);
+			} else if (a.equals("--san")) {
+				san = true;
+			} else if (a.equals("--offer-draw")) {
+				offerDraw = true;
+			} else if (a.equals("--no-ping")) {
+				noPing = true;
+			} else if (a.equals("--illegal")) {
+				illegal = true;
+			} else if (a.equals("--garbage")) {
+				garbage = true;
+			} else if (a.equals("--silent")) {
+				silent = true;
+			} else if (a.equals("--crash-on-newgame")) {
+				crashOnNewGame = true;
+			} else if (a.equals("--moves")) {
+				moves = Arrays.asList(args[++i].split(","));
+			} else {
+				throw new IllegalArgumentException("unknown option: " + a);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		new MockEngine(args).run();
+	}
+
+	/**
+	 * Build the command line which runs a mock engine with the given arguments, using the same
+	 * JVM and class path as the caller.
+	 *
+	 * @param args the engine's arguments
+	 * @return the command line
+	 */
+	public static String command(String... args) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(System.getProperty("java.home")).append("/bin/java");
+		sb.append(" -cp ").append(System.getProperty("java.class.path"));
+		sb.append(' ').append(MockEngine.class.getName());
+		for (String a : args) {
+			sb.append(' ').append(a);
+		}
+		return sb.toString();
+	}
+
+	private void run() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.equals("quit")) {
+				break;
+			}
+			if (uci) {
+				uciCommand(line);
+			} else {
+				xboardCommand(line);
+			}
+		}
+		System.exit(0);
+	}
+
+	private void uciCommand(String line) {
+		if (line.equals("uci")) {
+			handshake();
+			send("id name " + NAME);
+			send("id author desht");
+			send("option name Hash type spin default 16 min 1 max 1024");
+			send("uciok");
+		} else if (line.equals("isready")) {
+			if (!silent) {
+				send("readyok");
+			}
+		} else if (line.startsWith("go")) {
+			go();
+		} else if (line.equals("stop")) {
+			stop();
+		} else if (line.equals("ucinewgame") && crashOnNewGame) {
+			System.exit(3);
+		}
+		// setoption, ucinewgame and position need no answer
+	}
+
+	private void xboardCommand(String line) {
+		if (line.startsWith("protover")) {
+			handshake();
+			send("feature setboard=1 ping=" + (noPing ? 0 : 1) + " san=" + (san ? 1 : 0) + " myname=\"" + NAME + "\"");
+			send("feature done=1");
+		} else if (line.startsWith("ping ")) {
+			if (!silent && !noPing) {
+				send("pong " + line.substring(5).trim());
+			}
+		} else if (line.equals("go")) {
+			go();
+		} else if (line.equals("?")) {
+			stop();
+		}
+		// xboard, new, force, setboard, level, st, time, otim and draw need no answer
+	}
+
+	private void handshake() {
+		if (silent) {
+			// hang forever, as far as the caller is concerned
+			sleep(Long.MAX_VALUE);
+		}
+		sleep(handshakeDelay);
+		junk();
+	}
+
+	private void go() {
+		synchronized (lock) {
+			goCount++;
+			if (crashAfter > 0 && goCount >= crashAfter || crashOnce != null && createFile(crashOnce)) {
+				out.flush();
+				System.exit(3);
+			}
+			if (illegal) {
+				send("Illegal move: " + moves.get(0));
+				return;
+			}
+			final String move = moves.get(Math.min(moveIndex++, moves.size() - 1));
+			moveNow = false;
+			Thread searcher = new Thread() {
+				@Override
+				public void run() {
+					think();
+					junk();
+					if (uci) {
+						send("info depth 1 score cp 10 nodes 1 nps 1 pv " + move);
+						send("bestmove " + move);
+					} else {
+						if (offerDraw) {
+							send("offer draw");
+						}
+						send("move " + move);
+					}
+				}
+			};
+			searcher.start();
+		}
+	}
+
+	private void think() {
+		long deadline = System.currentTimeMillis() + moveDelay;
+		synchronized (lock) {
+			long wait;
+			while (!moveNow && (wait = deadline - System.currentTimeMillis()) > 0) {
+				try {
+					lock.wait(wait);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void stop() {
+		synchronized (lock) {
+			moveNow = true;
+			lock.notifyAll();
+		}
+	}
+
+	private void junk() {
+		if (garbage) {
+			send("");
+			send("#!? this is not a protocol message");
+			send("feature =");
+			send("info string ??? score");
+			send("pong");
+		}
+	}
+
+	private void send(String s) {
+		synchronized (out) {
+			out.println(s);
+			out.flush();
+		}
+	}
+
+	private static boolean createFile(File f) {
+		try {
+			return f.createNewFile();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void sleep(long ms) {
+		if (ms <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package me.desht.chesscraft.chess.ai;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author desht
+ *
+ * Tests of the real UCI AI, playing black in a {@link FakeChessGame} against {@link MockEngine}
+ * subprocesses: the commands it builds from the game and its clock, and how it copes with
+ * aborted searches and crashing engines.
+ */
+public class UCIAITest {
+	// upper bound on a search which the AI has asked to stop (ms)
+	private static final long MAX_ABORT = 2500L;
+	private static final Map<String, String> NO_OPTIONS = Collections.emptyMap();
+
+	/**
+	 * The UCI AI, with the engine pool and the move and failure reports of ChessAI replaced.
+	 */
+	private static class TestUCIAI extends UCIAI {
+		private final EngineProcessPool pool;
+		private final List<String> moves = Collections.synchronizedList(new ArrayList<String>());
+		private volatile Exception failure;
+
+		TestUCIAI(FakeChessGame game, ConfigurationSection params, EngineProcessPool pool) {
+			super("test", game, false, params);
+			this.pool = pool;
+		}
+
+		@Override
+		EngineProcessPool getEnginePool() {
+			return pool;
+		}
+
+		@Override
+		protected void aiHasMoved(int fromSqi, int toSqi) {
+			moves.add(Chess.sqiToStr(fromSqi) + Chess.sqiToStr(toSqi));
+		}
+
+		@Override
+		protected void aiHasFailed(Exception e) {
+			failure = e;
+			setFailed(true);
+		}
+
+		/**
+		 * Think about a move as the AI worker would: a fresh job, then the search.
+		 */
+		void think() {
+			prepareToThink();
+			run();
+		}
+	}
+
+	private static ConfigurationSection params(String... args) {
+		ConfigurationSection params = new MemoryConfiguration();
+		params.set("command", MockEngine.command(args));
+		return params;
+	}
+
+	private static TestUCIAI newAI(EngineProcessPool pool, String... args) {
+		FakeChessGame game = new FakeChessGame("N");
+		game.play("e2e4");
+		return new TestUCIAI(game, params(args), pool);
+	}
+
+	@Test
+	public void testPositionCommand() {
+		FakeChessGame game = new FakeChessGame("N");
+		UCIAI ai = new TestUCIAI(game, params("uci"), null);
+		game.play("e2e4", "e7e5", "g1f3");
+		assertEquals("position startpos moves e2e4 e7e5 g1f3", ai.getPositionCommand());
+
+		// a new game starts from the position it was set up with
+		game = new FakeChessGame("N");
+		ai = new TestUCIAI(game, params("uci"), null);
+		assertEquals("position fen " + Position.createInitialPosition().getFEN(), ai.getPositionCommand());
+
+		game = new FakeChessGame("N");
+		ai = new TestUCIAI(game, params("uci"), null);
+		game.setPositionFEN("8/P7/8/8/8/8/k7/4K3 w - - 0 1");
+		String fen = game.getPosition().getFEN();
+		assertEquals("position fen " + fen, ai.getPositionCommand());
+		game.play("a7a8q", "a2b3");
+		assertEquals("position fen " + fen + " moves a7a8q a2b3", ai.getPositionCommand());
+	}
+
+	@Test
+	public void testGoCommand() {
+		assertEquals("go movetime 3000", new TestUCIAI(new FakeChessGame("N"), params("uci"), null).getGoCommand());
+
+		ConfigurationSection params = params("uci");
+		params.set("movetime", 500);
+		assertEquals("go movetime 500", new TestUCIAI(new FakeChessGame("N"), params, null).getGoCommand());
+
+		params = params("uci");
+		params.set("depth", 4);
+		assertEquals("go depth 4", new TestUCIAI(new FakeChessGame("N"), params, null).getGoCommand());
+
+		assertEquals("go movetime 10000", new TestUCIAI(new FakeChessGame("M/10"), params("uci"), null).getGoCommand());
+		assertEquals("go wtime 300000 btime 300000", new TestUCIAI(new FakeChessGame("G/5"), params("uci"), null).getGoCommand());
+		assertEquals("go wtime 5400000 btime 5400000 winc 30000 binc 30000",
+				new TestUCIAI(new FakeChessGame("40/90/30"), params("uci"), null).getGoCommand());
+	}
+
+	@Test
+	public void testSearch() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestUCIAI ai = newAI(pool, "uci");
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(Collections.singletonList("e7e5"), ai.moves);
+			// the process is kept for the next search
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStopAndDiscard() throws InterruptedException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			final TestUCIAI ai = newAI(pool, "uci", "--move-delay", "30000");
+			// start the engine beforehand, so that the search starts at once
+			pool.release(pool.lease(ai, MockEngine.command("uci", "--move-delay", "30000"), EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L));
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					ai.think();
+				}
+			};
+			worker.start();
+			// give the AI time to send "go"
+			Thread.sleep(200L);
+			long start = System.currentTimeMillis();
+			ai.abortSearch();
+			worker.join(10000L);
+			long elapsed = System.currentTimeMillis() - start;
+			System.out.println("UCI AI stopped after " + elapsed + "ms");
+			assertFalse(worker.isAlive());
+			assertTrue("stopping took " + elapsed + "ms", elapsed < MAX_ABORT);
+			// the move the engine was made to play is dropped, and the engine kept
+			assertNull(ai.failure);
+			assertTrue(ai.moves.isEmpty());
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testAbortWhileWaitingForEngine() throws InterruptedException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			final TestUCIAI ai = newAI(pool, "uci");
+			// the only process is busy elsewhere
+			EngineProcess busy = pool.lease(new Object(), MockEngine.command("uci"), EngineProcess.Protocol.UCI, NO_OPTIONS, 5000L);
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					ai.think();
+				}
+			};
+			worker.start();
+			Thread.sleep(200L);
+			long start = System.currentTimeMillis();
+			ai.abortSearch();
+			worker.join(10000L);
+			long elapsed = System.currentTimeMillis() - start;
+			assertFalse(worker.isAlive());
+			assertTrue("abort took " + elapsed + "ms", elapsed < MAX_ABORT);
+			assertNull(ai.failure);
+			assertTrue(ai.moves.isEmpty());
+			pool.release(busy);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRetryAfterCrash() throws IOException {
+		File marker = File.createTempFile("mockengine", ".crashed");
+		assertTrue(marker.delete());
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			// the first engine dies during the search, the second one moves
+			TestUCIAI ai = newAI(pool, "uci", "--crash-once", marker.getPath());
+			ai.think();
+			assertTrue(marker.exists());
+			assertNull(ai.failure);
+			assertEquals(Collections.singletonList("e7e5"), ai.moves);
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+			marker.delete();
+		}
+	}
+
+	@Test
+	public void testEngineKeepsCrashing() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestUCIAI ai = newAI(pool, "uci", "--crash-after", "1");
+			ai.think();
+			assertNotNull(ai.failure);
+			assertTrue(ai.hasFailed());
+			assertTrue(ai.moves.isEmpty());
+			assertEquals(0, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
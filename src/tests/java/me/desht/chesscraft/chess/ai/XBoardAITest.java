@@ -0,0 +1,202 @@
+package me.desht.chesscraft.chess.ai;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author desht
+ *
+ * Tests of the real xboard AI, playing black in a {@link FakeChessGame} against
+ * {@link MockEngine} subprocesses: how it reads the engine's moves, draw offers and errors, and
+ * how it stops a search.
+ */
+public class XBoardAITest {
+	// upper bound on a search which the AI has asked to stop (ms)
+	private static final long MAX_ABORT = 2500L;
+
+	/**
+	 * The xboard AI, with the engine pool and the move and failure reports of ChessAI replaced.
+	 */
+	private static class TestXBoardAI extends XBoardAI {
+		private final EngineProcessPool pool;
+		private final List<String> moves = Collections.synchronizedList(new ArrayList<String>());
+		private volatile Exception failure;
+
+		TestXBoardAI(FakeChessGame game, ConfigurationSection params, EngineProcessPool pool) {
+			super("test", game, false, params);
+			this.pool = pool;
+		}
+
+		@Override
+		EngineProcessPool getEnginePool() {
+			return pool;
+		}
+
+		@Override
+		protected void aiHasMoved(int fromSqi, int toSqi) {
+			moves.add(Chess.sqiToStr(fromSqi) + Chess.sqiToStr(toSqi));
+		}
+
+		@Override
+		protected void aiHasFailed(Exception e) {
+			failure = e;
+			setFailed(true);
+		}
+
+		/**
+		 * Think about a move as the AI worker would: a fresh job, then the search.
+		 */
+		void think() {
+			prepareToThink();
+			run();
+		}
+	}
+
+	private static TestXBoardAI newAI(EngineProcessPool pool, String... args) {
+		FakeChessGame game = new FakeChessGame("N");
+		game.play("e2e4");
+		ConfigurationSection params = new MemoryConfiguration();
+		params.set("command", MockEngine.command(args));
+		return new TestXBoardAI(game, params, pool);
+	}
+
+	@Test
+	public void testCoordinateMove() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard");
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(Collections.singletonList("e7e5"), ai.moves);
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSANMove() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard", "--san", "--moves", "Nf6");
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(Collections.singletonList("g8f6"), ai.moves);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testIllegalSANMove() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard", "--san", "--moves", "Nf3");
+			ai.think();
+			assertTrue(ai.failure instanceof IllegalMoveException);
+			assertTrue(ai.moves.isEmpty());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testOfferDraw() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard", "--offer-draw");
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(ChessAI.PendingAction.DRAW_OFFERED, ai.getPendingAction());
+			assertTrue(ai.moves.isEmpty());
+
+			// an offer from the engine when it has been offered a draw accepts it
+			ai = newAI(pool, "xboard", "--offer-draw");
+			ai.setDrawOfferedToAI(true);
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(ChessAI.PendingAction.DRAW_ACCEPTED, ai.getPendingAction());
+			assertTrue(ai.moves.isEmpty());
+			// the engine is kept: the ping of the next lease skips its late move
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testOfferDrawWithoutPing() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard", "--offer-draw", "--no-ping");
+			ai.think();
+			assertNull(ai.failure);
+			assertEquals(ChessAI.PendingAction.DRAW_OFFERED, ai.getPendingAction());
+			// its move can't be told from the next one, so the engine is not used again
+			assertEquals(0, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testIllegalMoveReply() {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			TestXBoardAI ai = newAI(pool, "xboard", "--illegal");
+			ai.think();
+			assertTrue(ai.failure instanceof IllegalMoveException);
+			assertTrue(ai.hasFailed());
+			assertTrue(ai.moves.isEmpty());
+			// an engine which has rejected our position is not used again
+			assertEquals(0, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStopAndDiscard() throws InterruptedException {
+		EngineProcessPool pool = new EngineProcessPool(1, 0L);
+		try {
+			final TestXBoardAI ai = newAI(pool, "xboard", "--move-delay", "30000");
+			// start the engine beforehand, so that the search starts at once
+			pool.release(pool.lease(ai, MockEngine.command("xboard", "--move-delay", "30000"), EngineProcess.Protocol.XBOARD,
+					Collections.<String, String>emptyMap(), 5000L));
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					ai.think();
+				}
+			};
+			worker.start();
+			// give the AI time to send "go"
+			Thread.sleep(200L);
+			long start = System.currentTimeMillis();
+			ai.abortSearch();
+			worker.join(10000L);
+			long elapsed = System.currentTimeMillis() - start;
+			System.out.println("XBoard AI stopped after " + elapsed + "ms");
+			assertFalse(worker.isAlive());
+			assertTrue("stopping took " + elapsed + "ms", elapsed < MAX_ABORT);
+			// the move the engine was made to play is dropped, and the engine kept
+			assertNull(ai.failure);
+			assertTrue(ai.moves.isEmpty());
+			assertEquals(1, pool.getProcessCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}